@@ -0,0 +1,110 @@
+package com.nathan.sbecommerce.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares a JMH JSON result file with the stored baseline.
+ *
+ * Usage: BenchmarkComparison &lt;results.json&gt; &lt;baseline.json&gt; &lt;thresholdPercent&gt; &lt;updateBaseline&gt;
+ *
+ * For every benchmark present in both files it prints the baseline score, the new score and the change.
+ * A benchmark is reported as a regression when it got worse by more than the threshold and the two
+ * confidence intervals (score +/- error) do not overlap, so noise alone does not fail the comparison.
+ * The process exits with status 1 when at least one regression is found.
+ *
+ * With updateBaseline=true the results replace the baseline instead of being compared.
+ */
+public final class BenchmarkComparison {
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: BenchmarkComparison <results.json> <baseline.json> <thresholdPercent> [updateBaseline]");
+            System.exit(2);
+        }
+        Path results = Path.of(args[0]);
+        Path baseline = Path.of(args[1]);
+        double thresholdPercent = Double.parseDouble(args[2]);
+        boolean updateBaseline = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        if (!Files.exists(results)) {
+            System.err.println("No benchmark results at " + results + ", run the benchmarks first");
+            System.exit(2);
+        }
+        if (updateBaseline) {
+            Files.createDirectories(baseline.getParent());
+            Files.copy(results, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Baseline updated: " + baseline);
+            return;
+        }
+        if (!Files.exists(baseline)) {
+            System.err.println("No baseline at " + baseline + ", create one with -Djmh.updateBaseline=true");
+            System.exit(2);
+        }
+
+        Map<String, Score> current = read(results);
+        Map<String, Score> reference = read(baseline);
+
+        int regressions = 0;
+        System.out.printf("%-60s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            String name = entry.getKey().substring(entry.getKey().lastIndexOf('.', entry.getKey().lastIndexOf('.') - 1) + 1);
+            Score now = entry.getValue();
+            Score before = reference.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-60s %14s %14.3f %9s%n", name, "-", now.score(), "new");
+                continue;
+            }
+            double change = (now.score() - before.score()) / before.score() * 100.0;
+            boolean worse = now.higherIsBetter() ? change < -thresholdPercent : change > thresholdPercent;
+            boolean regression = worse && !now.overlaps(before);
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-60s %14.3f %14.3f %+8.1f%% %s%s%n", name, before.score(), now.score(),
+                    change, now.unit(), regression ? "  REGRESSION" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, thresholdPercent);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Score> read(Path file) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(file.toFile());
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : root) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            JsonNode params = run.path("params");
+            for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = it.next();
+                key.append(':').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            JsonNode metric = run.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0.0);
+            scores.put(key.toString(), new Score(metric.path("score").asDouble(),
+                    Double.isNaN(error) ? 0.0 : error,
+                    metric.path("scoreUnit").asText(),
+                    "thrpt".equals(run.path("mode").asText())));
+        }
+        return scores;
+    }
+
+    private record Score(double score, double error, String unit, boolean higherIsBetter) {
+        boolean overlaps(Score other) {
+            return score - error <= other.score + other.error && other.score - other.error <= score + error;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.nathan.sbecommerce.benchmark;
+
+import com.nathan.sbecommerce.model.AppRole;
+import com.nathan.sbecommerce.model.Category;
+import com.nathan.sbecommerce.model.Product;
+import com.nathan.sbecommerce.model.Roles;
+import com.nathan.sbecommerce.model.Users;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shared test data for the benchmarks. Everything is deterministic so that runs on different commits
+ * measure the same work.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static Category category(long id) {
+        Category category = new Category();
+        category.setCategoryId(id);
+        category.setCategoryName("Category " + id);
+        return category;
+    }
+
+    static Product product(long id, Category category) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName("Product " + id + (id % 3 == 0 ? " phone" : " laptop"));
+        product.setDescription("Description of product " + id + " with enough text to look realistic");
+        product.setImage(id + ".png");
+        product.setQuantity((int) (id % 100));
+        product.setPrice(10.0 + id);
+        product.setDiscount((double) (id % 30));
+        product.setSpecialPrice(product.getPrice() - product.getPrice() * product.getDiscount() * 0.01);
+        product.setCategory(category);
+        return product;
+    }
+
+    static List<Product> products(int count) {
+        Category category = category(1L);
+        List<Product> products = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            products.add(product(id, category));
+        }
+        return products;
+    }
+
+    static Users user() {
+        Users user = new Users("benchmark-user", "benchmark-user@example.com",
+                "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3yd8YqQxQHEyUwUsVvh1sOq");
+        user.setUserId(42L);
+        user.setRoles(Set.of(role(1L, AppRole.ROLE_USER), role(2L, AppRole.ROLE_SELLER), role(3L, AppRole.ROLE_ADMIN)));
+        return user;
+    }
+
+    private static Roles role(long id, AppRole appRole) {
+        Roles role = new Roles(appRole);
+        role.setRoleId(id);
+        return role;
+    }
+
+    /**
+     * Sets a private field, used for the values Spring normally injects with @Value.
+     */
+    static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set field " + name, e);
+        }
+    }
+}
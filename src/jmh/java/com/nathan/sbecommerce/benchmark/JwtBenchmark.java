@@ -0,0 +1,40 @@
+package com.nathan.sbecommerce.benchmark;
+
+import com.nathan.sbecommerce.security.JwtUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT signing and verification, done on every signin and on every authenticated request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        BenchmarkFixtures.setField(jwtUtils, "jwtSecret", "mySecretKey123912738aopsgjnspkmndfsopkvajoirjg94gf2opfng2moknm");
+        BenchmarkFixtures.setField(jwtUtils, "jwtExpirationMs", 86400000);
+        BenchmarkFixtures.setField(jwtUtils, "jwtCookie", "SpringAppJwtCookie");
+        token = jwtUtils.generateTokenFromUsername("benchmark-user");
+    }
+
+    @Benchmark
+    public String generateTokenFromUsername() {
+        return jwtUtils.generateTokenFromUsername("benchmark-user");
+    }
+
+    @Benchmark
+    public boolean validateJwtToken() {
+        return jwtUtils.validateJwtToken(token);
+    }
+}
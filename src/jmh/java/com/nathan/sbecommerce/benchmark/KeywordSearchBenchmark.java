@@ -0,0 +1,102 @@
+package com.nathan.sbecommerce.benchmark;
+
+import com.nathan.sbecommerce.config.AppConfig;
+import com.nathan.sbecommerce.dto.response.ProductResponse;
+import com.nathan.sbecommerce.model.ImageRendition;
+import com.nathan.sbecommerce.model.Product;
+import com.nathan.sbecommerce.repository.CategoryRepository;
+import com.nathan.sbecommerce.repository.DiscountCampaignRepository;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.repository.PromotionRuleRepository;
+import com.nathan.sbecommerce.service.CategoryStatsService;
+import com.nathan.sbecommerce.service.FileService;
+import com.nathan.sbecommerce.service.ImageRenditionService;
+import com.nathan.sbecommerce.service.impl.ProductServiceImpl;
+import com.nathan.sbecommerce.service.impl.PromotionEngine;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The application side of the keyword search: building the page request, mapping a page of 50 products and
+ * assembling the ProductResponse. The repository is replaced by an in-memory stand-in returning a prepared
+ * page, so the database query itself is not part of the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeywordSearchBenchmark {
+
+    private ProductServiceImpl productService;
+
+    @Setup
+    public void setUp() {
+        List<Product> matches = BenchmarkFixtures.products(50);
+        ProductRepository productRepository = stub(ProductRepository.class, (method, args) -> {
+            if (method.equals("findByProductNameLikeIgnoreCase")) {
+                return new PageImpl<>(matches, (Pageable) args[1], 5000L);
+            }
+            throw new UnsupportedOperationException(method);
+        });
+        CategoryRepository categoryRepository = stub(CategoryRepository.class, (method, args) -> {
+            throw new UnsupportedOperationException(method);
+        });
+        FileService fileService = stub(FileService.class, (method, args) -> {
+            throw new UnsupportedOperationException(method);
+        });
+        ImageRenditionService imageRenditionService = stub(ImageRenditionService.class, (method, args) -> {
+            if (method.equals("renditionUrl")) {
+                return "http://localhost:8080/images/" + ((ImageRendition) args[0]).getPathSegment() + "/" + args[1];
+            }
+            throw new UnsupportedOperationException(method);
+        });
+        productService = new ProductServiceImpl(productRepository, new AppConfig().modelMapper(),
+                categoryRepository, fileService, imageRenditionService, new TransactionTemplate(),
+                stub(CategoryStatsService.class, (method, args) -> {
+                    throw new UnsupportedOperationException(method);
+                }),
+                stub(DiscountCampaignRepository.class, (method, args) -> {
+                    throw new UnsupportedOperationException(method);
+                }),
+                new PromotionEngine(stub(PromotionRuleRepository.class, (method, args) -> {
+                    if (method.equals("findNotExpired")) {
+                        return List.of();
+                    }
+                    throw new UnsupportedOperationException(method);
+                })),
+                // Searches never write, so they never record domain events
+                null);
+    }
+
+    @Benchmark
+    public ProductResponse searchProductByKeyword() {
+        return productService.searchProductByKeyword("phone", 0, 50, "productName", "asc");
+    }
+
+    private interface Handler {
+        Object handle(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return switch (method.getName()) {
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            case "equals" -> proxy == args[0];
+                            default -> type.getSimpleName() + " stub";
+                        };
+                    }
+                    return handler.handle(method.getName(), args);
+                });
+    }
+}
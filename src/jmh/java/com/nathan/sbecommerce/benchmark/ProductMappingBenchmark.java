@@ -0,0 +1,42 @@
+package com.nathan.sbecommerce.benchmark;
+
+import com.nathan.sbecommerce.config.AppConfig;
+import com.nathan.sbecommerce.dto.request.ProductRequest;
+import com.nathan.sbecommerce.model.Product;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ModelMapper conversions done for every product returned or received by ProductServiceImpl.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductMappingBenchmark {
+
+    private ModelMapper modelMapper;
+    private Product product;
+    private ProductRequest productRequest;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new AppConfig().modelMapper();
+        product = BenchmarkFixtures.product(7L, BenchmarkFixtures.category(1L));
+        productRequest = modelMapper.map(product, ProductRequest.class);
+    }
+
+    @Benchmark
+    public ProductRequest productToProductRequest() {
+        return modelMapper.map(product, ProductRequest.class);
+    }
+
+    @Benchmark
+    public Product productRequestToProduct() {
+        return modelMapper.map(productRequest, Product.class);
+    }
+}
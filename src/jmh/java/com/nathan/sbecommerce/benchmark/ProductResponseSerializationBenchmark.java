@@ -0,0 +1,43 @@
+package com.nathan.sbecommerce.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.sbecommerce.config.AppConfig;
+import com.nathan.sbecommerce.dto.request.ProductRequest;
+import com.nathan.sbecommerce.dto.response.ProductResponse;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of a full listing page (AppConstant.PAGE_SIZE = 50 products).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductResponseSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ProductResponse productResponse;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        ModelMapper modelMapper = new AppConfig().modelMapper();
+        List<ProductRequest> productRequests = BenchmarkFixtures.products(50).stream()
+                .map(product -> modelMapper.map(product, ProductRequest.class))
+                .toList();
+        productResponse = new ProductResponse(productRequests, 0, 50, 5000L, 100, false);
+    }
+
+    @Benchmark
+    public byte[] serializeProductPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(productResponse);
+    }
+}
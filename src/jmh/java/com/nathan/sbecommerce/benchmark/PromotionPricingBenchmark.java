@@ -0,0 +1,82 @@
+package com.nathan.sbecommerce.benchmark;
+
+import com.nathan.sbecommerce.config.AppConfig;
+import com.nathan.sbecommerce.dto.request.ProductRequest;
+import com.nathan.sbecommerce.model.DiscountType;
+import com.nathan.sbecommerce.model.Product;
+import com.nathan.sbecommerce.model.PromotionRule;
+import com.nathan.sbecommerce.service.impl.CompiledPromotions;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pricing a page of 50 products with 1000 promotion rules: a few stackable site-wide rules, one rule per category
+ * for 100 categories and one per product for 800 products, some of them limited to a segment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromotionPricingBenchmark {
+
+    private CompiledPromotions promotions;
+    private List<ProductRequest> page;
+    private long[] categoryIds;
+    private long segmentMask;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        List<PromotionRule> rules = new ArrayList<>();
+        long ruleId = 1;
+        for (int i = 0; i < 100; i++) {
+            rules.add(rule(ruleId++, null, (long) i, DiscountType.PERCENTAGE, "5", true, i % 7 == 0 ? "ROLE_SELLER" : null));
+        }
+        for (int i = 0; i < 800; i++) {
+            rules.add(rule(ruleId++, (long) i, null, DiscountType.AMOUNT, "1.50", i % 2 == 0, null));
+        }
+        for (int i = 0; i < 100; i++) {
+            rules.add(rule(ruleId++, null, null, DiscountType.PERCENTAGE, "0.5", i % 3 == 0, null));
+        }
+        promotions = CompiledPromotions.compile(1, rules, now);
+
+        ModelMapper modelMapper = new AppConfig().modelMapper();
+        List<Product> products = BenchmarkFixtures.products(50);
+        page = products.stream().map(product -> modelMapper.map(product, ProductRequest.class)).toList();
+        categoryIds = new long[page.size()];
+        for (int i = 0; i < categoryIds.length; i++) {
+            categoryIds[i] = i % 10;
+        }
+        segmentMask = CompiledPromotions.segmentMask(Set.of("ROLE_USER", "ROLE_SELLER"));
+    }
+
+    @Benchmark
+    public List<ProductRequest> pricePage() {
+        promotions.apply(page, categoryIds, segmentMask);
+        return page;
+    }
+
+    private static PromotionRule rule(long ruleId, Long productId, Long categoryId, DiscountType type, String value,
+                                      boolean stackable, String segment) {
+        PromotionRule rule = new PromotionRule();
+        rule.setRuleId(ruleId);
+        rule.setRuleName("Rule " + ruleId);
+        rule.setProductId(productId);
+        rule.setCategoryId(categoryId);
+        rule.setDiscountType(type);
+        rule.setDiscountValue(new BigDecimal(value));
+        rule.setStackable(stackable);
+        rule.setPriority((int) (ruleId % 5));
+        rule.setSegment(segment);
+        return rule;
+    }
+}
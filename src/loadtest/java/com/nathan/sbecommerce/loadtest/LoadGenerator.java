@@ -0,0 +1,136 @@
+package com.nathan.sbecommerce.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator.
+ *
+ * Requests are started at a fixed rate whatever the response times are, each one on its own virtual thread,
+ * the way independent users arrive at a shop. Latency is measured from the time the request was scheduled to
+ * start, not from the time it actually left, so a stalled server shows up in the percentiles instead of
+ * silently lowering the offered load (coordinated omission).
+ *
+ * Requests scheduled during the warmup are sent but not recorded.
+ */
+class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+    private static final int MAX_IN_FLIGHT = 20_000;
+
+    private final URI base;
+    private final LoadTestOptions options;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+    LoadGenerator(URI base, LoadTestOptions options) {
+        this.base = base;
+        this.options = options;
+        for (Operation operation : options.mix().keySet()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    Map<Operation, OperationStats> run() throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(options.seed());
+        Operation[] operations = options.mix().keySet().toArray(new Operation[0]);
+        int[] cumulativeWeights = new int[operations.length];
+        int totalWeight = 0;
+        for (int i = 0; i < operations.length; i++) {
+            totalWeight += options.mix().get(operations[i]);
+            cumulativeWeights[i] = totalWeight;
+        }
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        long totalRequests = (options.warmup().toSeconds() + options.duration().toSeconds()) * options.rate();
+        long warmupRequests = options.warmup().toSeconds() * options.rate();
+        AtomicInteger inFlight = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(Duration.ofSeconds(5))
+                     .executor(executor)
+                     .build()) {
+            long start = System.nanoTime();
+            for (long i = 0; i < totalRequests; i++) {
+                long intendedStart = start + i * intervalNanos;
+                long wait = intendedStart - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                int pick = random.nextInt(totalWeight);
+                int index = 0;
+                while (cumulativeWeights[index] <= pick) {
+                    index++;
+                }
+                Operation operation = operations[index];
+                HttpRequest request = operation.request(base, options, random);
+                boolean recorded = i >= warmupRequests;
+                OperationStats operationStats = stats.get(operation);
+
+                if (inFlight.incrementAndGet() > MAX_IN_FLIGHT) {
+                    inFlight.decrementAndGet();
+                    if (recorded) {
+                        operationStats.dropped.increment();
+                    }
+                    continue;
+                }
+                executor.execute(() -> {
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (recorded) {
+                            operationStats.record(intendedStart, response.statusCode());
+                        }
+                    } catch (Exception e) {
+                        if (recorded) {
+                            operationStats.failed.increment();
+                        }
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Latency histogram and outcome counters of one operation.
+     */
+    static class OperationStats {
+        final Histogram latencyMicros = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final LongAdder succeeded = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void record(long intendedStartNanos, int status) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStartNanos);
+            latencyMicros.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+            statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+            if (status < 400) {
+                succeeded.increment();
+            } else {
+                rejected.increment();
+            }
+        }
+    }
+}
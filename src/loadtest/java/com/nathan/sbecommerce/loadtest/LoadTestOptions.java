@@ -0,0 +1,60 @@
+package com.nathan.sbecommerce.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line options of the load test, given as {@code --name=value}.
+ *
+ * - categories, products, users: size of the seeded catalog
+ * - rate: requests per second started by the open-model generator, independent of response times
+ * - warmup, duration: length of the unrecorded warmup and of the measured run, in seconds
+ * - mix: weights of the operations, e.g. {@code products:40,category:30,keyword:20,signin:10}
+ * - seed: seed for the generated data and for the request sequence
+ * - database: {@code mem} (default) or {@code file} to keep the seeded database under the output directory
+ * - out: directory receiving the reports
+ */
+record LoadTestOptions(int categories,
+                       int products,
+                       int users,
+                       int rate,
+                       Duration warmup,
+                       Duration duration,
+                       Map<Operation, Integer> mix,
+                       long seed,
+                       String database,
+                       Path out) {
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return new LoadTestOptions(
+                Integer.parseInt(values.getOrDefault("categories", "200")),
+                Integer.parseInt(values.getOrDefault("products", "200000")),
+                Integer.parseInt(values.getOrDefault("users", "1000")),
+                Integer.parseInt(values.getOrDefault("rate", "200")),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup", "15"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "60"))),
+                parseMix(values.getOrDefault("mix", "products:40,category:30,keyword:20,signin:10")),
+                Long.parseLong(values.getOrDefault("seed", "42")),
+                values.getOrDefault("database", "mem"),
+                Path.of(values.getOrDefault("out", "target/loadtest")));
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] nameAndWeight = part.split(":");
+            weights.put(Operation.fromName(nameAndWeight[0].trim()), Integer.parseInt(nameAndWeight[1].trim()));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,141 @@
+package com.nathan.sbecommerce.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes the results of a run into {@code <out>/<commit>-<timestamp>/}:
+ * - summary.json: options, commit and per-operation throughput, error counts and latency percentiles
+ * - latency.hlog: the raw HDR histograms (one tagged interval per operation), mergeable across runs
+ * - {@code <operation>.hgrm}: full percentile distribution in milliseconds, for plotting
+ *
+ * Runs made with the same options and seed replay the same request sequence, so summaries of two commits can
+ * be compared side by side.
+ */
+class LoadTestReport {
+
+    private final LoadTestOptions options;
+    private final Map<Operation, LoadGenerator.OperationStats> stats;
+
+    LoadTestReport(LoadTestOptions options, Map<Operation, LoadGenerator.OperationStats> stats) {
+        this.options = options;
+        this.stats = stats;
+    }
+
+    Path write() throws IOException {
+        String commit = commit();
+        Path directory = options.out().resolve(commit + "-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+        Files.createDirectories(directory);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("commit", commit);
+        summary.put("options", Map.of(
+                "categories", options.categories(),
+                "products", options.products(),
+                "users", options.users(),
+                "rate", options.rate(),
+                "warmupSeconds", options.warmup().toSeconds(),
+                "durationSeconds", options.duration().toSeconds(),
+                "mix", options.mix(),
+                "seed", options.seed()));
+        Map<String, Object> operations = new LinkedHashMap<>();
+        summary.put("operations", operations);
+
+        try (PrintStream log = new PrintStream(Files.newOutputStream(directory.resolve("latency.hlog")), false,
+                StandardCharsets.UTF_8)) {
+            HistogramLogWriter logWriter = new HistogramLogWriter(log);
+            logWriter.outputLogFormatVersion();
+            logWriter.outputLegend();
+
+            for (Map.Entry<Operation, LoadGenerator.OperationStats> entry : stats.entrySet()) {
+                String name = entry.getKey().displayName();
+                LoadGenerator.OperationStats operationStats = entry.getValue();
+                Histogram histogram = operationStats.latencyMicros;
+                histogram.setTag(name);
+                logWriter.outputIntervalHistogram(histogram);
+
+                try (PrintStream hgrm = new PrintStream(Files.newOutputStream(directory.resolve(name + ".hgrm")),
+                        false, StandardCharsets.UTF_8)) {
+                    histogram.outputPercentileDistribution(hgrm, 1000.0);
+                }
+                operations.put(name, operationSummary(operationStats));
+            }
+        }
+
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(directory.resolve("summary.json").toFile(), summary);
+        return directory;
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-10s %9s %9s %8s %8s %10s %10s %10s %10s %10s%n",
+                "operation", "requests", "req/s", "errors", "dropped", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<Operation, LoadGenerator.OperationStats> entry : stats.entrySet()) {
+            LoadGenerator.OperationStats operationStats = entry.getValue();
+            Histogram histogram = operationStats.latencyMicros;
+            out.printf("%-10s %9d %9.1f %8d %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    entry.getKey().displayName(),
+                    histogram.getTotalCount(),
+                    histogram.getTotalCount() / (double) options.duration().toSeconds(),
+                    operationStats.rejected.sum() + operationStats.failed.sum(),
+                    operationStats.dropped.sum(),
+                    millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                    histogram.getMaxValue() / 1000.0);
+        }
+    }
+
+    private Map<String, Object> operationSummary(LoadGenerator.OperationStats operationStats) {
+        Histogram histogram = operationStats.latencyMicros;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", histogram.getTotalCount());
+        summary.put("throughputPerSecond", histogram.getTotalCount() / (double) options.duration().toSeconds());
+        summary.put("succeeded", operationStats.succeeded.sum());
+        summary.put("rejected", operationStats.rejected.sum());
+        summary.put("failed", operationStats.failed.sum());
+        summary.put("dropped", operationStats.dropped.sum());
+        Map<String, Long> statuses = new TreeMap<>();
+        operationStats.statuses.forEach((status, count) -> statuses.put(String.valueOf(status), count.sum()));
+        summary.put("statuses", statuses);
+        summary.put("meanMs", histogram.getMean() / 1000.0);
+        summary.put("p50Ms", millis(histogram, 50));
+        summary.put("p90Ms", millis(histogram, 90));
+        summary.put("p99Ms", millis(histogram, 99));
+        summary.put("p999Ms", millis(histogram, 99.9));
+        summary.put("maxMs", histogram.getMaxValue() / 1000.0);
+        return summary;
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static String commit() {
+        try {
+            Process process = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            try (InputStream output = process.getInputStream()) {
+                String sha = new String(output.readAllBytes(), StandardCharsets.UTF_8).trim();
+                return process.waitFor() == 0 && !sha.isEmpty() ? sha : "unknown";
+            }
+        } catch (IOException e) {
+            return "unknown";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.nathan.sbecommerce.loadtest;
+
+import com.nathan.sbecommerce.SbEcommerceApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * Entry point of the load test.
+ *
+ * 1. Boots the application on a random port against a dedicated H2 database, with SQL logging off
+ * 2. Generates categories, products and users with the datagen profile (see SyntheticDataGenerator)
+ * 3. Runs the open-model workload (see {@link LoadGenerator})
+ * 4. Prints a latency table and writes the reports (see {@link LoadTestReport})
+ *
+ * Example: {@code --products=2000000 --categories=500 --rate=300 --duration=120 --mix=products:50,keyword:50}
+ */
+public final class LoadTestRunner {
+
+    static final String PASSWORD = "loadtest-password";
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        String databaseUrl = "file".equals(options.database())
+                ? "jdbc:h2:file:" + options.out().resolve("db").toAbsolutePath() + "/loadtest;DB_CLOSE_ON_EXIT=FALSE"
+                : "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+
+        // Command line arguments take precedence over application.properties, which logs every SQL statement
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        String[] applicationArgs = {
+                "--server.port=0",
+                "--spring.datasource.url=" + databaseUrl,
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.com.nathan.sbecommerce=WARN",
+                "--logging.level.org.springframework.security=WARN",
+                "--logging.level.com.nathan.sbecommerce.datagen=INFO",
+                // No operation of the mix reads similar products, and the index would compete for the heap
+                "--project.similar.enabled=false",
+                "--spring.profiles.active=datagen",
+                "--datagen.exit=false",
+                "--datagen.categories=" + options.categories(),
+                "--datagen.products=" + options.products(),
+                "--datagen.users=" + options.users(),
+                "--datagen.seed=" + options.seed(),
+                "--datagen.password=" + PASSWORD};
+
+        try (ConfigurableApplicationContext context = SpringApplication.run(SbEcommerceApplication.class, applicationArgs)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI base = URI.create("http://localhost:" + port);
+            System.out.printf("Running %s at %d req/s for %d s after %d s of warmup%n", options.mix(),
+                    options.rate(), options.duration().toSeconds(), options.warmup().toSeconds());
+
+            LoadTestReport report = new LoadTestReport(options, new LoadGenerator(base, options).run());
+            report.print(System.out);
+            Path directory = report.write();
+            System.out.println("Reports written to " + directory);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.nathan.sbecommerce.loadtest;
+
+import com.nathan.sbecommerce.datagen.SyntheticDataGenerator;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+/**
+ * The requests of the workload mix. Each operation builds a request against the seeded catalog from the
+ * seeded random source, so the same seed replays the same request sequence on every commit.
+ */
+enum Operation {
+    PRODUCTS("products") {
+        @Override
+        HttpRequest request(URI base, LoadTestOptions options, SplittableRandom random) {
+            int lastPage = Math.max(1, Math.min(100, options.products() / 50));
+            return get(base, "/api/public/products?pageNumber=" + random.nextInt(lastPage));
+        }
+    },
+    CATEGORY("category") {
+        @Override
+        HttpRequest request(URI base, LoadTestOptions options, SplittableRandom random) {
+            return get(base, "/api/public/categories/" + (1 + random.nextInt(options.categories())) + "/products");
+        }
+    },
+    KEYWORD("keyword") {
+        @Override
+        HttpRequest request(URI base, LoadTestOptions options, SplittableRandom random) {
+            String keyword = SyntheticDataGenerator.NOUNS[random.nextInt(SyntheticDataGenerator.NOUNS.length)];
+            return get(base, "/api/public/products/keyword/" + keyword);
+        }
+    },
+    SIGNIN("signin") {
+        @Override
+        HttpRequest request(URI base, LoadTestOptions options, SplittableRandom random) {
+            String body = "{\"username\":\"" + SyntheticDataGenerator.username(1 + random.nextInt(options.users()))
+                    + "\",\"password\":\"" + LoadTestRunner.PASSWORD + "\"}";
+            return HttpRequest.newBuilder(base.resolve("/api/auth/signin"))
+                    .timeout(TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+    };
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    String displayName() {
+        return name;
+    }
+
+    abstract HttpRequest request(URI base, LoadTestOptions options, SplittableRandom random);
+
+    static Operation fromName(String name) {
+        for (Operation operation : values()) {
+            if (operation.name.equals(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation " + name);
+    }
+
+    private static HttpRequest get(URI base, String path) {
+        return HttpRequest.newBuilder(base.resolve(path)).timeout(TIMEOUT).GET().build();
+    }
+}
@@ -6,5 +6,7 @@ public class AppConstant {
     public static final String SORT_CATEGORY_BY = "categoryId";
     public static final String SORT_PRODUCT_BY = "productName";
     public static final String SORT_DIR = "asc";
+    public static final String TRENDING_LIMIT = "10";
+    public static final String SIMILAR_LIMIT = "10";
 
 }
@@ -0,0 +1,47 @@
+package com.nathan.sbecommerce.config;
+
+import com.nathan.sbecommerce.storage.BlobStore;
+import com.nathan.sbecommerce.storage.ConcurrencyLimitedBlobStore;
+import com.nathan.sbecommerce.storage.InMemoryBlobStore;
+import com.nathan.sbecommerce.storage.LocalBlobStore;
+import com.nathan.sbecommerce.storage.S3BlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+public class BlobStoreConfig {
+
+    /**
+     * Creates the storage backend of product images, selected with {@code project.image.storage}:
+     * - local (default): files under {@code project.image}, served with sendfile
+     * - memory: kept in the heap, for tests
+     * - s3: an S3-compatible bucket configured with the {@code project.image.storage.s3.*} properties
+     *
+     * Whatever the backend, at most {@code project.image.storage.max-concurrency} calls are in flight at once.
+     *
+     * @return the blob store used by the file service, the rendition pipeline and the image endpoints
+     */
+    @Bean
+    public BlobStore blobStore(@Value("${project.image.storage:local}") String storage,
+                               @Value("${project.image}") String path,
+                               @Value("${project.image.storage.max-concurrency:64}") int maxConcurrency,
+                               Environment environment) {
+        BlobStore blobStore = switch (storage) {
+            case "local" -> new LocalBlobStore(path);
+            case "memory" -> new InMemoryBlobStore();
+            case "s3" -> new S3BlobStore(
+                    environment.getRequiredProperty("project.image.storage.s3.endpoint"),
+                    environment.getProperty("project.image.storage.s3.region", "us-east-1"),
+                    environment.getRequiredProperty("project.image.storage.s3.bucket"),
+                    environment.getRequiredProperty("project.image.storage.s3.access-key"),
+                    environment.getRequiredProperty("project.image.storage.s3.secret-key"),
+                    environment.getProperty("project.image.storage.s3.part-size-bytes", Long.class, 8L * 1024 * 1024),
+                    environment.getProperty("project.image.storage.s3.upload-threads", Integer.class, 4));
+            default -> throw new IllegalStateException("Unknown project.image.storage: " + storage
+                    + " (expected local, memory or s3)");
+        };
+        return new ConcurrencyLimitedBlobStore(blobStore, maxConcurrency);
+    }
+}
@@ -0,0 +1,37 @@
+package com.nathan.sbecommerce.config;
+
+import com.nathan.sbecommerce.monitoring.SqlStatementListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class SqlMonitoringConfig {
+
+    /**
+     * Wraps the DataSource with a proxy reporting to {@link SqlStatementListener}, so that every SQL statement,
+     * from Hibernate or from a JdbcTemplate, is counted for the request that triggered it. The per-request
+     * counts are reported by SqlStatementCountFilter.
+     *
+     * @return a post-processor replacing each DataSource bean with its counting proxy
+     */
+    @Bean
+    public static BeanPostProcessor sqlStatementCountingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(new SqlStatementListener())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -99,7 +99,7 @@ public class AuthController {
      */
     @PostMapping("/signup")
     public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signupRequest) {
-        if(userRepository.existsByUserName(signupRequest.getUsername())){
+        if(userRepository.existsByUsername(signupRequest.getUsername())){
             return ResponseEntity
                     .badRequest()
                     .body(new MessageResponse("Error: username is already taken"));
@@ -122,24 +122,24 @@ public class AuthController {
         Set<Roles> roles = new HashSet<>();
 
         if(strRoles == null || strRoles.isEmpty()) {
-            Roles userRole = roleRepository.findByRoleName(AppRole.ROLE_USER)
+            Roles userRole = roleRepository.findByAppRole(AppRole.ROLE_USER)
                     .orElseThrow(() -> new APIException("Error: Role is not found"));
             roles.add(userRole);
         } else {
             strRoles.forEach(role -> {
                 switch (role) {
                     case "admin" -> {
-                        Roles adminRole = roleRepository.findByRoleName(AppRole.ROLE_ADMIN)
+                        Roles adminRole = roleRepository.findByAppRole(AppRole.ROLE_ADMIN)
                                 .orElseThrow(() -> new APIException("Error: Role is not found"));
                         roles.add(adminRole);
                     }
                     case "seller" -> {
-                        Roles sellerRole = roleRepository.findByRoleName(AppRole.ROLE_SELLER)
+                        Roles sellerRole = roleRepository.findByAppRole(AppRole.ROLE_SELLER)
                             .orElseThrow(() -> new APIException("Error: Role is not found"));
                         roles.add(sellerRole);
                     }
                     default -> {
-                        Roles userRole = roleRepository.findByRoleName(AppRole.ROLE_USER)
+                        Roles userRole = roleRepository.findByAppRole(AppRole.ROLE_USER)
                             .orElseThrow(() -> new APIException("Error: Role is not found"));
                         roles.add(userRole);
                     }
@@ -151,7 +151,7 @@ public class AuthController {
         return ResponseEntity.ok(new MessageResponse("User registered successfully"));
     }
 
-    @GetMapping("/current-user")
+    @GetMapping("/username")
     public String currentUser(Authentication authentication) {
         if (authentication != null) {
             return authentication.getName();
@@ -0,0 +1,60 @@
+package com.nathan.sbecommerce.controller;
+
+import com.nathan.sbecommerce.dto.request.CartItemRequest;
+import com.nathan.sbecommerce.dto.response.CartResponse;
+import com.nathan.sbecommerce.service.impl.UserDetailsImpl;
+import com.nathan.sbecommerce.service.CartService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api")
+public class CartController {
+
+    private final CartService cartService;
+
+    /**
+     * Returns the cart of the signed in user, each line priced with the promotions in effect for the user.
+     *
+     * @return ResponseEntity object containing the CartResponse
+     */
+    @GetMapping("/cart")
+    public ResponseEntity<CartResponse> getCart(@AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return new ResponseEntity<>(cartService.getCart(userDetails.getId()), HttpStatus.OK);
+    }
+
+    /**
+     * Adds a quantity of a product to the cart, on top of the quantity it already holds.
+     *
+     * @param cartItemRequest the product and the quantity to add.
+     * @return ResponseEntity object containing the updated CartResponse
+     */
+    @PostMapping("/cart/items")
+    public ResponseEntity<CartResponse> addItem(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                                @Valid @RequestBody CartItemRequest cartItemRequest) {
+        return new ResponseEntity<>(cartService.addItem(userDetails.getId(), cartItemRequest), HttpStatus.OK);
+    }
+
+    @PutMapping("/cart/items/{productId}")
+    public ResponseEntity<CartResponse> updateItem(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                                   @PathVariable Long productId,
+                                                   @RequestParam(name = "quantity") Integer quantity) {
+        return new ResponseEntity<>(cartService.updateItem(userDetails.getId(), productId, quantity), HttpStatus.OK);
+    }
+
+    @DeleteMapping("/cart/items/{productId}")
+    public ResponseEntity<CartResponse> removeItem(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                                   @PathVariable Long productId) {
+        return new ResponseEntity<>(cartService.removeItem(userDetails.getId(), productId), HttpStatus.OK);
+    }
+
+    @DeleteMapping("/cart")
+    public ResponseEntity<CartResponse> clearCart(@AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return new ResponseEntity<>(cartService.clearCart(userDetails.getId()), HttpStatus.OK);
+    }
+}
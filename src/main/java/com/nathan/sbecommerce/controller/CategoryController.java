@@ -2,8 +2,12 @@ package com.nathan.sbecommerce.controller;
 
 import com.nathan.sbecommerce.config.AppConstant;
 import com.nathan.sbecommerce.dto.request.CategoryRequest;
+import com.nathan.sbecommerce.dto.response.CategoryDeletionResponse;
 import com.nathan.sbecommerce.dto.response.CategoryResponse;
+import com.nathan.sbecommerce.dto.response.MessageResponse;
+import com.nathan.sbecommerce.dto.response.PriceStatsResponse;
 import com.nathan.sbecommerce.service.CategoryService;
+import com.nathan.sbecommerce.service.CategoryStatsService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -17,6 +21,8 @@ public class CategoryController {
 
     private final CategoryService categoryService;
 
+    private final CategoryStatsService categoryStatsService;
+
 
     /**
      * This method is used to retrieve a list of all categories from the database.
@@ -91,9 +97,8 @@ public class CategoryController {
      * which is the identifier of the category to be deleted. It is an HTTP DELETE request mapped to the "/admin/category/{categoryid}"
      * endpoint. The method uses the CategoryServiceImpl class to delete the category from the database.
      *
-     * The method returns a ResponseEntity object containing a CategoryRequest object. CategoryRequest is a Data Transfer Object
-     * (DTO) that contains the details of a category. It is used to transfer data between the backend and the frontend in the context
-     * of category deletion.
+     * The deletion runs in the background, since a category can hold a very large number of products. The method
+     * answers 202 Accepted with the deletion job, whose progress is read from "/admin/category/deletions/{jobId}".
      *
      * This method is used in the following cases:
      * - When an admin user wants to delete an existing category from the database.
@@ -101,12 +106,23 @@ public class CategoryController {
      * - When an admin user wants to remove a category from the database.
      *
      * @param categoryId the identifier of the category to be deleted.
-     * @return ResponseEntity object containing a CategoryRequest object
+     * @return ResponseEntity object containing the CategoryDeletionResponse of the deletion job
+     */
+    @DeleteMapping("/admin/category/{categoryId}")
+    public ResponseEntity<CategoryDeletionResponse> deleteCategory(@PathVariable Long categoryId) {
+        CategoryDeletionResponse deletion = categoryService.deleteCategory(categoryId);
+        return new ResponseEntity<>(deletion, HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Returns the progress of a category deletion started with DELETE "/admin/category/{categoryId}".
+     *
+     * @param jobId the identifier of the deletion job.
+     * @return ResponseEntity object containing the CategoryDeletionResponse of the job
      */
-    @DeleteMapping("/admin/category/{categoryid}")
-    public ResponseEntity<CategoryRequest> deleteCategory(@PathVariable Long categoryId) {
-        CategoryRequest deletedCategoryRequest = categoryService.deleteCategory(categoryId);
-        return new ResponseEntity<>(deletedCategoryRequest, HttpStatus.OK);
+    @GetMapping("/admin/category/deletions/{jobId}")
+    public ResponseEntity<CategoryDeletionResponse> getCategoryDeletion(@PathVariable Long jobId) {
+        return new ResponseEntity<>(categoryService.getCategoryDeletion(jobId), HttpStatus.OK);
     }
 
 
@@ -130,10 +146,62 @@ public class CategoryController {
      * @param categoryId the identifier of the category to be updated.
      * @return ResponseEntity object containing a CategoryRequest object
      */
-    @PutMapping("/admin/category/{categoryid}")
+    @PutMapping("/admin/category/{categoryId}")
     public ResponseEntity<CategoryRequest> updateCategory(@Valid @RequestBody CategoryRequest categoryRequest,
                                                           @PathVariable Long categoryId) {
         CategoryRequest savedCategory = categoryService.updateCategory(categoryRequest, categoryId);
         return new ResponseEntity<>(savedCategory, HttpStatus.OK);
     }
+
+
+    /**
+     * Moves a category, with all its sub categories, under another category. Without a parentId the category
+     * becomes a top-level department. Products stay in their category and follow it.
+     *
+     * @param categoryId the identifier of the category to move.
+     * @param parentId the identifier of the new parent, or none for the top level.
+     * @return ResponseEntity object containing the moved CategoryRequest
+     */
+    @PutMapping("/admin/category/{categoryId}/parent")
+    public ResponseEntity<CategoryRequest> moveCategory(@PathVariable Long categoryId,
+                                                        @RequestParam(name = "parentId", required = false) Long parentId) {
+        CategoryRequest movedCategory = categoryService.moveCategory(categoryId, parentId);
+        return new ResponseEntity<>(movedCategory, HttpStatus.OK);
+    }
+
+
+    /**
+     * Returns the 10th, 50th and 90th percentiles and the histogram of the prices and special prices of the
+     * products of a category, from the in-memory distributions.
+     *
+     * @param categoryId the identifier of the category.
+     * @return ResponseEntity object containing the PriceStatsResponse of the category
+     */
+    @GetMapping("/public/category/{categoryId}/price-stats")
+    public ResponseEntity<PriceStatsResponse> getCategoryPriceStats(@PathVariable Long categoryId) {
+        return new ResponseEntity<>(categoryStatsService.getPriceStats(categoryId), HttpStatus.OK);
+    }
+
+    /**
+     * Returns the price statistics of all products, merged from the distributions of every category.
+     *
+     * @return ResponseEntity object containing the PriceStatsResponse of all products
+     */
+    @GetMapping("/public/category/price-stats")
+    public ResponseEntity<PriceStatsResponse> getPriceStats() {
+        return new ResponseEntity<>(categoryStatsService.getPriceStats(null), HttpStatus.OK);
+    }
+
+    /**
+     * Rebuilds the price distributions of every category from a scan of the products, e.g. after products were
+     * imported without going through the API.
+     *
+     * @return ResponseEntity object containing a MessageResponse with the number of products scanned
+     */
+    @PostMapping("/admin/category/price-stats/rebuild")
+    public ResponseEntity<MessageResponse> rebuildPriceStats() {
+        int scanned = categoryStatsService.rebuildPriceStats();
+        return new ResponseEntity<>(new MessageResponse("Rebuilt the price statistics from " + scanned + " products"),
+                HttpStatus.OK);
+    }
 }
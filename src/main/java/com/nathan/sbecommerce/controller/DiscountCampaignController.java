@@ -0,0 +1,56 @@
+package com.nathan.sbecommerce.controller;
+
+import com.nathan.sbecommerce.dto.request.DiscountCampaignRequest;
+import com.nathan.sbecommerce.dto.response.DiscountCampaignResponse;
+import com.nathan.sbecommerce.service.DiscountCampaignService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api")
+public class DiscountCampaignController {
+
+    private final DiscountCampaignService discountCampaignService;
+
+    /**
+     * Schedules a discount campaign over the products of a category (or of all categories), optionally limited
+     * to a price range. The products are repriced in the background once the campaign starts, right away when
+     * no start time is given; the progress is read from "/admin/campaigns/{campaignId}".
+     *
+     * @param campaignRequest the discount, its target and its period.
+     * @return ResponseEntity object containing the scheduled DiscountCampaignResponse
+     */
+    @PostMapping("/admin/campaigns")
+    public ResponseEntity<DiscountCampaignResponse> createCampaign(@Valid @RequestBody DiscountCampaignRequest campaignRequest) {
+        DiscountCampaignResponse campaign = discountCampaignService.createCampaign(campaignRequest);
+        return new ResponseEntity<>(campaign, HttpStatus.CREATED);
+    }
+
+    @GetMapping("/admin/campaigns")
+    public ResponseEntity<List<DiscountCampaignResponse>> getCampaigns() {
+        return new ResponseEntity<>(discountCampaignService.getCampaigns(), HttpStatus.OK);
+    }
+
+    @GetMapping("/admin/campaigns/{campaignId}")
+    public ResponseEntity<DiscountCampaignResponse> getCampaign(@PathVariable Long campaignId) {
+        return new ResponseEntity<>(discountCampaignService.getCampaign(campaignId), HttpStatus.OK);
+    }
+
+    /**
+     * Ends a campaign now, restoring the products' own prices in the background, or cancels it if it has not
+     * started yet.
+     *
+     * @param campaignId the identifier of the campaign.
+     * @return ResponseEntity object containing the DiscountCampaignResponse being ended
+     */
+    @DeleteMapping("/admin/campaigns/{campaignId}")
+    public ResponseEntity<DiscountCampaignResponse> endCampaign(@PathVariable Long campaignId) {
+        return new ResponseEntity<>(discountCampaignService.endCampaign(campaignId), HttpStatus.ACCEPTED);
+    }
+}
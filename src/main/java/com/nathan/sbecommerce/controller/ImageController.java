@@ -0,0 +1,237 @@
+package com.nathan.sbecommerce.controller;
+
+import com.nathan.sbecommerce.exception.APIResponse;
+import com.nathan.sbecommerce.model.ImageRendition;
+import com.nathan.sbecommerce.service.ImageRenditionService;
+import com.nathan.sbecommerce.service.impl.ImageFileCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequiredArgsConstructor
+public class ImageController {
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String CACHE_LEGACY = "public, max-age=3600";
+    private static final String CACHE_PENDING_RENDITION = "public, max-age=60";
+
+    private final ImageRenditionService imageRenditionService;
+
+    private final ImageFileCache imageFileCache;
+
+    /**
+     * Files at least this large are handed to Tomcat's sendfile, smaller ones are copied from the cached channel,
+     * which is cheaper than a sendfile that opens and stats the file for a few kilobytes.
+     */
+    @Value("${project.image.sendfile-threshold-bytes:49152}")
+    private long sendfileThreshold;
+
+    /**
+     * Serves an uploaded image as stored.
+     *
+     * @see #serve(HttpServletRequest, HttpServletResponse, ImageRendition, String)
+     */
+    @GetMapping("/images/{imageKey}")
+    public void getImage(@PathVariable String imageKey,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        serve(request, response, null, imageKey);
+    }
+
+    /**
+     * Serves a rendition of an image (e.g. /images/listing/{imageKey}). While the rendition is not generated yet,
+     * the original is served with a short cache lifetime and the rendition is queued.
+     */
+    @GetMapping("/images/{rendition}/{imageKey}")
+    public void getImageRendition(@PathVariable String rendition,
+                                  @PathVariable String imageKey,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
+        Optional<ImageRendition> imageRendition = ImageRendition.fromPathSegment(rendition);
+        if (imageRendition.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        serve(request, response, imageRendition.get(), imageKey);
+    }
+
+    /**
+     * Starts generating, in the background, the renditions missing for the images of existing products
+     * (e.g. images uploaded before renditions existed, or dropped because the rendition queue was full).
+     *
+     * @return 202 Accepted when the backfill started, 409 Conflict when one is already running
+     */
+    @PostMapping("/api/admin/images/renditions/backfill")
+    public ResponseEntity<APIResponse> backfillRenditions() {
+        if (!imageRenditionService.startBackfill()) {
+            return new ResponseEntity<>(new APIResponse("A rendition backfill is already running", false),
+                    HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>(new APIResponse("Rendition backfill started", true), HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Writes an image file to the response.
+     *
+     * - The metadata comes from {@link ImageFileCache}, so headers, 304 and 416 answers never stat the file
+     * - ETag is strong (the content hash for content-addressed images) and If-None-Match answers 304
+     * - Content-addressed names never change content, so they are cached by clients as immutable
+     * - A single byte range is honoured (206); several ranges are answered with the whole file
+     * - Local files of at least {@code project.image.sendfile-threshold-bytes} are handed to Tomcat's sendfile when
+     *   the connector supports it. This is the only zero-copy path: the kernel sends the file, but Tomcat opens
+     *   and stats it again for each request
+     * - Other local files are copied from the channel cached by {@link ImageFileCache} through a heap buffer, and
+     *   images kept in a remote blob store are streamed from it
+     */
+    private void serve(HttpServletRequest request,
+                       HttpServletResponse response,
+                       ImageRendition rendition,
+                       String imageKey) throws IOException {
+        ImageFileCache.ImageFile file = imageFileCache.open(rendition, imageKey);
+        boolean pendingRendition = false;
+        if (file == null && rendition != null) {
+            file = imageFileCache.open(null, imageKey);
+            if (file != null) {
+                pendingRendition = true;
+                imageRenditionService.generateRenditions(imageKey);
+            }
+        }
+        if (file == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        try {
+            String etag = pendingRendition ? null : file.getEtag();
+            response.setContentType(MediaTypeFactory.getMediaType(imageKey)
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setHeader(HttpHeaders.CACHE_CONTROL, pendingRendition ? CACHE_PENDING_RENDITION
+                    : file.isImmutable() ? CACHE_IMMUTABLE : CACHE_LEGACY);
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, file.getLastModified());
+            if (etag != null) {
+                response.setHeader(HttpHeaders.ETAG, etag);
+                if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+            }
+
+            long size = file.getSize();
+            long start = 0;
+            long length = size;
+            String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+            String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+            if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+                List<HttpRange> ranges;
+                try {
+                    ranges = HttpRange.parseRanges(rangeHeader);
+                } catch (IllegalArgumentException e) {
+                    ranges = List.of();
+                }
+                if (ranges.size() == 1) {
+                    HttpRange range = ranges.get(0);
+                    try {
+                        start = range.getRangeStart(size);
+                        length = range.getRangeEnd(size) - start + 1;
+                        if (start >= size || length <= 0) {
+                            throw new IllegalArgumentException("Range starts after the end of the file");
+                        }
+                    } catch (IllegalArgumentException e) {
+                        response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                        return;
+                    }
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE,
+                            "bytes " + start + "-" + (start + length - 1) + "/" + size);
+                }
+            }
+
+            response.setContentLengthLong(length);
+            if ("HEAD".equals(request.getMethod()) || length == 0) {
+                return;
+            }
+            if (file.getPath() == null) {
+                try (InputStream in = imageFileCache.openStream(file, start, length)) {
+                    if (in != null) {
+                        in.transferTo(response.getOutputStream());
+                    }
+                }
+                return;
+            }
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED)) && length >= sendfileThreshold) {
+                // Tomcat opens the file and sends it with sendfile once this request returns
+                request.setAttribute(SENDFILE_FILENAME, file.getPath().toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, start + length);
+                return;
+            }
+            FileChannel channel;
+            try {
+                channel = file.channel();
+            } catch (NoSuchFileException e) {
+                // Deleted since its metadata was cached
+                imageFileCache.evict(imageKey);
+                response.reset();
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            // The servlet output stream is not a channel, so transferTo copies through a heap buffer here
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+            }
+        } finally {
+            file.release();
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,44 @@
+package com.nathan.sbecommerce.controller;
+
+import com.nathan.sbecommerce.dto.request.CheckoutRequest;
+import com.nathan.sbecommerce.dto.response.OrderResponse;
+import com.nathan.sbecommerce.service.OrderService;
+import com.nathan.sbecommerce.service.impl.UserDetailsImpl;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api")
+public class OrderController {
+
+    private final OrderService orderService;
+
+    /**
+     * Places an order for the requested products, or for the content of the cart when no item is given.
+     *
+     * The Idempotency-Key header is required: a retry with the same key returns the order placed by the first
+     * attempt instead of placing another one. Answers 409 Conflict when a product does not have enough stock.
+     *
+     * @param idempotencyKey  a key chosen by the client, unique for each checkout it intends to make.
+     * @param checkoutRequest the address and optionally the products to order.
+     * @return ResponseEntity object containing the OrderResponse
+     */
+    @PostMapping("/orders")
+    public ResponseEntity<OrderResponse> checkout(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                                  @RequestHeader("Idempotency-Key") String idempotencyKey,
+                                                  @Valid @RequestBody CheckoutRequest checkoutRequest) {
+        OrderResponse order = orderService.checkout(userDetails.getId(), idempotencyKey, checkoutRequest);
+        return new ResponseEntity<>(order, HttpStatus.CREATED);
+    }
+
+    @GetMapping("/orders/{orderId}")
+    public ResponseEntity<OrderResponse> getOrder(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                                  @PathVariable Long orderId) {
+        return new ResponseEntity<>(orderService.getOrder(userDetails.getId(), orderId), HttpStatus.OK);
+    }
+}
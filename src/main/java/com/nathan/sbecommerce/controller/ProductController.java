@@ -2,22 +2,36 @@ package com.nathan.sbecommerce.controller;
 
 import com.nathan.sbecommerce.config.AppConstant;
 import com.nathan.sbecommerce.dto.request.ProductRequest;
+import com.nathan.sbecommerce.dto.response.ProductGalleryResponse;
 import com.nathan.sbecommerce.dto.response.ProductResponse;
+import com.nathan.sbecommerce.dto.response.RecentlyViewedResponse;
+import com.nathan.sbecommerce.dto.response.SimilarProductsResponse;
+import com.nathan.sbecommerce.dto.response.TrendingResponse;
+import com.nathan.sbecommerce.service.ProductActivityService;
+import com.nathan.sbecommerce.service.ProductImageService;
 import com.nathan.sbecommerce.service.ProductService;
+import com.nathan.sbecommerce.service.SimilarProductService;
+import com.nathan.sbecommerce.service.impl.UserDetailsImpl;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api")
 public class ProductController {
     private final ProductService productService;
+    private final ProductImageService productImageService;
+    private final ProductActivityService productActivityService;
+    private final SimilarProductService similarProductService;
 
     @PostMapping("/admin/categories/{categoryId}/product")
     public ResponseEntity<ProductRequest> addProduct(@RequestBody @Valid ProductRequest productRequest,
@@ -57,8 +71,12 @@ public class ProductController {
                                                                               required = false) String sortBy,
                                                                  @RequestParam(name = "sortOrder",
                                                                               defaultValue = AppConstant.SORT_DIR,
-                                                                              required = false) String sortOrder){
-        ProductResponse productResponse = productService.searchByCategory(categoryId, pageNumber, pageSize, sortBy, sortOrder);
+                                                                              required = false) String sortOrder,
+                                                                 @RequestParam(name = "includeDescendants",
+                                                                              defaultValue = "false",
+                                                                              required = false) boolean includeDescendants){
+        ProductResponse productResponse = productService.searchByCategory(categoryId, includeDescendants,
+                pageNumber, pageSize, sortBy, sortOrder);
         return new ResponseEntity<>(productResponse, HttpStatus.OK);
     }
 
@@ -99,5 +117,89 @@ public class ProductController {
         return new ResponseEntity<>(updatedProductRequest, HttpStatus.OK);
     }
 
+    /**
+     * Replaces the image of a product with the raw request body (e.g. {@code curl -T photo.jpg -H
+     * "Content-Type: image/jpeg"}). Unlike the multipart upload, the body is not spooled by the servlet container:
+     * it is checked and stored while it is received, within the upload size, concurrency and bandwidth limits.
+     */
+    @PutMapping(value = "/admin/products/{productId}/image",
+            consumes = {"image/jpeg", "image/png", "image/gif", "image/webp", "application/octet-stream"})
+    public ResponseEntity<ProductRequest> streamProductImage(@PathVariable Long productId,
+                                                             HttpServletRequest request) throws IOException {
+        ProductRequest updatedProductRequest = productService.updateProductImage(productId,
+                request.getInputStream(), request.getContentLengthLong());
+        return new ResponseEntity<>(updatedProductRequest, HttpStatus.OK);
+    }
 
+    /**
+     * Appends several images to the gallery of a product in one request (multipart field "images", repeated).
+     * The files are stored in parallel and added to the gallery in the order they were sent.
+     */
+    @PostMapping("/admin/products/{productId}/images")
+    public ResponseEntity<ProductGalleryResponse> addProductImages(@PathVariable Long productId,
+                                                                   @RequestParam("images") List<MultipartFile> images) throws IOException {
+        return new ResponseEntity<>(productImageService.addProductImages(productId, images), HttpStatus.CREATED);
+    }
+
+    @GetMapping("/public/products/{productId}/images")
+    public ResponseEntity<ProductGalleryResponse> getProductImages(@PathVariable Long productId) {
+        return new ResponseEntity<>(productImageService.getProductImages(productId), HttpStatus.OK);
+    }
+
+    /**
+     * Counts a view of a product page. Sent in the background by the storefront, so it is only acknowledged:
+     * the view is counted in memory and written with the next batch. When the user is signed in, the product is
+     * also added to their recently viewed products.
+     */
+    @PostMapping("/public/products/{productId}/views")
+    public ResponseEntity<Void> recordProductView(@PathVariable Long productId,
+                                                  @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        productActivityService.recordView(productId, userDetails == null ? null : userDetails.getId());
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Counts a click on a product from a listing, e.g. the search results or a trending list.
+     */
+    @PostMapping("/public/products/{productId}/clicks")
+    public ResponseEntity<Void> recordProductClick(@PathVariable Long productId) {
+        productActivityService.recordClick(productId);
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping("/public/products/trending")
+    public ResponseEntity<TrendingResponse> getTrendingProducts(@RequestParam(name = "limit",
+                                                                             defaultValue = AppConstant.TRENDING_LIMIT,
+                                                                             required = false) Integer limit) {
+        return new ResponseEntity<>(productActivityService.getTrendingProducts(limit), HttpStatus.OK);
+    }
+
+    @GetMapping("/public/categories/{categoryId}/trending")
+    public ResponseEntity<TrendingResponse> getTrendingProductsByCategory(@PathVariable Long categoryId,
+                                                                          @RequestParam(name = "limit",
+                                                                                  defaultValue = AppConstant.TRENDING_LIMIT,
+                                                                                  required = false) Integer limit) {
+        return new ResponseEntity<>(productActivityService.getTrendingProductsByCategory(categoryId, limit),
+                HttpStatus.OK);
+    }
+
+    /**
+     * Returns the products the signed in user viewed last, most recent first.
+     */
+    @GetMapping("/products/recently-viewed")
+    public ResponseEntity<RecentlyViewedResponse> getRecentlyViewed(@AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return new ResponseEntity<>(productActivityService.getRecentlyViewed(userDetails.getId()), HttpStatus.OK);
+    }
+
+    /**
+     * Returns the products whose name and description are the most similar to those of a product, e.g. for the
+     * "similar products" strip of its page. Served from memory.
+     */
+    @GetMapping("/public/products/{productId}/similar")
+    public ResponseEntity<SimilarProductsResponse> getSimilarProducts(@PathVariable Long productId,
+                                                                      @RequestParam(name = "limit",
+                                                                              defaultValue = AppConstant.SIMILAR_LIMIT,
+                                                                              required = false) Integer limit) {
+        return new ResponseEntity<>(similarProductService.getSimilarProducts(productId, limit), HttpStatus.OK);
+    }
 }
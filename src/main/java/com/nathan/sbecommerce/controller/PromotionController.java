@@ -0,0 +1,41 @@
+package com.nathan.sbecommerce.controller;
+
+import com.nathan.sbecommerce.dto.request.PromotionRuleRequest;
+import com.nathan.sbecommerce.service.PromotionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api")
+public class PromotionController {
+
+    private final PromotionService promotionService;
+
+    /**
+     * Adds a promotion rule. Rules are not written to the products: they are evaluated on the product listings,
+     * which return the resulting finalPrice and the promotionIds applied next to the special price.
+     *
+     * @param ruleRequest the discount, its target, period, segment and how it combines with other rules.
+     * @return ResponseEntity object containing the created PromotionRuleRequest
+     */
+    @PostMapping("/admin/promotions")
+    public ResponseEntity<PromotionRuleRequest> createRule(@Valid @RequestBody PromotionRuleRequest ruleRequest) {
+        return new ResponseEntity<>(promotionService.createRule(ruleRequest), HttpStatus.CREATED);
+    }
+
+    @GetMapping("/admin/promotions")
+    public ResponseEntity<List<PromotionRuleRequest>> getRules() {
+        return new ResponseEntity<>(promotionService.getRules(), HttpStatus.OK);
+    }
+
+    @DeleteMapping("/admin/promotions/{ruleId}")
+    public ResponseEntity<PromotionRuleRequest> deleteRule(@PathVariable Long ruleId) {
+        return new ResponseEntity<>(promotionService.deleteRule(ruleId), HttpStatus.OK);
+    }
+}
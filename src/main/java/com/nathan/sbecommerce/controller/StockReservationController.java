@@ -0,0 +1,50 @@
+package com.nathan.sbecommerce.controller;
+
+import com.nathan.sbecommerce.dto.request.StockReservationRequest;
+import com.nathan.sbecommerce.dto.response.StockReservationResponse;
+import com.nathan.sbecommerce.service.StockReservationService;
+import com.nathan.sbecommerce.service.impl.UserDetailsImpl;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api")
+public class StockReservationController {
+
+    private final StockReservationService stockReservationService;
+
+    /**
+     * Sets a quantity of a product aside for the signed in user until the reservation is ordered, released or
+     * expires. Answers 409 Conflict when the product does not have enough stock left.
+     *
+     * A reservation is confirmed by placing an order holding it; there is no endpoint confirming it without an order.
+     *
+     * @param reservationRequest the product, the quantity and optionally the TTL of the reservation.
+     * @return ResponseEntity object containing the StockReservationResponse
+     */
+    @PostMapping("/reservations")
+    public ResponseEntity<StockReservationResponse> reserve(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                                            @Valid @RequestBody StockReservationRequest reservationRequest) {
+        return new ResponseEntity<>(stockReservationService.reserve(userDetails.getId(), reservationRequest),
+                HttpStatus.CREATED);
+    }
+
+    @GetMapping("/reservations/{reservationId}")
+    public ResponseEntity<StockReservationResponse> getReservation(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                                                   @PathVariable String reservationId) {
+        return new ResponseEntity<>(stockReservationService.getReservation(userDetails.getId(), reservationId),
+                HttpStatus.OK);
+    }
+
+    @PostMapping("/reservations/{reservationId}/release")
+    public ResponseEntity<StockReservationResponse> release(@AuthenticationPrincipal UserDetailsImpl userDetails,
+                                                            @PathVariable String reservationId) {
+        return new ResponseEntity<>(stockReservationService.release(userDetails.getId(), reservationId),
+                HttpStatus.OK);
+    }
+}
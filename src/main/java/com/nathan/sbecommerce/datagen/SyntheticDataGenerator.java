@@ -0,0 +1,355 @@
+package com.nathan.sbecommerce.datagen;
+
+import com.nathan.sbecommerce.model.AppRole;
+import com.nathan.sbecommerce.service.impl.CategorySnapshotCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fills an empty database with a synthetic catalog for benchmarking, active with the "datagen" profile.
+ *
+ * It generates:
+ * - datagen.categories categories
+ * - datagen.products products, spread over the categories and sellers with a Zipf distribution, with
+ *   log-normal prices, mostly zero discounts and names/descriptions built from skewed word lists
+ * - datagen.users users with roles (user 1 is admin, every 20th user is a seller, the others are users),
+ *   each with up to datagen.max-addresses-per-user addresses
+ *
+ * Rows are written with plain JDBC batch inserts by datagen.threads threads (0 = one per CPU), each working
+ * on its own chunk of ids with its own connection. Every chunk gets a random generator split from
+ * datagen.seed in chunk order, so the same seed produces the same data whatever the thread scheduling.
+ * All users share one password hash computed once, bcrypt-hashing millions of passwords would take hours.
+ *
+ * With datagen.exit=true (the default) the application exits when the data is written, otherwise it keeps
+ * serving requests on the generated data (this is what the load test does).
+ */
+@Component
+@Profile("datagen")
+public class SyntheticDataGenerator implements CommandLineRunner {
+
+    public static final String[] NOUNS = {"phone", "laptop", "camera", "watch", "speaker", "tablet", "monitor",
+            "keyboard", "mouse", "charger", "headphones", "router", "printer", "console", "drone", "lamp", "chair",
+            "desk", "backpack", "jacket", "sneakers", "kettle", "blender", "toaster", "mixer", "vacuum", "heater",
+            "fan", "projector", "microphone", "guitar", "bicycle", "helmet", "tent", "bottle", "wallet", "sunglasses",
+            "perfume", "novel", "puzzle"};
+
+    private static final String[] ADJECTIVES = {"compact", "wireless", "smart", "portable", "classic", "premium",
+            "ultra", "mini", "pro", "eco", "rugged", "slim", "digital", "vintage", "deluxe", "lightweight", "silent",
+            "foldable", "waterproof", "ergonomic"};
+
+    private static final String[] BRANDS = {"Acme", "Globex", "Initech", "Umbrella", "Stark", "Wayne", "Hooli",
+            "Vandelay", "Soylent", "Tyrell", "Cyberdyne", "Wonka", "Gringotts", "Oscorp", "Aperture"};
+
+    private static final String[] CITIES = {"Douala", "Yaounde", "Paris", "Lagos", "Berlin", "Toronto", "Madrid",
+            "Nairobi", "Lisbon", "Dakar"};
+
+    private static final double[] DISCOUNTS = {0, 0, 0, 0, 0, 0, 5, 10, 10, 15, 20, 25, 30, 50};
+
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final int CHUNK_SIZE = 50_000;
+
+    private static final int SELLER_EVERY = 20;
+
+    /**
+     * The allocation size of the product id generator, Hibernate's default for {@code GenerationType.AUTO}.
+     */
+    private static final int PRODUCT_ID_ALLOCATION = 50;
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private final DataSource dataSource;
+    private final PasswordEncoder passwordEncoder;
+    private final CategorySnapshotCache categorySnapshotCache;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${datagen.categories}")
+    private int categories;
+
+    @Value("${datagen.products}")
+    private long products;
+
+    @Value("${datagen.users}")
+    private int users;
+
+    @Value("${datagen.max-addresses-per-user}")
+    private int maxAddressesPerUser;
+
+    @Value("${datagen.seed}")
+    private long seed;
+
+    @Value("${datagen.threads}")
+    private int threads;
+
+    @Value("${datagen.batch-size}")
+    private int batchSize;
+
+    @Value("${datagen.password}")
+    private String password;
+
+    @Value("${datagen.exit}")
+    private boolean exit;
+
+    public SyntheticDataGenerator(DataSource dataSource, PasswordEncoder passwordEncoder,
+                                  CategorySnapshotCache categorySnapshotCache,
+                                  ConfigurableApplicationContext context) {
+        this.dataSource = dataSource;
+        this.categorySnapshotCache = categorySnapshotCache;
+        this.passwordEncoder = passwordEncoder;
+        this.context = context;
+    }
+
+    public static String username(long userId) {
+        return "user" + userId;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        ensureEmpty();
+        long start = System.nanoTime();
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        SplittableRandom root = new SplittableRandom(seed);
+
+        insertRolesAndCategories();
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            String passwordHash = passwordEncoder.encode(password);
+            List<Future<?>> tasks = new ArrayList<>();
+            for (long first = 1; first <= users; first += CHUNK_SIZE) {
+                long from = first;
+                long to = Math.min(users, first + CHUNK_SIZE - 1);
+                SplittableRandom random = root.split();
+                tasks.add(executor.submit(() -> insertUsers(from, to, passwordHash, random)));
+            }
+            await(tasks);
+            logger.info("Generated {} users in {} ms", users, (System.nanoTime() - start) / 1_000_000);
+
+            ZipfDistribution categoryDistribution = new ZipfDistribution(categories, 1.1);
+            ZipfDistribution sellerDistribution = new ZipfDistribution(Math.max(1, users / SELLER_EVERY), 1.2);
+            ZipfDistribution nounDistribution = new ZipfDistribution(NOUNS.length, 1.0);
+            tasks.clear();
+            for (long first = 1; first <= products; first += CHUNK_SIZE) {
+                long from = first;
+                long to = Math.min(products, first + CHUNK_SIZE - 1);
+                SplittableRandom random = root.split();
+                tasks.add(executor.submit(() -> insertProducts(from, to, random,
+                        categoryDistribution, sellerDistribution, nounDistribution)));
+            }
+            await(tasks);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        restartIdentities();
+        // Categories were inserted with JDBC, behind the back of the category snapshot
+        categorySnapshotCache.invalidate();
+        logger.info("Generated {} categories, {} products and {} users with {} threads in {} ms",
+                categories, products, users, workers, (System.nanoTime() - start) / 1_000_000);
+
+        if (exit) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private void ensureEmpty() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String table : new String[]{"categories", "products", "users", "roles", "addresses"}) {
+                try (ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                    count.next();
+                    if (count.getLong(1) > 0) {
+                        throw new IllegalStateException("Table " + table + " is not empty, the data generator needs an empty database");
+                    }
+                }
+            }
+        }
+    }
+
+    private void insertRolesAndCategories() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO roles (role_id, role_name) VALUES (?, ?)")) {
+                for (AppRole role : AppRole.values()) {
+                    insert.setLong(1, roleId(role));
+                    insert.setString(2, role.name());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO categories (category_id, category_name, created_at, updated_at, path, depth) "
+                            + "VALUES (?, ?, ?, ?, ?, 0)")) {
+                for (int id = 1; id <= categories; id++) {
+                    Timestamp createdAt = Timestamp.valueOf(BASE_TIME.plusMinutes(id));
+                    insert.setLong(1, id);
+                    insert.setString(2, "Category " + id + " " + NOUNS[(id - 1) % NOUNS.length]);
+                    insert.setTimestamp(3, createdAt);
+                    insert.setTimestamp(4, createdAt);
+                    insert.setString(5, "/" + id + "/");
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+
+    private Void insertUsers(long from, long to, String passwordHash, SplittableRandom random) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insertUser = connection.prepareStatement(
+                     "INSERT INTO users (user_id, username, email, password, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)");
+             PreparedStatement insertRole = connection.prepareStatement(
+                     "INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)");
+             PreparedStatement insertAddress = connection.prepareStatement(
+                     "INSERT INTO addresses (address_id, address_building_name, address_city, address_country, "
+                             + "address_pincode, address_state, address_street) VALUES (?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement linkAddress = connection.prepareStatement(
+                     "INSERT INTO user_address (address_id, user_id) VALUES (?, ?)")) {
+            connection.setAutoCommit(false);
+            int pending = 0;
+            for (long id = from; id <= to; id++) {
+                Timestamp createdAt = Timestamp.valueOf(BASE_TIME.plusSeconds(id));
+                insertUser.setLong(1, id);
+                insertUser.setString(2, username(id));
+                insertUser.setString(3, username(id) + "@example.com");
+                insertUser.setString(4, passwordHash);
+                insertUser.setTimestamp(5, createdAt);
+                insertUser.setTimestamp(6, createdAt);
+                insertUser.addBatch();
+
+                AppRole role = id == 1 ? AppRole.ROLE_ADMIN
+                        : id % SELLER_EVERY == 0 ? AppRole.ROLE_SELLER : AppRole.ROLE_USER;
+                insertRole.setLong(1, id);
+                insertRole.setLong(2, roleId(role));
+                insertRole.addBatch();
+
+                int addresses = random.nextInt(maxAddressesPerUser + 1);
+                for (int a = 0; a < addresses; a++) {
+                    long addressId = (id - 1) * maxAddressesPerUser + a + 1;
+                    String city = CITIES[random.nextInt(CITIES.length)];
+                    insertAddress.setLong(1, addressId);
+                    insertAddress.setString(2, "Building " + (1 + random.nextInt(500)));
+                    insertAddress.setString(3, city);
+                    insertAddress.setString(4, "Country of " + city);
+                    insertAddress.setString(5, String.format("%06d", random.nextInt(1_000_000)));
+                    insertAddress.setString(6, "State of " + city);
+                    insertAddress.setString(7, (1 + random.nextInt(999)) + " Main Street");
+                    insertAddress.addBatch();
+                    linkAddress.setLong(1, addressId);
+                    linkAddress.setLong(2, id);
+                    linkAddress.addBatch();
+                }
+
+                if (++pending == batchSize) {
+                    executeBatches(connection, insertUser, insertRole, insertAddress, linkAddress);
+                    pending = 0;
+                }
+            }
+            executeBatches(connection, insertUser, insertRole, insertAddress, linkAddress);
+        }
+        return null;
+    }
+
+    private Void insertProducts(long from, long to, SplittableRandom random, ZipfDistribution categoryDistribution,
+                                ZipfDistribution sellerDistribution, ZipfDistribution nounDistribution) throws SQLException {
+        boolean hasSellers = users >= SELLER_EVERY;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO products (product_id, product_name, description, product_image, product_quantity, "
+                             + "product_price, product_discount, product_special_price, category_id, seller_id, "
+                             + "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            connection.setAutoCommit(false);
+            int pending = 0;
+            for (long id = from; id <= to; id++) {
+                String noun = NOUNS[nounDistribution.sample(random)];
+                String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+                String brand = BRANDS[random.nextInt(BRANDS.length)];
+                double price = Math.min(20_000, Math.floor(Math.exp(Math.log(40) + random.nextGaussian())) + 0.99);
+                double discount = DISCOUNTS[random.nextInt(DISCOUNTS.length)];
+                double specialPrice = Math.round((price - discount * 0.01 * price) * 100) / 100.0;
+                Timestamp createdAt = Timestamp.valueOf(BASE_TIME.plusSeconds(id));
+
+                insert.setLong(1, id);
+                insert.setString(2, brand + " " + adjective + " " + noun + " " + Long.toString(id, 36).toUpperCase());
+                insert.setString(3, "The " + adjective + " " + noun + " by " + brand
+                        + ", a reliable choice for everyday use.");
+                insert.setString(4, "default.png");
+                insert.setInt(5, random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(500));
+                insert.setDouble(6, price);
+                insert.setDouble(7, discount);
+                insert.setDouble(8, specialPrice);
+                insert.setLong(9, 1 + categoryDistribution.sample(random));
+                if (hasSellers) {
+                    insert.setLong(10, (long) (sellerDistribution.sample(random) + 1) * SELLER_EVERY);
+                } else {
+                    insert.setNull(10, java.sql.Types.BIGINT);
+                }
+                insert.setTimestamp(11, createdAt);
+                insert.setTimestamp(12, createdAt);
+                insert.addBatch();
+
+                if (++pending == batchSize) {
+                    executeBatches(connection, insert);
+                    pending = 0;
+                }
+            }
+            executeBatches(connection, insert);
+        }
+        return null;
+    }
+
+    private void restartIdentities() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE roles ALTER COLUMN role_id RESTART WITH " + (AppRole.values().length + 1));
+            statement.execute("ALTER TABLE categories ALTER COLUMN category_id RESTART WITH " + (categories + 1));
+            statement.execute("ALTER TABLE users ALTER COLUMN user_id RESTART WITH " + (users + 1));
+            statement.execute("ALTER TABLE addresses ALTER COLUMN address_id RESTART WITH "
+                    + ((long) users * maxAddressesPerUser + 1));
+            // Hibernate takes each value of the sequence as the last id of a block of PRODUCT_ID_ALLOCATION ids
+            statement.execute("ALTER SEQUENCE products_seq RESTART WITH " + (products + PRODUCT_ID_ALLOCATION));
+        }
+    }
+
+    private static void executeBatches(Connection connection, PreparedStatement... statements) throws SQLException {
+        for (PreparedStatement statement : statements) {
+            statement.executeBatch();
+        }
+        connection.commit();
+    }
+
+    private static long roleId(AppRole role) {
+        return role.ordinal() + 1;
+    }
+
+    private static void await(List<Future<?>> tasks) throws InterruptedException, ExecutionException {
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+    }
+}
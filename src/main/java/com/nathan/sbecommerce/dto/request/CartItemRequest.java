@@ -0,0 +1,18 @@
+package com.nathan.sbecommerce.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartItemRequest {
+    @NotNull
+    private Long productId;
+    @NotNull
+    @Positive
+    private Integer quantity;
+}
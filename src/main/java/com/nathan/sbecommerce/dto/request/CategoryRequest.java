@@ -1,5 +1,6 @@
 package com.nathan.sbecommerce.dto.request;
 
+import com.nathan.sbecommerce.dto.response.CategoryStatsResponse;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -29,4 +30,8 @@ import lombok.NoArgsConstructor;
 public class CategoryRequest {
     private Long categoryId;
     private String categoryName;
+    /** The parent category, or null for a top-level department. Only read when creating a category. */
+    private Long parentId;
+    /** Product count and price range of the category, returned by the category listing. */
+    private CategoryStatsResponse stats;
 }
@@ -0,0 +1,27 @@
+package com.nathan.sbecommerce.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A product to order. With a reservationId, the line orders the stock set aside by that reservation, which must
+ * be for the same product and quantity, and the reservation is confirmed by the checkout.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutItemRequest {
+    @NotNull
+    private Long productId;
+    @NotNull
+    @Positive
+    private Integer quantity;
+    private String reservationId;
+
+    public CheckoutItemRequest(Long productId, Integer quantity) {
+        this(productId, quantity, null);
+    }
+}
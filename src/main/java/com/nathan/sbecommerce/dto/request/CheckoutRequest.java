@@ -0,0 +1,23 @@
+package com.nathan.sbecommerce.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The products to order and the address to ship them to. Without items, the content of the user's cart is
+ * ordered. Lines holding a reservation confirm it instead of taking the stock again.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutRequest {
+    @NotNull
+    private Long addressId;
+    @Valid
+    private List<CheckoutItemRequest> items;
+}
@@ -0,0 +1,34 @@
+package com.nathan.sbecommerce.dto.request;
+
+import com.nathan.sbecommerce.model.DiscountType;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A discount campaign to create. Without a category the campaign targets all products; without a start time it
+ * starts right away, and without an end time it lasts until it is ended.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiscountCampaignRequest {
+    @NotBlank
+    private String campaignName;
+    @NotNull
+    private DiscountType discountType;
+    @NotNull
+    @PositiveOrZero
+    private Double discountValue;
+    private Long categoryId;
+    private boolean includeDescendants;
+    private Double minPrice;
+    private Double maxPrice;
+    private LocalDateTime startsAt;
+    private LocalDateTime endsAt;
+}
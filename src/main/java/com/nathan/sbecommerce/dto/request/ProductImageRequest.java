@@ -0,0 +1,18 @@
+package com.nathan.sbecommerce.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImageRequest {
+    private Long productImageId;
+    private String imageKey;
+    private Integer position;
+    private String imageUrl;
+    private String thumbnailUrl;
+    private String listingUrl;
+    private String detailUrl;
+}
@@ -4,6 +4,9 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,4 +19,12 @@ public class ProductRequest {
     private Double price;
     private Double discount;
     private Double specialPrice;
+    private Long campaignId;
+    /** The special price with the promotions in effect for the caller, filled on the product listings */
+    private BigDecimal finalPrice;
+    /** The promotion rules applied to get the final price */
+    private List<Long> promotionIds;
+    private String thumbnailUrl;
+    private String listingUrl;
+    private String detailUrl;
 }
@@ -0,0 +1,37 @@
+package com.nathan.sbecommerce.dto.request;
+
+import com.nathan.sbecommerce.model.DiscountType;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A promotion rule, as created by an admin and as returned by the promotion endpoints.
+ * At most one of categoryId and productId may be given; with neither, the rule applies to all products.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromotionRuleRequest {
+    private Long ruleId;
+    @NotBlank
+    private String ruleName;
+    @NotNull
+    private DiscountType discountType;
+    @NotNull
+    @PositiveOrZero
+    private BigDecimal discountValue;
+    private Long categoryId;
+    private Long productId;
+    private String segment;
+    private boolean stackable;
+    private int priority;
+    private LocalDateTime startsAt;
+    private LocalDateTime endsAt;
+}
@@ -0,0 +1,24 @@
+package com.nathan.sbecommerce.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A quantity of a product to set aside, at most project.cart.max-quantity units. Without a TTL the reservation lasts
+ * project.stock.reservation-ttl-seconds, and it can never last more than project.stock.max-reservation-ttl-seconds.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationRequest {
+    @NotNull
+    private Long productId;
+    @NotNull
+    @Positive
+    private Integer quantity;
+    @Positive
+    private Long ttlSeconds;
+}
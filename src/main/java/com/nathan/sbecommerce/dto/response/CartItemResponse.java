@@ -0,0 +1,27 @@
+package com.nathan.sbecommerce.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * A priced line of a cart. The unit price is the product's final price, with the promotions in effect for the
+ * user, as shown on the product listings.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartItemResponse {
+    private Long productId;
+    private String productName;
+    private String listingUrl;
+    private Integer quantity;
+    private BigDecimal unitPrice;
+    private BigDecimal lineTotal;
+    private List<Long> promotionIds;
+    /** False when the product has less stock than the quantity in the cart */
+    private boolean inStock;
+}
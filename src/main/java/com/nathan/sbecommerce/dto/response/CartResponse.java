@@ -0,0 +1,18 @@
+package com.nathan.sbecommerce.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartResponse {
+    private Long userId;
+    private List<CartItemResponse> items;
+    private Integer totalQuantity;
+    private BigDecimal totalPrice;
+}
@@ -0,0 +1,25 @@
+package com.nathan.sbecommerce.dto.response;
+
+import com.nathan.sbecommerce.model.JobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a category deletion running in the background.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryDeletionResponse {
+    private Long jobId;
+    private Long categoryId;
+    private String categoryName;
+    private JobStatus status;
+    private Long deletedProducts;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,21 @@
+package com.nathan.sbecommerce.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Product aggregates shown next to a category, e.g. "42 products, from $9.99".
+ * Prices are null when the category has no product.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryStatsResponse {
+    private Long productCount;
+    private Long inStockCount;
+    private Double minPrice;
+    private Double maxPrice;
+    private Double minSpecialPrice;
+    private Double maxSpecialPrice;
+}
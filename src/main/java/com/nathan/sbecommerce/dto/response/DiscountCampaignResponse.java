@@ -0,0 +1,30 @@
+package com.nathan.sbecommerce.dto.response;
+
+import com.nathan.sbecommerce.model.CampaignStatus;
+import com.nathan.sbecommerce.model.DiscountType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiscountCampaignResponse {
+    private Long campaignId;
+    private String campaignName;
+    private DiscountType discountType;
+    private Double discountValue;
+    private Long categoryId;
+    private boolean includeDescendants;
+    private Double minPrice;
+    private Double maxPrice;
+    private LocalDateTime startsAt;
+    private LocalDateTime endsAt;
+    private CampaignStatus status;
+    private Long affectedProducts;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,24 @@
+package com.nathan.sbecommerce.dto.response;
+
+import com.nathan.sbecommerce.model.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderResponse {
+    private Long orderId;
+    private Long userId;
+    private Long addressId;
+    private OrderStatus status;
+    private List<OrderItemResponse> items;
+    private Integer totalQuantity;
+    private BigDecimal totalAmount;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,22 @@
+package com.nathan.sbecommerce.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Percentiles and histogram of one of the prices of a set of products. Percentiles are estimated within 1% and
+ * are null when there is no price.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceDistributionResponse {
+    private Long count;
+    private Double p10;
+    private Double p50;
+    private Double p90;
+    private List<PriceRangeResponse> histogram;
+}
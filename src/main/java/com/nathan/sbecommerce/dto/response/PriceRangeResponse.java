@@ -0,0 +1,18 @@
+package com.nathan.sbecommerce.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A bucket of a price histogram: the number of products priced from {@code from} (included, null for the first
+ * bucket) to {@code to} (excluded, null for the last bucket).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceRangeResponse {
+    private Double from;
+    private Double to;
+    private Long count;
+}
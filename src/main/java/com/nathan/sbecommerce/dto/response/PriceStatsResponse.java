@@ -0,0 +1,17 @@
+package com.nathan.sbecommerce.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Price distributions of the products of a category, or of all products when categoryId is null.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceStatsResponse {
+    private Long categoryId;
+    private PriceDistributionResponse price;
+    private PriceDistributionResponse specialPrice;
+}
@@ -0,0 +1,17 @@
+package com.nathan.sbecommerce.dto.response;
+
+import com.nathan.sbecommerce.dto.request.ProductImageRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductGalleryResponse {
+    private Long productId;
+    private String primaryImage;
+    private List<ProductImageRequest> images;
+}
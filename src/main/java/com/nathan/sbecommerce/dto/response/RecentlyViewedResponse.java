@@ -0,0 +1,18 @@
+package com.nathan.sbecommerce.dto.response;
+
+import com.nathan.sbecommerce.dto.request.ProductRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The products the user viewed last, most recent first, priced as on the product listings.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecentlyViewedResponse {
+    private List<ProductRequest> content;
+}
@@ -0,0 +1,17 @@
+package com.nathan.sbecommerce.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A product similar to another one. The similarity is the estimated Jaccard similarity of their texts, from 0 to 1.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimilarProductResponse {
+    private Long productId;
+    private String productName;
+    private Double similarity;
+}
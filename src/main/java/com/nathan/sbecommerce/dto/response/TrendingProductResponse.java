@@ -0,0 +1,19 @@
+package com.nathan.sbecommerce.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A product of a trending ranking. The score is the views plus the weighted clicks over the window, and may be
+ * slightly overestimated.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendingProductResponse {
+    private Long productId;
+    private String productName;
+    private Long categoryId;
+    private Long score;
+}
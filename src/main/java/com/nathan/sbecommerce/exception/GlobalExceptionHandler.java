@@ -3,8 +3,10 @@ package com.nathan.sbecommerce.exception;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingRequestHeaderException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -96,4 +98,52 @@ public class GlobalExceptionHandler {
         String message = ex.getMessage();
         return new ResponseEntity<>(new APIResponse(message, false), HttpStatus.BAD_REQUEST);
     }
+
+    /**
+     * Handles the {@link UploadRejectedException} thrown while an image upload is validated or stored, with the status
+     * chosen by the storage layer (413 too large, 415 not an image, 503 too many uploads in progress).
+     *
+     * @param ex the {@link UploadRejectedException} that was thrown
+     * @return a {@link ResponseEntity} containing the error message and the status of the exception
+     */
+    @ExceptionHandler(UploadRejectedException.class)
+    public ResponseEntity<APIResponse> myUploadRejectedException(UploadRejectedException ex) {
+        return new ResponseEntity<>(new APIResponse(ex.getMessage(), false), ex.getStatus());
+    }
+
+    /**
+     * Handles multipart uploads refused by the servlet container because they exceed
+     * {@code spring.servlet.multipart.max-file-size} or {@code max-request-size}.
+     *
+     * @param ex the {@link MaxUploadSizeExceededException} that was thrown
+     * @return a {@link ResponseEntity} containing the error message and {@link HttpStatus#PAYLOAD_TOO_LARGE}
+     */
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<APIResponse> myMaxUploadSizeExceededException(MaxUploadSizeExceededException ex) {
+        return new ResponseEntity<>(new APIResponse("Upload is too large", false), HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    /**
+     * Handles the {@link InsufficientStockException} thrown when a reservation or an order asks for more than the stock left.
+     * The request itself is valid, so the status is {@link HttpStatus#CONFLICT}.
+     *
+     * @param ex the {@link InsufficientStockException} that was thrown
+     * @return a {@link ResponseEntity} containing the error message and {@link HttpStatus#CONFLICT}
+     */
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<APIResponse> myInsufficientStockException(InsufficientStockException ex) {
+        return new ResponseEntity<>(new APIResponse(ex.getMessage(), false), HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Handles requests missing a required header, e.g. the Idempotency-Key of a checkout.
+     *
+     * @param ex the {@link MissingRequestHeaderException} that was thrown
+     * @return a {@link ResponseEntity} containing the error message and {@link HttpStatus#BAD_REQUEST}
+     */
+    @ExceptionHandler(MissingRequestHeaderException.class)
+    public ResponseEntity<APIResponse> myMissingRequestHeaderException(MissingRequestHeaderException ex) {
+        return new ResponseEntity<>(new APIResponse("The " + ex.getHeaderName() + " header is required", false),
+                HttpStatus.BAD_REQUEST);
+    }
 }
@@ -0,0 +1,12 @@
+package com.nathan.sbecommerce.exception;
+
+/**
+ * Thrown when a product does not have enough stock left for a reservation or an order.
+ */
+public class InsufficientStockException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public InsufficientStockException(Long productId, int quantity) {
+        super(String.format("Not enough stock left for %d of product %d", quantity, productId));
+    }
+}
@@ -0,0 +1,21 @@
+package com.nathan.sbecommerce.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when an upload is refused before or while it is stored: unsupported content, too large, or too many
+ * uploads in progress. The status tells the client whether retrying can help (e.g. 503 when the server is busy,
+ * 413 or 415 when the file itself is refused).
+ */
+@Getter
+public class UploadRejectedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final HttpStatus status;
+
+    public UploadRejectedException(String message, HttpStatus status) {
+        super(message);
+        this.status = status;
+    }
+}
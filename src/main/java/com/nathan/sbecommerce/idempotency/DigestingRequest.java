@@ -0,0 +1,88 @@
+package com.nathan.sbecommerce.idempotency;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Request whose body is too large to be read up front, or of unknown length: the body is streamed to the handler
+ * as usual and added to a digest as the handler reads it, so that the request can be fingerprinted afterwards
+ * without being held in memory or spooled.
+ */
+final class DigestingRequest extends HttpServletRequestWrapper {
+
+    private final MessageDigest digest;
+
+    private ServletInputStream input;
+
+    DigestingRequest(HttpServletRequest request, MessageDigest digest) {
+        super(request);
+        this.digest = digest;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (input == null) {
+            ServletInputStream original = super.getInputStream();
+            input = new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return original.isFinished();
+                }
+
+                @Override
+                public boolean isReady() {
+                    return original.isReady();
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    original.setReadListener(readListener);
+                }
+
+                @Override
+                public int read() throws IOException {
+                    int read = original.read();
+                    if (read >= 0) {
+                        digest.update((byte) read);
+                    }
+                    return read;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = original.read(buffer, offset, length);
+                    if (read > 0) {
+                        digest.update(buffer, offset, read);
+                    }
+                    return read;
+                }
+            };
+        }
+        return input;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        String encoding = getCharacterEncoding();
+        Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+
+    /**
+     * Reads what the handler left of the body, and returns the digest of the whole body.
+     */
+    byte[] finish() throws IOException {
+        getInputStream().transferTo(OutputStream.nullOutputStream());
+        return digest.digest();
+    }
+}
@@ -0,0 +1,243 @@
+package com.nathan.sbecommerce.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.sbecommerce.exception.APIResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Makes every mutating endpoint idempotent for clients that send an {@code Idempotency-Key} header.
+ *
+ * A POST, PUT, PATCH or DELETE with the header runs once per key and user (see {@link IdempotencyStore}):
+ * - a retry gets the stored response again, with the {@code Idempotent-Replayed} header, without running the
+ *   handler
+ * - a duplicate arriving while the first request runs waits for its response, up to
+ *   {@code project.idempotency.wait-timeout-ms}, then gets 409 Conflict
+ * - a key reused for a different request gets 422 Unprocessable Entity
+ *
+ * Requests are told apart by their method, URI, content type and body, whatever the size of the body:
+ * - a body of at most {@code project.idempotency.max-body-bytes} with a known length is read up front
+ * - multipart and form bodies are parsed by the container, and their parts or parameters are hashed
+ * - any other body (chunked, or a large image stream) is hashed as the handler reads it, so it is neither held
+ *   in memory nor spooled; the request claims the key before its fingerprint is known and stores it with its
+ *   response, and a retry of such a request reads its body to compare fingerprints before anything is replayed
+ *
+ * The filter runs after the security filters, so that keys are scoped by the authenticated user and rejected
+ * requests never claim a key. Requests without the header are not affected.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 1)
+@RequiredArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Set<String> MUTATING_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyStore idempotencyStore;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${project.idempotency.wait-timeout-ms:10000}")
+    private long waitTimeoutMs;
+
+    @Value("${project.idempotency.max-body-bytes:1048576}")
+    private int maxBodyBytes;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !MUTATING_METHODS.contains(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST,
+                    "The " + IDEMPOTENCY_KEY_HEADER + " header must hold 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        MessageDigest digest = newDigest(request);
+        HttpServletRequest handledRequest = request;
+        // Null while the body has not been read yet
+        String fingerprint = null;
+        if (isParsedByContainer(request)) {
+            try {
+                digestParsedBody(request, digest);
+            } catch (IOException | ServletException | IllegalStateException e) {
+                // A body the container refuses is refused to the handler as well, without claiming the key
+                filterChain.doFilter(request, response);
+                return;
+            }
+            fingerprint = HexFormat.of().formatHex(digest.digest());
+        } else if (isBufferable(request)) {
+            byte[] body = request.getInputStream().readAllBytes();
+            digest.update(body);
+            fingerprint = HexFormat.of().formatHex(digest.digest());
+            handledRequest = new CachedBodyRequest(request, body);
+        } else {
+            handledRequest = new DigestingRequest(request, digest);
+        }
+
+        IdempotencyStore.Claim claim;
+        try {
+            claim = idempotencyStore.claim(scope() + ":" + key, fingerprint, waitTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeError(response, HttpStatus.SERVICE_UNAVAILABLE, "The request was interrupted");
+            return;
+        }
+        IdempotencyStore.Outcome outcome = claim.outcome();
+        if (outcome == IdempotencyStore.Outcome.REPLAY && fingerprint == null) {
+            // The stored response may only be replayed to the same body
+            fingerprint = HexFormat.of().formatHex(((DigestingRequest) handledRequest).finish());
+            if (!fingerprint.equals(claim.fingerprint())) {
+                outcome = IdempotencyStore.Outcome.MISMATCH;
+            }
+        }
+        switch (outcome) {
+            case REPLAY -> replay(response, claim.response());
+            case MISMATCH -> writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency key " + key + " was already used for a different request");
+            case IN_PROGRESS -> writeError(response, HttpStatus.CONFLICT,
+                    "A request with idempotency key " + key + " is still in progress");
+            case EXECUTE -> execute(handledRequest, response, filterChain, claim, fingerprint);
+        }
+    }
+
+    /**
+     * Runs the request and stores its response when it succeeded, otherwise releases the key.
+     *
+     * @param fingerprint the fingerprint of the request, null when its body is hashed as the handler reads it
+     */
+    private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                         IdempotencyStore.Claim claim, String fingerprint) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrappedResponse = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            filterChain.doFilter(request, wrappedResponse);
+            int status = wrappedResponse.getStatus();
+            if (status >= 200 && status < 300 && wrappedResponse.getContentSize() <= maxBodyBytes) {
+                String completeFingerprint = fingerprint != null ? fingerprint
+                        : HexFormat.of().formatHex(((DigestingRequest) request).finish());
+                idempotencyStore.complete(claim, completeFingerprint, new IdempotencyStore.StoredResponse(status,
+                        wrappedResponse.getContentType(), wrappedResponse.getContentAsByteArray()));
+                stored = true;
+            }
+        } finally {
+            if (!stored) {
+                idempotencyStore.release(claim);
+            }
+            wrappedResponse.copyBodyToResponse();
+        }
+    }
+
+    private static void replay(HttpServletResponse response, IdempotencyStore.StoredResponse stored)
+            throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new APIResponse(message, false));
+    }
+
+    private static boolean isParsedByContainer(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && (contentType.startsWith(MediaType.MULTIPART_FORM_DATA_VALUE)
+                || contentType.startsWith(MediaType.APPLICATION_FORM_URLENCODED_VALUE));
+    }
+
+    /**
+     * Bodies are read up front only when they are reasonably small.
+     */
+    private boolean isBufferable(HttpServletRequest request) {
+        long length = request.getContentLengthLong();
+        return length >= 0 && length <= maxBodyBytes;
+    }
+
+    /**
+     * Hashes the parts of a multipart body, or the parameters of a form, as parsed by the container. Parts are
+     * kept by the container (in memory or in its temporary files), so the handler reads them again afterwards.
+     */
+    private static void digestParsedBody(HttpServletRequest request, MessageDigest digest)
+            throws IOException, ServletException {
+        if (request.getContentType().startsWith(MediaType.MULTIPART_FORM_DATA_VALUE)) {
+            for (Part part : request.getParts()) {
+                digest.update((part.getName() + '\0' + part.getSubmittedFileName() + '\0' + part.getContentType()
+                        + '\0' + part.getSize() + '\0').getBytes(StandardCharsets.UTF_8));
+                try (InputStream content = part.getInputStream();
+                     DigestInputStream digesting = new DigestInputStream(content, digest)) {
+                    digesting.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+        } else {
+            new TreeMap<>(request.getParameterMap()).forEach((name, values) -> digest.update(
+                    (name + '=' + String.join("\0", values) + '\0').getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static String scope() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return "anonymous";
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * Starts the fingerprint of a request with its method, URI and content type; the body is added by the caller.
+     */
+    private static MessageDigest newDigest(HttpServletRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // Without its parameters, the content type does not change with the multipart boundary of each retry
+            String contentType = request.getContentType() == null ? "" : request.getContentType().split(";", 2)[0];
+            String head = request.getMethod() + ' ' + request.getRequestURI() + '?' + request.getQueryString()
+                    + ' ' + contentType + '\n';
+            digest.update(head.getBytes(StandardCharsets.UTF_8));
+            return digest;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.nathan.sbecommerce.idempotency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Remembers the requests made with an Idempotency-Key and the responses they produced.
+ *
+ * - The first request with a key claims it: the key is recorded as in flight before the request runs, so that
+ *   duplicates arriving meanwhile wait for its response instead of running too.
+ * - A request is identified by a fingerprint. The fingerprint of a request whose body is streamed to its handler
+ *   is only known once the body has been read: such a request claims the key without one and completes it with
+ *   its fingerprint, and callers compare the fingerprint of a replayed response with their own.
+ * - A successful response is kept with the key for {@code project.idempotency.ttl-minutes} and replayed as is to
+ *   any later request with the same key. Any other outcome releases the key, so the request can be retried.
+ * - Entries live in memory, bounded by {@code project.idempotency.max-entries} and
+ *   {@code project.idempotency.max-bytes} of stored bodies, and evicted in least recently used order.
+ * - When {@code project.idempotency.persistent} is set, responses are also written to the idempotency_records
+ *   table, which is read when a key is not in memory (after a restart or an eviction).
+ *
+ * Like the other in-memory state of this service, in-flight keys are only seen by the instance that runs the
+ * request.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int maxEntries;
+
+    private final long maxBytes;
+
+    private final long ttlMillis;
+
+    private final boolean persistent;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long storedBytes;
+
+    public IdempotencyStore(JdbcTemplate jdbcTemplate,
+                            @Value("${project.idempotency.max-entries:10000}") int maxEntries,
+                            @Value("${project.idempotency.max-bytes:67108864}") long maxBytes,
+                            @Value("${project.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                            @Value("${project.idempotency.persistent:false}") boolean persistent) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.persistent = persistent;
+    }
+
+    /**
+     * Claims a key for a request, or finds the response of an earlier request with the same key.
+     *
+     * @param key         the scoped key
+     * @param fingerprint identifies the request, to refuse a key reused for another request; null when it is not
+     *                    known yet, in which case the caller compares it with {@link Claim#fingerprint()} itself
+     *                    before replaying
+     * @param waitMillis  how long to wait for a duplicate request in flight
+     * @return the outcome; when it is {@link Outcome#EXECUTE}, the caller must run the request and then call
+     *         {@link #complete} or {@link #release} with the returned claim
+     */
+    public Claim claim(String key, String fingerprint, long waitMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        while (true) {
+            Entry entry;
+            boolean claimed = false;
+            synchronized (entries) {
+                entry = entries.get(key);
+                if (entry != null && entry.response != null && entry.expiresAt <= System.currentTimeMillis()) {
+                    remove(key, entry);
+                    entry = null;
+                }
+                if (entry == null) {
+                    entry = new Entry(fingerprint);
+                    entries.put(key, entry);
+                    claimed = true;
+                }
+            }
+            if (claimed) {
+                StoredResponse persisted = persistent ? load(key, entry) : null;
+                if (persisted == null) {
+                    return new Claim(Outcome.EXECUTE, key, entry, null);
+                }
+                store(key, entry, persisted, entry.expiresAt);
+                return matches(entry, fingerprint)
+                        ? new Claim(Outcome.REPLAY, key, entry, persisted)
+                        : new Claim(Outcome.MISMATCH, key, entry, null);
+            }
+            if (!matches(entry, fingerprint)) {
+                return new Claim(Outcome.MISMATCH, key, entry, null);
+            }
+            if (entry.response != null) {
+                return replay(key, entry, fingerprint, entry.response);
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return new Claim(Outcome.IN_PROGRESS, key, entry, null);
+            }
+            try {
+                StoredResponse response = entry.done.get(remaining, TimeUnit.NANOSECONDS);
+                if (response != null) {
+                    return replay(key, entry, fingerprint, response);
+                }
+                // The request in flight was released, try to claim the key again
+            } catch (TimeoutException e) {
+                return new Claim(Outcome.IN_PROGRESS, key, entry, null);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Stores the response of a claimed request and hands it to the duplicates waiting for it.
+     */
+    public void complete(Claim claim, StoredResponse response) {
+        complete(claim, claim.entry.fingerprint, response);
+    }
+
+    /**
+     * Same as {@link #complete(Claim, StoredResponse)} for a request claimed before its fingerprint was known.
+     */
+    public void complete(Claim claim, String fingerprint, StoredResponse response) {
+        claim.entry.fingerprint = fingerprint;
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        store(claim.key(), claim.entry, response, expiresAt);
+        if (persistent) {
+            persist(claim.key(), claim.entry.fingerprint, response, expiresAt);
+        }
+    }
+
+    /**
+     * Forgets a claimed request that did not produce a response worth replaying. Waiting duplicates then try to
+     * claim the key themselves.
+     */
+    public void release(Claim claim) {
+        synchronized (entries) {
+            if (entries.get(claim.key()) == claim.entry) {
+                entries.remove(claim.key());
+            }
+        }
+        claim.entry.done.complete(null);
+    }
+
+    /**
+     * Removes the expired entries from memory, and from the table when it is used.
+     */
+    @Scheduled(fixedDelayString = "${project.idempotency.sweep-interval-ms:60000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next().getValue();
+                if (entry.response != null && entry.expiresAt <= now) {
+                    storedBytes -= entry.response.body().length;
+                    iterator.remove();
+                }
+            }
+        }
+        if (persistent) {
+            int deleted = jdbcTemplate.update("delete from idempotency_records where expires_at < ?",
+                    Timestamp.valueOf(LocalDateTime.now()));
+            if (deleted > 0) {
+                logger.debug("Deleted {} expired idempotency records", deleted);
+            }
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void store(String key, Entry entry, StoredResponse response, long expiresAt) {
+        synchronized (entries) {
+            entry.response = response;
+            entry.expiresAt = expiresAt;
+            if (entries.get(key) == entry) {
+                storedBytes += response.body().length;
+                evictOverflow();
+            }
+        }
+        entry.done.complete(response);
+    }
+
+    /**
+     * Evicts the least recently used responses until the bounds are met. Requests in flight are never evicted.
+     */
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || storedBytes > maxBytes) && iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (entry.response != null) {
+                storedBytes -= entry.response.body().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        entries.remove(key);
+        if (entry.response != null) {
+            storedBytes -= entry.response.body().length;
+        }
+    }
+
+    /**
+     * @return false only when both fingerprints are known and differ
+     */
+    private static boolean matches(Entry entry, String fingerprint) {
+        return entry.fingerprint == null || fingerprint == null || entry.fingerprint.equals(fingerprint);
+    }
+
+    /**
+     * A response completed while waiting may come from a request whose fingerprint was not known at claim time.
+     */
+    private static Claim replay(String key, Entry entry, String fingerprint, StoredResponse response) {
+        return matches(entry, fingerprint)
+                ? new Claim(Outcome.REPLAY, key, entry, response)
+                : new Claim(Outcome.MISMATCH, key, entry, null);
+    }
+
+    /**
+     * Reads the response stored for a key in the table, and takes its fingerprint and expiry into the entry.
+     */
+    private StoredResponse load(String key, Entry entry) {
+        try {
+            List<StoredResponse> found = jdbcTemplate.query("select fingerprint, status_code, content_type, body, "
+                            + "expires_at from idempotency_records where record_key = ? and expires_at > ?",
+                    (resultSet, row) -> {
+                        entry.fingerprint = resultSet.getString("fingerprint");
+                        entry.expiresAt = resultSet.getTimestamp("expires_at").getTime();
+                        return new StoredResponse(resultSet.getInt("status_code"),
+                                resultSet.getString("content_type"), resultSet.getBytes("body"));
+                    },
+                    key, Timestamp.valueOf(LocalDateTime.now()));
+            return found.isEmpty() ? null : found.get(0);
+        } catch (DataAccessException e) {
+            logger.warn("Could not read idempotency record {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void persist(String key, String fingerprint, StoredResponse response, long expiresAt) {
+        try {
+            // An expired row may still hold the key until the next sweep
+            jdbcTemplate.update("delete from idempotency_records where record_key = ?", key);
+            jdbcTemplate.update("insert into idempotency_records (record_key, fingerprint, status_code, content_type, "
+                            + "body, expires_at) values (?, ?, ?, ?, ?, ?)",
+                    key, fingerprint, response.status(), response.contentType(), response.body(),
+                    new Timestamp(expiresAt));
+        } catch (DataAccessException e) {
+            // The response stays replayable from memory
+            logger.warn("Could not persist idempotency record {}: {}", key, e.getMessage());
+        }
+    }
+
+    public enum Outcome {
+        /** The key was claimed, the request must run */
+        EXECUTE,
+        /** The key already has a response, to be sent again */
+        REPLAY,
+        /** The key was used for a different request */
+        MISMATCH,
+        /** A request with the key is still running after the wait */
+        IN_PROGRESS
+    }
+
+    /**
+     * A response as sent to the client.
+     */
+    public record StoredResponse(int status, String contentType, byte[] body) {
+    }
+
+    /**
+     * The result of {@link #claim}.
+     */
+    public static final class Claim {
+
+        private final Outcome outcome;
+
+        private final String key;
+
+        private final Entry entry;
+
+        private final StoredResponse response;
+
+        private Claim(Outcome outcome, String key, Entry entry, StoredResponse response) {
+            this.outcome = outcome;
+            this.key = key;
+            this.entry = entry;
+            this.response = response;
+        }
+
+        public Outcome outcome() {
+            return outcome;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        /**
+         * @return the response to replay, for {@link Outcome#REPLAY}
+         */
+        public StoredResponse response() {
+            return response;
+        }
+
+        /**
+         * @return the fingerprint of the request that produced the response, for {@link Outcome#REPLAY}
+         */
+        public String fingerprint() {
+            return entry.fingerprint;
+        }
+    }
+
+    private static final class Entry {
+
+        /** Null while a request whose fingerprint is not known yet is in flight */
+        private volatile String fingerprint;
+
+        private final CompletableFuture<StoredResponse> done = new CompletableFuture<>();
+
+        /** Null while the request is in flight */
+        private volatile StoredResponse response;
+
+        private volatile long expiresAt;
+
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.nathan.sbecommerce.model;
+
+public enum AggregateType {
+    PRODUCT,
+    CATEGORY
+}
@@ -0,0 +1,19 @@
+package com.nathan.sbecommerce.model;
+
+/**
+ * Lifecycle of a discount campaign. APPLYING and ENDING campaigns are resumed after a restart.
+ */
+public enum CampaignStatus {
+    /** Waiting for its start time */
+    SCHEDULED,
+    /** Its prices are being written to the products */
+    APPLYING,
+    /** Its prices are in effect */
+    ACTIVE,
+    /** The products' own prices are being restored */
+    ENDING,
+    ENDED,
+    /** Cancelled before it started */
+    CANCELLED,
+    FAILED
+}
@@ -0,0 +1,26 @@
+package com.nathan.sbecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The persisted header of a user's cart, used to expire carts that were not touched for a while. The lines are
+ * {@link CartItem} rows; both are written behind by the cart working set, not through JPA.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "carts", indexes = @Index(name = "idx_carts_updated_at", columnList = "updated_at"))
+public class Cart {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -16,8 +16,14 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "categories")
+@Table(name = "categories", indexes = @Index(name = "idx_categories_path", columnList = "path"))
 public class Category {
+
+    /**
+     * Deepest nesting allowed, which bounds the length of {@link #path}.
+     */
+    public static final int MAX_DEPTH = 12;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "category_id")
@@ -35,6 +41,44 @@ public class Category {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
-    @OneToMany(mappedBy = "category", cascade = CascadeType.ALL)
+    /**
+     * Not cascaded: a category can hold far too many products to delete them through the entity manager, they
+     * are deleted in chunks by CategoryDeletionWorker.
+     */
+    @OneToMany(mappedBy = "category")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<Product> products;
+
+    /**
+     * The parent category, or null for a top-level department.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @JoinColumn(name = "parent_id")
+    private Category parent;
+
+    /**
+     * Materialized path: the ids from the root down to this category, e.g. "/1/5/12/".
+     * The subtree of a category is every category whose path starts with its path, a single index range.
+     */
+    @Column(name = "path", length = 255)
+    private String path;
+
+    /**
+     * Number of ancestors, 0 for a top-level department.
+     */
+    @Column(name = "depth")
+    private Integer depth;
+
+    /**
+     * Places this category under a parent, or at the top level when the parent is null.
+     * The id must already be assigned.
+     */
+    public void placeUnder(Category parent) {
+        this.parent = parent;
+        this.path = (parent == null ? "/" : parent.getPath()) + categoryId + "/";
+        this.depth = parent == null ? 0 : parent.getDepth() + 1;
+    }
 }
@@ -0,0 +1,56 @@
+package com.nathan.sbecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A category being deleted in the background, with its progress, so that the deletion can be followed by the
+ * client and resumed after a restart.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "category_deletion_jobs", indexes = @Index(name = "idx_category_deletion_jobs_status", columnList = "status"))
+public class CategoryDeletionJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "job_id")
+    private Long jobId;
+
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(name = "category_name")
+    private String categoryName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20)
+    private JobStatus status;
+
+    @Column(name = "deleted_products")
+    private Long deletedProducts;
+
+    @Column(name = "error", length = 500)
+    private String error;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    public CategoryDeletionJob(Long categoryId, String categoryName) {
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.status = JobStatus.PENDING;
+        this.deletedProducts = 0L;
+    }
+}
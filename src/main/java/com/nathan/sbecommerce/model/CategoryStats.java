@@ -0,0 +1,46 @@
+package com.nathan.sbecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Product aggregates of one category, kept next to the category so that "N products, from $X" never requires
+ * loading or counting its products.
+ *
+ * Rows are maintained by CategoryStatsServiceImpl in the same transaction as every product write, and repaired
+ * by its reconciliation job if they ever drift. Prices are null while the category has no product.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "category_stats")
+public class CategoryStats {
+    @Id
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(name = "product_count")
+    private Long productCount;
+
+    @Column(name = "in_stock_count")
+    private Long inStockCount;
+
+    @Column(name = "min_price")
+    private Double minPrice;
+
+    @Column(name = "max_price")
+    private Double maxPrice;
+
+    @Column(name = "min_special_price")
+    private Double minSpecialPrice;
+
+    @Column(name = "max_special_price")
+    private Double maxSpecialPrice;
+
+    public CategoryStats(Long categoryId) {
+        this(categoryId, 0L, 0L, null, null, null, null);
+    }
+}
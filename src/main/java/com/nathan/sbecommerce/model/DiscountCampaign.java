@@ -0,0 +1,98 @@
+package com.nathan.sbecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A discount applied to a set of products for a period of time.
+ *
+ * The products targeted are those of a category (optionally with its sub categories), or all products when no
+ * category is given, narrowed down by an optional price range. While the campaign is active, the special price
+ * of each of them is derived from the campaign instead of the product's own discount, and the product carries
+ * the id of the campaign so that its own price can be restored when the campaign ends.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "discount_campaigns", indexes = @Index(name = "idx_discount_campaigns_status", columnList = "status"))
+public class DiscountCampaign {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "campaign_id")
+    private Long campaignId;
+
+    @Column(name = "campaign_name")
+    private String campaignName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "discount_type", length = 20)
+    private DiscountType discountType;
+
+    @Column(name = "discount_value")
+    private Double discountValue;
+
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(name = "include_descendants")
+    private boolean includeDescendants;
+
+    @Column(name = "min_price")
+    private Double minPrice;
+
+    @Column(name = "max_price")
+    private Double maxPrice;
+
+    @Column(name = "starts_at")
+    private LocalDateTime startsAt;
+
+    @Column(name = "ends_at")
+    private LocalDateTime endsAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20)
+    private CampaignStatus status;
+
+    /** Products repriced by the last pass, applying or ending the campaign */
+    @Column(name = "affected_products")
+    private Long affectedProducts;
+
+    @Column(name = "error", length = 500)
+    private String error;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    /**
+     * The factor the price is multiplied by: 1 - percentage for a percentage discount, 1 otherwise.
+     */
+    public double priceFactor() {
+        return discountType == DiscountType.PERCENTAGE ? 1 - discountValue * 0.01 : 1;
+    }
+
+    /**
+     * The amount taken off the price once multiplied by {@link #priceFactor()}: 0 for a percentage discount.
+     */
+    public double amountOff() {
+        return discountType == DiscountType.AMOUNT ? discountValue : 0;
+    }
+
+    /**
+     * The special price of a product while the campaign is active. Must agree with the bulk update of
+     * {@link com.nathan.sbecommerce.repository.ProductRepository#applyCampaign}.
+     */
+    public double specialPrice(double price) {
+        return Math.max(0, price * priceFactor() - amountOff());
+    }
+}
@@ -0,0 +1,11 @@
+package com.nathan.sbecommerce.model;
+
+/**
+ * How a discount campaign lowers the price of a product.
+ */
+public enum DiscountType {
+    /** A percentage of the price, like the product's own discount */
+    PERCENTAGE,
+    /** A fixed amount off the price, never going below 0 */
+    AMOUNT
+}
@@ -0,0 +1,10 @@
+package com.nathan.sbecommerce.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * An {@link OutboxEvent} as handed to the listeners.
+ */
+public record DomainEvent(long eventId, AggregateType aggregateType, long aggregateId, Long parentId,
+                          DomainEventType eventType, String beforeKey, String afterKey, LocalDateTime createdAt) {
+}
@@ -0,0 +1,11 @@
+package com.nathan.sbecommerce.model;
+
+/**
+ * What happened to a product or a category. The keys carried by each type are described on {@link OutboxEvent}.
+ */
+public enum DomainEventType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    IMAGE_CHANGED
+}
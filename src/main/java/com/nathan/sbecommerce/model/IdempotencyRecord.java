@@ -0,0 +1,41 @@
+package com.nathan.sbecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A response stored for an Idempotency-Key, so that it can still be replayed after a restart. Rows are written
+ * and read by the idempotency store with plain JDBC, and deleted once they expire.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "idempotency_records", indexes = @Index(name = "idx_idempotency_records_expires_at",
+        columnList = "expires_at"))
+public class IdempotencyRecord {
+    /** The scope of the key (the user name, or "anonymous") and the key, separated by a colon */
+    @Id
+    @Column(name = "record_key", length = 200)
+    private String recordKey;
+
+    @Column(name = "fingerprint", length = 64)
+    private String fingerprint;
+
+    @Column(name = "status_code")
+    private Integer statusCode;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Lob
+    @Column(name = "body")
+    private byte[] body;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+}
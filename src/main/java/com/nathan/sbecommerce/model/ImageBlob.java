@@ -0,0 +1,46 @@
+package com.nathan.sbecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored image file, identified by the SHA-256 of its content plus its extension.
+ *
+ * The reference count is the number of products pointing at the file. Identical uploads share one blob, and a
+ * blob whose count stayed at zero for the grace period is deleted by FileServiceImpl.collectOrphanedImages.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "image_blobs", indexes = @Index(name = "idx_image_blobs_orphans", columnList = "reference_count, updated_at"))
+public class ImageBlob {
+    @Id
+    @Column(name = "image_key", length = 80)
+    private String imageKey;
+
+    @Column(name = "size_bytes")
+    private Long size;
+
+    @Column(name = "reference_count")
+    private Integer referenceCount;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public ImageBlob(String imageKey, Long size, LocalDateTime updatedAt) {
+        this.imageKey = imageKey;
+        this.size = size;
+        this.referenceCount = 0;
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,37 @@
+package com.nathan.sbecommerce.model;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * The resized copies generated for every product image, from the smallest to the largest.
+ *
+ * The path segment is used both in the storage directory ("images/renditions/listing/...") and in the
+ * public URL ("/images/listing/{key}").
+ */
+@Getter
+public enum ImageRendition {
+    THUMBNAIL("thumbnail", 160),
+    LISTING("listing", 480),
+    DETAIL("detail", 1200);
+
+    private final String pathSegment;
+
+    /**
+     * Longest side of the rendition in pixels. Smaller originals are kept at their size.
+     */
+    private final int maxDimension;
+
+    ImageRendition(String pathSegment, int maxDimension) {
+        this.pathSegment = pathSegment;
+        this.maxDimension = maxDimension;
+    }
+
+    public static Optional<ImageRendition> fromPathSegment(String pathSegment) {
+        return Arrays.stream(values())
+                .filter(rendition -> rendition.pathSegment.equals(pathSegment))
+                .findFirst();
+    }
+}
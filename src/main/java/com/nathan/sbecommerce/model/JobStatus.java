@@ -0,0 +1,11 @@
+package com.nathan.sbecommerce.model;
+
+/**
+ * Lifecycle of a background job. PENDING and RUNNING jobs are resumed after a restart.
+ */
+public enum JobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
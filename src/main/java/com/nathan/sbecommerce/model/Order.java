@@ -0,0 +1,54 @@
+package com.nathan.sbecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * An order placed at checkout. Its lines are {@link OrderItem} rows.
+ *
+ * The idempotency key sent by the client is unique per user, so a retried checkout finds the order placed by
+ * the first attempt instead of placing a second one. The fingerprint of the request is kept to refuse a key
+ * reused for a different checkout.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "orders", uniqueConstraints = @UniqueConstraint(name = "uk_orders_user_idempotency_key",
+        columnNames = {"user_id", "idempotency_key"}))
+public class Order {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    @Column(name = "request_fingerprint", length = 64)
+    private String requestFingerprint;
+
+    @Column(name = "address_id")
+    private Long addressId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20)
+    private OrderStatus status;
+
+    @Column(name = "total_quantity")
+    private Integer totalQuantity;
+
+    @Column(name = "total_amount", precision = 12, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,5 @@
+package com.nathan.sbecommerce.model;
+
+public enum OrderStatus {
+    PLACED
+}
@@ -0,0 +1,38 @@
+package com.nathan.sbecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An outbox event that a listener kept failing on, even when handed alone. The relay moves on past it, so this row
+ * is the only trace that the listener missed the event; the event itself is kept as long as it has dead letters.
+ * Rows are inserted with plain JDBC; the entity declares the table.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "outbox_dead_letters", indexes = @Index(name = "idx_outbox_dead_letters_event",
+        columnList = "event_id"))
+public class OutboxDeadLetter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "dead_letter_id")
+    private Long deadLetterId;
+
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(name = "listener", length = 50)
+    private String listener;
+
+    @Column(name = "error", length = 500)
+    private String error;
+
+    @Column(name = "failed_at")
+    private LocalDateTime failedAt;
+}
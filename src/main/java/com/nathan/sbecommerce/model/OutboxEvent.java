@@ -0,0 +1,57 @@
+package com.nathan.sbecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A change to a product or a category, written in the same transaction as the change and relayed to the
+ * in-process listeners afterwards. Rows are inserted and relayed with plain JDBC; the entity declares the table.
+ *
+ * - parentId is the category of a product, or the parent of a category, after the change (before it for a
+ *   deletion), so that per-category structures do not need to read the aggregate back
+ * - beforeKey and afterKey are the name of the product or category before and after the change (null when it
+ *   did not exist), or the image keys for IMAGE_CHANGED
+ * - publishedAt is set once every listener has processed the event
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "outbox_events", indexes = @Index(name = "idx_outbox_events_published",
+        columnList = "published_at, event_id"))
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "aggregate_type", length = 20)
+    private AggregateType aggregateType;
+
+    @Column(name = "aggregate_id")
+    private Long aggregateId;
+
+    @Column(name = "parent_id")
+    private Long parentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", length = 20)
+    private DomainEventType eventType;
+
+    @Column(name = "before_key")
+    private String beforeKey;
+
+    @Column(name = "after_key")
+    private String afterKey;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+}
@@ -0,0 +1,32 @@
+package com.nathan.sbecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Views and clicks of a product since it was created. Kept apart from the product row, so that counting them
+ * never contends with the writes to the product. Rows are written in batches by the activity counters.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "product_activity")
+public class ProductActivity {
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "view_count")
+    private Long viewCount;
+
+    @Column(name = "click_count")
+    private Long clickCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
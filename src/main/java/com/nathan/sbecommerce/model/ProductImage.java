@@ -0,0 +1,50 @@
+package com.nathan.sbecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * One image of a product gallery. The gallery is ordered by position, unique within a product; the primary image
+ * shown in listings stays in {@link Product#getImage()}, so listing a page of products never has to load galleries.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "product_images", uniqueConstraints = @UniqueConstraint(name = "uk_product_images_product_position",
+        columnNames = {"product_id", "position"}))
+public class ProductImage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "product_image_id")
+    private Long productImageId;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @JoinColumn(name = "product_id")
+    private Product product;
+
+    @Column(name = "image_key", nullable = false)
+    private String imageKey;
+
+    @Column(name = "position", nullable = false)
+    private Integer position;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    public ProductImage(Product product, String imageKey, Integer position) {
+        this.product = product;
+        this.imageKey = imageKey;
+        this.position = position;
+    }
+}
@@ -0,0 +1,70 @@
+package com.nathan.sbecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A promotion evaluated when products are listed, on top of their special price, without modifying the products.
+ *
+ * A rule targets a single product, all products of a category, or all products when neither is given. It can
+ * be limited to a period of time and to the users holding a role (e.g. ROLE_SELLER). Stackable rules are applied
+ * one after the other, by descending priority; a rule that is not stackable is applied alone, and only when it
+ * gives a lower price than all the stackable rules together.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "promotion_rules")
+public class PromotionRule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "rule_id")
+    private Long ruleId;
+
+    @Column(name = "rule_name")
+    private String ruleName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "discount_type", length = 20)
+    private DiscountType discountType;
+
+    @Column(name = "discount_value", precision = 12, scale = 2)
+    private BigDecimal discountValue;
+
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(name = "product_id")
+    private Long productId;
+
+    /** The role a user must hold for the rule to apply, or null for everyone */
+    @Column(name = "segment", length = 50)
+    private String segment;
+
+    @Column(name = "stackable")
+    private boolean stackable;
+
+    @Column(name = "priority")
+    private int priority;
+
+    @Column(name = "starts_at")
+    private LocalDateTime startsAt;
+
+    @Column(name = "ends_at")
+    private LocalDateTime endsAt;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
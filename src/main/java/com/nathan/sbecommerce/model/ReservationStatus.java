@@ -0,0 +1,14 @@
+package com.nathan.sbecommerce.model;
+
+/**
+ * Lifecycle of a stock reservation. Only RESERVED reservations hold stock that can be given back.
+ */
+public enum ReservationStatus {
+    RESERVED,
+    /** The stock was sold */
+    CONFIRMED,
+    /** Given back by the client */
+    RELEASED,
+    /** Given back after its TTL */
+    EXPIRED
+}
@@ -0,0 +1,25 @@
+package com.nathan.sbecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stock of a hot product taken from its quantity and held in memory, so that reservations of that product do not
+ * each update the product row. The remaining units go back to the product when the application restarts.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "stock_leases")
+public class StockLease {
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    /** Units leased and not yet consumed by a committed reservation */
+    @Column(name = "remaining")
+    private Long remaining;
+}
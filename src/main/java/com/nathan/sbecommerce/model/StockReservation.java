@@ -0,0 +1,50 @@
+package com.nathan.sbecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A quantity of a product set aside for a user until it is ordered, released or expires. The stock it holds has
+ * already been taken from the product, so rows are the durable ledger of the reservations in progress.
+ *
+ * The id is generated by the application, so that reservations can be inserted in JDBC batches.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "stock_reservations", indexes = {
+        @Index(name = "idx_stock_reservations_status_expires", columnList = "status, expires_at"),
+        @Index(name = "idx_stock_reservations_product", columnList = "product_id"),
+        @Index(name = "idx_stock_reservations_user", columnList = "user_id")})
+public class StockReservation {
+    @Id
+    @Column(name = "reservation_id", length = 36)
+    private String reservationId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "quantity")
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20)
+    private ReservationStatus status;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,134 @@
+package com.nathan.sbecommerce.monitoring;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+
+/**
+ * Filter that counts the SQL statements executed by each HTTP request.
+ *
+ * For every request it:
+ * - starts a {@link SqlStatementStats} on the request thread before anything else runs (it is ordered before
+ *   the security filters, so the user lookup done by AuthTokenFilter is counted too)
+ * - exposes the number of statements in the {@code X-SQL-Statement-Count} response header
+ * - logs a warning for every statement shape repeated at least {@code project.sql.n-plus-one-threshold} times,
+ *   which is the typical signature of an N+1 select
+ * - logs a warning when the request exceeds {@code project.sql.statement-budget} statements
+ *
+ * The header is written just before the response body, because once the body starts the headers are committed.
+ * Tests read the header to enforce a per-endpoint statement budget (see SqlStatementBudgetTests).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENT_COUNT_HEADER = "X-SQL-Statement-Count";
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatementCountFilter.class);
+
+    @Value("${project.sql.n-plus-one-threshold:5}")
+    private int nPlusOneThreshold;
+
+    @Value("${project.sql.statement-budget:20}")
+    private int statementBudget;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementStats stats = SqlStatementListener.begin();
+        StatementCountResponseWrapper wrappedResponse = new StatementCountResponseWrapper(response, stats);
+        try {
+            filterChain.doFilter(request, wrappedResponse);
+        } finally {
+            wrappedResponse.writeStatementCount();
+            SqlStatementListener.end();
+            report(request, stats);
+        }
+    }
+
+    private void report(HttpServletRequest request, SqlStatementStats stats) {
+        int count = stats.getStatementCount();
+        logger.debug("{} {} executed {} SQL statements", request.getMethod(), request.getRequestURI(), count);
+
+        if (count > statementBudget) {
+            logger.warn("{} {} executed {} SQL statements, budget is {}",
+                    request.getMethod(), request.getRequestURI(), count, statementBudget);
+        }
+
+        for (Map.Entry<String, Integer> repeated : stats.repeatedShapes(nPlusOneThreshold).entrySet()) {
+            logger.warn("Possible N+1 on {} {}: statement executed {} times: {}",
+                    request.getMethod(), request.getRequestURI(), repeated.getValue(), repeated.getKey());
+        }
+    }
+
+    /**
+     * Response wrapper that adds the statement count header the first time the body is accessed,
+     * while the headers can still be modified.
+     */
+    private static class StatementCountResponseWrapper extends HttpServletResponseWrapper {
+        private final SqlStatementStats stats;
+        private boolean written;
+
+        StatementCountResponseWrapper(HttpServletResponse response, SqlStatementStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        void writeStatementCount() {
+            if (!written && !isCommitted()) {
+                setHeader(STATEMENT_COUNT_HEADER, String.valueOf(stats.getStatementCount()));
+            }
+            written = true;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeStatementCount();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeStatementCount();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeStatementCount();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeStatementCount();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeStatementCount();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeStatementCount();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.nathan.sbecommerce.monitoring;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+
+/**
+ * datasource-proxy {@link QueryExecutionListener} that counts the statements executed on the current thread.
+ *
+ * The listener sits on the DataSource, so it sees every statement that reaches the database, whether it was
+ * issued by Hibernate (including the secondary selects of eager or lazy associations) or by a JdbcTemplate.
+ * A batch counts once per distinct SQL text, as it is one round trip.
+ * Counting only happens between {@link #begin()} and {@link #end()}; statements executed outside of a
+ * request (startup, scheduled jobs) are ignored.
+ *
+ * The DataSource is wrapped with the listener in {@code SqlMonitoringConfig}.
+ */
+public class SqlStatementListener implements QueryExecutionListener {
+
+    private static final ThreadLocal<SqlStatementStats> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        SqlStatementStats stats = CURRENT.get();
+        if (stats != null) {
+            for (QueryInfo queryInfo : queryInfoList) {
+                stats.record(queryInfo.getQuery());
+            }
+        }
+    }
+
+    /**
+     * Starts counting statements on the current thread.
+     *
+     * @return the stats object that will receive the statements until {@link #end()} is called
+     */
+    public static SqlStatementStats begin() {
+        SqlStatementStats stats = new SqlStatementStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * Stops counting statements on the current thread.
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return the stats of the current thread, or null when no counting is in progress
+     */
+    public static SqlStatementStats current() {
+        return CURRENT.get();
+    }
+}
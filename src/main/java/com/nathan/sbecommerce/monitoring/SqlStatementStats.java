@@ -0,0 +1,57 @@
+package com.nathan.sbecommerce.monitoring;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Per-request record of the SQL statements executed while the request was running.
+ *
+ * Every statement is counted, and its "shape" (the SQL text with literals replaced by '?') is tallied so that
+ * the same statement executed over and over again can be reported as a likely N+1 select.
+ *
+ * Instances are bound to the request thread by {@link SqlStatementListener#begin()} and are not thread safe.
+ */
+public class SqlStatementStats {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private int statementCount;
+
+    private final Map<String, Integer> shapeCounts = new HashMap<>();
+
+    void record(String sql) {
+        statementCount++;
+        shapeCounts.merge(shapeOf(sql), 1, Integer::sum);
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * Returns the statement shapes that were executed at least {@code threshold} times, with their counts.
+     *
+     * @param threshold minimum number of executions of the same shape to be reported
+     * @return the repeated shapes, most frequent first
+     */
+    public Map<String, Integer> repeatedShapes(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        shapeCounts.entrySet().stream()
+                .filter(entry -> entry.getValue() >= threshold)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(entry -> repeated.put(entry.getKey(), entry.getValue()));
+        return repeated;
+    }
+
+    static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ");
+        return IN_LIST.matcher(shape).replaceAll("(?)").trim();
+    }
+}
@@ -0,0 +1,11 @@
+package com.nathan.sbecommerce.repository;
+
+import com.nathan.sbecommerce.model.Address;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AddressRepository extends JpaRepository<Address, Long> {
+
+    boolean existsByAddressIdAndUsersUserId(Long addressId, Long userId);
+}
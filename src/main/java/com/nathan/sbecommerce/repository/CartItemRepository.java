@@ -0,0 +1,13 @@
+package com.nathan.sbecommerce.repository;
+
+import com.nathan.sbecommerce.model.CartItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+
+    List<CartItem> findByUserIdOrderByPosition(Long userId);
+}
@@ -0,0 +1,9 @@
+package com.nathan.sbecommerce.repository;
+
+import com.nathan.sbecommerce.model.Cart;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CartRepository extends JpaRepository<Cart, Long> {
+}
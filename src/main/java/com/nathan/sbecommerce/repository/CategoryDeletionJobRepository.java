@@ -0,0 +1,26 @@
+package com.nathan.sbecommerce.repository;
+
+import com.nathan.sbecommerce.model.CategoryDeletionJob;
+import com.nathan.sbecommerce.model.JobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CategoryDeletionJobRepository extends JpaRepository<CategoryDeletionJob, Long> {
+
+    List<CategoryDeletionJob> findByStatusInOrderByJobId(Collection<JobStatus> statuses);
+
+    Optional<CategoryDeletionJob> findFirstByCategoryIdAndStatusIn(Long categoryId, Collection<JobStatus> statuses);
+
+    @Modifying
+    @Query("update CategoryDeletionJob j set j.deletedProducts = j.deletedProducts + :count, j.updatedAt = current_timestamp "
+            + "where j.jobId = :jobId")
+    int addDeletedProducts(@Param("jobId") Long jobId, @Param("count") long count);
+}
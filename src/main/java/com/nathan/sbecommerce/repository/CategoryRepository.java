@@ -3,10 +3,72 @@ package com.nathan.sbecommerce.repository;
 import com.nathan.sbecommerce.model.Category;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     Category findByCategoryName(@NotBlank(message = "Category name is required") @Size(min = 5, message = "Category name must be at least 5 characters long") String categoryName);
+
+    boolean existsByParentCategoryId(Long parentId);
+
+    /**
+     * Loads a category and locks its row, so that concurrent requests to delete it start a single job.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Category c where c.categoryId = :categoryId")
+    Optional<Category> findForUpdate(@Param("categoryId") Long categoryId);
+
+    @Query("select c.categoryId from Category c")
+    List<Long> findAllCategoryIds();
+
+    /**
+     * Loads every category with its product aggregates in a single query, for the category snapshot.
+     * Each row is [Category, CategoryStats], the stats being null for a category that has none yet.
+     */
+    @Query("select c, s from Category c left join CategoryStats s on s.categoryId = c.categoryId "
+            + "order by c.categoryId")
+    List<Object[]> findAllWithStats();
+
+    /**
+     * Returns the largest depth found in a subtree, to check that moving it does not nest it too deeply.
+     *
+     * @param pathPrefix the path of the subtree root
+     */
+    @Query("select max(c.depth) from Category c where c.path like concat(:pathPrefix, '%')")
+    Integer findMaxDepthUnder(@Param("pathPrefix") String pathPrefix);
+
+    /**
+     * Rewrites the paths and depths of a whole subtree in one statement, through the path index. The cost depends
+     * on the number of categories in the subtree only; products reference their category by id and are untouched.
+     *
+     * @param oldPrefix  the current path of the subtree root, e.g. "/1/5/"
+     * @param newPrefix  the path of the subtree root after the move, e.g. "/3/5/"
+     * @param depthDelta the change of depth of every category in the subtree
+     * @return the number of categories moved
+     */
+    @Modifying
+    @Query("update Category c set c.path = concat(:newPrefix, substring(c.path, length(:oldPrefix) + 1)), "
+            + "c.depth = c.depth + :depthDelta where c.path like concat(:oldPrefix, '%')")
+    int movePaths(@Param("oldPrefix") String oldPrefix,
+                  @Param("newPrefix") String newPrefix,
+                  @Param("depthDelta") int depthDelta);
+
+    /**
+     * Gives a path to top-level categories that have none, e.g. rows created before categories could be nested.
+     *
+     * @return the number of categories updated
+     */
+    @Modifying
+    @Query("update Category c set c.path = concat('/', cast(c.categoryId as string), '/'), c.depth = 0 "
+            + "where c.path is null and c.parent is null")
+    int assignMissingRootPaths();
 }
@@ -0,0 +1,89 @@
+package com.nathan.sbecommerce.repository;
+
+import com.nathan.sbecommerce.model.CategoryStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CategoryStatsRepository extends JpaRepository<CategoryStats, Long> {
+
+    /**
+     * Loads the aggregates of a category and locks the row, so that deltas applied by concurrent product writes
+     * wait until the aggregates have been recomputed.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from CategoryStats s where s.categoryId = :categoryId")
+    Optional<CategoryStats> findForUpdate(@Param("categoryId") Long categoryId);
+
+    /**
+     * Accounts for a product added to a category, widening the price ranges with its prices.
+     *
+     * @return the number of rows updated, 0 when the category has no aggregates yet
+     */
+    @Modifying
+    @Query("update CategoryStats s set s.productCount = s.productCount + 1, "
+            + "s.inStockCount = s.inStockCount + :inStock, "
+            + "s.minPrice = case when s.minPrice is null or :price < s.minPrice then :price else s.minPrice end, "
+            + "s.maxPrice = case when s.maxPrice is null or :price > s.maxPrice then :price else s.maxPrice end, "
+            + "s.minSpecialPrice = case when s.minSpecialPrice is null or :specialPrice < s.minSpecialPrice "
+            + "then :specialPrice else s.minSpecialPrice end, "
+            + "s.maxSpecialPrice = case when s.maxSpecialPrice is null or :specialPrice > s.maxSpecialPrice "
+            + "then :specialPrice else s.maxSpecialPrice end "
+            + "where s.categoryId = :categoryId")
+    int addProduct(@Param("categoryId") Long categoryId,
+                   @Param("inStock") long inStock,
+                   @Param("price") Double price,
+                   @Param("specialPrice") Double specialPrice);
+
+    /**
+     * Accounts for products of a category left without stock by a write that did not go through the product
+     * entity, e.g. a checkout.
+     */
+    @Modifying
+    @Query("update CategoryStats s set s.inStockCount = s.inStockCount - :count where s.categoryId = :categoryId")
+    int removeInStock(@Param("categoryId") Long categoryId, @Param("count") long count);
+
+    /**
+     * Accounts for products of a category given stock back by a write that did not go through the product entity,
+     * e.g. a released reservation.
+     */
+    @Modifying
+    @Query("update CategoryStats s set s.inStockCount = s.inStockCount + :count where s.categoryId = :categoryId")
+    int addInStock(@Param("categoryId") Long categoryId, @Param("count") long count);
+
+    /**
+     * Reads the stored aggregates of some categories as plain values, so that the result never comes from entities
+     * already loaded by the caller. Each row is laid out like {@link #computeAll()}.
+     */
+    @Query("select s.categoryId, s.productCount, s.inStockCount, s.minPrice, s.maxPrice, "
+            + "s.minSpecialPrice, s.maxSpecialPrice from CategoryStats s where s.categoryId in :categoryIds")
+    List<Object[]> findFiguresByCategoryIdIn(@Param("categoryIds") Collection<Long> categoryIds);
+
+    /**
+     * Computes the aggregates of every category that has products, in one grouped scan of the products.
+     * Each row is [categoryId, count, inStockCount, minPrice, maxPrice, minSpecialPrice, maxSpecialPrice].
+     */
+    @Query("select p.category.categoryId, count(p), "
+            + "sum(case when p.quantity > 0 then 1 else 0 end), "
+            + "min(p.price), max(p.price), min(p.specialPrice), max(p.specialPrice) "
+            + "from Product p where p.category is not null group by p.category.categoryId")
+    List<Object[]> computeAll();
+
+    /**
+     * Computes the aggregates of one category through the products' category index.
+     * The single row has the same layout as {@link #computeAll()}, without the category id.
+     */
+    @Query("select count(p), coalesce(sum(case when p.quantity > 0 then 1 else 0 end), 0), "
+            + "min(p.price), max(p.price), min(p.specialPrice), max(p.specialPrice) "
+            + "from Product p where p.category.categoryId = :categoryId")
+    List<Object[]> compute(@Param("categoryId") Long categoryId);
+}
@@ -0,0 +1,58 @@
+package com.nathan.sbecommerce.repository;
+
+import com.nathan.sbecommerce.model.CampaignStatus;
+import com.nathan.sbecommerce.model.DiscountCampaign;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DiscountCampaignRepository extends JpaRepository<DiscountCampaign, Long> {
+
+    List<DiscountCampaign> findByStatusInOrderByCampaignId(Collection<CampaignStatus> statuses);
+
+    List<DiscountCampaign> findAllByOrderByCampaignIdDesc();
+
+    /**
+     * Retrieves the campaigns whose start time has come, oldest first, so that a later campaign takes over the
+     * products of an earlier one.
+     */
+    @Query("select c from DiscountCampaign c where c.status = com.nathan.sbecommerce.model.CampaignStatus.SCHEDULED "
+            + "and (c.startsAt is null or c.startsAt <= :now) order by c.startsAt, c.campaignId")
+    List<DiscountCampaign> findDueToStart(@Param("now") LocalDateTime now);
+
+    @Query("select c from DiscountCampaign c where c.status = com.nathan.sbecommerce.model.CampaignStatus.ACTIVE "
+            + "and c.endsAt is not null and c.endsAt <= :now order by c.endsAt, c.campaignId")
+    List<DiscountCampaign> findDueToEnd(@Param("now") LocalDateTime now);
+
+    /**
+     * Moves a campaign to a new status and resets its progress, without touching the fields an admin may be
+     * changing at the same time (e.g. the end time).
+     */
+    @Modifying
+    @Query("update DiscountCampaign c set c.status = :status, c.affectedProducts = 0, c.error = null, "
+            + "c.updatedAt = current_timestamp where c.campaignId = :campaignId")
+    int startPass(@Param("campaignId") Long campaignId, @Param("status") CampaignStatus status);
+
+    @Modifying
+    @Query("update DiscountCampaign c set c.status = :status, c.error = :error, c.updatedAt = current_timestamp "
+            + "where c.campaignId = :campaignId")
+    int updateStatus(@Param("campaignId") Long campaignId, @Param("status") CampaignStatus status,
+                     @Param("error") String error);
+
+    @Modifying
+    @Query("update DiscountCampaign c set c.affectedProducts = c.affectedProducts + :count, "
+            + "c.updatedAt = current_timestamp where c.campaignId = :campaignId")
+    int addAffectedProducts(@Param("campaignId") Long campaignId, @Param("count") long count);
+
+    @Modifying
+    @Query("update DiscountCampaign c set c.endsAt = :endsAt, c.updatedAt = current_timestamp "
+            + "where c.campaignId = :campaignId")
+    int updateEndsAt(@Param("campaignId") Long campaignId, @Param("endsAt") LocalDateTime endsAt);
+}
@@ -0,0 +1,80 @@
+package com.nathan.sbecommerce.repository;
+
+import com.nathan.sbecommerce.model.ImageBlob;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+    /**
+     * Records one more product referencing a blob, unless the blob is being deleted.
+     */
+    @Transactional
+    @Modifying
+    @Query("update ImageBlob b set b.referenceCount = b.referenceCount + 1, b.updatedAt = :now " +
+            "where b.imageKey = :imageKey and b.referenceCount >= 0")
+    int incrementReferenceCount(@Param("imageKey") String imageKey, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update ImageBlob b set b.referenceCount = b.referenceCount - 1, b.updatedAt = :now " +
+            "where b.imageKey = :imageKey and b.referenceCount > 0")
+    int decrementReferenceCount(@Param("imageKey") String imageKey, @Param("now") LocalDateTime now);
+
+    /**
+     * Drops several references to a blob at once, e.g. when many products sharing an image are deleted together.
+     */
+    @Transactional
+    @Modifying
+    @Query("update ImageBlob b set b.referenceCount = case when b.referenceCount > :count " +
+            "then b.referenceCount - :count else 0 end, b.updatedAt = :now " +
+            "where b.imageKey = :imageKey and b.referenceCount > 0")
+    int decrementReferenceCountBy(@Param("imageKey") String imageKey,
+                                  @Param("count") int count,
+                                  @Param("now") LocalDateTime now);
+
+    /**
+     * Refreshes the last modification time of a blob, so that a blob uploaded again is not collected while
+     * the upload is being attached to a product. A blob marked for deletion is kept again, its file having just
+     * been stored again.
+     */
+    @Transactional
+    @Modifying
+    @Query("update ImageBlob b set b.referenceCount = case when b.referenceCount < 0 then 0 " +
+            "else b.referenceCount end, b.updatedAt = :now where b.imageKey = :imageKey")
+    int touch(@Param("imageKey") String imageKey, @Param("now") LocalDateTime now);
+
+    @Query("select b.imageKey from ImageBlob b where b.referenceCount <= 0 and b.updatedAt < :cutoff order by b.updatedAt")
+    List<String> findOrphanedKeys(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Marks a blob for deletion, with a reference count of -1 that no product can retain, only if it is still
+     * unreferenced and was not touched since the cutoff, so that a blob referenced again after it was selected for
+     * collection survives. The mark also refreshes the modification time, so a blob whose files could not be
+     * deleted is retried once the grace period has passed again.
+     */
+    @Transactional
+    @Modifying
+    @Query("update ImageBlob b set b.referenceCount = -1, b.updatedAt = :now " +
+            "where b.imageKey = :imageKey and b.referenceCount <= 0 and b.updatedAt < :cutoff")
+    int markForDeletion(@Param("imageKey") String imageKey,
+                        @Param("cutoff") LocalDateTime cutoff,
+                        @Param("now") LocalDateTime now);
+
+    /**
+     * Deletes a blob marked for deletion, once its files are gone.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from ImageBlob b where b.imageKey = :imageKey and b.referenceCount < 0")
+    int deleteMarked(@Param("imageKey") String imageKey);
+}
@@ -0,0 +1,13 @@
+package com.nathan.sbecommerce.repository;
+
+import com.nathan.sbecommerce.model.OrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    List<OrderItem> findByOrderIdOrderByOrderItemId(Long orderId);
+}
@@ -0,0 +1,15 @@
+package com.nathan.sbecommerce.repository;
+
+import com.nathan.sbecommerce.model.Order;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    Optional<Order> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    Optional<Order> findByOrderIdAndUserId(Long orderId, Long userId);
+}
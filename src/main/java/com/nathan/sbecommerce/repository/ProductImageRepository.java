@@ -0,0 +1,37 @@
+package com.nathan.sbecommerce.repository;
+
+import com.nathan.sbecommerce.model.ProductImage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductImageRepository extends JpaRepository<ProductImage, Long> {
+
+    List<ProductImage> findByProductProductIdOrderByPosition(Long productId);
+
+    @Query("select coalesce(max(pi.position), -1) from ProductImage pi where pi.product.productId = :productId")
+    int findMaxPosition(@Param("productId") Long productId);
+
+    @Query("select pi.imageKey from ProductImage pi where pi.product.productId = :productId")
+    List<String> findImageKeysByProductId(@Param("productId") Long productId);
+
+    @Query("select pi.imageKey from ProductImage pi where pi.product.productId in :productIds")
+    List<String> findImageKeysByProductIdIn(@Param("productIds") List<Long> productIds);
+
+    @Modifying
+    @Query("delete from ProductImage pi where pi.product.productId in :productIds")
+    int deleteByProductIdIn(@Param("productIds") List<Long> productIds);
+
+    /**
+     * Distinct gallery images in name order, paged on the last name seen, like
+     * {@link ProductRepository#findDistinctImagesAfter(String, Pageable)}.
+     */
+    @Query("select distinct pi.imageKey from ProductImage pi where pi.imageKey > :after order by pi.imageKey")
+    List<String> findDistinctImageKeysAfter(@Param("after") String after, Pageable pageable);
+}
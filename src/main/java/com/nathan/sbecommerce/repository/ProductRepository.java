@@ -2,11 +2,20 @@ package com.nathan.sbecommerce.repository;
 
 import com.nathan.sbecommerce.model.Category;
 import com.nathan.sbecommerce.model.Product;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
@@ -29,6 +38,18 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
  */
 Page<Product> findByCategoryOrderByPriceAsc(Category category, Pageable pageable);
 
+/**
+ * Retrieves the products of a category and of all its descendants, sorted by ascending price.
+ * <p>
+ * Descendants share the materialized path of the category as a prefix, so the subtree is a single range scan
+ * of the category path index, joined to the products through their category id.
+ *
+ * @param pathPrefix The path of the category, e.g. "/1/5/"
+ * @param pageable
+ * @return Page<Product> The products in the category subtree, sorted by ascending price
+ */
+Page<Product> findByCategoryPathStartingWithOrderByPriceAsc(String pathPrefix, Pageable pageable);
+
 /**
  * Retrieves a list of products by performing a case-insensitive search on product names.
  * <p>
@@ -52,4 +73,180 @@ Page<Product> findByCategoryOrderByPriceAsc(Category category, Pageable pageable
  * @return List<Product> A list of products whose names match the search term (case-insensitive)
  */
 Page<Product> findByProductNameLikeIgnoreCase(String productName, Pageable pageable);
+
+/**
+ * Retrieves the distinct image names used by products, in name order, starting after the given name.
+ * <p>
+ * Paging on the last name seen (instead of an offset) keeps every page as cheap as the first one,
+ * which matters when walking all the images, e.g. to backfill their renditions.
+ *
+ * @param after    The last image name of the previous page, or an empty string for the first page
+ * @param pageable The page size (the page number must be 0)
+ * @return List<String> The next image names
+ */
+@Query("select distinct p.image from Product p where p.image is not null and p.image > :after order by p.image")
+List<String> findDistinctImagesAfter(@Param("after") String after, Pageable pageable);
+
+/**
+ * Retrieves the next ids of the products of a category, in id order, so that a category can be emptied in
+ * chunks of bounded size.
+ *
+ * @param categoryId The category being emptied
+ * @param pageable   The chunk size (the page number must be 0)
+ * @return List<Long> The ids of the next chunk of products
+ */
+@Query("select p.productId from Product p where p.category.categoryId = :categoryId order by p.productId")
+List<Long> findIdsByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+@Query("select p.productId, p.productName from Product p where p.productId in :productIds")
+List<Object[]> findNamesByProductIdIn(@Param("productIds") List<Long> productIds);
+
+/**
+ * Retrieves the id, category id and name of every product, without loading the products or their categories.
+ *
+ * @return List<Object[]> [productId, categoryId, productName] rows
+ */
+@Query("select p.productId, p.category.categoryId, p.productName from Product p")
+List<Object[]> findAllCategoryIdsAndNames();
+
+/**
+ * Retrieves the texts of the products, in id order, starting after the given id.
+ * <p>
+ * Paging on the last id seen keeps every page as cheap as the first one when walking all the products,
+ * e.g. to index their texts.
+ *
+ * @param after    The last product id of the previous page, or 0 for the first page
+ * @param pageable The page size (the page number must be 0)
+ * @return List<Object[]> [productId, productName, description] rows
+ */
+@Query("select p.productId, p.productName, p.description from Product p where p.productId > :after "
+        + "order by p.productId")
+List<Object[]> findTextsAfter(@Param("after") Long after, Pageable pageable);
+
+@Query("select p.productId, p.productName, p.description from Product p where p.productId in :productIds")
+List<Object[]> findTextsByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+/**
+ * Retrieves the prices of the products, in id order, starting after the given id, to walk all the products in
+ * pages like {@link #findTextsAfter(Long, Pageable)}.
+ *
+ * @return List<Object[]> [productId, categoryId, price, specialPrice] rows
+ */
+@Query("select p.productId, p.category.categoryId, p.price, p.specialPrice from Product p "
+        + "where p.productId > :after order by p.productId")
+List<Object[]> findPricesAfter(@Param("after") Long after, Pageable pageable);
+
+/**
+ * Retrieves the prices of the products of a category, through the category index.
+ *
+ * @return List<Object[]> [price, specialPrice] rows
+ */
+@Query("select p.price, p.specialPrice from Product p where p.category.categoryId = :categoryId")
+List<Object[]> findPricesByCategoryId(@Param("categoryId") Long categoryId);
+
+@Query("select p.image from Product p where p.productId in :productIds")
+List<String> findImagesByProductIdIn(@Param("productIds") List<Long> productIds);
+
+boolean existsByCategoryCategoryId(Long categoryId);
+
+/**
+ * Tells whether a category already holds a product with this name, using idx_products_category_name.
+ */
+boolean existsByCategoryCategoryIdAndProductName(Long categoryId, String productName);
+
+/**
+ * Retrieves the lowest and highest product ids, so that all products can be walked in id ranges.
+ *
+ * @return Object[] {min, max}, both null when there is no product
+ */
+@Query("select min(p.productId), max(p.productId) from Product p")
+List<Object[]> findIdRange();
+
+/**
+ * Reprices the products of a range of ids targeted by a discount campaign, in one statement.
+ * <p>
+ * The special price becomes max(0, price * priceFactor - amountOff), see
+ * {@link com.nathan.sbecommerce.model.DiscountCampaign#specialPrice(double)}. A product already in another
+ * campaign is taken over by this one. The range of ids bounds the rows locked by each statement, and the
+ * category and price filters are evaluated in the same statement:
+ * - categoryId: only the products of that category
+ * - pathPrefix: only the products of that category and its sub categories
+ * - minPrice / maxPrice: only the products in that price range
+ * Each filter is ignored when null.
+ *
+ * @return the number of products repriced
+ */
+@Modifying
+@Query("update Product p set p.specialPrice = case when p.price * :priceFactor - :amountOff > 0 "
+        + "then p.price * :priceFactor - :amountOff else 0.0 end, p.campaignId = :campaignId, "
+        + "p.updatedAt = current_timestamp "
+        + "where p.productId >= :fromId and p.productId < :toId and p.price is not null "
+        + "and (:categoryId is null or p.category.categoryId = :categoryId) "
+        + "and (:pathPrefix is null or p.category.categoryId in "
+        + "(select c.categoryId from Category c where c.path like concat(:pathPrefix, '%'))) "
+        + "and (:minPrice is null or p.price >= :minPrice) "
+        + "and (:maxPrice is null or p.price <= :maxPrice)")
+int applyCampaign(@Param("campaignId") Long campaignId,
+                  @Param("priceFactor") double priceFactor,
+                  @Param("amountOff") double amountOff,
+                  @Param("fromId") Long fromId,
+                  @Param("toId") Long toId,
+                  @Param("categoryId") Long categoryId,
+                  @Param("pathPrefix") String pathPrefix,
+                  @Param("minPrice") Double minPrice,
+                  @Param("maxPrice") Double maxPrice);
+
+/**
+ * Restores the special price derived from their own discount for the products of a range of ids that are
+ * still in a campaign, in one statement.
+ *
+ * @return the number of products repriced
+ */
+@Modifying
+@Query("update Product p set p.specialPrice = p.price - coalesce(p.discount, 0) * 0.01 * p.price, "
+        + "p.campaignId = null, p.updatedAt = current_timestamp "
+        + "where p.campaignId = :campaignId and p.productId >= :fromId and p.productId < :toId")
+int endCampaign(@Param("campaignId") Long campaignId,
+                @Param("fromId") Long fromId,
+                @Param("toId") Long toId);
+
+@Query("select distinct p.category.categoryId from Product p where p.campaignId = :campaignId")
+List<Long> findCategoryIdsByCampaignId(@Param("campaignId") Long campaignId);
+
+/**
+ * Takes stock from a product if it has enough, in one statement: concurrent reservations can never take more
+ * than the quantity, and a reservation refused for lack of stock does not lock anything for long.
+ *
+ * @return 1 when the stock was taken, 0 when the product does not exist or has less than the quantity
+ */
+@Modifying
+@Query("update Product p set p.quantity = p.quantity - :quantity "
+        + "where p.productId = :productId and p.quantity >= :quantity")
+int takeStock(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+@Modifying
+@Query("update Product p set p.quantity = p.quantity + :quantity where p.productId = :productId")
+int returnStock(@Param("productId") Long productId, @Param("quantity") long quantity);
+
+/**
+ * Retrieves the products left without stock among the given ones, e.g. right after an order took their stock.
+ */
+@Query("select p.productId from Product p where p.productId in :productIds and p.quantity = 0")
+List<Long> findSoldOutIdsByProductIdIn(@Param("productIds") List<Long> productIds);
+
+/**
+ * Loads a product and locks its row, so that concurrent writes to its gallery are applied one after the other.
+ */
+@Lock(LockModeType.PESSIMISTIC_WRITE)
+@Query("select p from Product p where p.productId = :productId")
+Optional<Product> findForUpdate(@Param("productId") Long productId);
+
+@Query("select p.quantity from Product p where p.productId = :productId")
+Integer findQuantity(@Param("productId") Long productId);
+
+/**
+ * @return the category of the product, null when it has none or does not exist
+ */
+@Query("select p.category.categoryId from Product p where p.productId = :productId")
+Long findCategoryId(@Param("productId") Long productId);
 }
@@ -0,0 +1,22 @@
+package com.nathan.sbecommerce.repository;
+
+import com.nathan.sbecommerce.model.PromotionRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PromotionRuleRepository extends JpaRepository<PromotionRule, Long> {
+
+    /**
+     * Retrieves the rules that are in effect or will be, i.e. all rules except the expired ones.
+     */
+    @Query("select r from PromotionRule r where r.endsAt is null or r.endsAt > :now")
+    List<PromotionRule> findNotExpired(@Param("now") LocalDateTime now);
+
+    List<PromotionRule> findAllByOrderByRuleIdDesc();
+}
@@ -9,5 +9,5 @@ import java.util.Optional;
 
 @Repository
 public interface RoleRepository extends JpaRepository<Roles, Long> {
-    Optional<Roles> findByRoleName(AppRole appRole);
+    Optional<Roles> findByAppRole(AppRole appRole);
 }
@@ -0,0 +1,16 @@
+package com.nathan.sbecommerce.repository;
+
+import com.nathan.sbecommerce.model.StockLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockLeaseRepository extends JpaRepository<StockLease, Long> {
+
+    @Modifying
+    @Query("update StockLease l set l.remaining = l.remaining + :delta where l.productId = :productId")
+    int addRemaining(@Param("productId") Long productId, @Param("delta") long delta);
+}
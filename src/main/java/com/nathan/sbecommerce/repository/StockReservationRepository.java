@@ -0,0 +1,49 @@
+package com.nathan.sbecommerce.repository;
+
+import com.nathan.sbecommerce.model.ReservationStatus;
+import com.nathan.sbecommerce.model.StockReservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, String> {
+
+    Optional<StockReservation> findByReservationIdAndUserId(String reservationId, Long userId);
+
+    /**
+     * Moves a reservation out of RESERVED, if it still is. The condition makes concurrent confirm, release and
+     * expiry of the same reservation safe: only one of them updates the row.
+     *
+     * @return 1 when the reservation was updated, 0 otherwise
+     */
+    @Modifying
+    @Query("update StockReservation r set r.status = :status, r.updatedAt = :now where r.reservationId = :reservationId "
+            + "and r.status = com.nathan.sbecommerce.model.ReservationStatus.RESERVED")
+    int finish(@Param("reservationId") String reservationId,
+               @Param("status") ReservationStatus status,
+               @Param("now") LocalDateTime now);
+
+    /**
+     * Confirms a reservation that is RESERVED and has not expired yet. Only checkout confirms reservations, in the
+     * transaction of the order.
+     *
+     * @return 1 when the reservation was confirmed, 0 otherwise
+     */
+    @Modifying
+    @Query("update StockReservation r set r.status = com.nathan.sbecommerce.model.ReservationStatus.CONFIRMED, "
+            + "r.updatedAt = :now where r.reservationId = :reservationId "
+            + "and r.status = com.nathan.sbecommerce.model.ReservationStatus.RESERVED and r.expiresAt > :now")
+    int confirm(@Param("reservationId") String reservationId, @Param("now") LocalDateTime now);
+
+    @Query("select r from StockReservation r where r.status = com.nathan.sbecommerce.model.ReservationStatus.RESERVED "
+            + "and r.expiresAt <= :now order by r.expiresAt")
+    List<StockReservation> findExpired(@Param("now") LocalDateTime now, Pageable pageable);
+}
@@ -0,0 +1,27 @@
+package com.nathan.sbecommerce.service;
+
+import com.nathan.sbecommerce.dto.request.CartItemRequest;
+import com.nathan.sbecommerce.dto.response.CartResponse;
+
+/**
+ * Manages the shopping cart of each user.
+ *
+ * Key methods:
+ * - getCart: Returns the cart with every line priced as on the product listings
+ * - addItem: Adds a quantity of a product, on top of what the cart already holds
+ * - updateItem: Sets the quantity of a product, removing it for 0
+ * - removeItem: Removes a product from the cart
+ * - clearCart: Empties the cart
+ */
+public interface CartService {
+
+    CartResponse getCart(Long userId);
+
+    CartResponse addItem(Long userId, CartItemRequest cartItemRequest);
+
+    CartResponse updateItem(Long userId, Long productId, Integer quantity);
+
+    CartResponse removeItem(Long userId, Long productId);
+
+    CartResponse clearCart(Long userId);
+}
@@ -1,6 +1,7 @@
 package com.nathan.sbecommerce.service;
 
 import com.nathan.sbecommerce.dto.request.CategoryRequest;
+import com.nathan.sbecommerce.dto.response.CategoryDeletionResponse;
 import com.nathan.sbecommerce.dto.response.CategoryResponse;
 import org.springframework.stereotype.Service;
 
@@ -15,5 +16,9 @@ public interface CategoryService {
 
     CategoryRequest updateCategory(CategoryRequest categoryRequest, Long categoryId);
 
-    CategoryRequest deleteCategory(Long id);
+    CategoryRequest moveCategory(Long categoryId, Long parentId);
+
+    CategoryDeletionResponse deleteCategory(Long id);
+
+    CategoryDeletionResponse getCategoryDeletion(Long jobId);
 }
@@ -0,0 +1,70 @@
+package com.nathan.sbecommerce.service;
+
+import com.nathan.sbecommerce.dto.response.PriceStatsResponse;
+import com.nathan.sbecommerce.model.Product;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Maintains the per-category product aggregates ({@link com.nathan.sbecommerce.model.CategoryStats}).
+ *
+ * Key methods:
+ * - productAdded / productRemoved / productUpdated: Apply a product write to the aggregates; must be called in
+ *   the transaction of the write, after the product has been saved or deleted
+ * - productsSoldOut: Accounts for products whose last unit was taken by a stock update, e.g. a checkout or a
+ *   reservation; must be called in the transaction of the update
+ * - productsRestocked: Accounts for products given stock back by a stock update, e.g. a released reservation;
+ *   must be called in the transaction of the update
+ * - categoryCreated / categoryDeleted: Create or drop the aggregates row of a category
+ * - categoriesRepriced: Recomputes the aggregates of categories whose products were repriced in bulk
+ * - reconcile: Recomputes the aggregates that drifted from the products, e.g. after a bulk import
+ * - getPriceStats: Percentiles and histograms of the prices of a category, served from memory
+ * - rebuildPriceStats: Recomputes the price distributions of every category from a scan of the products
+ */
+public interface CategoryStatsService {
+
+    void productAdded(ProductFigures product);
+
+    void productRemoved(ProductFigures product);
+
+    void productUpdated(ProductFigures before, ProductFigures after);
+
+    /**
+     * @param categoryIds the category of each product left without stock, null for a product without category
+     */
+    void productsSoldOut(List<Long> categoryIds);
+
+    /**
+     * @param categoryIds the category of each product that had no stock before the update, null for a product
+     *                    without category
+     */
+    void productsRestocked(List<Long> categoryIds);
+
+    void categoryCreated(Long categoryId);
+
+    void categoryDeleted(Long categoryId);
+
+    void categoriesRepriced(Collection<Long> categoryIds);
+
+    int reconcile();
+
+    /**
+     * @param categoryId the category, or null for all products
+     */
+    PriceStatsResponse getPriceStats(Long categoryId);
+
+    int rebuildPriceStats();
+
+    /**
+     * The values of a product that the aggregates depend on, captured before the product is modified.
+     */
+    record ProductFigures(Long categoryId, boolean inStock, Double price, Double specialPrice) {
+
+        public static ProductFigures of(Product product) {
+            Long categoryId = product.getCategory() == null ? null : product.getCategory().getCategoryId();
+            boolean inStock = product.getQuantity() != null && product.getQuantity() > 0;
+            return new ProductFigures(categoryId, inStock, product.getPrice(), product.getSpecialPrice());
+        }
+    }
+}
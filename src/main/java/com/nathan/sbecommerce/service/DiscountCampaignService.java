@@ -0,0 +1,25 @@
+package com.nathan.sbecommerce.service;
+
+import com.nathan.sbecommerce.dto.request.DiscountCampaignRequest;
+import com.nathan.sbecommerce.dto.response.DiscountCampaignResponse;
+
+import java.util.List;
+
+/**
+ * Manages discount campaigns, which reprice many products at once for a period of time.
+ *
+ * Key methods:
+ * - createCampaign: Schedules a campaign; it is applied in the background once its start time has come
+ * - endCampaign: Ends a campaign now, or cancels it if it has not started yet
+ * - getCampaign / getCampaigns: Report the status and progress of campaigns
+ */
+public interface DiscountCampaignService {
+
+    DiscountCampaignResponse createCampaign(DiscountCampaignRequest campaignRequest);
+
+    DiscountCampaignResponse getCampaign(Long campaignId);
+
+    List<DiscountCampaignResponse> getCampaigns();
+
+    DiscountCampaignResponse endCampaign(Long campaignId);
+}
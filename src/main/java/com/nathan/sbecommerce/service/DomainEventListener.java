@@ -0,0 +1,23 @@
+package com.nathan.sbecommerce.service;
+
+import com.nathan.sbecommerce.model.DomainEvent;
+
+import java.util.List;
+
+/**
+ * Receives the product and category changes relayed from the outbox, e.g. to maintain a cache or an index.
+ *
+ * Each listener runs on its own thread and gets the events in the order they were relayed, in batches.
+ * Delivery is at least once: a batch is handed again when the listener throws, then its events one at a time, and
+ * events relayed before a restart may be handed again after it, so listeners must tolerate duplicates. An event
+ * the listener still fails on alone is recorded in outbox_dead_letters and the listener moves on.
+ */
+public interface DomainEventListener {
+
+    /**
+     * A short name, used for the listener thread and in the logs.
+     */
+    String name();
+
+    void onEvents(List<DomainEvent> events);
+}
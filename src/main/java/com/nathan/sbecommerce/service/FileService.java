@@ -4,6 +4,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
 
 /**
  * FileService is an interface that defines methods for file operations.
@@ -12,6 +14,10 @@ import java.io.IOException;
  *
  * Key methods:
  * - uploadImage: Uploads an image file to the specified path
+ * - storeImage: Stores an image read from a stream, e.g. a request body, without spooling it first
+ * - retainImage / releaseImage: Count the products referencing a stored image, so that unreferenced
+ *   images can be deleted in the background
+ * - releaseImages: Releases many references at once, one statement per distinct image
  *
  * Use cases:
  * - Handling image uploads in a Spring Boot application
@@ -23,4 +29,12 @@ import java.io.IOException;
 @Service
 public interface FileService {
     String uploadImage(String path, MultipartFile image) throws IOException;
+
+    String storeImage(String path, InputStream input, long contentLength) throws IOException;
+
+    void retainImage(String imageKey);
+
+    void releaseImage(String imageKey);
+
+    void releaseImages(Collection<String> imageKeys);
 }
@@ -0,0 +1,24 @@
+package com.nathan.sbecommerce.service;
+
+import com.nathan.sbecommerce.model.ImageRendition;
+
+/**
+ * Generates the resized copies ({@link ImageRendition}) of product images.
+ *
+ * Key methods:
+ * - generateRenditions: Queues the generation of every rendition of an image, without waiting for it
+ * - startBackfill: Generates in the background the missing renditions of every image used by a product
+ * - imageUrl / renditionUrl: Build the public URL of an original image or of one of its renditions
+ *
+ * Generation is idempotent: renditions already on disk are not generated again, so an image can be queued
+ * any number of times.
+ */
+public interface ImageRenditionService {
+    void generateRenditions(String imageKey);
+
+    boolean startBackfill();
+
+    String imageUrl(String imageKey);
+
+    String renditionUrl(ImageRendition rendition, String imageKey);
+}
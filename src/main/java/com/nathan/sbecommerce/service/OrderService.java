@@ -0,0 +1,18 @@
+package com.nathan.sbecommerce.service;
+
+import com.nathan.sbecommerce.dto.request.CheckoutRequest;
+import com.nathan.sbecommerce.dto.response.OrderResponse;
+
+/**
+ * Places the orders of the users.
+ *
+ * Key methods:
+ * - checkout: Orders the requested products, or the content of the cart, once per idempotency key
+ * - getOrder: Returns an order of the user with its lines
+ */
+public interface OrderService {
+
+    OrderResponse checkout(Long userId, String idempotencyKey, CheckoutRequest checkoutRequest);
+
+    OrderResponse getOrder(Long userId, Long orderId);
+}
@@ -0,0 +1,29 @@
+package com.nathan.sbecommerce.service;
+
+import com.nathan.sbecommerce.dto.response.RecentlyViewedResponse;
+import com.nathan.sbecommerce.dto.response.TrendingResponse;
+
+/**
+ * Records how shoppers interact with the products, and ranks the products by recent activity.
+ *
+ * Key methods:
+ * - recordView / recordClick: Counts a view of a product page, or a click on a product from a listing
+ * - getRecentlyViewed: The products a signed in user viewed last
+ * - getTrendingProducts: The most active products over the trending window
+ * - getTrendingProductsByCategory: The most active products of a category over the trending window
+ */
+public interface ProductActivityService {
+
+    /**
+     * @param userId the signed in user, or null for an anonymous view
+     */
+    void recordView(Long productId, Long userId);
+
+    void recordClick(Long productId);
+
+    TrendingResponse getTrendingProducts(Integer limit);
+
+    TrendingResponse getTrendingProductsByCategory(Long categoryId, Integer limit);
+
+    RecentlyViewedResponse getRecentlyViewed(Long userId);
+}
@@ -0,0 +1,20 @@
+package com.nathan.sbecommerce.service;
+
+import com.nathan.sbecommerce.dto.response.ProductGalleryResponse;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Manages the ordered image gallery of a product.
+ *
+ * Key methods:
+ * - addProductImages: Stores a batch of images in parallel and appends them to the gallery in one transaction
+ * - getProductImages: Returns the gallery in display order
+ */
+public interface ProductImageService {
+    ProductGalleryResponse addProductImages(Long productId, List<MultipartFile> images) throws IOException;
+
+    ProductGalleryResponse getProductImages(Long productId);
+}
@@ -5,6 +5,7 @@ import com.nathan.sbecommerce.dto.response.ProductResponse;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 
 public interface ProductService {
@@ -15,6 +16,7 @@ public interface ProductService {
                                    String sortOrder);
 
     ProductResponse searchByCategory(Long categoryId,
+                                     boolean includeDescendants,
                                      Integer pageNumber,
                                      Integer pageSize,
                                      String sortBy,
@@ -31,4 +33,6 @@ public interface ProductService {
     ProductRequest deleteProduct(Long productId);
 
     ProductRequest updateProductImage(Long productId, MultipartFile image) throws IOException;
+
+    ProductRequest updateProductImage(Long productId, InputStream image, long contentLength) throws IOException;
 }
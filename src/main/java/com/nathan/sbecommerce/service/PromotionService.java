@@ -0,0 +1,22 @@
+package com.nathan.sbecommerce.service;
+
+import com.nathan.sbecommerce.dto.request.PromotionRuleRequest;
+
+import java.util.List;
+
+/**
+ * Manages the promotion rules applied to the product listings.
+ *
+ * Key methods:
+ * - createRule: Adds a rule; it applies to the listings as soon as its period starts
+ * - getRules: Returns all rules, latest first
+ * - deleteRule: Removes a rule, which stops applying right away
+ */
+public interface PromotionService {
+
+    PromotionRuleRequest createRule(PromotionRuleRequest ruleRequest);
+
+    List<PromotionRuleRequest> getRules();
+
+    PromotionRuleRequest deleteRule(Long ruleId);
+}
@@ -0,0 +1,11 @@
+package com.nathan.sbecommerce.service;
+
+import com.nathan.sbecommerce.dto.response.SimilarProductsResponse;
+
+/**
+ * Suggests the products whose name and description are the most similar to those of a product.
+ */
+public interface SimilarProductService {
+
+    SimilarProductsResponse getSimilarProducts(Long productId, Integer limit);
+}
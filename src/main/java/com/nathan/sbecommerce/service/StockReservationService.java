@@ -0,0 +1,24 @@
+package com.nathan.sbecommerce.service;
+
+import com.nathan.sbecommerce.dto.request.StockReservationRequest;
+import com.nathan.sbecommerce.dto.response.StockReservationResponse;
+
+/**
+ * Sets product stock aside for a user while a purchase is completed. A reservation is only visible to the user
+ * who made it, and is made final by ordering it at checkout.
+ *
+ * Key methods:
+ * - reserve: Takes the quantity from the product stock, or fails when not enough is left
+ * - release: Gives the stock of a reservation back
+ * - releaseExpired: Gives back the stock of the reservations past their TTL
+ */
+public interface StockReservationService {
+
+    StockReservationResponse reserve(Long userId, StockReservationRequest reservationRequest);
+
+    StockReservationResponse getReservation(Long userId, String reservationId);
+
+    StockReservationResponse release(Long userId, String reservationId);
+
+    int releaseExpired();
+}
@@ -0,0 +1,187 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.dto.request.CartItemRequest;
+import com.nathan.sbecommerce.dto.request.ProductRequest;
+import com.nathan.sbecommerce.dto.response.CartItemResponse;
+import com.nathan.sbecommerce.dto.response.CartResponse;
+import com.nathan.sbecommerce.exception.APIException;
+import com.nathan.sbecommerce.exception.ResourceNotFoundException;
+import com.nathan.sbecommerce.model.ImageRendition;
+import com.nathan.sbecommerce.model.Product;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.service.CartService;
+import com.nathan.sbecommerce.service.ImageRenditionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Serves the carts from {@link CartWorkingSet}, so that changing a cart never waits for the database.
+ *
+ * A cart view loads all of its products with a single query and prices them in one pass of the
+ * {@link PromotionEngine}, whatever the number of lines. Products deleted since they were added are dropped
+ * from the cart.
+ */
+@Service
+@RequiredArgsConstructor
+public class CartServiceImpl implements CartService {
+
+    private final CartWorkingSet cartWorkingSet;
+
+    private final ProductRepository productRepository;
+
+    private final ProductPricer productPricer;
+
+    private final ImageRenditionService imageRenditionService;
+
+    @Value("${project.cart.max-lines:100}")
+    private int maxLines;
+
+    @Value("${project.cart.max-quantity:1000}")
+    private int maxQuantity;
+
+    @Override
+    public CartResponse getCart(Long userId) {
+        return toCartResponse(userId, cartWorkingSet.read(userId, CartLines::of));
+    }
+
+    @Override
+    public CartResponse addItem(Long userId, CartItemRequest cartItemRequest) {
+        Long productId = cartItemRequest.getProductId();
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product", "productId", productId);
+        }
+        CartLines lines = cartWorkingSet.update(userId, cart -> {
+            int current = cart.quantityOf(productId);
+            if (current == 0 && cart.size() >= maxLines) {
+                throw new APIException("A cart cannot hold more than " + maxLines + " products");
+            }
+            cart.set(productId, checkQuantity((long) current + cartItemRequest.getQuantity()));
+            return CartLines.of(cart);
+        });
+        return toCartResponse(userId, lines);
+    }
+
+    @Override
+    public CartResponse updateItem(Long userId, Long productId, Integer quantity) {
+        if (quantity == null || quantity < 0) {
+            throw new APIException("Quantity must be 0 or more");
+        }
+        int checked = checkQuantity(quantity);
+        CartLines lines = cartWorkingSet.update(userId, cart -> {
+            if (cart.quantityOf(productId) == 0) {
+                throw new ResourceNotFoundException("Product", "productId", productId);
+            }
+            cart.set(productId, checked);
+            return CartLines.of(cart);
+        });
+        return toCartResponse(userId, lines);
+    }
+
+    @Override
+    public CartResponse removeItem(Long userId, Long productId) {
+        CartLines lines = cartWorkingSet.update(userId, cart -> {
+            if (cart.quantityOf(productId) == 0) {
+                throw new ResourceNotFoundException("Product", "productId", productId);
+            }
+            cart.set(productId, 0);
+            return CartLines.of(cart);
+        });
+        return toCartResponse(userId, lines);
+    }
+
+    @Override
+    public CartResponse clearCart(Long userId) {
+        cartWorkingSet.update(userId, cart -> {
+            cart.clear();
+            return null;
+        });
+        return new CartResponse(userId, List.of(), 0, BigDecimal.ZERO.setScale(2));
+    }
+
+    private int checkQuantity(long quantity) {
+        if (quantity > maxQuantity) {
+            throw new APIException("A cart line cannot hold more than " + maxQuantity + " units");
+        }
+        return (int) quantity;
+    }
+
+    /**
+     * Prices the lines of a cart with one query for all of their products.
+     */
+    private CartResponse toCartResponse(Long userId, CartLines lines) {
+        Map<Long, Product> productsById = lines.productIds().length == 0 ? Map.of()
+                : productRepository.findAllById(lines.productIdList()).stream()
+                        .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+
+        List<Product> products = new ArrayList<>(lines.productIds().length);
+        List<Integer> quantities = new ArrayList<>(lines.productIds().length);
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < lines.productIds().length; i++) {
+            Product product = productsById.get(lines.productIds()[i]);
+            if (product == null) {
+                missing.add(lines.productIds()[i]);
+            } else {
+                products.add(product);
+                quantities.add(lines.quantities()[i]);
+            }
+        }
+        if (!missing.isEmpty()) {
+            cartWorkingSet.update(userId, cart -> {
+                missing.forEach(productId -> cart.set(productId, 0));
+                return null;
+            });
+        }
+
+        List<ProductRequest> productRequests = productPricer.price(products);
+
+        List<CartItemResponse> items = new ArrayList<>(products.size());
+        int totalQuantity = 0;
+        BigDecimal totalPrice = BigDecimal.ZERO.setScale(2);
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            ProductRequest priced = productRequests.get(i);
+            int quantity = quantities.get(i);
+            BigDecimal unitPrice = ProductPricer.unitPrice(priced);
+            BigDecimal lineTotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
+            items.add(new CartItemResponse(product.getProductId(), product.getProductName(),
+                    imageRenditionService.renditionUrl(ImageRendition.LISTING, product.getImage()), quantity,
+                    unitPrice, lineTotal, priced.getPromotionIds(),
+                    product.getQuantity() != null && product.getQuantity() >= quantity));
+            totalQuantity += quantity;
+            totalPrice = totalPrice.add(lineTotal);
+        }
+        return new CartResponse(userId, items, totalQuantity, totalPrice);
+    }
+
+    /**
+     * A copy of the lines of a cart, taken under its lock so that the products can be loaded without holding it.
+     */
+    private record CartLines(long[] productIds, int[] quantities) {
+
+        static CartLines of(CartWorkingSet.CartState cart) {
+            long[] productIds = new long[cart.size()];
+            int[] quantities = new int[cart.size()];
+            for (int i = 0; i < cart.size(); i++) {
+                productIds[i] = cart.productId(i);
+                quantities[i] = cart.quantity(i);
+            }
+            return new CartLines(productIds, quantities);
+        }
+
+        List<Long> productIdList() {
+            List<Long> ids = new ArrayList<>(productIds.length);
+            for (long productId : productIds) {
+                ids.add(productId);
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.model.Cart;
+import com.nathan.sbecommerce.model.CartItem;
+import com.nathan.sbecommerce.repository.CartItemRepository;
+import com.nathan.sbecommerce.repository.CartRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Holds the carts in use in memory, keyed by user id, and writes them behind to the cart tables.
+ *
+ * - A cart is loaded with one query the first time it is used, and kept as two parallel primitive arrays
+ *   (product ids and quantities) in the order the products were added.
+ * - Changes only mark the cart dirty. Every {@code project.cart.flush-interval-ms}, all dirty carts are written
+ *   in one transaction of JDBC batches (their lines replaced, their header updated), so any number of changes to
+ *   a cart within an interval costs a single write. Changes made less than an interval before a crash are lost.
+ * - Carts not used for {@code project.cart.idle-eviction-ms} leave memory once written, and carts not changed for
+ *   {@code project.cart.ttl-days} are deleted from the tables. An expired cart leaves memory as well, even while in
+ *   use, and a cart whose header is already past the expiry is loaded empty, so its lines are never served again.
+ *
+ * Like the other in-memory caches of this service, it assumes the application runs as a single instance.
+ */
+@Component
+@RequiredArgsConstructor
+public class CartWorkingSet {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartWorkingSet.class);
+
+    private final CartRepository cartRepository;
+
+    private final CartItemRepository cartItemRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${project.cart.idle-eviction-ms:1800000}")
+    private long idleEvictionMs;
+
+    @Value("${project.cart.ttl-days:30}")
+    private long ttlDays;
+
+    private final Map<Long, CartState> carts = new ConcurrentHashMap<>();
+
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Reads a cart. The function runs under the cart lock and must not keep a reference to the state.
+     */
+    public <T> T read(Long userId, Function<CartState, T> reader) {
+        while (true) {
+            CartState state = load(userId);
+            synchronized (state) {
+                if (!state.evicted) {
+                    state.lastAccess = System.currentTimeMillis();
+                    return reader.apply(state);
+                }
+            }
+        }
+    }
+
+    /**
+     * Changes a cart and schedules it to be written. The function runs under the cart lock.
+     */
+    public <T> T update(Long userId, Function<CartState, T> change) {
+        while (true) {
+            CartState state = load(userId);
+            synchronized (state) {
+                if (!state.evicted) {
+                    T result = change.apply(state);
+                    state.lastAccess = System.currentTimeMillis();
+                    state.updatedAt = LocalDateTime.now();
+                    state.dirty = true;
+                    dirty.add(userId);
+                    return result;
+                }
+            }
+        }
+    }
+
+    private CartState load(Long userId) {
+        CartState state = carts.get(userId);
+        if (state != null) {
+            return state;
+        }
+        // Loaded outside of the map, so that a slow query never blocks other carts
+        LocalDateTime updatedAt = cartRepository.findById(userId).map(Cart::getUpdatedAt).orElse(null);
+        CartState loaded;
+        if (updatedAt == null || !updatedAt.isBefore(expiryCutoff())) {
+            loaded = new CartState(userId, cartItemRepository.findByUserIdOrderByPosition(userId),
+                    updatedAt == null ? LocalDateTime.now() : updatedAt);
+        } else {
+            // Expired, its rows are about to be deleted
+            loaded = new CartState(userId, List.of(), LocalDateTime.now());
+        }
+        CartState existing = carts.putIfAbsent(userId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    /**
+     * Writes the carts changed since the last flush, in a single transaction.
+     */
+    @Scheduled(fixedDelayString = "${project.cart.flush-interval-ms:1000}")
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<CartState> written = new ArrayList<>();
+        List<Object[]> headers = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> lines = new ArrayList<>();
+        for (Long userId : dirty) {
+            dirty.remove(userId);
+            CartState state = carts.get(userId);
+            if (state == null) {
+                continue;
+            }
+            synchronized (state) {
+                if (!state.dirty) {
+                    continue;
+                }
+                state.dirty = false;
+                written.add(state);
+                deletes.add(new Object[]{userId});
+                headers.add(new Object[]{userId, Timestamp.valueOf(state.updatedAt)});
+                for (int i = 0; i < state.size; i++) {
+                    lines.add(new Object[]{userId, state.productIds[i], state.quantities[i], i});
+                }
+            }
+        }
+        if (written.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate("delete from cart_items where user_id = ?", deletes);
+                jdbcTemplate.batchUpdate("delete from carts where user_id = ?", deletes);
+                jdbcTemplate.batchUpdate("insert into carts (user_id, updated_at) values (?, ?)", headers);
+                jdbcTemplate.batchUpdate("insert into cart_items (user_id, product_id, quantity, position) "
+                        + "values (?, ?, ?, ?)", lines);
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Could not write {} carts, retrying at the next flush: {}", written.size(), e.getMessage());
+            for (CartState state : written) {
+                synchronized (state) {
+                    state.dirty = true;
+                }
+                dirty.add(state.userId);
+            }
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Removes the carts that were idle for a while and have been written, and deletes the expired carts.
+     * Expired carts leave memory first, so that no copy of their lines outlives the rows; one loaded in the
+     * meantime is loaded empty.
+     */
+    @Scheduled(fixedDelayString = "${project.cart.eviction-interval-ms:60000}")
+    public void evictAndExpire() {
+        long idleSince = System.currentTimeMillis() - idleEvictionMs;
+        LocalDateTime expiryCutoff = expiryCutoff();
+        for (CartState state : carts.values()) {
+            synchronized (state) {
+                if (!state.dirty && (state.lastAccess < idleSince || state.updatedAt.isBefore(expiryCutoff))) {
+                    state.evicted = true;
+                    carts.remove(state.userId, state);
+                }
+            }
+        }
+
+        Timestamp expiredBefore = Timestamp.valueOf(expiryCutoff);
+        Integer expired = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("delete from cart_items where user_id in "
+                    + "(select user_id from carts where updated_at < ?)", expiredBefore);
+            return jdbcTemplate.update("delete from carts where updated_at < ?", expiredBefore);
+        });
+        if (expired != null && expired > 0) {
+            logger.info("Deleted {} carts not changed for {} days", expired, ttlDays);
+        }
+    }
+
+    private LocalDateTime expiryCutoff() {
+        return LocalDateTime.now().minusDays(ttlDays);
+    }
+
+    /**
+     * The lines of one cart. Only accessed under its own lock, through {@link #read} and {@link #update}.
+     */
+    public static final class CartState {
+
+        private final Long userId;
+
+        private long[] productIds;
+
+        private int[] quantities;
+
+        private int size;
+
+        private boolean dirty;
+
+        private boolean evicted;
+
+        private long lastAccess = System.currentTimeMillis();
+
+        private LocalDateTime updatedAt;
+
+        private CartState(Long userId, List<CartItem> items, LocalDateTime updatedAt) {
+            this.userId = userId;
+            this.updatedAt = updatedAt;
+            this.size = items.size();
+            this.productIds = new long[Math.max(4, size)];
+            this.quantities = new int[productIds.length];
+            for (int i = 0; i < size; i++) {
+                productIds[i] = items.get(i).getProductId();
+                quantities[i] = items.get(i).getQuantity();
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long productId(int index) {
+            return productIds[index];
+        }
+
+        public int quantity(int index) {
+            return quantities[index];
+        }
+
+        /**
+         * @return the quantity of the product in the cart, 0 when it is not in the cart
+         */
+        public int quantityOf(long productId) {
+            int index = indexOf(productId);
+            return index < 0 ? 0 : quantities[index];
+        }
+
+        /**
+         * Sets the quantity of a product, adding it at the end of the cart if needed, or removing it for 0.
+         */
+        public void set(long productId, int quantity) {
+            int index = indexOf(productId);
+            if (quantity <= 0) {
+                if (index >= 0) {
+                    System.arraycopy(productIds, index + 1, productIds, index, size - index - 1);
+                    System.arraycopy(quantities, index + 1, quantities, index, size - index - 1);
+                    size--;
+                }
+            } else if (index >= 0) {
+                quantities[index] = quantity;
+            } else {
+                if (size == productIds.length) {
+                    productIds = Arrays.copyOf(productIds, size * 2);
+                    quantities = Arrays.copyOf(quantities, size * 2);
+                }
+                productIds[size] = productId;
+                quantities[size] = quantity;
+                size++;
+            }
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        private int indexOf(long productId) {
+            // Carts are short, a scan of a primitive array beats any hashing
+            for (int i = 0; i < size; i++) {
+                if (productIds[i] == productId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
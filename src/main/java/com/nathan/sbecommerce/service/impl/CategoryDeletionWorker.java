@@ -0,0 +1,194 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.model.AggregateType;
+import com.nathan.sbecommerce.model.Category;
+import com.nathan.sbecommerce.model.CategoryDeletionJob;
+import com.nathan.sbecommerce.model.DomainEventType;
+import com.nathan.sbecommerce.model.JobStatus;
+import com.nathan.sbecommerce.repository.CategoryDeletionJobRepository;
+import com.nathan.sbecommerce.repository.CategoryRepository;
+import com.nathan.sbecommerce.repository.ProductImageRepository;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.service.CategoryStatsService;
+import com.nathan.sbecommerce.service.FileService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Deletes categories in the background, one chunk of products per transaction.
+ *
+ * Each chunk is a handful of set-based statements (select the next ids, release their images, delete their
+ * gallery rows, delete the products), committed on its own, so no lock is held for longer than one chunk and
+ * readers are never blocked by a large category. The category row itself is deleted once no product is left;
+ * products added to the category while it was being emptied are picked up by another round.
+ *
+ * Jobs run one at a time, and jobs left PENDING or RUNNING by a restart are resumed at startup.
+ */
+@Component
+@RequiredArgsConstructor
+public class CategoryDeletionWorker {
+
+    private static final Set<JobStatus> ACTIVE = EnumSet.of(JobStatus.PENDING, JobStatus.RUNNING);
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryDeletionWorker.class);
+
+    private final CategoryDeletionJobRepository categoryDeletionJobRepository;
+
+    private final CategoryRepository categoryRepository;
+
+    private final ProductRepository productRepository;
+
+    private final ProductImageRepository productImageRepository;
+
+    private final FileService fileService;
+
+    private final CategoryStatsService categoryStatsService;
+
+    private final CategorySnapshotCache categorySnapshotCache;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final DomainEventOutbox domainEventOutbox;
+
+    @Value("${project.category-deletion.chunk-size:1000}")
+    private int chunkSize;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void startExecutor() {
+        executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "category-deletion");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the job deleting a category, if one is pending or running.
+     */
+    public CategoryDeletionJob findActiveJob(Long categoryId) {
+        return categoryDeletionJobRepository.findFirstByCategoryIdAndStatusIn(categoryId, ACTIVE).orElse(null);
+    }
+
+    /**
+     * Queues a job that has been committed.
+     */
+    public void submit(Long jobId) {
+        executor.execute(() -> run(jobId));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeJobs() {
+        for (CategoryDeletionJob job : categoryDeletionJobRepository.findByStatusInOrderByJobId(ACTIVE)) {
+            logger.info("Resuming deletion of category {} (job {})", job.getCategoryId(), job.getJobId());
+            submit(job.getJobId());
+        }
+    }
+
+    private void run(Long jobId) {
+        CategoryDeletionJob job = categoryDeletionJobRepository.findById(jobId).orElse(null);
+        if (job == null || !ACTIVE.contains(job.getStatus())) {
+            return;
+        }
+        Long categoryId = job.getCategoryId();
+        updateStatus(jobId, JobStatus.RUNNING, null);
+        try {
+            boolean deleted = false;
+            while (!deleted) {
+                Integer chunk;
+                do {
+                    chunk = transactionTemplate.execute(status -> deleteChunk(jobId, categoryId));
+                } while (chunk != null && chunk > 0);
+                deleted = Boolean.TRUE.equals(transactionTemplate.execute(status -> deleteCategoryIfEmpty(categoryId)));
+            }
+            updateStatus(jobId, JobStatus.COMPLETED, null);
+            logger.info("Deleted category {} (job {})", categoryId, jobId);
+        } catch (RuntimeException e) {
+            logger.warn("Deletion of category {} (job {}) failed: {}", categoryId, jobId, e.getMessage());
+            updateStatus(jobId, JobStatus.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the next chunk of products of a category with their gallery rows, and releases their images.
+     *
+     * @return the number of products deleted, 0 when the category is empty
+     */
+    private int deleteChunk(Long jobId, Long categoryId) {
+        List<Long> productIds = productRepository.findIdsByCategoryId(categoryId, PageRequest.of(0, chunkSize));
+        if (productIds.isEmpty()) {
+            return 0;
+        }
+        List<String> imageKeys = new ArrayList<>(productRepository.findImagesByProductIdIn(productIds));
+        imageKeys.addAll(productImageRepository.findImageKeysByProductIdIn(productIds));
+        // Written with the chunk in one batch insert
+        for (Object[] product : productRepository.findNamesByProductIdIn(productIds)) {
+            domainEventOutbox.record(AggregateType.PRODUCT, (Long) product[0], categoryId, DomainEventType.DELETED,
+                    (String) product[1], null);
+        }
+
+        productImageRepository.deleteByProductIdIn(productIds);
+        productRepository.deleteAllByIdInBatch(productIds);
+        fileService.releaseImages(imageKeys);
+        categoryDeletionJobRepository.addDeletedProducts(jobId, productIds.size());
+        return productIds.size();
+    }
+
+    /**
+     * Deletes the category row once it has no product left.
+     *
+     * @return true when the category is gone, false when products were added since the last chunk
+     * @throws IllegalStateException if sub categories were created under it in the meantime
+     */
+    private boolean deleteCategoryIfEmpty(Long categoryId) {
+        Category category = categoryRepository.findById(categoryId).orElse(null);
+        if (category == null) {
+            return true;
+        }
+        if (productRepository.existsByCategoryCategoryId(categoryId)) {
+            return false;
+        }
+        if (categoryRepository.existsByParentCategoryId(categoryId)) {
+            throw new IllegalStateException("Sub categories were created under category " + categoryId
+                    + " while it was being deleted");
+        }
+        categoryStatsService.categoryDeleted(categoryId);
+        categoryRepository.delete(category);
+        domainEventOutbox.record(AggregateType.CATEGORY, categoryId,
+                category.getParent() == null ? null : category.getParent().getCategoryId(), DomainEventType.DELETED,
+                category.getCategoryName(), null);
+        categorySnapshotCache.invalidateAfterCommit();
+        return true;
+    }
+
+    private void updateStatus(Long jobId, JobStatus status, String error) {
+        transactionTemplate.executeWithoutResult(transaction ->
+                categoryDeletionJobRepository.findById(jobId).ifPresent(job -> {
+                    job.setStatus(status);
+                    job.setError(error == null ? null : error.substring(0, Math.min(error.length(), 500)));
+                    categoryDeletionJobRepository.save(job);
+                }));
+    }
+}
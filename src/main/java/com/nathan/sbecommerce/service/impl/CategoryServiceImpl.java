@@ -3,58 +3,84 @@ package com.nathan.sbecommerce.service.impl;
 import com.nathan.sbecommerce.dto.request.CategoryRequest;
 import com.nathan.sbecommerce.exception.APIException;
 import com.nathan.sbecommerce.exception.ResourceNotFoundException;
+import com.nathan.sbecommerce.model.AggregateType;
 import com.nathan.sbecommerce.model.Category;
+import com.nathan.sbecommerce.model.CategoryDeletionJob;
+import com.nathan.sbecommerce.model.DomainEventType;
+import com.nathan.sbecommerce.dto.response.CategoryDeletionResponse;
 import com.nathan.sbecommerce.dto.response.CategoryResponse;
 import com.nathan.sbecommerce.repository.CategoryRepository;
+import com.nathan.sbecommerce.repository.CategoryDeletionJobRepository;
 import com.nathan.sbecommerce.service.CategoryService;
+import com.nathan.sbecommerce.service.CategoryStatsService;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import jakarta.transaction.Transactional;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @RequiredArgsConstructor
 public class CategoryServiceImpl implements CategoryService {
 
-    private CategoryRepository categoryRepository;
+    private final CategoryRepository categoryRepository;
 
-    private ModelMapper modelMapper;
+    private final ModelMapper modelMapper;
+
+    private final CategoryDeletionJobRepository categoryDeletionJobRepository;
+
+    private final CategoryDeletionWorker categoryDeletionWorker;
+
+
+    private final CategorySnapshotCache categorySnapshotCache;
+
+    private final CategoryStatsService categoryStatsService;
+
+    private final DomainEventOutbox domainEventOutbox;
+
+    private final TransactionTemplate transactionTemplate;
 
 
     @Override
+    /**
+     * Returns a page of categories from the in-memory snapshot, without querying the database.
+     * The snapshot holds every category already sorted by each sortable field, so a page is an array slice.
+     *
+     * @throws APIException if the paging or sort parameters are invalid, or the page is empty.
+     */
     public CategoryResponse getCategories(Integer pageNumber,
                                           Integer pageSize,
                                           String sortBy,
                                           String sortOrder) {
 
-        Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc") ?
-                Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
-
-        Pageable pageable = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page categoryPage = this.categoryRepository.findAll(pageable);
+        if (pageNumber < 0 || pageSize < 1) {
+            throw new APIException("Page number must not be negative and page size must be at least 1");
+        }
+        CategorySnapshot snapshot = this.categorySnapshotCache.get();
+        if (!snapshot.isSortable(sortBy)) {
+            throw new APIException("Categories cannot be sorted by " + sortBy);
+        }
 
-        List<Category> categories = categoryPage.getContent();
+        List<CategoryRequest> categoryRequests = this.categorySnapshotCache.page(snapshot, sortBy,
+                sortOrder.equalsIgnoreCase("asc"), pageNumber, pageSize);
 
-        if (categories.isEmpty()) {
+        if (categoryRequests.isEmpty()) {
             throw new APIException("No categories found");
         }
 
-        List<CategoryRequest> categoryRequests =  categories.stream()
-                .map(category -> modelMapper.map(category, CategoryRequest.class))
-                .toList();
-
+        int totalPages = (snapshot.size() + pageSize - 1) / pageSize;
         CategoryResponse categoryResponse = new CategoryResponse();
         categoryResponse.setContent(categoryRequests);
-        categoryResponse.setPageNumber(categoryPage.getNumber());
-        categoryResponse.setPageSize(categoryPage.getSize());
-        categoryResponse.setTotalElements(categoryPage.getTotalElements());
-        categoryResponse.setTotalPages(categoryPage.getTotalPages());
-        categoryResponse.setLastPage(categoryPage.isLast());
+        categoryResponse.setPageNumber(pageNumber);
+        categoryResponse.setPageSize(pageSize);
+        categoryResponse.setTotalElements((long) snapshot.size());
+        categoryResponse.setTotalPages(totalPages);
+        categoryResponse.setLastPage(pageNumber + 1 >= totalPages);
         return categoryResponse;
     }
 
@@ -66,18 +92,75 @@ public class CategoryServiceImpl implements CategoryService {
      * it throws an APIException. If not, it saves the category to the database and returns a CategoryRequest object
      * containing the details of the newly created category.
      *
+     * When a parentId is given, the category is nested under that parent and gets its materialized path.
+     *
      * @param categoryRequest the CategoryRequest object containing the details of the category to be created.
      * @return a CategoryRequest object containing the details of the newly created category.
-     * @throws APIException if a category with the same name already exists in the database.
+     * @throws APIException if a category with the same name already exists in the database, or the parent is too deep.
+     * @throws ResourceNotFoundException if the parent category does not exist.
      */
+    @Transactional
     public CategoryRequest createCategory(CategoryRequest categoryRequest) {
         Category category = modelMapper.map(categoryRequest, Category.class);
+        // The parent is resolved below, never taken from the mapped request
+        category.setParent(null);
         Category categoryFromDB = categoryRepository.findByCategoryName(category.getCategoryName());
         if (categoryFromDB != null) {
             throw new APIException("Category with name " + category.getCategoryName() + " already exists !!!");
         }
+        Category parent = null;
+        if (categoryRequest.getParentId() != null) {
+            parent = findWithPath(categoryRequest.getParentId());
+            if (parent.getDepth() + 1 > Category.MAX_DEPTH) {
+                throw new APIException("Categories cannot be nested more than " + Category.MAX_DEPTH + " levels deep");
+            }
+        }
         Category savedCategory = this.categoryRepository.save(category);
-        return modelMapper.map(savedCategory, CategoryRequest.class);
+        // The path contains the id, so it is only known once the category is inserted
+        savedCategory.placeUnder(parent);
+        this.categoryStatsService.categoryCreated(savedCategory.getCategoryId());
+        this.categorySnapshotCache.invalidateAfterCommit();
+        this.domainEventOutbox.record(AggregateType.CATEGORY, savedCategory.getCategoryId(),
+                categoryRequest.getParentId(), DomainEventType.CREATED, null, savedCategory.getCategoryName());
+        return toCategoryRequest(savedCategory);
+    }
+
+    @Override
+    /**
+     * Moves a category, with all its descendants, under another parent or to the top level.
+     *
+     * The whole subtree is rewritten with one UPDATE over the path index, so the cost depends on the number of
+     * categories moved, never on the number of products they contain.
+     *
+     * @param categoryId the category to move.
+     * @param parentId   the new parent, or null to make it a top-level department.
+     * @return the moved category.
+     * @throws ResourceNotFoundException if either category does not exist.
+     * @throws APIException if the move would put a category under itself, or nest the subtree too deeply.
+     */
+    @Transactional
+    public CategoryRequest moveCategory(Long categoryId, Long parentId) {
+        Category category = findWithPath(categoryId);
+        Category parent = parentId == null ? null : findWithPath(parentId);
+        String oldPath = category.getPath();
+        if (parent != null && parent.getPath().startsWith(oldPath)) {
+            throw new APIException("A category cannot be moved under itself or one of its descendants");
+        }
+
+        int oldDepth = category.getDepth();
+        int newDepth = parent == null ? 0 : parent.getDepth() + 1;
+        int subtreeDepth = this.categoryRepository.findMaxDepthUnder(oldPath) - oldDepth;
+        if (newDepth + subtreeDepth > Category.MAX_DEPTH) {
+            throw new APIException("Categories cannot be nested more than " + Category.MAX_DEPTH + " levels deep");
+        }
+
+        category.placeUnder(parent);
+        this.categoryRepository.saveAndFlush(category);
+        this.categoryRepository.movePaths(oldPath, category.getPath(), newDepth - oldDepth);
+        this.categorySnapshotCache.invalidateAfterCommit();
+        this.domainEventOutbox.record(AggregateType.CATEGORY, categoryId, parentId, DomainEventType.UPDATED,
+                category.getCategoryName(), category.getCategoryName());
+        return toCategoryRequest(category);
     }
 
     @Override
@@ -91,21 +174,27 @@ public class CategoryServiceImpl implements CategoryService {
      * This method is used in cases when an existing category needs to be updated. It is particularly useful when an admin user wants to update
      * the details of a category, such as the category name.
      *
+     * Only the name is updated: the place of the category in the tree is changed with moveCategory.
+     *
      * @param categoryRequest the CategoryRequest object containing the updated details of the category.
      * @param categoryId the identifier of the category to be updated.
      * @return a CategoryRequest object containing the updated details of the category.
      * @throws ResourceNotFoundException if the category with the provided categoryId does not exist in the database.
      */
+    @Transactional
     public CategoryRequest updateCategory(CategoryRequest categoryRequest, Long categoryId) {
 
-       Category category = modelMapper.map(categoryRequest, Category.class);
-
         Category categoryToUpdateFromDB = this.categoryRepository.findById(categoryId).orElseThrow(()
                 -> new ResourceNotFoundException("Category", "categoryId", categoryId));
 
-        category.setCategoryId(categoryId);
-        this.categoryRepository.save(category);
-        return modelMapper.map(categoryToUpdateFromDB, CategoryRequest.class);
+        String previousName = categoryToUpdateFromDB.getCategoryName();
+        categoryToUpdateFromDB.setCategoryName(categoryRequest.getCategoryName());
+        this.categoryRepository.save(categoryToUpdateFromDB);
+        this.categorySnapshotCache.invalidateAfterCommit();
+        this.domainEventOutbox.record(AggregateType.CATEGORY, categoryId,
+                categoryToUpdateFromDB.getParent() == null ? null : categoryToUpdateFromDB.getParent().getCategoryId(),
+                DomainEventType.UPDATED, previousName, categoryToUpdateFromDB.getCategoryName());
+        return toCategoryRequest(categoryToUpdateFromDB);
 
     }
 
@@ -114,21 +203,76 @@ public class CategoryServiceImpl implements CategoryService {
      * This method is used to delete a category from the database. It takes a categoryId as a parameter,
      * which is the identifier of the category to be deleted. It retrieves the category from the database
      * using the categoryId. If the category does not exist, it throws a ResourceNotFoundException.
-     * It then deletes the category from the database and returns a CategoryRequest object containing the details
-     * of the deleted category.
+     * It then starts a background job that deletes the products of the category in chunks, releases their
+     * images and finally deletes the category, and returns the job so that its progress can be followed.
      *
      * This method is used in cases when an admin user wants to delete a category from the database. It is particularly
      * useful when an admin user wants to remove a category from the e-commerce website.
      *
+     * Asking again to delete a category already being deleted returns the running job instead of starting another.
+     * A category that still has sub categories cannot be deleted; they must be moved or deleted first.
+     *
      * @param categoryId the identifier of the category to be deleted.
-     * @return a CategoryRequest object containing the details of the deleted category.
+     * @return the deletion job, PENDING or RUNNING.
      * @throws ResourceNotFoundException if the category with the provided categoryId does not exist in the database.
      */
-    public CategoryRequest deleteCategory(Long categoryId) {
-        Category optionalCategory = this.categoryRepository.findById(categoryId).orElseThrow(()
+    public CategoryDeletionResponse deleteCategory(Long categoryId) {
+        // The category row is locked while looking for a running job, so that a concurrent request waits for
+        // this one to commit its job and then returns it instead of starting a second one
+        AtomicBoolean started = new AtomicBoolean();
+        CategoryDeletionJob job = this.transactionTemplate.execute(status -> {
+            Category category = this.categoryRepository.findForUpdate(categoryId).orElseThrow(()
+                    -> new ResourceNotFoundException("Category", "categoryId", categoryId));
+            CategoryDeletionJob activeJob = this.categoryDeletionWorker.findActiveJob(categoryId);
+            if (activeJob != null) {
+                return activeJob;
+            }
+            if (this.categoryRepository.existsByParentCategoryId(categoryId)) {
+                throw new APIException("Category " + categoryId + " has sub categories, move or delete them first");
+            }
+
+            started.set(true);
+            return this.categoryDeletionJobRepository.save(
+                    new CategoryDeletionJob(categoryId, category.getCategoryName()));
+        });
+
+        // Queued only once committed, so that the worker finds the job
+        if (started.get()) {
+            this.categoryDeletionWorker.submit(job.getJobId());
+        }
+        return modelMapper.map(job, CategoryDeletionResponse.class);
+    }
+
+    @Override
+    public CategoryDeletionResponse getCategoryDeletion(Long jobId) {
+        CategoryDeletionJob job = this.categoryDeletionJobRepository.findById(jobId).orElseThrow(()
+                -> new ResourceNotFoundException("Category deletion", "jobId", jobId));
+        return modelMapper.map(job, CategoryDeletionResponse.class);
+    }
+
+    /**
+     * Gives a path to the top-level categories stored before categories could be nested.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void assignMissingPaths() {
+        if (this.categoryRepository.assignMissingRootPaths() > 0) {
+            this.categorySnapshotCache.invalidateAfterCommit();
+        }
+    }
+
+    private Category findWithPath(Long categoryId) {
+        Category category = this.categoryRepository.findById(categoryId).orElseThrow(()
                 -> new ResourceNotFoundException("Category", "categoryId", categoryId));
+        if (category.getPath() == null) {
+            // Created without going through this service, only possible for a top-level category
+            category.placeUnder(null);
+        }
+        return category;
+    }
 
-        this.categoryRepository.delete(optionalCategory);
-        return modelMapper.map(optionalCategory, CategoryRequest.class);
+    private CategoryRequest toCategoryRequest(Category category) {
+        return new CategoryRequest(category.getCategoryId(), category.getCategoryName(),
+                category.getParent() == null ? null : category.getParent().getCategoryId(), null);
     }
 }
@@ -0,0 +1,110 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.dto.request.CategoryRequest;
+import com.nathan.sbecommerce.dto.response.CategoryStatsResponse;
+import com.nathan.sbecommerce.model.Category;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable view of every category, with one precomputed order per sortable field, so that a page of categories
+ * is a slice of an array.
+ *
+ * A snapshot is never modified after construction; {@link CategorySnapshotCache} replaces it as a whole when
+ * categories change, so readers never see a half updated list. The product aggregates change with every product
+ * write, so they are not part of the snapshot but looked up for each page.
+ */
+final class CategorySnapshot {
+
+    private final long version;
+
+    private final Long[] ids;
+
+    private final String[] names;
+
+    private final Long[] parentIds;
+
+    /**
+     * For each sortable field, the category indexes in ascending order of that field.
+     */
+    private final Map<String, int[]> ascendingOrders;
+
+    CategorySnapshot(long version, List<Category> categories) {
+        this.version = version;
+        int size = categories.size();
+        this.ids = new Long[size];
+        this.names = new String[size];
+        this.parentIds = new Long[size];
+        LocalDateTime[] createdAt = new LocalDateTime[size];
+        LocalDateTime[] updatedAt = new LocalDateTime[size];
+        for (int i = 0; i < size; i++) {
+            Category category = categories.get(i);
+            ids[i] = category.getCategoryId();
+            names[i] = category.getCategoryName();
+            parentIds[i] = category.getParent() == null ? null : category.getParent().getCategoryId();
+            createdAt[i] = category.getCreatedAt();
+            updatedAt[i] = category.getUpdatedAt();
+        }
+        this.ascendingOrders = Map.of(
+                "categoryId", order(ids),
+                "categoryName", order(names),
+                "createdAt", order(createdAt),
+                "updatedAt", order(updatedAt));
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    boolean isSortable(String sortBy) {
+        return ascendingOrders.containsKey(sortBy);
+    }
+
+    /**
+     * Returns a page of categories in the requested order.
+     *
+     * @param sortBy     a field for which {@link #isSortable(String)} is true
+     * @param ascending  the sort direction
+     * @param pageNumber zero-based page number
+     * @param pageSize   number of categories per page
+     * @param stats      the current aggregates of a category
+     * @return the categories of the page, empty when the page is past the end
+     */
+    List<CategoryRequest> page(String sortBy, boolean ascending, int pageNumber, int pageSize,
+                               Function<Long, CategoryStatsResponse> stats) {
+        int[] order = ascendingOrders.get(sortBy);
+        long from = (long) pageNumber * pageSize;
+        if (from >= order.length) {
+            return List.of();
+        }
+        int to = (int) Math.min(order.length, from + pageSize);
+        CategoryRequest[] page = new CategoryRequest[to - (int) from];
+        for (int i = (int) from; i < to; i++) {
+            int index = ascending ? order[i] : order[order.length - 1 - i];
+            page[i - (int) from] = new CategoryRequest(ids[index], names[index], parentIds[index],
+                    stats.apply(ids[index]));
+        }
+        return List.of(page);
+    }
+
+    /**
+     * Sorts indexes by value, nulls first as the database does for ascending order.
+     * The sort is stable, so ties keep the order of the rows, i.e. the category id.
+     */
+    private static <T extends Comparable<? super T>> int[] order(T[] values) {
+        Integer[] indexes = new Integer[values.length];
+        Arrays.setAll(indexes, i -> i);
+        Function<Integer, T> value = i -> values[i];
+        Arrays.sort(indexes, Comparator.comparing(value, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return Arrays.stream(indexes).mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,190 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.dto.request.CategoryRequest;
+import com.nathan.sbecommerce.dto.response.CategoryStatsResponse;
+import com.nathan.sbecommerce.model.Category;
+import com.nathan.sbecommerce.model.CategoryStats;
+import com.nathan.sbecommerce.repository.CategoryRepository;
+import com.nathan.sbecommerce.repository.CategoryStatsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link CategorySnapshot} and the product aggregates of each category, so that the public
+ * category listing never reaches the database.
+ *
+ * Category writes do not patch the snapshot: they bump a version once their transaction has committed, and the
+ * next reader loads all categories and their aggregates with a single query and swaps in a new snapshot. Readers
+ * in the meantime keep using the previous snapshot, which is never modified.
+ *
+ * Product writes only change aggregates, so they leave the snapshot alone and reload the aggregates of the
+ * categories they touched, by primary key, once their transaction has committed.
+ */
+@Component
+@RequiredArgsConstructor
+public class CategorySnapshotCache {
+
+    private static final CategoryStatsResponse NO_PRODUCTS = new CategoryStatsResponse(0L, 0L, null, null, null, null);
+
+    private final CategoryRepository categoryRepository;
+
+    private final CategoryStatsRepository categoryStatsRepository;
+
+    private final AtomicReference<CategorySnapshot> snapshot = new AtomicReference<>();
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Aggregates by category id. Loads and stores are made under the map's lock, so a slower reload of older
+     * figures can never overwrite newer ones.
+     */
+    private final Map<Long, CategoryStatsResponse> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a page of categories with their current aggregates.
+     *
+     * @see CategorySnapshot#page(String, boolean, int, int, java.util.function.Function)
+     */
+    List<CategoryRequest> page(CategorySnapshot snapshot, String sortBy, boolean ascending, int pageNumber,
+                               int pageSize) {
+        return snapshot.page(sortBy, ascending, pageNumber, pageSize,
+                categoryId -> stats.getOrDefault(categoryId, NO_PRODUCTS));
+    }
+
+    /**
+     * Returns the current snapshot, rebuilding it first when categories changed since it was built.
+     * Only one thread rebuilds at a time; the others wait for its result.
+     */
+    CategorySnapshot get() {
+        CategorySnapshot current = snapshot.get();
+        if (current != null && current.getVersion() == version.get()) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot.get();
+            long expectedVersion = version.get();
+            if (current != null && current.getVersion() == expectedVersion) {
+                return current;
+            }
+            // A write committing while this runs bumps the version again, so the next reader rebuilds
+            CategorySnapshot rebuilt;
+            synchronized (stats) {
+                List<Object[]> rows = categoryRepository.findAllWithStats();
+                List<Category> categories = new ArrayList<>(rows.size());
+                Map<Long, CategoryStatsResponse> loaded = new HashMap<>();
+                for (Object[] row : rows) {
+                    Category category = (Category) row[0];
+                    categories.add(category);
+                    if (row[1] != null) {
+                        loaded.put(category.getCategoryId(), toStatsResponse((CategoryStats) row[1]));
+                    }
+                }
+                stats.putAll(loaded);
+                stats.keySet().retainAll(loaded.keySet());
+                rebuilt = new CategorySnapshot(expectedVersion, categories);
+            }
+            snapshot.set(rebuilt);
+            return rebuilt;
+        }
+    }
+
+    /**
+     * Marks the snapshot as outdated once the current transaction commits, or right away outside a transaction.
+     * Rolled back writes leave the snapshot alone.
+     */
+    public void invalidateAfterCommit() {
+        afterCommit(this::invalidate);
+    }
+
+    /**
+     * Marks the snapshot as outdated, e.g. after categories were written without going through the service.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Reloads the aggregates of a category once the current transaction commits, or right away outside a
+     * transaction. A transaction touching several categories reloads them all with one query.
+     */
+    public void refreshStatsAfterCommit(Long categoryId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refreshStats(List.of(categoryId));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<Long> pending = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<Long> categoryIds = new TreeSet<>();
+            TransactionSynchronizationManager.bindResource(this, categoryIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshStats(categoryIds);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CategorySnapshotCache.this);
+                }
+            });
+            pending = categoryIds;
+        }
+        pending.add(categoryId);
+    }
+
+    /**
+     * Reloads the aggregates of some categories, dropping those that no longer have any.
+     */
+    public void refreshStats(Collection<Long> categoryIds) {
+        if (categoryIds.isEmpty()) {
+            return;
+        }
+        synchronized (stats) {
+            Map<Long, CategoryStatsResponse> loaded = new HashMap<>();
+            for (Object[] row : categoryStatsRepository.findFiguresByCategoryIdIn(categoryIds)) {
+                loaded.put((Long) row[0], new CategoryStatsResponse((Long) row[1], (Long) row[2], (Double) row[3],
+                        (Double) row[4], (Double) row[5], (Double) row[6]));
+            }
+            for (Long categoryId : categoryIds) {
+                CategoryStatsResponse figures = loaded.get(categoryId);
+                if (figures == null) {
+                    stats.remove(categoryId);
+                } else {
+                    stats.put(categoryId, figures);
+                }
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static CategoryStatsResponse toStatsResponse(CategoryStats stats) {
+        return new CategoryStatsResponse(stats.getProductCount(), stats.getInStockCount(), stats.getMinPrice(),
+                stats.getMaxPrice(), stats.getMinSpecialPrice(), stats.getMaxSpecialPrice());
+    }
+}
@@ -0,0 +1,344 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.dto.response.PriceDistributionResponse;
+import com.nathan.sbecommerce.dto.response.PriceRangeResponse;
+import com.nathan.sbecommerce.dto.response.PriceStatsResponse;
+import com.nathan.sbecommerce.exception.ResourceNotFoundException;
+import com.nathan.sbecommerce.model.CategoryStats;
+import com.nathan.sbecommerce.repository.CategoryRepository;
+import com.nathan.sbecommerce.repository.CategoryStatsRepository;
+import com.nathan.sbecommerce.service.CategoryStatsService;
+import com.nathan.sbecommerce.service.impl.PriceDistributions.CategoryPrices;
+import jakarta.annotation.PreDestroy;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the per-category aggregates in step with the products.
+ *
+ * - Adding a product is a single conditional UPDATE of the category row: counts go up, price ranges widen.
+ * - Removing or changing a product locks the row; the counts are adjusted in place unless the product held one
+ *   of the minimum or maximum prices, in which case the row is recomputed from the products of that category
+ *   only, through the category index.
+ * - Because concurrent writes to the same category queue on the row lock, a recomputation is never undone by
+ *   a delta computed before it.
+ * - The reconciliation job compares every row with a grouped scan of the products and recomputes the rows that
+ *   drifted, e.g. after products were written without going through ProductServiceImpl.
+ *
+ * Every change reloads the aggregates of its categories into the {@link CategorySnapshotCache} after commit,
+ * since the listing shows them, and is applied to the in-memory {@link PriceDistributions} after commit as well.
+ * The category snapshot itself is left alone, the aggregates are not part of it.
+ */
+@Service
+@RequiredArgsConstructor
+public class CategoryStatsServiceImpl implements CategoryStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryStatsServiceImpl.class);
+
+    private final CategoryStatsRepository categoryStatsRepository;
+
+    private final CategoryRepository categoryRepository;
+
+    private final CategorySnapshotCache categorySnapshotCache;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final PriceDistributions priceDistributions;
+
+    private final ExecutorService reconciler = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "category-stats");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    @Transactional
+    public void productAdded(ProductFigures product) {
+        if (product.categoryId() == null) {
+            return;
+        }
+        int updated = categoryStatsRepository.addProduct(product.categoryId(), product.inStock() ? 1 : 0,
+                product.price(), product.specialPrice());
+        if (updated == 0) {
+            // No row yet, e.g. a category created before aggregates existed
+            recompute(product.categoryId());
+        }
+        priceDistributions.applyAfterCommit(null, product);
+        categorySnapshotCache.refreshStatsAfterCommit(product.categoryId());
+    }
+
+    @Override
+    @Transactional
+    public void productRemoved(ProductFigures product) {
+        if (product.categoryId() == null) {
+            return;
+        }
+        CategoryStats stats = categoryStatsRepository.findForUpdate(product.categoryId()).orElse(null);
+        if (stats == null || stats.getProductCount() <= 1 || holdsBound(stats, product)) {
+            recompute(product.categoryId());
+        } else {
+            stats.setProductCount(stats.getProductCount() - 1);
+            stats.setInStockCount(stats.getInStockCount() - (product.inStock() ? 1 : 0));
+        }
+        priceDistributions.applyAfterCommit(product, null);
+        categorySnapshotCache.refreshStatsAfterCommit(product.categoryId());
+    }
+
+    @Override
+    @Transactional
+    public void productUpdated(ProductFigures before, ProductFigures after) {
+        if (!Objects.equals(before.categoryId(), after.categoryId())) {
+            productRemoved(before);
+            productAdded(after);
+            return;
+        }
+        if (before.equals(after) || after.categoryId() == null) {
+            return;
+        }
+        CategoryStats stats = categoryStatsRepository.findForUpdate(after.categoryId()).orElse(null);
+        if (stats == null || holdsBound(stats, before)) {
+            recompute(after.categoryId());
+        } else {
+            stats.setInStockCount(stats.getInStockCount() + (after.inStock() ? 1 : 0) - (before.inStock() ? 1 : 0));
+            stats.setMinPrice(min(stats.getMinPrice(), after.price()));
+            stats.setMaxPrice(max(stats.getMaxPrice(), after.price()));
+            stats.setMinSpecialPrice(min(stats.getMinSpecialPrice(), after.specialPrice()));
+            stats.setMaxSpecialPrice(max(stats.getMaxSpecialPrice(), after.specialPrice()));
+        }
+        priceDistributions.applyAfterCommit(before, after);
+        categorySnapshotCache.refreshStatsAfterCommit(after.categoryId());
+    }
+
+    /**
+     * Decrements the in stock counts with one UPDATE per category, in category id order so that concurrent
+     * checkouts lock the rows in the same order. The prices do not change, so neither do the price ranges.
+     */
+    @Override
+    @Transactional
+    public void productsSoldOut(List<Long> categoryIds) {
+        Map<Long, Long> soldOut = countByCategory(categoryIds);
+        soldOut.forEach(categoryStatsRepository::removeInStock);
+        soldOut.keySet().forEach(categorySnapshotCache::refreshStatsAfterCommit);
+    }
+
+    /**
+     * The counterpart of {@link #productsSoldOut(List)}, e.g. for a released reservation or a returned lease.
+     */
+    @Override
+    @Transactional
+    public void productsRestocked(List<Long> categoryIds) {
+        Map<Long, Long> restocked = countByCategory(categoryIds);
+        restocked.forEach(categoryStatsRepository::addInStock);
+        restocked.keySet().forEach(categorySnapshotCache::refreshStatsAfterCommit);
+    }
+
+    @Override
+    @Transactional
+    public void categoryCreated(Long categoryId) {
+        categoryStatsRepository.save(new CategoryStats(categoryId));
+    }
+
+    @Override
+    @Transactional
+    public void categoryDeleted(Long categoryId) {
+        if (categoryStatsRepository.existsById(categoryId)) {
+            categoryStatsRepository.deleteById(categoryId);
+        }
+        priceDistributions.removeCategoryAfterCommit(categoryId);
+    }
+
+    /**
+     * Recomputes each category in its own short transaction holding its row lock, like {@link #reconcile()}.
+     * Meant to be called after the bulk statements have committed, outside of any transaction.
+     */
+    @Override
+    public void categoriesRepriced(Collection<Long> categoryIds) {
+        for (Long categoryId : categoryIds) {
+            transactionTemplate.executeWithoutResult(status -> {
+                categoryStatsRepository.findForUpdate(categoryId);
+                recompute(categoryId);
+            });
+        }
+        priceDistributions.rebuild(categoryIds);
+        categorySnapshotCache.refreshStats(categoryIds);
+    }
+
+    /**
+     * Runs {@link #reconcileInBackground()} once at startup, on its own thread so that the application starts
+     * serving without waiting for the scan of every product.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startReconcile() {
+        reconciler.execute(() -> {
+            try {
+                reconcileInBackground();
+            } catch (RuntimeException e) {
+                logger.warn("Could not reconcile the category aggregates at startup: {}", e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    void stopReconcile() {
+        reconciler.shutdownNow();
+    }
+
+    /**
+     * Runs {@link #reconcile()} and {@link #rebuildPriceStats()} every
+     * {@code project.category-stats.reconcile-interval-ms}, on the scheduler thread.
+     */
+    @Scheduled(fixedDelayString = "${project.category-stats.reconcile-interval-ms:3600000}",
+            initialDelayString = "${project.category-stats.reconcile-interval-ms:3600000}")
+    public void reconcileInBackground() {
+        reconcile();
+        rebuildPriceStats();
+    }
+
+    /**
+     * Repairs the aggregates that do not match the products.
+     *
+     * Drift is detected without locks; each drifting category is then recomputed in its own short transaction
+     * holding its row lock, so product writes to other categories are never blocked.
+     *
+     * @return the number of categories repaired
+     */
+    @Override
+    public int reconcile() {
+        Map<Long, CategoryStats> expected = new HashMap<>();
+        for (Object[] row : categoryStatsRepository.computeAll()) {
+            expected.put((Long) row[0], toStats((Long) row[0], row, 1));
+        }
+        Map<Long, CategoryStats> current = categoryStatsRepository.findAll().stream()
+                .collect(Collectors.toMap(CategoryStats::getCategoryId, Function.identity()));
+
+        List<Long> repaired = new ArrayList<>();
+        for (Long categoryId : categoryRepository.findAllCategoryIds()) {
+            CategoryStats actual = current.remove(categoryId);
+            CategoryStats wanted = expected.getOrDefault(categoryId, new CategoryStats(categoryId));
+            if (!wanted.equals(actual)) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    categoryStatsRepository.findForUpdate(categoryId);
+                    recompute(categoryId);
+                });
+                repaired.add(categoryId);
+            }
+        }
+        // Rows left are those of deleted categories
+        if (!current.isEmpty()) {
+            categoryStatsRepository.deleteAllByIdInBatch(current.keySet());
+        }
+
+        if (!repaired.isEmpty()) {
+            logger.warn("Category aggregates of {} categories drifted from their products and were recomputed",
+                    repaired.size());
+            categorySnapshotCache.refreshStats(repaired);
+        }
+        return repaired.size();
+    }
+
+    @Override
+    public PriceStatsResponse getPriceStats(Long categoryId) {
+        if (categoryId == null) {
+            return new PriceStatsResponse(null,
+                    toDistributionResponse(priceDistributions.getAll(CategoryPrices::price)),
+                    toDistributionResponse(priceDistributions.getAll(CategoryPrices::specialPrice)));
+        }
+        if (!categoryRepository.existsById(categoryId)) {
+            throw new ResourceNotFoundException("Category", "categoryId", categoryId);
+        }
+        return new PriceStatsResponse(categoryId,
+                toDistributionResponse(priceDistributions.get(categoryId, CategoryPrices::price)),
+                toDistributionResponse(priceDistributions.get(categoryId, CategoryPrices::specialPrice)));
+    }
+
+    @Override
+    public int rebuildPriceStats() {
+        return priceDistributions.rebuild();
+    }
+
+    /**
+     * Counts products by category, in category id order, leaving out products without category.
+     */
+    private static Map<Long, Long> countByCategory(List<Long> categoryIds) {
+        return categoryIds.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingBy(Function.identity(), TreeMap::new, Collectors.counting()));
+    }
+
+    /**
+     * Recomputes the aggregates of a category from its products. Must run in a transaction; callers that need
+     * to serialize with concurrent deltas lock the row first.
+     */
+    private void recompute(Long categoryId) {
+        List<Object[]> rows = categoryStatsRepository.compute(categoryId);
+        CategoryStats computed = toStats(categoryId, rows.get(0), 0);
+        // Merged into the row loaded (and locked) earlier in the transaction, if any
+        categoryStatsRepository.save(computed);
+    }
+
+    private static CategoryStats toStats(Long categoryId, Object[] row, int offset) {
+        long count = ((Number) row[offset]).longValue();
+        long inStock = row[offset + 1] == null ? 0 : ((Number) row[offset + 1]).longValue();
+        return new CategoryStats(categoryId, count, inStock,
+                (Double) row[offset + 2], (Double) row[offset + 3], (Double) row[offset + 4], (Double) row[offset + 5]);
+    }
+
+    /**
+     * True when the product holds one of the price bounds, which then cannot be adjusted without a recomputation.
+     */
+    private static boolean holdsBound(CategoryStats stats, ProductFigures product) {
+        return Objects.equals(stats.getMinPrice(), product.price())
+                || Objects.equals(stats.getMaxPrice(), product.price())
+                || Objects.equals(stats.getMinSpecialPrice(), product.specialPrice())
+                || Objects.equals(stats.getMaxSpecialPrice(), product.specialPrice());
+    }
+
+    private static PriceDistributionResponse toDistributionResponse(PriceDistribution distribution) {
+        double[] bounds = distribution.bounds();
+        long[] counts = distribution.histogram();
+        List<PriceRangeResponse> histogram = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            histogram.add(new PriceRangeResponse(i == 0 ? null : bounds[i - 1], i == bounds.length ? null : bounds[i],
+                    counts[i]));
+        }
+        return new PriceDistributionResponse(distribution.count(), cents(distribution.quantile(0.1)),
+                cents(distribution.quantile(0.5)), cents(distribution.quantile(0.9)), histogram);
+    }
+
+    private static Double cents(Double price) {
+        return price == null ? null : Math.round(price * 100) / 100.0;
+    }
+
+    private static Double min(Double current, Double value) {
+        if (value == null) {
+            return current;
+        }
+        return current == null || value < current ? value : current;
+    }
+
+    private static Double max(Double current, Double value) {
+        if (value == null) {
+            return current;
+        }
+        return current == null || value > current ? value : current;
+    }
+}
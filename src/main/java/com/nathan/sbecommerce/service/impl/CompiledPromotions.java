@@ -0,0 +1,276 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.dto.request.ProductRequest;
+import com.nathan.sbecommerce.model.AppRole;
+import com.nathan.sbecommerce.model.DiscountType;
+import com.nathan.sbecommerce.model.PromotionRule;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The promotion rules in effect at a point in time, compiled for evaluation on a page of products.
+ *
+ * - Rules are grouped into those applying to every product, to a category and to a product; the category and
+ *   product groups are looked up by binary search in sorted arrays of ids, so pricing a product costs two
+ *   lookups and a pass over the few rules found, without hashing or boxing.
+ * - Each group is sorted by descending priority, and the three groups are merged while evaluating, so stackable
+ *   rules always apply in priority order.
+ * - Segments are the user roles, held as a bit mask.
+ * - All amounts are cents in a long and percentages are basis points, with half-up rounding of each discount,
+ *   so the result is exact and does not depend on the order of floating point operations.
+ *
+ * Instances are immutable. They only hold the rules active at compilation time, and report when the next rule
+ * starts or ends, after which they must be compiled again.
+ */
+public final class CompiledPromotions {
+
+    private static final Rule[] NO_RULES = new Rule[0];
+
+    private static final Comparator<Rule> EVALUATION_ORDER =
+            Comparator.comparingInt((Rule rule) -> -rule.priority).thenComparingLong(rule -> rule.ruleId);
+
+    private final long version;
+
+    private final LocalDateTime validUntil;
+
+    private final Rule[] globalRules;
+
+    private final long[] categoryIds;
+
+    private final Rule[][] categoryRules;
+
+    private final long[] productIds;
+
+    private final Rule[][] productRules;
+
+    private CompiledPromotions(long version, LocalDateTime validUntil, Rule[] globalRules,
+                               Map<Long, List<Rule>> byCategory, Map<Long, List<Rule>> byProduct) {
+        this.version = version;
+        this.validUntil = validUntil;
+        this.globalRules = globalRules;
+        this.categoryIds = keys(byCategory);
+        this.categoryRules = values(byCategory);
+        this.productIds = keys(byProduct);
+        this.productRules = values(byProduct);
+    }
+
+    /**
+     * Compiles the rules active at a point in time.
+     *
+     * @param version an opaque version, returned by {@link #getVersion()}
+     * @param rules   rules that may be active; those outside their period are left out
+     * @param now     the point in time
+     */
+    public static CompiledPromotions compile(long version, Collection<PromotionRule> rules, LocalDateTime now) {
+        List<Rule> global = new ArrayList<>();
+        Map<Long, List<Rule>> byCategory = new TreeMap<>();
+        Map<Long, List<Rule>> byProduct = new TreeMap<>();
+        LocalDateTime validUntil = null;
+        for (PromotionRule rule : rules) {
+            if (rule.getEndsAt() != null && !rule.getEndsAt().isAfter(now)) {
+                continue;
+            }
+            if (rule.getStartsAt() != null && rule.getStartsAt().isAfter(now)) {
+                validUntil = earliest(validUntil, rule.getStartsAt());
+                continue;
+            }
+            validUntil = earliest(validUntil, rule.getEndsAt());
+            Rule compiled = new Rule(rule);
+            if (rule.getProductId() != null) {
+                byProduct.computeIfAbsent(rule.getProductId(), id -> new ArrayList<>()).add(compiled);
+            } else if (rule.getCategoryId() != null) {
+                byCategory.computeIfAbsent(rule.getCategoryId(), id -> new ArrayList<>()).add(compiled);
+            } else {
+                global.add(compiled);
+            }
+        }
+        return new CompiledPromotions(version, validUntil, sorted(global), byCategory, byProduct);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * True until the first rule that starts or ends after compilation does.
+     */
+    public boolean isValidAt(LocalDateTime now) {
+        return validUntil == null || now.isBefore(validUntil);
+    }
+
+    /**
+     * Returns the segment mask of a user from the names of their roles; unknown names are ignored.
+     */
+    public static long segmentMask(Collection<String> roles) {
+        long mask = 0;
+        for (AppRole role : AppRole.values()) {
+            if (roles.contains(role.name())) {
+                mask |= 1L << role.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Sets the final price and the promotions applied on each product of a page, starting from its special price.
+     * Products without a special price are left alone.
+     *
+     * @param page        the products
+     * @param categoryIds the category of each product, at the same index, or -1 for none
+     * @param segmentMask the segments of the user, see {@link #segmentMask(Collection)}
+     */
+    public void apply(List<ProductRequest> page, long[] categoryIds, long segmentMask) {
+        for (int i = 0; i < page.size(); i++) {
+            ProductRequest product = page.get(i);
+            if (product.getSpecialPrice() == null) {
+                continue;
+            }
+            long baseCents = toCents(product.getSpecialPrice());
+            long productId = product.getProductId() == null ? -1 : product.getProductId();
+            PricedProduct priced = price(baseCents, productId, categoryIds[i], segmentMask);
+            product.setFinalPrice(BigDecimal.valueOf(priced.cents(), 2));
+            product.setPromotionIds(priced.promotionIds());
+        }
+    }
+
+    /**
+     * Prices one product.
+     *
+     * @param baseCents the price before promotions, in cents
+     */
+    public PricedProduct price(long baseCents, long productId, long categoryId, long segmentMask) {
+        Rule[] forCategory = rulesOf(categoryIds, categoryRules, categoryId);
+        Rule[] forProduct = rulesOf(productIds, productRules, productId);
+
+        long stacked = baseCents;
+        List<Long> stackedIds = null;
+        long exclusive = Long.MAX_VALUE;
+        Rule exclusiveRule = null;
+
+        int g = 0;
+        int c = 0;
+        int p = 0;
+        while (g < globalRules.length || c < forCategory.length || p < forProduct.length) {
+            // Three-way merge on the evaluation order
+            Rule rule = null;
+            int source = -1;
+            if (g < globalRules.length) {
+                rule = globalRules[g];
+                source = 0;
+            }
+            if (c < forCategory.length && (rule == null || EVALUATION_ORDER.compare(forCategory[c], rule) < 0)) {
+                rule = forCategory[c];
+                source = 1;
+            }
+            if (p < forProduct.length && (rule == null || EVALUATION_ORDER.compare(forProduct[p], rule) < 0)) {
+                rule = forProduct[p];
+                source = 2;
+            }
+            switch (source) {
+                case 0 -> g++;
+                case 1 -> c++;
+                default -> p++;
+            }
+
+            if (rule.segmentMask != 0 && (rule.segmentMask & segmentMask) == 0) {
+                continue;
+            }
+            if (rule.stackable) {
+                stacked = rule.discount(stacked);
+                if (stackedIds == null) {
+                    stackedIds = new ArrayList<>(2);
+                }
+                stackedIds.add(rule.ruleId);
+            } else {
+                long price = rule.discount(baseCents);
+                if (price < exclusive) {
+                    exclusive = price;
+                    exclusiveRule = rule;
+                }
+            }
+        }
+
+        if (exclusiveRule != null && exclusive < stacked) {
+            return new PricedProduct(exclusive, List.of(exclusiveRule.ruleId));
+        }
+        return new PricedProduct(stacked, stackedIds == null ? List.of() : stackedIds);
+    }
+
+    /**
+     * Converts a price to cents, rounding half up on its decimal representation, e.g. 5.495 to 550.
+     */
+    public static long toCents(double price) {
+        return BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * The price of a product once promotions are applied.
+     */
+    public record PricedProduct(long cents, List<Long> promotionIds) {
+    }
+
+    private static final class Rule {
+
+        private final long ruleId;
+
+        private final int priority;
+
+        private final boolean percentage;
+
+        /** Basis points for a percentage, cents for an amount */
+        private final long value;
+
+        private final boolean stackable;
+
+        private final long segmentMask;
+
+        private Rule(PromotionRule rule) {
+            this.ruleId = rule.getRuleId();
+            this.priority = rule.getPriority();
+            this.percentage = rule.getDiscountType() == DiscountType.PERCENTAGE;
+            this.value = rule.getDiscountValue().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            this.stackable = rule.isStackable();
+            this.segmentMask = rule.getSegment() == null ? 0 : segmentMask(List.of(rule.getSegment()));
+        }
+
+        private long discount(long cents) {
+            long off = percentage ? (Math.multiplyExact(cents, value) + 5_000) / 10_000 : value;
+            return Math.max(0, cents - off);
+        }
+    }
+
+    private static Rule[] rulesOf(long[] ids, Rule[][] rules, long id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index < 0 ? NO_RULES : rules[index];
+    }
+
+    private static Rule[] sorted(List<Rule> rules) {
+        Rule[] array = rules.toArray(NO_RULES);
+        Arrays.sort(array, EVALUATION_ORDER);
+        return array;
+    }
+
+    private static long[] keys(Map<Long, List<Rule>> rules) {
+        return rules.keySet().stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static Rule[][] values(Map<Long, List<Rule>> rules) {
+        return rules.values().stream().map(CompiledPromotions::sorted).toArray(Rule[][]::new);
+    }
+
+    private static LocalDateTime earliest(LocalDateTime current, LocalDateTime candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        return current == null || candidate.isBefore(current) ? candidate : current;
+    }
+}
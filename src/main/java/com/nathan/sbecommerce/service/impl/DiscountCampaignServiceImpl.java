@@ -0,0 +1,110 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.dto.request.DiscountCampaignRequest;
+import com.nathan.sbecommerce.dto.response.DiscountCampaignResponse;
+import com.nathan.sbecommerce.exception.APIException;
+import com.nathan.sbecommerce.exception.ResourceNotFoundException;
+import com.nathan.sbecommerce.model.CampaignStatus;
+import com.nathan.sbecommerce.model.DiscountCampaign;
+import com.nathan.sbecommerce.model.DiscountType;
+import com.nathan.sbecommerce.repository.CategoryRepository;
+import com.nathan.sbecommerce.repository.DiscountCampaignRepository;
+import com.nathan.sbecommerce.service.DiscountCampaignService;
+import lombok.RequiredArgsConstructor;
+import org.modelmapper.ModelMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Validates and records discount campaigns; the repricing itself is done by {@link DiscountCampaignWorker}.
+ */
+@Service
+@RequiredArgsConstructor
+public class DiscountCampaignServiceImpl implements DiscountCampaignService {
+
+    private final DiscountCampaignRepository discountCampaignRepository;
+
+    private final CategoryRepository categoryRepository;
+
+    private final DiscountCampaignWorker discountCampaignWorker;
+
+    private final ModelMapper modelMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public DiscountCampaignResponse createCampaign(DiscountCampaignRequest campaignRequest) {
+        if (campaignRequest.getDiscountType() == DiscountType.PERCENTAGE && campaignRequest.getDiscountValue() > 100) {
+            throw new APIException("A percentage discount cannot exceed 100");
+        }
+        if (campaignRequest.getMinPrice() != null && campaignRequest.getMaxPrice() != null
+                && campaignRequest.getMinPrice() > campaignRequest.getMaxPrice()) {
+            throw new APIException("The minimum price cannot exceed the maximum price");
+        }
+        if (campaignRequest.getStartsAt() != null && campaignRequest.getEndsAt() != null
+                && !campaignRequest.getEndsAt().isAfter(campaignRequest.getStartsAt())) {
+            throw new APIException("A campaign must end after it starts");
+        }
+        if (campaignRequest.getCategoryId() != null && !categoryRepository.existsById(campaignRequest.getCategoryId())) {
+            throw new ResourceNotFoundException("Category", "categoryId", campaignRequest.getCategoryId());
+        }
+
+        // Copied field by field: the mapper would take the category id for the campaign id
+        DiscountCampaign campaign = new DiscountCampaign();
+        campaign.setCampaignName(campaignRequest.getCampaignName());
+        campaign.setDiscountType(campaignRequest.getDiscountType());
+        campaign.setDiscountValue(campaignRequest.getDiscountValue());
+        campaign.setCategoryId(campaignRequest.getCategoryId());
+        campaign.setIncludeDescendants(campaignRequest.isIncludeDescendants());
+        campaign.setMinPrice(campaignRequest.getMinPrice());
+        campaign.setMaxPrice(campaignRequest.getMaxPrice());
+        campaign.setStartsAt(campaignRequest.getStartsAt());
+        campaign.setEndsAt(campaignRequest.getEndsAt());
+        campaign.setStatus(CampaignStatus.SCHEDULED);
+        campaign.setAffectedProducts(0L);
+        DiscountCampaign savedCampaign = discountCampaignRepository.save(campaign);
+        if (savedCampaign.getStartsAt() == null || !savedCampaign.getStartsAt().isAfter(LocalDateTime.now())) {
+            discountCampaignWorker.submit(savedCampaign.getCampaignId());
+        }
+        return modelMapper.map(savedCampaign, DiscountCampaignResponse.class);
+    }
+
+    @Override
+    public DiscountCampaignResponse getCampaign(Long campaignId) {
+        return modelMapper.map(findCampaign(campaignId), DiscountCampaignResponse.class);
+    }
+
+    @Override
+    public List<DiscountCampaignResponse> getCampaigns() {
+        return discountCampaignRepository.findAllByOrderByCampaignIdDesc().stream()
+                .map(campaign -> modelMapper.map(campaign, DiscountCampaignResponse.class))
+                .toList();
+    }
+
+    /**
+     * Sets the end time of the campaign to now and lets the worker end it, so that a campaign being applied is
+     * ended once it has been applied rather than concurrently.
+     */
+    @Override
+    public DiscountCampaignResponse endCampaign(Long campaignId) {
+        DiscountCampaign campaign = findCampaign(campaignId);
+        if (EnumSet.of(CampaignStatus.ENDED, CampaignStatus.CANCELLED, CampaignStatus.FAILED)
+                .contains(campaign.getStatus())) {
+            throw new APIException("Campaign " + campaignId + " is already " + campaign.getStatus());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> discountCampaignRepository.updateEndsAt(campaignId, now));
+        discountCampaignWorker.submit(campaignId);
+        campaign.setEndsAt(now);
+        return modelMapper.map(campaign, DiscountCampaignResponse.class);
+    }
+
+    private DiscountCampaign findCampaign(Long campaignId) {
+        return discountCampaignRepository.findById(campaignId).orElseThrow(()
+                -> new ResourceNotFoundException("Discount campaign", "campaignId", campaignId));
+    }
+}
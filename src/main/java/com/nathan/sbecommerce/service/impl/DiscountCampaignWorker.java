@@ -0,0 +1,229 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.model.CampaignStatus;
+import com.nathan.sbecommerce.model.Category;
+import com.nathan.sbecommerce.model.DiscountCampaign;
+import com.nathan.sbecommerce.repository.CategoryRepository;
+import com.nathan.sbecommerce.repository.DiscountCampaignRepository;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.service.CategoryStatsService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Starts and ends discount campaigns in the background.
+ *
+ * Repricing walks the products in ranges of {@code project.discount-campaigns.chunk-size} ids; each range is a
+ * single UPDATE computing the special price in the database and committed on its own, so no product row is
+ * loaded into memory and no lock is held for longer than one range. Ending a campaign walks the same ranges to
+ * restore the price derived from each product's own discount. The aggregates of the categories involved are
+ * recomputed once a pass is over. No product event is recorded: the outbox carries names and image keys, and
+ * repricing changes neither.
+ *
+ * All transitions run on a single thread, in the order campaigns were submitted, so that a campaign is never
+ * applied and ended at the same time and a later campaign consistently takes over the products of an earlier
+ * one. The products created while a campaign is being applied are not part of it.
+ */
+@Component
+@RequiredArgsConstructor
+public class DiscountCampaignWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiscountCampaignWorker.class);
+
+    private final DiscountCampaignRepository discountCampaignRepository;
+
+    private final ProductRepository productRepository;
+
+    private final CategoryRepository categoryRepository;
+
+    private final CategoryStatsService categoryStatsService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${project.discount-campaigns.chunk-size:5000}")
+    private int chunkSize;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void startExecutor() {
+        executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "discount-campaigns");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues a committed campaign, to be started or ended if it is due. Submitting a campaign with nothing to
+     * do is harmless.
+     */
+    public void submit(Long campaignId) {
+        executor.execute(() -> run(campaignId));
+    }
+
+    /**
+     * Resumes the campaigns interrupted by a restart, then submits the campaigns that are due.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeCampaigns() {
+        for (DiscountCampaign campaign : discountCampaignRepository.findByStatusInOrderByCampaignId(
+                EnumSet.of(CampaignStatus.APPLYING, CampaignStatus.ENDING))) {
+            logger.info("Resuming discount campaign {} ({})", campaign.getCampaignId(), campaign.getStatus());
+            submit(campaign.getCampaignId());
+        }
+        submitDueCampaigns();
+    }
+
+    @Scheduled(fixedDelayString = "${project.discount-campaigns.poll-interval-ms:30000}",
+            initialDelayString = "${project.discount-campaigns.poll-interval-ms:30000}")
+    public void submitDueCampaigns() {
+        LocalDateTime now = LocalDateTime.now();
+        discountCampaignRepository.findDueToStart(now).forEach(campaign -> submit(campaign.getCampaignId()));
+        discountCampaignRepository.findDueToEnd(now).forEach(campaign -> submit(campaign.getCampaignId()));
+    }
+
+    private void run(Long campaignId) {
+        DiscountCampaign campaign = discountCampaignRepository.findById(campaignId).orElse(null);
+        if (campaign == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        boolean endDue = campaign.getEndsAt() != null && !campaign.getEndsAt().isAfter(now);
+        try {
+            switch (campaign.getStatus()) {
+                case SCHEDULED -> {
+                    if (endDue) {
+                        transactionTemplate.executeWithoutResult(status ->
+                                discountCampaignRepository.updateStatus(campaignId, CampaignStatus.CANCELLED, null));
+                    } else if (campaign.getStartsAt() == null || !campaign.getStartsAt().isAfter(now)) {
+                        apply(campaign);
+                    }
+                }
+                case APPLYING -> apply(campaign);
+                case ACTIVE -> {
+                    if (endDue) {
+                        end(campaign);
+                    }
+                }
+                case ENDING -> end(campaign);
+                default -> {
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Discount campaign {} failed: {}", campaignId, e.getMessage());
+            String error = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+            transactionTemplate.executeWithoutResult(status -> discountCampaignRepository.updateStatus(
+                    campaignId, CampaignStatus.FAILED, error.substring(0, Math.min(error.length(), 500))));
+        }
+    }
+
+    private void apply(DiscountCampaign campaign) {
+        Long campaignId = campaign.getCampaignId();
+        transactionTemplate.executeWithoutResult(status ->
+                discountCampaignRepository.startPass(campaignId, CampaignStatus.APPLYING));
+
+        Long categoryId = null;
+        String pathPrefix = null;
+        if (campaign.getCategoryId() != null) {
+            Category category = categoryRepository.findById(campaign.getCategoryId()).orElse(null);
+            if (campaign.isIncludeDescendants() && category != null && category.getPath() != null) {
+                pathPrefix = category.getPath();
+            } else {
+                categoryId = campaign.getCategoryId();
+            }
+        }
+        Long targetCategoryId = categoryId;
+        String targetPathPrefix = pathPrefix;
+        long repriced = forEachIdRange(campaignId, (fromId, toId) -> productRepository.applyCampaign(campaignId,
+                campaign.priceFactor(), campaign.amountOff(), fromId, toId, targetCategoryId, targetPathPrefix,
+                campaign.getMinPrice(), campaign.getMaxPrice()));
+
+        categoryStatsService.categoriesRepriced(categoriesOf(campaignId));
+        transactionTemplate.executeWithoutResult(status ->
+                discountCampaignRepository.updateStatus(campaignId, CampaignStatus.ACTIVE, null));
+        logger.info("Discount campaign {} applied to {} products", campaignId, repriced);
+
+        // Ended while it was being applied
+        DiscountCampaign current = discountCampaignRepository.findById(campaignId).orElse(campaign);
+        if (current.getEndsAt() != null && !current.getEndsAt().isAfter(LocalDateTime.now())) {
+            end(current);
+        }
+    }
+
+    private void end(DiscountCampaign campaign) {
+        Long campaignId = campaign.getCampaignId();
+        transactionTemplate.executeWithoutResult(status ->
+                discountCampaignRepository.startPass(campaignId, CampaignStatus.ENDING));
+
+        // Collected before the products leave the campaign
+        List<Long> categoryIds = categoriesOf(campaignId);
+        long repriced = forEachIdRange(campaignId,
+                (fromId, toId) -> productRepository.endCampaign(campaignId, fromId, toId));
+
+        categoryStatsService.categoriesRepriced(categoryIds);
+        transactionTemplate.executeWithoutResult(status ->
+                discountCampaignRepository.updateStatus(campaignId, CampaignStatus.ENDED, null));
+        logger.info("Discount campaign {} ended, {} products repriced", campaignId, repriced);
+    }
+
+    /**
+     * Runs a bulk statement over [fromId, toId) ranges covering all product ids, each in its own transaction,
+     * and records the progress of the campaign as it goes.
+     *
+     * @return the total number of products updated
+     */
+    private long forEachIdRange(Long campaignId, RangeStatement statement) {
+        Object[] range = productRepository.findIdRange().get(0);
+        if (range[0] == null) {
+            return 0;
+        }
+        long minId = ((Number) range[0]).longValue();
+        long maxId = ((Number) range[1]).longValue();
+        long total = 0;
+        for (long fromId = minId; fromId <= maxId; fromId += chunkSize) {
+            long from = fromId;
+            Integer updated = transactionTemplate.execute(status -> {
+                int count = statement.execute(from, from + chunkSize);
+                if (count > 0) {
+                    discountCampaignRepository.addAffectedProducts(campaignId, count);
+                }
+                return count;
+            });
+            total += updated == null ? 0 : updated;
+        }
+        return total;
+    }
+
+    private List<Long> categoriesOf(Long campaignId) {
+        return productRepository.findCategoryIdsByCampaignId(campaignId).stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @FunctionalInterface
+    private interface RangeStatement {
+        int execute(Long fromId, Long toId);
+    }
+}
@@ -0,0 +1,69 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.model.AggregateType;
+import com.nathan.sbecommerce.model.DomainEventType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records product and category changes in the outbox_events table, atomically with the changes themselves.
+ *
+ * Events recorded during a transaction are only buffered; they are written with a single JDBC batch insert just
+ * before the transaction commits, so they exist if and only if the change does, and the write path pays one
+ * statement whatever the number of events. The {@link OutboxRelay} is woken up once they are committed.
+ */
+@Component
+@RequiredArgsConstructor
+public class DomainEventOutbox {
+
+    private static final String INSERT_EVENT = "insert into outbox_events (aggregate_type, aggregate_id, parent_id, "
+            + "event_type, before_key, after_key, created_at) values (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final OutboxRelay outboxRelay;
+
+    /**
+     * Records a change, see {@link com.nathan.sbecommerce.model.OutboxEvent} for the meaning of the keys.
+     */
+    public void record(AggregateType aggregateType, Long aggregateId, Long parentId, DomainEventType eventType,
+                       String beforeKey, String afterKey) {
+        Object[] row = {aggregateType.name(), aggregateId, parentId, eventType.name(), beforeKey, afterKey,
+                Timestamp.valueOf(LocalDateTime.now())};
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            jdbcTemplate.update(INSERT_EVENT, row);
+            outboxRelay.wakeUp();
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Object[]> pending = (List<Object[]>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<Object[]> rows = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, rows);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    jdbcTemplate.batchUpdate(INSERT_EVENT, rows);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DomainEventOutbox.this);
+                    if (status == STATUS_COMMITTED) {
+                        outboxRelay.wakeUp();
+                    }
+                }
+            });
+            pending = rows;
+        }
+        pending.add(row);
+    }
+}
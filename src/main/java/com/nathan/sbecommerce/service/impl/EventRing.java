@@ -0,0 +1,229 @@
+package com.nathan.sbecommerce.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Bounded ring buffer handing every published item to each of its consumers, in order and in batches.
+ *
+ * - One producer publishes into a fixed array of slots; each consumer has its own thread and sequence, and reads
+ *   every item published since its last batch, without any lock or copy of the ring.
+ * - The producer waits when the slowest consumer is a whole ring behind, so memory stays bounded and a slow
+ *   consumer slows the producer down instead of losing items.
+ * - A consumer that throws is handed the same batch again after a pause, up to {@code maxAttempts} times, and then
+ *   each of its items alone, up to {@code maxAttempts} times as well. Only the items that still fail are given to
+ *   the {@link DeadLetters} before the consumer moves on, so one bad item can neither stop a consumer for good nor
+ *   make it skip the good items of its batch.
+ *
+ * {@link #consumedSequence()} tells the producer which items every consumer has processed, e.g. to acknowledge
+ * them upstream.
+ */
+public final class EventRing<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventRing.class);
+
+    private static final long RETRY_PAUSE_MS = 200;
+
+    private final Object[] slots;
+
+    private final int mask;
+
+    private final int maxBatch;
+
+    private final int maxAttempts;
+
+    private final DeadLetters<T> deadLetters;
+
+    /** The sequence of the last item published, -1 before the first one */
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    private final List<RingConsumer> consumers = new ArrayList<>();
+
+    /**
+     * @param capacity    number of slots, rounded up to a power of two
+     * @param maxBatch    most items handed to a consumer at once
+     * @param maxAttempts times a batch, and then each of its items, is handed to a consumer that keeps throwing
+     * @param deadLetters records the items a consumer could not process
+     */
+    public EventRing(int capacity, int maxBatch, int maxAttempts, DeadLetters<T> deadLetters) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.slots = new Object[size];
+        this.mask = size - 1;
+        this.maxBatch = maxBatch;
+        this.maxAttempts = maxAttempts;
+        this.deadLetters = deadLetters;
+    }
+
+    /**
+     * Adds a consumer, running on its own daemon thread. Consumers must be added before anything is published.
+     */
+    public void addConsumer(String name, Consumer<List<T>> handler) {
+        RingConsumer consumer = new RingConsumer(name, handler);
+        consumers.add(consumer);
+        consumer.thread.start();
+    }
+
+    /**
+     * Publishes items, waiting for free slots when the slowest consumer is a whole ring behind.
+     *
+     * @return the sequence of the last item published
+     */
+    public long publish(List<T> items) throws InterruptedException {
+        long sequence = cursor.get();
+        for (T item : items) {
+            long next = sequence + 1;
+            while (next - slots.length > consumedSequence()) {
+                // Lets consumers see what is already published while waiting
+                cursor.set(sequence);
+                signalConsumers();
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            slots[(int) next & mask] = item;
+            sequence = next;
+        }
+        // The volatile write makes the slots written above visible to the consumers
+        cursor.set(sequence);
+        signalConsumers();
+        return sequence;
+    }
+
+    /**
+     * @return the sequence of the last item processed by every consumer
+     */
+    public long consumedSequence() {
+        long minimum = cursor.get();
+        for (RingConsumer consumer : consumers) {
+            minimum = Math.min(minimum, consumer.sequence.get());
+        }
+        return minimum;
+    }
+
+    public void stop() {
+        consumers.forEach(consumer -> consumer.thread.interrupt());
+    }
+
+    private void signalConsumers() {
+        for (RingConsumer consumer : consumers) {
+            LockSupport.unpark(consumer.thread);
+        }
+    }
+
+    /**
+     * Receives the items a consumer gave up on. It runs on the consumer thread, which only moves past the item once
+     * this returns: an item whose dead letter could not be recorded is retried until it is.
+     */
+    @FunctionalInterface
+    public interface DeadLetters<T> {
+
+        void record(String consumer, T item, RuntimeException failure);
+    }
+
+    private final class RingConsumer {
+
+        private final String name;
+
+        private final Consumer<List<T>> handler;
+
+        private final AtomicLong sequence = new AtomicLong(-1);
+
+        private final Thread thread;
+
+        private RingConsumer(String name, Consumer<List<T>> handler) {
+            this.name = name;
+            this.handler = handler;
+            this.sequence.set(cursor.get());
+            this.thread = new Thread(this::run, "event-ring-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                long next = sequence.get() + 1;
+                long available = cursor.get();
+                if (available < next) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                    continue;
+                }
+                int count = (int) Math.min(available - next + 1, maxBatch);
+                List<T> batch = new ArrayList<>(count);
+                for (long s = next; s < next + count; s++) {
+                    batch.add((T) slots[(int) s & mask]);
+                }
+                try {
+                    handle(batch);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                sequence.set(next + count - 1);
+            }
+        }
+
+        /**
+         * Hands a batch to the handler, then each of its items alone if the batch keeps failing, and records the
+         * items that still fail as dead letters.
+         */
+        private void handle(List<T> batch) throws InterruptedException {
+            RuntimeException failure = attempt(batch);
+            if (failure == null) {
+                return;
+            }
+            if (batch.size() == 1) {
+                deadLetter(batch.get(0), failure);
+                return;
+            }
+            logger.warn("Consumer {} failed on {} items {} times, retrying them one at a time", name, batch.size(),
+                    maxAttempts);
+            for (T item : batch) {
+                RuntimeException itemFailure = attempt(Collections.singletonList(item));
+                if (itemFailure != null) {
+                    deadLetter(item, itemFailure);
+                }
+            }
+        }
+
+        /**
+         * @return the last failure once the handler failed {@code maxAttempts} times, null once it succeeded
+         */
+        private RuntimeException attempt(List<T> items) throws InterruptedException {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    handler.accept(items);
+                    return null;
+                } catch (RuntimeException e) {
+                    if (attempt >= maxAttempts) {
+                        return e;
+                    }
+                    logger.warn("Consumer {} failed on {} items (attempt {}): {}", name, items.size(), attempt,
+                            e.getMessage());
+                }
+                Thread.sleep(RETRY_PAUSE_MS * attempt);
+            }
+        }
+
+        private void deadLetter(T item, RuntimeException failure) throws InterruptedException {
+            logger.error("Consumer {} gave up on an item after {} attempts", name, maxAttempts, failure);
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    deadLetters.record(name, item, failure);
+                    return;
+                } catch (RuntimeException e) {
+                    logger.warn("Consumer {} could not record a dead letter (attempt {}): {}", name, attempt,
+                            e.getMessage());
+                }
+                Thread.sleep(RETRY_PAUSE_MS * Math.min(attempt, maxAttempts));
+            }
+        }
+    }
+}
@@ -1,73 +1,378 @@
 package com.nathan.sbecommerce.service.impl;
 
+import com.nathan.sbecommerce.exception.APIException;
+import com.nathan.sbecommerce.exception.UploadRejectedException;
+import com.nathan.sbecommerce.model.ImageBlob;
+import com.nathan.sbecommerce.model.ImageRendition;
+import com.nathan.sbecommerce.repository.ImageBlobRepository;
 import com.nathan.sbecommerce.service.FileService;
+import com.nathan.sbecommerce.storage.BlobStore;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.UUID;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
 
+/**
+ * Content-addressed image storage.
+ *
+ * Every image is stored under the SHA-256 of its content, so uploading the same picture for many products
+ * stores it once. Files are spread over two levels of sub directories taken from the hash
+ * (e.g. "images/3f/a9/3fa9...e1.jpg"), which keeps every directory small whatever the number of images.
+ * Uploads are staged in "{path}/tmp" on the local disk, then handed to the configured {@link BlobStore}.
+ *
+ * The number of products referencing an image is kept in the image_blobs table. Images nobody references
+ * any more are deleted in the background by {@link #collectOrphanedImages()} once they have been unreferenced
+ * for the grace period.
+ *
+ * Image names that are not content hashes (the "default.png" placeholder, images uploaded before the content
+ * addressing) are still resolved in the root of the image directory and are never deleted.
+ */
 @Service
+@RequiredArgsConstructor
 public class FileServiceImpl implements FileService {
+
+    private static final Pattern CONTENT_KEY = Pattern.compile("[0-9a-f]{64}(\\.[A-Za-z0-9]{1,10})?");
+
+    private static final int LOCK_STRIPES = 64;
+
+    private static final int GC_BATCH_SIZE = 100;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Enough leading bytes to recognize every accepted image type.
+     */
+    private static final int MAGIC_BYTES = 12;
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static final Logger logger = LoggerFactory.getLogger(FileServiceImpl.class);
+
+    /**
+     * Uploads and collections of the same key are serialized, so that a blob being collected is never
+     * re-uploaded halfway through its deletion.
+     */
+    private final ReentrantLock[] keyLocks = newLocks();
+
+    private final ImageBlobRepository imageBlobRepository;
+
+    private final ImageFileCache imageFileCache;
+
+    private final UploadLimiter uploadLimiter;
+
+    private final BlobStore blobStore;
+
+    @Value("${project.image}")
+    private String path;
+
+    @Value("${project.image.max-upload-bytes:10485760}")
+    private long maxUploadBytes;
+
+    @Value("${project.image.gc-grace-minutes:10}")
+    private long gcGraceMinutes;
+
     /**
      * Handles the upload of an image file to the specified directory.
      * <p>
-     * This method performs the following operations:
-     * 1. Generates a unique filename using UUID to prevent filename collisions
-     * 2. Creates the target directory if it doesn't exist
-     * 3. Copies the uploaded file to the target location
+     * The multipart file has already been received by the servlet container, within the
+     * {@code spring.servlet.multipart} limits; it is then stored like a streamed upload.
      *
      * @param path  The target directory path where the image will be stored
      * @param image The MultipartFile object containing the uploaded image
-     * @return String The generated unique filename of the saved image
+     * @return String The content-addressed name of the saved image
      * @throws IOException If there are issues during file operations
-     *                     <p>
-     *                     Use cases:
-     *                     - Product image uploads in e-commerce systems
-     *                     - User profile picture uploads
-     *                     - Document management systems
-     *                     - Any scenario requiring secure file uploads with unique names
-     *                     <p>
-     *                     The method ensures:
-     *                     - File name uniqueness through UUID generation
-     *                     - Preservation of original file extension
-     *                     - Creation of storage directory if not present
-     *                     - Safe file transfer to the target location
-     *                     <p>
-     *                     Example usage:
-     *                     String filename = uploadImage("uploads/products/", multipartImageFile);
+     * @see #storeImage(String, InputStream, long)
      */
     @Override
     public String uploadImage(String path, MultipartFile image) throws IOException {
-        // Get the original name of the uploaded image file (e.g. "photo.jpg")
-        String originalImageName = image.getOriginalFilename();
+        try (InputStream input = image.getInputStream()) {
+            return storeImage(path, input, image.getSize());
+        }
+    }
 
-        // Generate a random unique ID to use as the new filename to avoid conflicts
-        String randomImageName = UUID.randomUUID().toString();
+    /**
+     * Stores an image read from a stream, e.g. straight from the request body.
+     * <p>
+     * This method performs the following operations:
+     * 1. Waits for an upload slot and refuses uploads declaring more than {@code project.image.max-upload-bytes}
+     * 2. Reads the first bytes and refuses anything that is not a JPEG, PNG, GIF or WebP image
+     * 3. Copies the stream once, through a fixed size buffer and the bandwidth limit, into a temporary file on
+     *    the image volume while computing its SHA-256, refusing it as soon as it grows past the size limit
+     * 4. Moves the temporary file to its content-addressed location, unless an identical image is already stored
+     * 5. Registers the blob so that its references can be counted
+     *
+     * @param path          The target directory path where the image will be stored
+     * @param input         The image content, not closed by this method
+     * @param contentLength The length announced by the client, or -1 when unknown
+     * @return String The content-addressed name of the saved image (hash plus the extension of the detected type)
+     * @throws IOException If there are issues during file operations
+     * @throws UploadRejectedException If the content is not a supported image, is too large, or too many uploads
+     *                                 are in progress
+     *                                 <p>
+     *                                 The returned name is not referenced by anything yet: call
+     *                                 {@link #retainImage(String)} when attaching it to a product, otherwise it is
+     *                                 collected after the grace period.
+     */
+    @Override
+    public String storeImage(String path, InputStream input, long contentLength) throws IOException {
+        if (contentLength > maxUploadBytes) {
+            throw tooLarge();
+        }
+        uploadLimiter.acquireSlot();
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int headerLength = input.readNBytes(buffer, 0, MAGIC_BYTES);
+            String extension = detectExtension(buffer, headerLength);
+            if (extension == null) {
+                throw new UploadRejectedException("Only JPEG, PNG, GIF and WebP images are accepted",
+                        HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+            }
 
-        // Create new filename by combining random ID with original file extension
-        // e.g. "123e4567-e89b-12d3-a456-426614174000.jpg"
-        String fileName = randomImageName.concat(originalImageName.substring
-                (originalImageName.lastIndexOf(".")));
+            // Write the upload next to its final location, so that publishing it is a rename on the same volume
+            Path tempDirectory = Paths.get(path, "tmp");
+            Files.createDirectories(tempDirectory);
+            Path tempFile = Files.createTempFile(tempDirectory, "upload-", extension);
+            try {
+                // Hash the content while it is copied, the upload is read and written only once
+                MessageDigest digest = sha256();
+                long size = 0;
+                int read = headerLength;
+                try (OutputStream output = Files.newOutputStream(tempFile)) {
+                    while (read > 0) {
+                        size += read;
+                        if (size > maxUploadBytes) {
+                            throw tooLarge();
+                        }
+                        uploadLimiter.throttle(read);
+                        digest.update(buffer, 0, read);
+                        output.write(buffer, 0, read);
+                        read = input.read(buffer);
+                    }
+                }
+                String imageKey = HexFormat.of().formatHex(digest.digest()) + extension;
+                publish(imageKey, tempFile, size);
+                return imageKey;
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } finally {
+            uploadLimiter.releaseSlot();
+        }
+    }
 
-        // Build the complete file path by combining target directory path and new filename
-        String filePath = path + File.separator + fileName;
+    /**
+     * Records one more product referencing the image. Unknown names (placeholders, legacy images) are ignored.
+     *
+     * @param imageKey the name returned by {@link #storeImage(String, InputStream, long)}
+     */
+    @Override
+    public void retainImage(String imageKey) {
+        if (isContentKey(imageKey) && imageBlobRepository.incrementReferenceCount(imageKey, LocalDateTime.now()) == 0) {
+            throw new APIException("Image " + imageKey + " is not stored");
+        }
+    }
 
-        // Create a File object representing the target directory
-        File folder = new File(path);
+    /**
+     * Records one product less referencing the image. The file is deleted later by the background collection.
+     *
+     * @param imageKey the name of an image previously retained
+     */
+    @Override
+    public void releaseImage(String imageKey) {
+        if (isContentKey(imageKey)) {
+            imageBlobRepository.decrementReferenceCount(imageKey, LocalDateTime.now());
+        }
+    }
 
-        // Create the target directory if it doesn't exist yet
-        if (!folder.exists()) {
-            folder.mkdir();
+    /**
+     * Releases one reference per element, e.g. the images of a chunk of deleted products. References to the same
+     * image are released with a single statement.
+     *
+     * @param imageKeys the image names, with duplicates for images referenced several times
+     */
+    @Override
+    public void releaseImages(Collection<String> imageKeys) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String imageKey : imageKeys) {
+            if (isContentKey(imageKey)) {
+                counts.merge(imageKey, 1, Integer::sum);
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        counts.forEach((imageKey, count) -> imageBlobRepository.decrementReferenceCountBy(imageKey, count, now));
+    }
+
+    /**
+     * Deletes the images that have not been referenced by any product for the grace period.
+     *
+     * The grace period covers the time between an upload and its attachment to a product. Each blob row is first
+     * marked for deletion with a condition on its reference count, so an image retained again in the meantime is
+     * kept and a marked one can no longer be retained. The files are deleted next and the row last, so a file that
+     * cannot be deleted keeps its marked row and is retried by a later collection.
+     */
+    @Scheduled(fixedDelayString = "${project.image.gc-interval-ms:60000}",
+            initialDelayString = "${project.image.gc-interval-ms:60000}")
+    public void collectOrphanedImages() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(gcGraceMinutes);
+        List<String> orphanedKeys;
+        do {
+            orphanedKeys = imageBlobRepository.findOrphanedKeys(cutoff, PageRequest.of(0, GC_BATCH_SIZE));
+            for (String imageKey : orphanedKeys) {
+                ReentrantLock lock = lockFor(imageKey);
+                lock.lock();
+                try {
+                    if (imageBlobRepository.markForDeletion(imageKey, cutoff, LocalDateTime.now()) > 0) {
+                        for (ImageRendition rendition : ImageRendition.values()) {
+                            blobStore.delete(renditionObjectKey(rendition, imageKey));
+                        }
+                        blobStore.delete(objectKey(imageKey));
+                        imageFileCache.evict(imageKey);
+                        imageBlobRepository.deleteMarked(imageKey);
+                        logger.debug("Deleted orphaned image {}", imageKey);
+                    }
+                } catch (IOException e) {
+                    logger.warn("Cannot delete orphaned image {}: {}", imageKey, e.getMessage());
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } while (orphanedKeys.size() == GC_BATCH_SIZE);
+    }
+
+    /**
+     * Hands a fully written temporary file to the blob store under its key, or drops it when an identical image is
+     * already stored, then makes sure the blob is registered.
+     */
+    private void publish(String imageKey, Path tempFile, long size) throws IOException {
+        String objectKey = objectKey(imageKey);
+        ReentrantLock lock = lockFor(imageKey);
+        lock.lock();
+        try {
+            if (!blobStore.exists(objectKey)) {
+                blobStore.put(objectKey, tempFile);
+            }
+            registerBlob(imageKey, size);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void registerBlob(String imageKey, long size) {
+        LocalDateTime now = LocalDateTime.now();
+        if (imageBlobRepository.touch(imageKey, now) > 0) {
+            return;
+        }
+        try {
+            imageBlobRepository.save(new ImageBlob(imageKey, size, now));
+        } catch (DataIntegrityViolationException e) {
+            // Registered concurrently by another node sharing the database
+            imageBlobRepository.touch(imageKey, now);
         }
+    }
 
-        // Copy the uploaded image file to the target location with the new filename
-        Files.copy(image.getInputStream(), Paths.get(filePath));
+    /**
+     * Returns the blob store key of an image: content-addressed images live in two levels of sub directories named
+     * after the first four characters of their hash, other names directly at the root.
+     *
+     * @param imageKey the image name stored in the product
+     * @return the key of the image in the blob store
+     */
+    public static String objectKey(String imageKey) {
+        if (!isContentKey(imageKey)) {
+            return imageKey;
+        }
+        return imageKey.substring(0, 2) + "/" + imageKey.substring(2, 4) + "/" + imageKey;
+    }
 
-        // Return the new unique filename that was generated
-        return fileName;
+    /**
+     * Returns the blob store key of a rendition, laid out like the originals under "renditions/{rendition}".
+     *
+     * @param rendition the rendition
+     * @param imageKey  the image name stored in the product
+     * @return the key of the rendition in the blob store
+     */
+    public static String renditionObjectKey(ImageRendition rendition, String imageKey) {
+        return "renditions/" + rendition.getPathSegment() + "/" + objectKey(imageKey);
+    }
+
+    public static boolean isContentKey(String imageKey) {
+        return imageKey != null && CONTENT_KEY.matcher(imageKey).matches();
+    }
+
+    /**
+     * Identifies the image type from its first bytes, whatever the file name or content type sent by the client.
+     *
+     * @return the extension of the detected type, or null when it is not a supported image
+     */
+    static String detectExtension(byte[] header, int length) {
+        if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return ".jpg";
+        }
+        if (length >= 8 && startsWith(header, PNG_SIGNATURE)) {
+            return ".png";
+        }
+        if (length >= 6 && (startsWith(header, "GIF87a".getBytes(StandardCharsets.US_ASCII))
+                || startsWith(header, "GIF89a".getBytes(StandardCharsets.US_ASCII)))) {
+            return ".gif";
+        }
+        if (length >= 12 && startsWith(header, "RIFF".getBytes(StandardCharsets.US_ASCII))
+                && new String(header, 8, 4, StandardCharsets.US_ASCII).equals("WEBP")) {
+            return ".webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] header, byte[] prefix) {
+        return Arrays.equals(header, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    private UploadRejectedException tooLarge() {
+        return new UploadRejectedException("Image is larger than " + maxUploadBytes + " bytes",
+                HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private ReentrantLock lockFor(String imageKey) {
+        return keyLocks[Math.floorMod(imageKey.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static ReentrantLock[] newLocks() {
+        ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
     }
 }
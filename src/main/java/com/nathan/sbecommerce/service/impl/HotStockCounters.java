@@ -0,0 +1,402 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.exception.InsufficientStockException;
+import com.nathan.sbecommerce.model.ReservationStatus;
+import com.nathan.sbecommerce.model.StockLease;
+import com.nathan.sbecommerce.model.StockReservation;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.repository.StockLeaseRepository;
+import com.nathan.sbecommerce.service.CategoryStatsService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Reserves the stock of hot products from memory instead of the product row.
+ *
+ * A product becomes hot when it receives more than {@code project.stock.hot-threshold} reservations within a
+ * second. Its counter then takes a lease of up to {@code project.stock.lease-size} units from the product with a
+ * single conditional UPDATE, recorded in stock_leases, and serves reservations from it:
+ * - The leased units are spread over a few stripes; a reservation takes from one stripe with a CAS, and only
+ *   drains all stripes (under the counter lock) when its stripe is short, so threads rarely touch the same word.
+ * - A stripe can never go below 0 and a lease never takes more than the product has, so the product is never
+ *   oversold, whatever the number of threads.
+ * - Reservations are written behind by a single thread, in batches: one transaction inserts the rows of all
+ *   pending reservations and consumes their units from the leases. A reservation is only returned once its batch
+ *   has committed, so an acknowledged reservation is always durable.
+ * - The units still leased when the application stops (including those of reservations that were never
+ *   committed) are given back to the products at the next startup.
+ *
+ * Counters idle for {@code project.stock.idle-eviction-ms} give their unused units back to the product. Leases are
+ * owned by this instance, so the application must run as a single instance.
+ *
+ * Leased units are not on the product row, so listings and carts show the quantity left on the row only. A lease
+ * therefore always leaves at least one unit on the row, unless the reservation that takes it needs every unit
+ * left: a product is never displayed as sold out while units of it sit in a counter. Taking a lease that empties
+ * the row, or returning units to an empty row, updates the in stock count of its category in the same transaction.
+ */
+@Component
+@RequiredArgsConstructor
+public class HotStockCounters implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotStockCounters.class);
+
+    private static final String INSERT_RESERVATION = "insert into stock_reservations "
+            + "(reservation_id, user_id, product_id, quantity, status, expires_at, created_at, updated_at) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String CONSUME_LEASE = "update stock_leases set remaining = remaining - ? where product_id = ?";
+
+    private final ProductRepository productRepository;
+
+    private final StockLeaseRepository stockLeaseRepository;
+
+    private final CategoryStatsService categoryStatsService;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${project.stock.hot-threshold:50}")
+    private int hotThreshold;
+
+    @Value("${project.stock.lease-size:200}")
+    private int leaseSize;
+
+    @Value("${project.stock.stripes:8}")
+    private int stripes;
+
+    @Value("${project.stock.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    @Value("${project.stock.flush-timeout-ms:5000}")
+    private long flushTimeoutMs;
+
+    @Value("${project.stock.idle-eviction-ms:60000}")
+    private long idleEvictionMs;
+
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Reservations per product within the current second, packed as the epoch second in the high 32 bits and the
+     * count in the low 32 bits, so that both are updated with one CAS.
+     */
+    private final Map<Long, AtomicLong> recentReservations = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<PendingReservation> pending = new LinkedBlockingQueue<>();
+
+    private Thread writer;
+
+    @PostConstruct
+    void startWriter() {
+        writer = new Thread(this::writeBehind, "stock-ledger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stopWriter() {
+        writer.interrupt();
+    }
+
+    /**
+     * Runs once every singleton is created, which is before the web server starts accepting requests.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        recoverLeases();
+    }
+
+    /**
+     * Gives the units leased before a restart back to their products. Runs before the web server starts, so
+     * before any counter takes a new lease that could be mistaken for an old one.
+     */
+    private void recoverLeases() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (StockLease lease : stockLeaseRepository.findAll()) {
+                if (lease.getRemaining() > 0) {
+                    returnStock(lease.getProductId(), lease.getRemaining());
+                    logger.info("Returned {} leased units to product {}", lease.getRemaining(), lease.getProductId());
+                }
+                stockLeaseRepository.delete(lease);
+            }
+        });
+    }
+
+    /**
+     * Counts a reservation of a product and tells whether it should be served from memory.
+     */
+    public boolean isHot(Long productId) {
+        if (counters.containsKey(productId)) {
+            return true;
+        }
+        long second = System.currentTimeMillis() / 1000;
+        long window = recentReservations.computeIfAbsent(productId, id -> new AtomicLong())
+                .updateAndGet(current -> current >>> 32 == second ? current + 1 : second << 32 | 1);
+        if ((int) window > hotThreshold) {
+            counters.computeIfAbsent(productId, id -> {
+                logger.info("Product {} is hot, reserving its stock from memory", id);
+                return new Counter(id, stripes);
+            });
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reserves stock of a hot product and waits until the reservation is committed.
+     *
+     * @throws InsufficientStockException if the product does not have enough stock left
+     */
+    public StockReservation reserve(StockReservation reservation) {
+        Long productId = reservation.getProductId();
+        int quantity = reservation.getQuantity();
+        Counter counter;
+        do {
+            counter = counters.computeIfAbsent(productId, id -> new Counter(id, stripes));
+        } while (!counter.take(quantity));
+
+        PendingReservation entry = new PendingReservation(reservation, new CompletableFuture<>());
+        pending.add(entry);
+        try {
+            entry.committed().get(flushTimeoutMs, TimeUnit.MILLISECONDS);
+            return reservation;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the reservation to be committed", e);
+        } catch (ExecutionException | TimeoutException e) {
+            // The batch may still commit after a timeout; the reservation then expires like an abandoned one
+            if (e instanceof ExecutionException) {
+                counter.giveBack(quantity);
+            }
+            throw new IllegalStateException("Reservation of product " + productId + " could not be committed", e);
+        }
+    }
+
+    /**
+     * Forgets the reservation counts of past seconds, and gives back the stock of counters that stayed idle.
+     * The counts are kept per second by {@link #isHot(Long)} itself, so a late run only delays the cleanup.
+     */
+    @Scheduled(fixedRate = 1000)
+    public void evictIdleCounters() {
+        long second = System.currentTimeMillis() / 1000;
+        recentReservations.values().removeIf(window -> window.get() >>> 32 < second);
+        long idleSince = System.currentTimeMillis() - idleEvictionMs;
+        for (Counter counter : counters.values()) {
+            if (counter.lastUsed < idleSince) {
+                counters.remove(counter.productId, counter);
+                counter.close();
+            }
+        }
+    }
+
+    /**
+     * Writes pending reservations in batches, one transaction per batch, until the application stops.
+     */
+    private void writeBehind() {
+        List<PendingReservation> batch = new ArrayList<>(flushBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            pending.drainTo(batch, flushBatchSize - 1);
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batch));
+                batch.forEach(entry -> entry.committed().complete(null));
+            } catch (RuntimeException e) {
+                logger.warn("Could not write {} stock reservations: {}", batch.size(), e.getMessage());
+                batch.forEach(entry -> entry.committed().completeExceptionally(e));
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<PendingReservation> batch) {
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        Map<Long, Long> consumed = new HashMap<>();
+        for (PendingReservation entry : batch) {
+            StockReservation reservation = entry.reservation();
+            rows.add(new Object[]{reservation.getReservationId(), reservation.getUserId(), reservation.getProductId(),
+                    reservation.getQuantity(), ReservationStatus.RESERVED.name(),
+                    Timestamp.valueOf(reservation.getExpiresAt()), Timestamp.valueOf(reservation.getCreatedAt()),
+                    Timestamp.valueOf(reservation.getUpdatedAt())});
+            consumed.merge(reservation.getProductId(), (long) reservation.getQuantity(), Long::sum);
+        }
+        jdbcTemplate.batchUpdate(INSERT_RESERVATION, rows);
+        jdbcTemplate.batchUpdate(CONSUME_LEASE, consumed.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .toList());
+    }
+
+    /**
+     * Takes a lease of up to {@code wanted} units from a product, in its own transaction. The last unit on the row
+     * is only leased when the reservation needs it.
+     *
+     * @return the units leased, at least {@code needed}, or 0 when the product has fewer than {@code needed} left
+     */
+    private long lease(Long productId, int needed, int wanted) {
+        Long leased = transactionTemplate.execute(status -> {
+            while (true) {
+                Integer quantity = productRepository.findQuantity(productId);
+                if (quantity == null || quantity < needed) {
+                    return 0L;
+                }
+                int units = quantity > needed ? Math.min(wanted, quantity - 1) : quantity;
+                // Conditional, so a concurrent write to the quantity makes it fail instead of overselling
+                if (productRepository.takeStock(productId, units) == 1) {
+                    if (stockLeaseRepository.addRemaining(productId, units) == 0) {
+                        stockLeaseRepository.save(new StockLease(productId, (long) units));
+                    }
+                    if (productRepository.findQuantity(productId) == 0) {
+                        categoryStatsService.productsSoldOut(
+                                Collections.singletonList(productRepository.findCategoryId(productId)));
+                    }
+                    return (long) units;
+                }
+            }
+        });
+        return leased == null ? 0 : leased;
+    }
+
+    /**
+     * Gives unused leased units back to the product, in its own transaction.
+     */
+    private void returnLease(Long productId, long units) {
+        if (units == 0) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            returnStock(productId, units);
+            stockLeaseRepository.addRemaining(productId, -units);
+        });
+    }
+
+    /**
+     * Puts units back on the product row and counts the product as in stock again if the row was empty. Must run
+     * in a transaction.
+     */
+    private void returnStock(Long productId, long units) {
+        productRepository.returnStock(productId, units);
+        // The product row is locked by the update, so it was empty before exactly when it now holds the units
+        Integer quantity = productRepository.findQuantity(productId);
+        if (quantity != null && quantity == units) {
+            categoryStatsService.productsRestocked(
+                    Collections.singletonList(productRepository.findCategoryId(productId)));
+        }
+    }
+
+    private record PendingReservation(StockReservation reservation, CompletableFuture<Void> committed) {
+    }
+
+    /**
+     * The leased units of one product, not yet taken by a reservation.
+     */
+    private final class Counter {
+
+        private final Long productId;
+
+        private final AtomicLongArray stripes;
+
+        private volatile boolean closed;
+
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private Counter(Long productId, int stripeCount) {
+            this.productId = productId;
+            // Padded so that two stripes never share a cache line
+            this.stripes = new AtomicLongArray(stripeCount * 8);
+        }
+
+        /**
+         * Takes units for a reservation.
+         *
+         * @return false when the counter was closed meanwhile and the caller must use a new one
+         * @throws InsufficientStockException if the product does not have enough stock left
+         */
+        private boolean take(int quantity) {
+            lastUsed = System.currentTimeMillis();
+            int stripeCount = stripes.length() / 8;
+            int home = ThreadLocalRandom.current().nextInt(stripeCount) * 8;
+            long available = stripes.get(home);
+            while (available >= quantity) {
+                if (stripes.compareAndSet(home, available, available - quantity)) {
+                    return true;
+                }
+                available = stripes.get(home);
+            }
+            return takeSlow(home, quantity);
+        }
+
+        private synchronized boolean takeSlow(int home, int quantity) {
+            if (closed) {
+                return false;
+            }
+            long available = drain();
+            if (available < quantity) {
+                long leased = lease(productId, (int) (quantity - available), Math.max(leaseSize, quantity));
+                if (leased == 0) {
+                    stripes.addAndGet(home, available);
+                    throw new InsufficientStockException(productId, quantity);
+                }
+                available += leased;
+            }
+            stripes.addAndGet(home, available - quantity);
+            return true;
+        }
+
+        /**
+         * Puts back the units of a reservation that could not be committed.
+         */
+        private synchronized void giveBack(int quantity) {
+            if (closed) {
+                returnLease(productId, quantity);
+            } else {
+                stripes.addAndGet(0, quantity);
+            }
+        }
+
+        /**
+         * Stops serving reservations and gives the units left back to the product. Reservations that already took
+         * their units stay pending and consume them from the lease when they are written.
+         */
+        private synchronized void close() {
+            closed = true;
+            returnLease(productId, drain());
+        }
+
+        private long drain() {
+            long total = 0;
+            for (int i = 0; i < stripes.length(); i += 8) {
+                total += stripes.getAndSet(i, 0);
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.model.ImageRendition;
+import com.nathan.sbecommerce.storage.BlobStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded cache of image metadata (size, modification time, ETag) and of open channels, so that serving a popular
+ * image does not cost a stat per request, nor an open and a close when its body is copied by the application.
+ *
+ * Entries are evicted in least recently used order once {@code project.image.open-files} are cached. A channel is
+ * only opened when a body is copied from it ({@link ImageFile#channel()}); files handed to sendfile are opened by
+ * Tomcat itself, so for them only the metadata is cached and no descriptor is held. A channel is only closed when
+ * its entry is both evicted and no longer being sent, so eviction never breaks a transfer.
+ * Image files are never rewritten in place (content-addressed names, renditions published by atomic move), so
+ * a cached entry stays valid until the file is deleted, at which point {@link #evict(String)} is called.
+ *
+ * When the blob store has no local files (e.g. S3), only the metadata is cached and the body is streamed from
+ * the store with {@link #openStream(ImageFile, long, long)}.
+ */
+@Component
+public class ImageFileCache {
+
+    /**
+     * Names accepted for images stored before content addressing: a single path segment, no hidden files.
+     */
+    private static final Pattern LEGACY_KEY = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]{0,127}");
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageFileCache.class);
+
+    private final BlobStore blobStore;
+
+    private final int maxOpenFiles;
+
+    private final LinkedHashMap<String, ImageFile> openFiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ImageFileCache(BlobStore blobStore,
+                          @Value("${project.image.open-files:256}") int maxOpenFiles) {
+        this.blobStore = blobStore;
+        this.maxOpenFiles = maxOpenFiles;
+    }
+
+    /**
+     * Looks up an original image, or one of its renditions, from the cache when possible.
+     * The caller must {@link ImageFile#release() release} the returned file once it has been sent.
+     *
+     * @param rendition the rendition to open, or null for the original upload
+     * @param imageKey  the image name, as stored in the product
+     * @return the file, or null when the name is invalid or the blob does not exist
+     * @throws IOException if the blob exists but cannot be read
+     */
+    public ImageFile open(ImageRendition rendition, String imageKey) throws IOException {
+        if (!isValidKey(imageKey)) {
+            return null;
+        }
+        String cacheKey = cacheKey(rendition, imageKey);
+        synchronized (openFiles) {
+            ImageFile cached = openFiles.get(cacheKey);
+            if (cached != null) {
+                cached.retain();
+                return cached;
+            }
+        }
+
+        String objectKey = rendition == null
+                ? FileServiceImpl.objectKey(imageKey)
+                : FileServiceImpl.renditionObjectKey(rendition, imageKey);
+        ImageFile opened;
+        Optional<Path> localPath = blobStore.localPath(objectKey);
+        if (localPath.isPresent()) {
+            Path file = localPath.get();
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (!attributes.isRegularFile()) {
+                    return null;
+                }
+                long lastModified = attributes.lastModifiedTime().toMillis();
+                opened = new ImageFile(objectKey, file, attributes.size(), lastModified,
+                        etagOf(rendition, imageKey, lastModified, attributes.size()),
+                        FileServiceImpl.isContentKey(imageKey));
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        } else {
+            BlobStore.BlobInfo info = blobStore.stat(objectKey);
+            if (info == null) {
+                return null;
+            }
+            opened = new ImageFile(objectKey, null, info.size(), info.lastModified(),
+                    etagOf(rendition, imageKey, info.lastModified(), info.size()),
+                    FileServiceImpl.isContentKey(imageKey));
+        }
+
+        List<ImageFile> evicted = new ArrayList<>();
+        ImageFile result;
+        synchronized (openFiles) {
+            ImageFile raced = openFiles.get(cacheKey);
+            if (raced != null) {
+                // Opened concurrently by another request, keep the cached one
+                evicted.add(opened);
+                result = raced;
+            } else {
+                openFiles.put(cacheKey, opened);
+                result = opened;
+                Iterator<ImageFile> eldest = openFiles.values().iterator();
+                while (openFiles.size() > maxOpenFiles && eldest.hasNext()) {
+                    evicted.add(eldest.next());
+                    eldest.remove();
+                }
+            }
+            // The cache holds its own reference, the caller gets one more
+            result.retain();
+        }
+        for (ImageFile evictedFile : evicted) {
+            evictedFile.release();
+        }
+        return result;
+    }
+
+    /**
+     * Opens the body of a file that has no local copy, i.e. is kept in a remote blob store.
+     *
+     * @param file   a file returned by {@link #open(ImageRendition, String)}
+     * @param offset the first byte to read
+     * @param length the number of bytes to read
+     * @return the content, or null when the blob has been deleted in the meantime
+     */
+    public InputStream openStream(ImageFile file, long offset, long length) throws IOException {
+        return blobStore.open(file.objectKey, offset, length);
+    }
+
+    /**
+     * Forgets an image and its renditions, e.g. because it has been deleted.
+     *
+     * @param imageKey the image name
+     */
+    public void evict(String imageKey) {
+        List<ImageFile> evicted = new ArrayList<>();
+        synchronized (openFiles) {
+            ImageFile original = openFiles.remove(cacheKey(null, imageKey));
+            if (original != null) {
+                evicted.add(original);
+            }
+            for (ImageRendition rendition : ImageRendition.values()) {
+                ImageFile file = openFiles.remove(cacheKey(rendition, imageKey));
+                if (file != null) {
+                    evicted.add(file);
+                }
+            }
+        }
+        evicted.forEach(ImageFile::release);
+    }
+
+    @PreDestroy
+    void closeAll() {
+        synchronized (openFiles) {
+            openFiles.values().forEach(ImageFile::release);
+            openFiles.clear();
+        }
+    }
+
+    static boolean isValidKey(String imageKey) {
+        return imageKey != null && (FileServiceImpl.isContentKey(imageKey) || LEGACY_KEY.matcher(imageKey).matches());
+    }
+
+    private static String cacheKey(ImageRendition rendition, String imageKey) {
+        return rendition == null ? imageKey : rendition.getPathSegment() + "/" + imageKey;
+    }
+
+    /**
+     * Content-addressed images already carry a hash of their bytes in their name, which makes a strong ETag.
+     * Legacy images fall back to their modification time and size.
+     */
+    private static String etagOf(ImageRendition rendition, String imageKey, long lastModified, long size) {
+        String tag;
+        if (FileServiceImpl.isContentKey(imageKey)) {
+            String hash = imageKey.substring(0, 64);
+            tag = rendition == null ? hash : hash + "-" + rendition.getPathSegment();
+        } else {
+            tag = Long.toHexString(lastModified) + "-" + Long.toHexString(size);
+        }
+        return "\"" + tag + "\"";
+    }
+
+    /**
+     * An image file with the metadata needed to answer conditional and range requests.
+     * The path is null when the blob store keeps no local copy.
+     */
+    public static final class ImageFile {
+        private final String objectKey;
+        private final Path path;
+        private FileChannel channel;
+        private final long size;
+        private final long lastModified;
+        private final String etag;
+        private final boolean immutable;
+        private int references;
+
+        ImageFile(String objectKey, Path path, long size, long lastModified, String etag, boolean immutable) {
+            this.objectKey = objectKey;
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.etag = etag;
+            this.immutable = immutable;
+            this.references = 1;
+        }
+
+        /**
+         * @return the local file, or null when the blob store keeps no local copy
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * Returns the channel of the local file, opening it on first use; it then stays open for the next requests
+         * until the entry is evicted.
+         *
+         * @throws java.nio.file.NoSuchFileException if the file was deleted since its metadata was cached
+         */
+        public synchronized FileChannel channel() throws IOException {
+            if (channel == null) {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+            }
+            return channel;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * @return true when the content behind the name can never change, so clients may cache it forever
+         */
+        public boolean isImmutable() {
+            return immutable;
+        }
+
+        synchronized void retain() {
+            references++;
+        }
+
+        public synchronized void release() {
+            if (--references == 0 && channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.debug("Cannot close {}: {}", path, e.getMessage());
+                }
+            }
+        }
+    }
+}
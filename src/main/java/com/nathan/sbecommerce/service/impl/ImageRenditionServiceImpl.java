@@ -0,0 +1,363 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.model.ImageRendition;
+import com.nathan.sbecommerce.repository.ProductImageRepository;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.service.ImageRenditionService;
+import com.nathan.sbecommerce.storage.BlobStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Generates image renditions on a small, bounded pool of background threads using javax.imageio only.
+ *
+ * - The queue is bounded by {@code project.image.renditions.queue-capacity}. When it is full, images queued from
+ *   a request are dropped with a warning instead of slowing the request down; the backfill picks them up later.
+ * - An image already queued or being processed is not queued twice.
+ * - The original is decoded once per image, subsampled while decoding to about twice the largest missing
+ *   rendition, then every rendition is scaled down from the previous, larger one.
+ * - Renditions are written to a local temporary file and then handed to the blob store, so a partially written
+ *   rendition is never served, and a rendition already stored is never generated again.
+ */
+@Service
+@RequiredArgsConstructor
+public class ImageRenditionServiceImpl implements ImageRenditionService {
+
+    private static final int BACKFILL_PAGE_SIZE = 500;
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageRenditionServiceImpl.class);
+
+    private final ProductRepository productRepository;
+
+    private final ProductImageRepository productImageRepository;
+
+    private final BlobStore blobStore;
+
+    private final Set<String> queuedKeys = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+
+    @Value("${project.image}")
+    private String path;
+
+    @Value("${project.image.base-url:/images}")
+    private String baseUrl;
+
+    @Value("${project.image.renditions.threads:2}")
+    private int threads;
+
+    @Value("${project.image.renditions.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Limits the images queued by the backfill, which waits for a free slot instead of being dropped.
+     */
+    private Semaphore backfillSlots;
+
+    @PostConstruct
+    void startExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "image-renditions-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        backfillSlots = new Semaphore(Math.max(1, queueCapacity / 2));
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void generateRenditions(String imageKey) {
+        if (imageKey == null || !queuedKeys.add(imageKey)) {
+            return;
+        }
+        try {
+            executor.execute(() -> generateQueued(imageKey));
+        } catch (RejectedExecutionException e) {
+            queuedKeys.remove(imageKey);
+            logger.warn("Rendition queue is full, renditions of {} are left to the backfill", imageKey);
+        }
+    }
+
+    /**
+     * Starts generating the missing renditions of every image referenced by a product or a product gallery,
+     * unless a backfill is already running. Images are read in pages ordered by name.
+     *
+     * @return true if a backfill was started, false if one was already running
+     */
+    @Override
+    public boolean startBackfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread backfill = new Thread(() -> {
+            try {
+                backfill();
+            } finally {
+                backfillRunning.set(false);
+            }
+        }, "image-renditions-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+        return true;
+    }
+
+    @Override
+    public String imageUrl(String imageKey) {
+        return imageKey == null ? null : baseUrl + "/" + imageKey;
+    }
+
+    @Override
+    public String renditionUrl(ImageRendition rendition, String imageKey) {
+        if (imageKey == null) {
+            return null;
+        }
+        return baseUrl + "/" + rendition.getPathSegment() + "/" + imageKey;
+    }
+
+    private void backfill() {
+        try {
+            int queued = backfill(productRepository::findDistinctImagesAfter)
+                    + backfill(productImageRepository::findDistinctImageKeysAfter);
+            logger.info("Rendition backfill queued {} images", queued);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int backfill(BiFunction<String, Pageable, List<String>> nextImages) throws InterruptedException {
+        String lastImage = "";
+        int queued = 0;
+        List<String> images;
+        do {
+            images = nextImages.apply(lastImage, PageRequest.of(0, BACKFILL_PAGE_SIZE));
+            for (String imageKey : images) {
+                if (hasAllRenditions(imageKey) || !queuedKeys.add(imageKey)) {
+                    continue;
+                }
+                backfillSlots.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            generateQueued(imageKey);
+                        } finally {
+                            backfillSlots.release();
+                        }
+                    });
+                    queued++;
+                } catch (RejectedExecutionException e) {
+                    backfillSlots.release();
+                    queuedKeys.remove(imageKey);
+                }
+            }
+            if (!images.isEmpty()) {
+                lastImage = images.get(images.size() - 1);
+            }
+        } while (images.size() == BACKFILL_PAGE_SIZE);
+        return queued;
+    }
+
+    private void generateQueued(String imageKey) {
+        try {
+            generate(imageKey);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Cannot generate renditions of {}: {}", imageKey, e.getMessage());
+        } finally {
+            queuedKeys.remove(imageKey);
+        }
+    }
+
+    private boolean hasAllRenditions(String imageKey) {
+        for (ImageRendition rendition : ImageRendition.values()) {
+            if (!hasRendition(rendition, imageKey)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasRendition(ImageRendition rendition, String imageKey) {
+        try {
+            return blobStore.exists(FileServiceImpl.renditionObjectKey(rendition, imageKey));
+        } catch (IOException e) {
+            // Generating again is harmless, the rendition is simply replaced
+            return false;
+        }
+    }
+
+    private void generate(String imageKey) throws IOException {
+        String format = formatOf(imageKey);
+        if (format == null) {
+            logger.debug("No image writer for {}, renditions skipped", imageKey);
+            return;
+        }
+
+        // Largest first, so that each rendition is scaled down from the previous one
+        ImageRendition[] renditions = ImageRendition.values();
+        int largestMissing = -1;
+        for (int i = renditions.length - 1; i >= 0 && largestMissing < 0; i--) {
+            if (!hasRendition(renditions[i], imageKey)) {
+                largestMissing = i;
+            }
+        }
+        if (largestMissing < 0) {
+            return;
+        }
+
+        BufferedImage image;
+        try (InputStream original = blobStore.open(FileServiceImpl.objectKey(imageKey))) {
+            if (original == null) {
+                return;
+            }
+            image = read(original, renditions[largestMissing].getMaxDimension());
+        }
+        if (image == null) {
+            logger.debug("No image reader for {}, renditions skipped", imageKey);
+            return;
+        }
+        for (int i = largestMissing; i >= 0; i--) {
+            String target = FileServiceImpl.renditionObjectKey(renditions[i], imageKey);
+            image = scale(image, renditions[i].getMaxDimension(), !"jpeg".equals(format));
+            if (!blobStore.exists(target)) {
+                write(image, format, target);
+            }
+        }
+    }
+
+    /**
+     * Decodes an image, skipping pixels while decoding when the image is much larger than needed, so that a
+     * large original never has to be fully held in memory.
+     */
+    private static BufferedImage read(InputStream original, int maxDimension) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int step = Math.max(1, longestSide / (2 * maxDimension));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int maxDimension, boolean keepAlpha) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+        int type = keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        if (targetWidth == width && targetHeight == height && source.getType() == type) {
+            return source;
+        }
+
+        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, type);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private void write(BufferedImage image, String format, String target) throws IOException {
+        Path tempDirectory = Paths.get(path, "tmp");
+        Files.createDirectories(tempDirectory);
+        Path tempFile = Files.createTempFile(tempDirectory, "rendition-", ".tmp");
+        try {
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+            ImageWriter writer = writers.next();
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(tempFile.toFile())) {
+                writer.setOutput(output);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if ("jpeg".equals(format)) {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(JPEG_QUALITY);
+                }
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            blobStore.put(target, tempFile);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Renditions keep the format of the original so that they are served with the same content type.
+     *
+     * @return the javax.imageio format name, or null when no writer exists for the extension
+     */
+    private static String formatOf(String imageKey) {
+        int dot = imageKey.lastIndexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        String extension = imageKey.substring(dot + 1).toLowerCase(Locale.ROOT);
+        if (extension.equals("jpg") || extension.equals("jpeg")) {
+            return "jpeg";
+        }
+        return ImageIO.getImageWritersByFormatName(extension).hasNext() ? extension : null;
+    }
+}
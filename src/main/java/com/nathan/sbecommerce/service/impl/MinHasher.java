@@ -0,0 +1,128 @@
+package com.nathan.sbecommerce.service.impl;
+
+import java.util.Arrays;
+
+/**
+ * Computes MinHash signatures of product texts, and the LSH band keys under which they are indexed.
+ *
+ * A text is normalized (lower case, runs of anything but letters and digits replaced by a space) and split into
+ * overlapping character shingles. Component i of the signature is the minimum of the i-th hash function over the
+ * shingles, so the fraction of equal components of two signatures estimates the Jaccard similarity of their
+ * shingle sets. The signature is cut in bands of consecutive components; two texts sharing the key of any band are
+ * candidates, which they are with high probability when similar and rarely when not.
+ *
+ * Immutable and thread-safe.
+ */
+public final class MinHasher {
+
+    private final int shingleLength;
+
+    private final int bands;
+
+    private final int rows;
+
+    private final long[] seeds;
+
+    /**
+     * @param signatureSize the number of hash functions, a multiple of {@code bands}
+     * @param bands         the number of LSH bands
+     * @param shingleLength the length of the character shingles
+     */
+    public MinHasher(int signatureSize, int bands, int shingleLength) {
+        if (signatureSize % bands != 0) {
+            throw new IllegalArgumentException("The signature size must be a multiple of the number of bands");
+        }
+        this.shingleLength = shingleLength;
+        this.bands = bands;
+        this.rows = signatureSize / bands;
+        this.seeds = new long[signatureSize];
+        // Fixed seeds, so that signatures do not depend on the run
+        long state = 0x5DEECE66DL;
+        for (int i = 0; i < signatureSize; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            seeds[i] = mix(state);
+        }
+    }
+
+    public int[] signature(String text) {
+        String normalized = normalize(text);
+        int[] signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int shingles = Math.max(1, normalized.length() - shingleLength + 1);
+        for (int start = 0; start < shingles; start++) {
+            long shingle = hash(normalized, start, Math.min(normalized.length(), start + shingleLength));
+            for (int i = 0; i < seeds.length; i++) {
+                int value = (int) (mix(shingle ^ seeds[i]) >>> 32);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * @return one key per band; equal keys in the same position mean equal bands, up to hash collisions
+     */
+    public long[] bandKeys(int[] signature) {
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long key = band;
+            for (int row = band * rows; row < (band + 1) * rows; row++) {
+                key = key * 0x100000001B3L + signature[row];
+            }
+            keys[band] = mix(key);
+        }
+        return keys;
+    }
+
+    /**
+     * @return the estimated Jaccard similarity of the shingle sets of two signatures, between 0 and 1
+     */
+    public static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+
+    private static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+                space = false;
+            } else if (!space) {
+                normalized.append(' ');
+                space = true;
+            }
+        }
+        return normalized.toString().strip();
+    }
+
+    /**
+     * 64-bit FNV-1a of a range of characters, without copying it.
+     */
+    private static long hash(String text, int from, int to) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = from; i < to; i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * The SplitMix64 finalizer, so that related inputs give unrelated outputs.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,354 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.dto.request.CheckoutItemRequest;
+import com.nathan.sbecommerce.dto.request.CheckoutRequest;
+import com.nathan.sbecommerce.dto.request.ProductRequest;
+import com.nathan.sbecommerce.dto.response.OrderItemResponse;
+import com.nathan.sbecommerce.dto.response.OrderResponse;
+import com.nathan.sbecommerce.exception.APIException;
+import com.nathan.sbecommerce.exception.InsufficientStockException;
+import com.nathan.sbecommerce.exception.ResourceNotFoundException;
+import com.nathan.sbecommerce.model.Order;
+import com.nathan.sbecommerce.model.OrderItem;
+import com.nathan.sbecommerce.model.OrderStatus;
+import com.nathan.sbecommerce.model.Product;
+import com.nathan.sbecommerce.model.ReservationStatus;
+import com.nathan.sbecommerce.model.StockReservation;
+import com.nathan.sbecommerce.repository.AddressRepository;
+import com.nathan.sbecommerce.repository.OrderItemRepository;
+import com.nathan.sbecommerce.repository.OrderRepository;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.repository.StockReservationRepository;
+import com.nathan.sbecommerce.service.CategoryStatsService;
+import com.nathan.sbecommerce.service.CategoryStatsService.ProductFigures;
+import com.nathan.sbecommerce.service.OrderService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Places orders once per idempotency key, with a single short write transaction per checkout.
+ *
+ * - A checkout first looks for the order placed with the same key, and returns it as stored when there is one,
+ *   so a retried request never takes the stock twice.
+ * - Everything that only reads (the address, the cart, all products in one query and their prices) happens
+ *   before the transaction.
+ * - The transaction inserts the order first, so that a concurrent attempt with the same key fails on the unique
+ *   key before touching any stock. It then takes the stock of all lines with one JDBC batch of conditional
+ *   updates, in product id order so that concurrent checkouts lock the rows in the same order, and inserts the
+ *   lines with another batch. A line without enough stock rolls the whole order back.
+ * - A line holding a stock reservation of the same user confirms it in the same transaction instead of taking
+ *   the stock again, since the reservation already took it. A reservation that expired or was released meanwhile rolls the order
+ *   back as well.
+ * - Products whose last unit is taken by the order are accounted as out of stock in their category aggregates,
+ *   in the same transaction.
+ *
+ * Stock leased by {@link HotStockCounters} is not on the product row any more, so it is only available to
+ * reservations until the lease is returned; ordering it means reserving it first.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderServiceImpl implements OrderService {
+
+    private final OrderRepository orderRepository;
+
+    private final OrderItemRepository orderItemRepository;
+
+    private final AddressRepository addressRepository;
+
+    private final ProductRepository productRepository;
+
+    private final StockReservationRepository stockReservationRepository;
+
+    private final CategoryStatsService categoryStatsService;
+
+    private final ProductPricer productPricer;
+
+    private final CartWorkingSet cartWorkingSet;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${project.checkout.max-lines:100}")
+    private int maxLines;
+
+    @Value("${project.cart.max-quantity:1000}")
+    private int maxQuantity;
+
+    @Override
+    public OrderResponse checkout(Long userId, String idempotencyKey, CheckoutRequest checkoutRequest) {
+        if (idempotencyKey == null || idempotencyKey.isBlank() || idempotencyKey.length() > 100) {
+            throw new APIException("The Idempotency-Key header must hold 1 to 100 characters");
+        }
+        boolean fromCart = checkoutRequest.getItems() == null || checkoutRequest.getItems().isEmpty();
+        String fingerprint = fingerprint(checkoutRequest, fromCart);
+        Order existing = orderRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey).orElse(null);
+        if (existing != null) {
+            return replay(existing, fingerprint);
+        }
+
+        if (!addressRepository.existsByAddressIdAndUsersUserId(checkoutRequest.getAddressId(), userId)) {
+            throw new ResourceNotFoundException("Address", "addressId", checkoutRequest.getAddressId());
+        }
+        // Quantities by product id, which is also the order in which the stock is taken
+        Map<Long, Integer> quantities = fromCart ? cartQuantities(userId)
+                : requestQuantities(checkoutRequest.getItems());
+        if (quantities.isEmpty()) {
+            throw new APIException("There is nothing to check out");
+        }
+        if (quantities.size() > maxLines) {
+            throw new APIException("An order cannot hold more than " + maxLines + " products");
+        }
+        Map<String, StockReservation> reservations = fromCart ? Map.of()
+                : reservations(userId, checkoutRequest.getItems());
+        // Units taken from the product rows, once the reserved units are deducted
+        Map<Long, Integer> fromStock = new TreeMap<>(quantities);
+        reservations.values().forEach(reservation ->
+                fromStock.merge(reservation.getProductId(), -reservation.getQuantity(), Integer::sum));
+
+        Map<Long, Product> productsById = productRepository.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        List<Product> products = new ArrayList<>(quantities.size());
+        for (Long productId : quantities.keySet()) {
+            Product product = productsById.get(productId);
+            if (product == null) {
+                throw new ResourceNotFoundException("Product", "productId", productId);
+            }
+            products.add(product);
+        }
+        List<ProductRequest> priced = productPricer.price(products);
+
+        List<OrderItem> items = new ArrayList<>(products.size());
+        int totalQuantity = 0;
+        BigDecimal totalAmount = BigDecimal.ZERO.setScale(2);
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            int quantity = quantities.get(product.getProductId());
+            BigDecimal unitPrice = ProductPricer.unitPrice(priced.get(i));
+            BigDecimal lineTotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
+            items.add(new OrderItem(null, null, product.getProductId(), product.getProductName(), quantity,
+                    unitPrice, lineTotal));
+            totalQuantity += quantity;
+            totalAmount = totalAmount.add(lineTotal);
+        }
+        Order order = new Order(null, userId, idempotencyKey, fingerprint, checkoutRequest.getAddressId(),
+                OrderStatus.PLACED, totalQuantity, totalAmount, LocalDateTime.now());
+
+        Order placed;
+        try {
+            placed = transactionTemplate.execute(status ->
+                    placeOrder(order, items, fromStock, reservations.keySet(), productsById));
+        } catch (DataIntegrityViolationException e) {
+            // Another attempt with the same key committed first
+            Order winner = orderRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey).orElseThrow(() -> e);
+            return replay(winner, fingerprint);
+        }
+        if (fromCart) {
+            removeFromCart(userId, quantities);
+        }
+        return toOrderResponse(placed, items);
+    }
+
+    @Override
+    public OrderResponse getOrder(Long userId, Long orderId) {
+        Order order = orderRepository.findByOrderIdAndUserId(orderId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order", "orderId", orderId));
+        return toOrderResponse(order, orderItemRepository.findByOrderIdOrderByOrderItemId(orderId));
+    }
+
+    /**
+     * Inserts the order, confirms the reservations of its lines, takes the stock of the rest and inserts the
+     * lines. Runs in the checkout transaction.
+     *
+     * @param fromStock the units to take from each product row, in product id order
+     * @throws InsufficientStockException when a line asks for more than the stock left, rolling back the order
+     * @throws APIException               when a reservation is not RESERVED any more, rolling back the order
+     */
+    private Order placeOrder(Order order, List<OrderItem> items, Map<Long, Integer> fromStock,
+                             Collection<String> reservationIds, Map<Long, Product> productsById) {
+        Order savedOrder = orderRepository.saveAndFlush(order);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (String reservationId : new TreeSet<>(reservationIds)) {
+            if (stockReservationRepository.confirm(reservationId, now) == 0) {
+                throw new APIException("Reservation " + reservationId + " expired or was released before the checkout");
+            }
+        }
+
+        List<Map.Entry<Long, Integer>> lines = fromStock.entrySet().stream()
+                .filter(line -> line.getValue() > 0)
+                .toList();
+        if (!lines.isEmpty()) {
+            int[] taken = jdbcTemplate.batchUpdate("update products set product_quantity = product_quantity - ? "
+                            + "where product_id = ? and product_quantity >= ?",
+                    lines.stream().map(line -> new Object[]{line.getValue(), line.getKey(), line.getValue()}).toList());
+            for (int i = 0; i < taken.length; i++) {
+                if (taken[i] == 0) {
+                    throw new InsufficientStockException(lines.get(i).getKey(), lines.get(i).getValue());
+                }
+            }
+            List<Long> soldOut = productRepository.findSoldOutIdsByProductIdIn(
+                    lines.stream().map(Map.Entry::getKey).toList());
+            if (!soldOut.isEmpty()) {
+                categoryStatsService.productsSoldOut(soldOut.stream()
+                        .map(productId -> ProductFigures.of(productsById.get(productId)).categoryId())
+                        .toList());
+            }
+        }
+
+        items.forEach(item -> item.setOrderId(savedOrder.getOrderId()));
+        jdbcTemplate.batchUpdate("insert into order_items (order_id, product_id, product_name, quantity, unit_price, "
+                        + "line_total) values (?, ?, ?, ?, ?, ?)",
+                items.stream().map(item -> new Object[]{item.getOrderId(), item.getProductId(), item.getProductName(),
+                        item.getQuantity(), item.getUnitPrice(), item.getLineTotal()}).toList());
+        return savedOrder;
+    }
+
+    /**
+     * Returns an order placed by an earlier attempt, as it was stored.
+     *
+     * @throws APIException when the key was used for a different checkout
+     */
+    private OrderResponse replay(Order order, String fingerprint) {
+        if (!order.getRequestFingerprint().equals(fingerprint)) {
+            throw new APIException("Idempotency key " + order.getIdempotencyKey()
+                    + " was already used for a different checkout");
+        }
+        return toOrderResponse(order, orderItemRepository.findByOrderIdOrderByOrderItemId(order.getOrderId()));
+    }
+
+    /**
+     * Sums the quantities of the lines of each product, in a long so that no sum can overflow.
+     *
+     * @throws APIException when a quantity is not positive or a product is ordered more than
+     *                      {@code project.cart.max-quantity} times
+     */
+    private Map<Long, Integer> requestQuantities(List<CheckoutItemRequest> items) {
+        Map<Long, Long> quantities = new TreeMap<>();
+        for (CheckoutItemRequest item : items) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new APIException("Every line must have a product and a quantity of 1 or more");
+            }
+            long quantity = quantities.merge(item.getProductId(), (long) item.getQuantity(), Long::sum);
+            if (quantity > maxQuantity) {
+                throw new APIException("An order cannot hold more than " + maxQuantity + " units of a product");
+            }
+        }
+        Map<Long, Integer> checked = new TreeMap<>();
+        quantities.forEach((productId, quantity) -> checked.put(productId, quantity.intValue()));
+        return checked;
+    }
+
+    /**
+     * Loads the reservations held by the lines, in one query.
+     *
+     * @throws ResourceNotFoundException when a reservation does not exist or was made by another user
+     * @throws APIException              when a reservation is held by several lines, or is not for the product and
+     *                                   quantity of its line, or is not RESERVED any more
+     */
+    private Map<String, StockReservation> reservations(Long userId, List<CheckoutItemRequest> items) {
+        Map<String, CheckoutItemRequest> linesByReservation = new HashMap<>();
+        for (CheckoutItemRequest item : items) {
+            if (item.getReservationId() != null && linesByReservation.put(item.getReservationId(), item) != null) {
+                throw new APIException("Reservation " + item.getReservationId() + " is held by several lines");
+            }
+        }
+        if (linesByReservation.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, StockReservation> reservations = stockReservationRepository.findAllById(linesByReservation.keySet())
+                .stream()
+                .collect(Collectors.toMap(StockReservation::getReservationId, Function.identity()));
+        linesByReservation.forEach((reservationId, item) -> {
+            StockReservation reservation = reservations.get(reservationId);
+            if (reservation == null || !reservation.getUserId().equals(userId)) {
+                throw new ResourceNotFoundException("Stock reservation", "reservationId", reservationId);
+            }
+            if (!reservation.getProductId().equals(item.getProductId())
+                    || !reservation.getQuantity().equals(item.getQuantity())) {
+                throw new APIException("Reservation " + reservationId + " holds " + reservation.getQuantity()
+                        + " of product " + reservation.getProductId() + ", not what its line orders");
+            }
+            if (reservation.getStatus() != ReservationStatus.RESERVED) {
+                throw new APIException("Reservation " + reservationId + " is " + reservation.getStatus()
+                        + " and cannot be ordered");
+            }
+        });
+        return reservations;
+    }
+
+    private Map<Long, Integer> cartQuantities(Long userId) {
+        return cartWorkingSet.read(userId, cart -> {
+            Map<Long, Integer> quantities = new TreeMap<>();
+            for (int i = 0; i < cart.size(); i++) {
+                quantities.put(cart.productId(i), cart.quantity(i));
+            }
+            return quantities;
+        });
+    }
+
+    /**
+     * Takes the ordered quantities out of the cart, keeping what was added to it during the checkout.
+     */
+    private void removeFromCart(Long userId, Map<Long, Integer> ordered) {
+        cartWorkingSet.update(userId, cart -> {
+            ordered.forEach((productId, quantity) -> cart.set(productId, cart.quantityOf(productId) - quantity));
+            return null;
+        });
+    }
+
+    /**
+     * Identifies what a checkout asked for, to detect an idempotency key reused for another checkout. A cart
+     * checkout is identified by its address only, since the cart is emptied by the first attempt.
+     */
+    private static String fingerprint(CheckoutRequest checkoutRequest, boolean fromCart) {
+        StringBuilder request = new StringBuilder("address=").append(checkoutRequest.getAddressId());
+        if (fromCart) {
+            request.append(";cart");
+        } else {
+            request.append(";items=");
+            checkoutRequest.getItems().forEach(item -> {
+                request.append(item.getProductId()).append('x').append(item.getQuantity());
+                if (item.getReservationId() != null) {
+                    request.append('@').append(item.getReservationId());
+                }
+                request.append(',');
+            });
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(request.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static OrderResponse toOrderResponse(Order order, List<OrderItem> items) {
+        List<OrderItemResponse> itemResponses = items.stream()
+                .map(item -> new OrderItemResponse(item.getProductId(), item.getProductName(), item.getQuantity(),
+                        item.getUnitPrice(), item.getLineTotal()))
+                .toList();
+        return new OrderResponse(order.getOrderId(), order.getUserId(), order.getAddressId(), order.getStatus(),
+                itemResponses, order.getTotalQuantity(), order.getTotalAmount(), order.getCreatedAt());
+    }
+}
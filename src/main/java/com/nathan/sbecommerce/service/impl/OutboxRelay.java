@@ -0,0 +1,198 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.model.AggregateType;
+import com.nathan.sbecommerce.model.DomainEvent;
+import com.nathan.sbecommerce.model.DomainEventType;
+import com.nathan.sbecommerce.service.DomainEventListener;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relays the committed outbox events to the {@link DomainEventListener}s through an {@link EventRing}.
+ *
+ * A single "outbox-relay" thread reads the unpublished events in id order, publishes them into the ring and,
+ * once every listener has processed them, marks them published with one batched update. It is woken up as
+ * soon as events are committed, and polls every {@code project.outbox.poll-interval-ms} in case it missed one.
+ *
+ * Events are only marked published after they were processed, so events relayed but not processed before a
+ * restart are relayed again: delivery is at least once. Events are read again until they are marked published,
+ * rather than after the last id relayed, so that an event whose transaction commits after a later id was relayed
+ * is not skipped. Published events are deleted after {@code project.outbox.retention-hours}.
+ *
+ * An event a listener keeps failing on, even alone, is recorded in outbox_dead_letters with the listener and the
+ * error before the listener moves past it; it is then marked published like the others, but never deleted while it
+ * has dead letters, so that it can be inspected and replayed.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final List<DomainEventListener> listeners;
+
+    private final int batchSize;
+
+    private final long pollIntervalMs;
+
+    private final long retentionHours;
+
+    private final EventRing<DomainEvent> ring;
+
+    private final Semaphore wakeUps = new Semaphore(0);
+
+    /** Relayed events waiting for every listener, as {sequence, eventId}; only used by the relay thread */
+    private final Deque<long[]> inFlight = new ArrayDeque<>();
+
+    private final Set<Long> inFlightIds = new HashSet<>();
+
+    private Thread relay;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate, List<DomainEventListener> listeners,
+                       @Value("${project.outbox.ring-size:4096}") int ringSize,
+                       @Value("${project.outbox.batch-size:500}") int batchSize,
+                       @Value("${project.outbox.max-attempts:5}") int maxAttempts,
+                       @Value("${project.outbox.poll-interval-ms:1000}") long pollIntervalMs,
+                       @Value("${project.outbox.retention-hours:24}") long retentionHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.listeners = listeners;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.retentionHours = retentionHours;
+        this.ring = new EventRing<>(ringSize, batchSize, maxAttempts, this::recordDeadLetter);
+    }
+
+    /**
+     * Starts the listeners and the relay once the schema is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (DomainEventListener listener : listeners) {
+            ring.addConsumer(listener.name(), listener::onEvents);
+        }
+        relay = new Thread(this::run, "outbox-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (relay != null) {
+            relay.interrupt();
+        }
+        ring.stop();
+    }
+
+    /**
+     * Makes the relay read the outbox now, e.g. because events were just committed.
+     */
+    public void wakeUp() {
+        wakeUps.release();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                acknowledge();
+                List<DomainEvent> events = fetch();
+                if (events.isEmpty()) {
+                    wakeUps.tryAcquire(inFlight.isEmpty() ? pollIntervalMs : 10, TimeUnit.MILLISECONDS);
+                    wakeUps.drainPermits();
+                    continue;
+                }
+                long sequence = ring.publish(events) - events.size();
+                for (DomainEvent event : events) {
+                    inFlight.add(new long[]{++sequence, event.eventId()});
+                    inFlightIds.add(event.eventId());
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("Could not relay outbox events: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks published the relayed events that every listener has processed.
+     */
+    private void acknowledge() {
+        long consumed = ring.consumedSequence();
+        List<Object[]> processed = new ArrayList<>();
+        while (!inFlight.isEmpty() && inFlight.peekFirst()[0] <= consumed) {
+            processed.add(new Object[]{Timestamp.valueOf(LocalDateTime.now()), inFlight.peekFirst()[1]});
+            inFlight.pollFirst();
+        }
+        if (processed.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("update outbox_events set published_at = ? where event_id = ?", processed);
+        processed.forEach(row -> inFlightIds.remove((Long) row[1]));
+    }
+
+    /**
+     * Records an event a listener gave up on. Runs on the listener thread.
+     */
+    private void recordDeadLetter(String listener, DomainEvent event, RuntimeException failure) {
+        String error = String.valueOf(failure.getMessage());
+        jdbcTemplate.update("insert into outbox_dead_letters (event_id, listener, error, failed_at) values (?, ?, ?, ?)",
+                event.eventId(), listener, error.substring(0, Math.min(error.length(), 500)),
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * Reads the next unpublished events that are not already in the ring.
+     */
+    private List<DomainEvent> fetch() {
+        List<DomainEvent> events = jdbcTemplate.query("select event_id, aggregate_type, aggregate_id, parent_id, "
+                        + "event_type, before_key, after_key, created_at from outbox_events "
+                        + "where published_at is null order by event_id limit ?",
+                (resultSet, row) -> new DomainEvent(resultSet.getLong("event_id"),
+                        AggregateType.valueOf(resultSet.getString("aggregate_type")),
+                        resultSet.getLong("aggregate_id"),
+                        resultSet.getObject("parent_id", Long.class),
+                        DomainEventType.valueOf(resultSet.getString("event_type")),
+                        resultSet.getString("before_key"), resultSet.getString("after_key"),
+                        resultSet.getTimestamp("created_at").toLocalDateTime()),
+                batchSize + inFlightIds.size());
+        events.removeIf(event -> inFlightIds.contains(event.eventId()));
+        return events;
+    }
+
+    /**
+     * Deletes the events published for longer than the retention period, except those with dead letters.
+     */
+    @Scheduled(fixedDelayString = "${project.outbox.cleanup-interval-ms:3600000}")
+    public void deletePublished() {
+        int deleted = jdbcTemplate.update("delete from outbox_events where published_at < ? "
+                        + "and event_id not in (select event_id from outbox_dead_letters)",
+                Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours)));
+        if (deleted > 0) {
+            logger.debug("Deleted {} published outbox events", deleted);
+        }
+    }
+}
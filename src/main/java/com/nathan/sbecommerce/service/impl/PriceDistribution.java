@@ -0,0 +1,168 @@
+package com.nathan.sbecommerce.service.impl;
+
+import java.util.Arrays;
+
+/**
+ * The distribution of a set of prices, as a quantile sketch and a fixed-bucket histogram, both of which support
+ * removing a price as well as adding one, so they can follow product writes without rescanning the products.
+ *
+ * - The sketch counts the prices in logarithmic buckets (as DDSketch does): bucket i holds the prices in
+ *   (gamma^(i-1), gamma^i], with gamma = (1 + a) / (1 - a) for a relative accuracy a. Any quantile is then
+ *   estimated within a relative error of a, whatever the number of prices, in a few hundred counters.
+ * - The histogram counts the prices between fixed bounds, e.g. for price range facets.
+ *
+ * Two distributions with the same accuracy and bounds can be merged by adding their counters. Not thread-safe.
+ */
+public final class PriceDistribution {
+
+    private final double gamma;
+
+    private final double logGamma;
+
+    private final double[] bounds;
+
+    /** Counts of the logarithmic buckets, counts[i] being the bucket offset + i */
+    private long[] counts = new long[0];
+
+    private int offset;
+
+    /** Prices of 0 (or less), which have no logarithmic bucket */
+    private long zeroCount;
+
+    private final long[] histogram;
+
+    private long count;
+
+    /**
+     * @param relativeAccuracy the relative error of the quantiles, e.g. 0.01 for 1%
+     * @param bounds           the ascending bounds of the histogram buckets; n bounds make n + 1 buckets
+     */
+    public PriceDistribution(double relativeAccuracy, double[] bounds) {
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+        this.bounds = bounds;
+        this.histogram = new long[bounds.length + 1];
+    }
+
+    /**
+     * Adds a price. Null prices are ignored.
+     */
+    public void add(Double price) {
+        update(price, 1);
+    }
+
+    /**
+     * Removes a price added earlier. Null prices are ignored, and so are prices that were never added.
+     */
+    public void remove(Double price) {
+        update(price, -1);
+    }
+
+    private void update(Double price, int delta) {
+        if (price == null || price.isNaN()) {
+            return;
+        }
+        int histogramBucket = histogramBucket(price);
+        if (delta < 0 && histogram[histogramBucket] == 0) {
+            return;
+        }
+        if (price <= 0) {
+            if (delta < 0 && zeroCount == 0) {
+                return;
+            }
+            zeroCount += delta;
+        } else {
+            int index = (int) Math.ceil(Math.log(price) / logGamma);
+            if (delta < 0 && (index < offset || index >= offset + counts.length || counts[index - offset] == 0)) {
+                return;
+            }
+            ensureBucket(index);
+            counts[index - offset] += delta;
+        }
+        histogram[histogramBucket] += delta;
+        count += delta;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.5 for the median
+     * @return the estimated price at that quantile, or null when there is no price
+     */
+    public Double quantile(double quantile) {
+        if (count == 0) {
+            return null;
+        }
+        long rank = (long) Math.floor(quantile * (count - 1));
+        if (rank < zeroCount) {
+            return 0.0;
+        }
+        long seen = zeroCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                // The middle of the bucket, in relative terms, so that its error is at most the accuracy either way
+                return 2 * Math.pow(gamma, i + offset) / (gamma + 1);
+            }
+        }
+        return 2 * Math.pow(gamma, counts.length - 1 + offset) / (gamma + 1);
+    }
+
+    public double[] bounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * @return the number of prices in each histogram bucket: below the first bound, between each pair of bounds,
+     * and at or above the last bound
+     */
+    public long[] histogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Adds the prices of another distribution to this one.
+     *
+     * @throws IllegalArgumentException if the distributions do not have the same accuracy and bounds
+     */
+    public void merge(PriceDistribution other) {
+        if (other.gamma != gamma || !Arrays.equals(other.bounds, bounds)) {
+            throw new IllegalArgumentException("Only distributions with the same accuracy and bounds can be merged");
+        }
+        if (other.counts.length > 0) {
+            ensureBucket(other.offset);
+            ensureBucket(other.offset + other.counts.length - 1);
+            for (int i = 0; i < other.counts.length; i++) {
+                counts[other.offset + i - offset] += other.counts[i];
+            }
+        }
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += other.histogram[i];
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    private int histogramBucket(double price) {
+        int position = Arrays.binarySearch(bounds, price);
+        // A price equal to a bound belongs to the bucket starting at that bound
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    private void ensureBucket(int index) {
+        if (counts.length == 0) {
+            counts = new long[16];
+            offset = index - 8;
+        } else if (index < offset) {
+            int grown = Math.max(counts.length * 2, counts.length + offset - index);
+            long[] moved = new long[grown];
+            System.arraycopy(counts, 0, moved, grown - counts.length, counts.length);
+            offset -= grown - counts.length;
+            counts = moved;
+        } else if (index >= offset + counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(counts.length * 2, index - offset + 1));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.service.CategoryStatsService.ProductFigures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Holds the {@link PriceDistribution}s of the price and special price of the products of every category, in memory.
+ *
+ * The distributions follow the product writes applied by {@link CategoryStatsServiceImpl}: each write removes the
+ * old prices of the product and adds the new ones once its transaction has committed. Bulk repricings and anything
+ * written without going through the service are caught up by a rebuild, which scans the products in pages and
+ * swaps in the new distributions; writes committing during a scan may be missed until the next rebuild.
+ */
+@Component
+public class PriceDistributions {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceDistributions.class);
+
+    private final ProductRepository productRepository;
+
+    private final double relativeAccuracy;
+
+    private final double[] histogramBounds;
+
+    private final int pageSize;
+
+    private volatile Map<Long, CategoryPrices> categories = new ConcurrentHashMap<>();
+
+    public PriceDistributions(ProductRepository productRepository,
+                              @Value("${project.price-stats.relative-accuracy:0.01}") double relativeAccuracy,
+                              @Value("${project.price-stats.histogram-bounds:10,25,50,100,250,500,1000,2500,5000}")
+                              double[] histogramBounds,
+                              @Value("${project.price-stats.page-size:5000}") int pageSize) {
+        this.productRepository = productRepository;
+        this.relativeAccuracy = relativeAccuracy;
+        this.histogramBounds = histogramBounds;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Moves a product from its old prices to its new ones once the current transaction commits, or right away
+     * outside a transaction.
+     *
+     * @param before the product before the write, null when it was added
+     * @param after  the product after the write, null when it was removed
+     */
+    public void applyAfterCommit(ProductFigures before, ProductFigures after) {
+        afterCommit(() -> {
+            if (before != null && before.categoryId() != null) {
+                categoryPrices(categories, before.categoryId()).remove(before.price(), before.specialPrice());
+            }
+            if (after != null && after.categoryId() != null) {
+                categoryPrices(categories, after.categoryId()).add(after.price(), after.specialPrice());
+            }
+        });
+    }
+
+    public void removeCategoryAfterCommit(Long categoryId) {
+        afterCommit(() -> categories.remove(categoryId));
+    }
+
+    /**
+     * Recomputes the distributions of every category from a scan of the products.
+     *
+     * @return the number of products scanned
+     */
+    public synchronized int rebuild() {
+        Map<Long, CategoryPrices> rebuilt = new ConcurrentHashMap<>();
+        long after = 0;
+        int scanned = 0;
+        List<Object[]> page;
+        do {
+            page = productRepository.findPricesAfter(after, PageRequest.of(0, pageSize));
+            for (Object[] row : page) {
+                if (row[1] != null) {
+                    categoryPrices(rebuilt, (Long) row[1]).add((Double) row[2], (Double) row[3]);
+                }
+            }
+            if (!page.isEmpty()) {
+                after = (Long) page.get(page.size() - 1)[0];
+                scanned += page.size();
+            }
+        } while (page.size() == pageSize);
+        categories = rebuilt;
+        logger.info("Rebuilt the price distributions of {} categories from {} products", rebuilt.size(), scanned);
+        return scanned;
+    }
+
+    /**
+     * Recomputes the distributions of some categories from their products, e.g. after they were repriced in bulk.
+     */
+    public synchronized void rebuild(Collection<Long> categoryIds) {
+        for (Long categoryId : categoryIds) {
+            CategoryPrices prices = new CategoryPrices();
+            for (Object[] row : productRepository.findPricesByCategoryId(categoryId)) {
+                prices.add((Double) row[0], (Double) row[1]);
+            }
+            categories.put(categoryId, prices);
+        }
+    }
+
+    /**
+     * @return a copy of the distribution of one of the prices of a category, empty when it has no product
+     */
+    public PriceDistribution get(Long categoryId, Function<CategoryPrices, PriceDistribution> field) {
+        PriceDistribution copy = empty();
+        CategoryPrices prices = categories.get(categoryId);
+        if (prices != null) {
+            synchronized (prices) {
+                copy.merge(field.apply(prices));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @return one of the prices of all categories, merged into a single distribution
+     */
+    public PriceDistribution getAll(Function<CategoryPrices, PriceDistribution> field) {
+        PriceDistribution merged = empty();
+        for (CategoryPrices prices : categories.values()) {
+            synchronized (prices) {
+                merged.merge(field.apply(prices));
+            }
+        }
+        return merged;
+    }
+
+    private PriceDistribution empty() {
+        return new PriceDistribution(relativeAccuracy, histogramBounds);
+    }
+
+    private CategoryPrices categoryPrices(Map<Long, CategoryPrices> target, Long categoryId) {
+        return target.computeIfAbsent(categoryId, id -> new CategoryPrices());
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    /**
+     * The distributions of the prices of one category, only accessed under its own lock.
+     */
+    public final class CategoryPrices {
+
+        private final PriceDistribution price = empty();
+
+        private final PriceDistribution specialPrice = empty();
+
+        public PriceDistribution price() {
+            return price;
+        }
+
+        public PriceDistribution specialPrice() {
+            return specialPrice;
+        }
+
+        private synchronized void add(Double price, Double specialPrice) {
+            this.price.add(price);
+            this.specialPrice.add(specialPrice);
+        }
+
+        private synchronized void remove(Double price, Double specialPrice) {
+            this.price.remove(price);
+            this.specialPrice.remove(specialPrice);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.model.AggregateType;
+import com.nathan.sbecommerce.model.DomainEvent;
+import com.nathan.sbecommerce.model.DomainEventType;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.service.DomainEventListener;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the views and clicks of the products in memory, and writes them to product_activity in batches.
+ *
+ * - Every product has its own pair of {@link LongAdder}s, striped internally, so recording a view is an increment
+ *   that threads viewing the same product do not contend on, and never a query.
+ * - Every {@code project.trending.flush-interval-ms}, the counts added since the last flush are written in one
+ *   transaction (a batch of updates, then a batch of inserts for the products seen for the first time) and fed to
+ *   {@link TrendingProducts}. Counts that could not be written are kept for the next flush; counts made less than
+ *   an interval before a crash are lost.
+ * - The products (their category and name) are loaded once at startup and kept current from the outbox events,
+ *   so views of unknown or deleted products are dropped without reaching the database.
+ *
+ * Like the other in-memory caches of this service, it assumes the application runs as a single instance.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductActivityCounters implements DomainEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductActivityCounters.class);
+
+    private static final String ADD_ACTIVITY = "update product_activity set view_count = view_count + ?, "
+            + "click_count = click_count + ?, updated_at = ? where product_id = ?";
+
+    private static final String INSERT_ACTIVITY = "insert into product_activity "
+            + "(view_count, click_count, updated_at, product_id) values (?, ?, ?, ?)";
+
+    private final ProductRepository productRepository;
+
+    private final TrendingProducts trendingProducts;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${project.trending.click-weight:5}")
+    private long clickWeight;
+
+    private final Map<Long, ProductCounters> products = new ConcurrentHashMap<>();
+
+    /** Products deleted since the last flush, whose rows are deleted by the next one */
+    private final Set<Long> deleted = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Loads the products before the outbox relay starts, so that no event is applied to a partial list.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void loadProducts() {
+        for (Object[] row : productRepository.findAllCategoryIdsAndNames()) {
+            products.putIfAbsent((Long) row[0], new ProductCounters((Long) row[1], (String) row[2]));
+        }
+        logger.info("Counting the activity of {} products", products.size());
+    }
+
+    public void recordView(Long productId) {
+        ProductCounters counters = products.get(productId);
+        if (counters != null) {
+            counters.views.increment();
+        }
+    }
+
+    public void recordClick(Long productId) {
+        ProductCounters counters = products.get(productId);
+        if (counters != null) {
+            counters.clicks.increment();
+        }
+    }
+
+    /**
+     * @return the current category and name of a product, null when it does not exist
+     */
+    ProductCounters find(long productId) {
+        return products.get(productId);
+    }
+
+    @Override
+    public String name() {
+        return "product-activity";
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        for (DomainEvent event : events) {
+            if (event.aggregateType() != AggregateType.PRODUCT) {
+                continue;
+            }
+            long productId = event.aggregateId();
+            if (event.eventType() == DomainEventType.DELETED) {
+                if (products.remove(productId) != null) {
+                    deleted.add(productId);
+                }
+            } else if (event.eventType() == DomainEventType.CREATED || event.eventType() == DomainEventType.UPDATED) {
+                ProductCounters counters = products.computeIfAbsent(productId,
+                        id -> new ProductCounters(event.parentId(), event.afterKey()));
+                counters.categoryId = event.parentId();
+                counters.productName = event.afterKey();
+            }
+        }
+    }
+
+    /**
+     * Writes the counts added since the last flush in a single transaction, then ranks them.
+     */
+    @Scheduled(fixedDelayString = "${project.trending.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        List<Long> deletedIds = new ArrayList<>(deleted);
+        List<ProductCounters> flushed = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Map.Entry<Long, ProductCounters> entry : products.entrySet()) {
+            ProductCounters counters = entry.getValue();
+            // Increments racing with sum() are not lost, they are part of the next delta
+            counters.pendingViews = counters.views.sum() - counters.flushedViews;
+            counters.pendingClicks = counters.clicks.sum() - counters.flushedClicks;
+            if (counters.pendingViews > 0 || counters.pendingClicks > 0) {
+                counters.productId = entry.getKey();
+                flushed.add(counters);
+                rows.add(new Object[]{counters.pendingViews, counters.pendingClicks, now, entry.getKey()});
+            }
+        }
+        if (!rows.isEmpty() || !deletedIds.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(rows, deletedIds));
+            } catch (RuntimeException e) {
+                logger.warn("Could not write the activity of {} products, retrying at the next flush: {}",
+                        rows.size(), e.getMessage());
+                trendingProducts.publish();
+                return;
+            }
+        }
+        deletedIds.forEach(deleted::remove);
+        for (ProductCounters counters : flushed) {
+            counters.flushedViews += counters.pendingViews;
+            counters.flushedClicks += counters.pendingClicks;
+            trendingProducts.add(counters.productId, counters.categoryId,
+                    counters.pendingViews + clickWeight * counters.pendingClicks);
+        }
+        trendingProducts.publish();
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private void write(List<Object[]> rows, List<Long> deletedIds) {
+        jdbcTemplate.batchUpdate("delete from product_activity where product_id = ?",
+                deletedIds.stream().map(id -> new Object[]{id}).toList());
+        int[] updated = jdbcTemplate.batchUpdate(ADD_ACTIVITY, rows);
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                inserts.add(rows.get(i));
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_ACTIVITY, inserts);
+    }
+
+    /**
+     * The counters of one product, with its category and name as last seen in the outbox.
+     */
+    static final class ProductCounters {
+
+        private final LongAdder views = new LongAdder();
+
+        private final LongAdder clicks = new LongAdder();
+
+        private volatile Long categoryId;
+
+        private volatile String productName;
+
+        /** Only accessed by the flush, which runs on a single thread */
+        private long productId;
+
+        private long flushedViews;
+
+        private long flushedClicks;
+
+        private long pendingViews;
+
+        private long pendingClicks;
+
+        private ProductCounters(Long categoryId, String productName) {
+            this.categoryId = categoryId;
+            this.productName = productName;
+        }
+
+        Long categoryId() {
+            return categoryId;
+        }
+
+        String productName() {
+            return productName;
+        }
+    }
+}
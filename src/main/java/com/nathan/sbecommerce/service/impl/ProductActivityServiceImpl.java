@@ -0,0 +1,125 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.dto.request.ProductRequest;
+import com.nathan.sbecommerce.dto.response.RecentlyViewedResponse;
+import com.nathan.sbecommerce.dto.response.TrendingProductResponse;
+import com.nathan.sbecommerce.dto.response.TrendingResponse;
+import com.nathan.sbecommerce.exception.APIException;
+import com.nathan.sbecommerce.model.ImageRendition;
+import com.nathan.sbecommerce.model.Product;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.service.ImageRenditionService;
+import com.nathan.sbecommerce.service.ProductActivityService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Serves the activity counters and trending rankings from memory: recording an interaction is a counter increment,
+ * and a ranking is read from the last rankings published by {@link TrendingProducts}, named from the products
+ * known to {@link ProductActivityCounters}. Neither touches the database.
+ *
+ * Interactions with unknown products are ignored rather than rejected, as they are sent in the background by the
+ * storefront and a product created a moment ago may not be known yet.
+ *
+ * The recently viewed products of a user are hydrated with a single query and priced in one pass, like a cart.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductActivityServiceImpl implements ProductActivityService {
+
+    private final ProductActivityCounters productActivityCounters;
+
+    private final TrendingProducts trendingProducts;
+
+    private final RecentlyViewedProducts recentlyViewedProducts;
+
+    private final ProductRepository productRepository;
+
+    private final ProductPricer productPricer;
+
+    private final ImageRenditionService imageRenditionService;
+
+    @Value("${project.trending.max-results:50}")
+    private int maxResults;
+
+    @Override
+    public void recordView(Long productId, Long userId) {
+        productActivityCounters.recordView(productId);
+        if (userId != null && productActivityCounters.find(productId) != null) {
+            recentlyViewedProducts.add(userId, productId);
+        }
+    }
+
+    @Override
+    public void recordClick(Long productId) {
+        productActivityCounters.recordClick(productId);
+    }
+
+    @Override
+    public TrendingResponse getTrendingProducts(Integer limit) {
+        return toTrendingResponse(trendingProducts.global(), null, limit);
+    }
+
+    @Override
+    public TrendingResponse getTrendingProductsByCategory(Long categoryId, Integer limit) {
+        return toTrendingResponse(trendingProducts.byCategory(categoryId), categoryId, limit);
+    }
+
+    @Override
+    public RecentlyViewedResponse getRecentlyViewed(Long userId) {
+        long[] productIds = recentlyViewedProducts.get(userId);
+        if (productIds.length == 0) {
+            return new RecentlyViewedResponse(List.of());
+        }
+        List<Long> ids = new ArrayList<>(productIds.length);
+        for (long productId : productIds) {
+            ids.add(productId);
+        }
+        Map<Long, Product> productsById = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        // Most recent first, without the products deleted since they were viewed
+        List<Product> products = ids.stream()
+                .map(productsById::get)
+                .filter(product -> product != null)
+                .toList();
+
+        List<ProductRequest> cards = productPricer.price(products);
+        for (int i = 0; i < cards.size(); i++) {
+            String image = products.get(i).getImage();
+            cards.get(i).setThumbnailUrl(imageRenditionService.renditionUrl(ImageRendition.THUMBNAIL, image));
+            cards.get(i).setListingUrl(imageRenditionService.renditionUrl(ImageRendition.LISTING, image));
+        }
+        return new RecentlyViewedResponse(cards);
+    }
+
+    /**
+     * Names the ranked products, leaving out those deleted since they were ranked and, for a category ranking,
+     * those moved to another category.
+     */
+    private TrendingResponse toTrendingResponse(List<TrendingProducts.RankedProduct> ranking, Long categoryId,
+                                                Integer limit) {
+        if (limit < 1 || limit > maxResults) {
+            throw new APIException("limit must be between 1 and " + maxResults);
+        }
+        List<TrendingProductResponse> content = new ArrayList<>(limit);
+        for (TrendingProducts.RankedProduct ranked : ranking) {
+            ProductActivityCounters.ProductCounters product = productActivityCounters.find(ranked.productId());
+            if (product == null || (categoryId != null && !categoryId.equals(product.categoryId()))) {
+                continue;
+            }
+            content.add(new TrendingProductResponse(ranked.productId(), product.productName(),
+                    product.categoryId(), ranked.score()));
+            if (content.size() == limit) {
+                break;
+            }
+        }
+        return new TrendingResponse(trendingProducts.windowMinutes(), content);
+    }
+}
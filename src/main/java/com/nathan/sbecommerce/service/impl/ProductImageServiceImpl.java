@@ -0,0 +1,190 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.dto.request.ProductImageRequest;
+import com.nathan.sbecommerce.dto.response.ProductGalleryResponse;
+import com.nathan.sbecommerce.exception.APIException;
+import com.nathan.sbecommerce.exception.ResourceNotFoundException;
+import com.nathan.sbecommerce.model.AggregateType;
+import com.nathan.sbecommerce.model.DomainEventType;
+import com.nathan.sbecommerce.model.ImageRendition;
+import com.nathan.sbecommerce.model.Product;
+import com.nathan.sbecommerce.model.ProductImage;
+import com.nathan.sbecommerce.repository.ProductImageRepository;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.service.FileService;
+import com.nathan.sbecommerce.service.ImageRenditionService;
+import com.nathan.sbecommerce.service.ProductImageService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@RequiredArgsConstructor
+public class ProductImageServiceImpl implements ProductImageService {
+
+    private final ProductRepository productRepository;
+
+    private final ProductImageRepository productImageRepository;
+
+    private final FileService fileService;
+
+    private final ImageRenditionService imageRenditionService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final DomainEventOutbox domainEventOutbox;
+
+    @Value("${project.image}")
+    private String path;
+
+    @Value("${project.image.gallery.max-batch:20}")
+    private int maxBatch;
+
+    @Value("${project.image.gallery.threads:4}")
+    private int threads;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void startExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        // A full queue makes the request thread store the file itself, which slows the batch down instead of failing it
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * maxBatch),
+                task -> {
+                    Thread thread = new Thread(task, "product-images-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Adds a batch of images at the end of a product gallery.
+     *
+     * This method handles the batch by:
+     * 1. Checking the product exists and the batch is not larger than {@code project.image.gallery.max-batch}
+     * 2. Storing all files in parallel on a bounded pool (each store is also subject to the upload limits)
+     * 3. Appending them to the gallery, in the order they were sent, in a single transaction holding the product
+     *    row lock, so that concurrent batches for the same product never get the same positions
+     * 4. Making the first new image the primary image when the product only had the placeholder, recording the
+     *    image change in the same transaction
+     * 5. Queuing the renditions of every new image
+     *
+     * No database connection is held while files are stored. If any file is refused, nothing is added to the
+     * gallery; the files already stored are unreferenced and collected after the grace period.
+     *
+     * @param productId The unique identifier of the product
+     * @param images    The uploaded files, in display order
+     * @return ProductGalleryResponse the whole gallery after the update
+     * @throws ResourceNotFoundException if the product with given ID is not found
+     * @throws IOException if a file cannot be stored
+     */
+    @Override
+    public ProductGalleryResponse addProductImages(Long productId, List<MultipartFile> images) throws IOException {
+        if (images == null || images.isEmpty()) {
+            throw new APIException("At least one image is required");
+        }
+        if (images.size() > maxBatch) {
+            throw new APIException("At most " + maxBatch + " images can be uploaded at once");
+        }
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product", "productId", productId);
+        }
+
+        List<String> imageKeys = storeAll(images);
+
+        ProductGalleryResponse gallery = transactionTemplate.execute(status -> {
+            Product product = productRepository.findForUpdate(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
+            int position = productImageRepository.findMaxPosition(productId);
+            List<ProductImage> added = new ArrayList<>(imageKeys.size());
+            for (String imageKey : imageKeys) {
+                fileService.retainImage(imageKey);
+                added.add(new ProductImage(product, imageKey, ++position));
+            }
+            productImageRepository.saveAll(added);
+
+            if (product.getImage() == null || !FileServiceImpl.isContentKey(product.getImage())) {
+                String primaryImage = imageKeys.get(0);
+                String previousImage = product.getImage();
+                fileService.retainImage(primaryImage);
+                fileService.releaseImage(previousImage);
+                product.setImage(primaryImage);
+                domainEventOutbox.record(AggregateType.PRODUCT, productId,
+                        product.getCategory() == null ? null : product.getCategory().getCategoryId(),
+                        DomainEventType.IMAGE_CHANGED, previousImage, primaryImage);
+            }
+            return toGalleryResponse(product, productImageRepository.findByProductProductIdOrderByPosition(productId));
+        });
+
+        imageKeys.forEach(imageRenditionService::generateRenditions);
+        return gallery;
+    }
+
+    @Override
+    public ProductGalleryResponse getProductImages(Long productId) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
+        return toGalleryResponse(product, productImageRepository.findByProductProductIdOrderByPosition(productId));
+    }
+
+    private List<String> storeAll(List<MultipartFile> images) throws IOException {
+        List<CompletableFuture<String>> stored = new ArrayList<>(images.size());
+        for (MultipartFile image : images) {
+            stored.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return fileService.uploadImage(path, image);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor));
+        }
+        try {
+            CompletableFuture.allOf(stored.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+        return stored.stream().map(CompletableFuture::join).toList();
+    }
+
+    private ProductGalleryResponse toGalleryResponse(Product product, List<ProductImage> images) {
+        List<ProductImageRequest> imageRequests = images.stream()
+                .map(image -> new ProductImageRequest(
+                        image.getProductImageId(),
+                        image.getImageKey(),
+                        image.getPosition(),
+                        imageRenditionService.imageUrl(image.getImageKey()),
+                        imageRenditionService.renditionUrl(ImageRendition.THUMBNAIL, image.getImageKey()),
+                        imageRenditionService.renditionUrl(ImageRendition.LISTING, image.getImageKey()),
+                        imageRenditionService.renditionUrl(ImageRendition.DETAIL, image.getImageKey())))
+                .toList();
+        return new ProductGalleryResponse(product.getProductId(), product.getImage(), imageRequests);
+    }
+}
@@ -0,0 +1,45 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.dto.request.ProductRequest;
+import com.nathan.sbecommerce.model.Product;
+import lombok.RequiredArgsConstructor;
+import org.modelmapper.ModelMapper;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Prices products for the current user the way the product listings do, so that a cart and the order placed
+ * from it show the same prices as the listings.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductPricer {
+
+    private final ModelMapper modelMapper;
+
+    private final PromotionEngine promotionEngine;
+
+    /**
+     * Maps products to their DTOs and sets their final price and promotions, in a single pass of the engine.
+     */
+    public List<ProductRequest> price(List<Product> products) {
+        List<ProductRequest> productRequests = products.stream()
+                .map(product -> modelMapper.map(product, ProductRequest.class))
+                .toList();
+        promotionEngine.apply(productRequests, products);
+        return productRequests;
+    }
+
+    /**
+     * The final price when promotions could be applied, otherwise the price of the product.
+     */
+    public static BigDecimal unitPrice(ProductRequest product) {
+        if (product.getFinalPrice() != null) {
+            return product.getFinalPrice();
+        }
+        Double price = product.getSpecialPrice() != null ? product.getSpecialPrice() : product.getPrice();
+        return price == null ? BigDecimal.ZERO.setScale(2) : BigDecimal.valueOf(CompiledPromotions.toCents(price), 2);
+    }
+}
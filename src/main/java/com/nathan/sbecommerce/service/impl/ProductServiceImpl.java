@@ -5,11 +5,19 @@ import com.nathan.sbecommerce.dto.request.ProductRequest;
 import com.nathan.sbecommerce.dto.response.ProductResponse;
 import com.nathan.sbecommerce.exception.APIException;
 import com.nathan.sbecommerce.exception.ResourceNotFoundException;
+import com.nathan.sbecommerce.model.AggregateType;
 import com.nathan.sbecommerce.model.Category;
+import com.nathan.sbecommerce.model.DiscountCampaign;
+import com.nathan.sbecommerce.model.DomainEventType;
 import com.nathan.sbecommerce.model.Product;
 import com.nathan.sbecommerce.repository.CategoryRepository;
+import com.nathan.sbecommerce.repository.DiscountCampaignRepository;
 import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.model.ImageRendition;
+import com.nathan.sbecommerce.service.CategoryStatsService;
+import com.nathan.sbecommerce.service.CategoryStatsService.ProductFigures;
 import com.nathan.sbecommerce.service.FileService;
+import com.nathan.sbecommerce.service.ImageRenditionService;
 import com.nathan.sbecommerce.service.ProductService;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
@@ -19,9 +27,12 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import jakarta.transaction.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RequiredArgsConstructor
@@ -31,38 +42,40 @@ public class ProductServiceImpl implements ProductService {
     private final ModelMapper modelMapper;
     private final CategoryRepository categoryRepository;
     private final FileService fileService;
+    private final ImageRenditionService imageRenditionService;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryStatsService categoryStatsService;
+    private final DiscountCampaignRepository discountCampaignRepository;
+    private final PromotionEngine promotionEngine;
+    private final DomainEventOutbox domainEventOutbox;
 
     @Value("${project.image}")
     private String path;
 
     @Override
+    @Transactional
     public ProductRequest addProduct(ProductRequest productRequest,
                                      Long categoryId) {
         Category category = this.categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
 
-        boolean isProductNotPresent = true;
-
-        List<Product> products = category.getProducts();
-
-        for(Product product : products){
-            if(product.getProductName().equals(productRequest.getProductName())){
-                isProductNotPresent = false;
-                break;
-            }
-        }
-        if(!isProductNotPresent){
-            Product product = modelMapper.map(productRequest, Product.class);
-
-            product.setCategory(category);
-            product.setImage("default.png");
-            Double specialPrice = product.getPrice() - ((product.getDiscount() * 0.01) * product.getPrice());
-            product.setSpecialPrice(specialPrice);
-            return modelMapper.map(this.productRepository.save(product), ProductRequest.class);
-        } else {
+        // One indexed lookup, instead of loading every product of the category to compare names
+        if (this.productRepository.existsByCategoryCategoryIdAndProductName(categoryId, productRequest.getProductName())) {
             throw new APIException("Product already exists");
         }
+        Product product = modelMapper.map(productRequest, Product.class);
 
+        product.setCategory(category);
+        product.setImage("default.png");
+        // Campaigns are joined by repricing, never through the product payload
+        product.setCampaignId(null);
+        Double specialPrice = product.getPrice() - ((product.getDiscount() * 0.01) * product.getPrice());
+        product.setSpecialPrice(specialPrice);
+        Product savedProduct = this.productRepository.save(product);
+        this.categoryStatsService.productAdded(ProductFigures.of(savedProduct));
+        this.domainEventOutbox.record(AggregateType.PRODUCT, savedProduct.getProductId(), categoryId,
+                DomainEventType.CREATED, null, savedProduct.getProductName());
+        return toProductRequest(savedProduct);
     }
 
     @Override
@@ -83,9 +96,7 @@ public class ProductServiceImpl implements ProductService {
             throw new APIException("No products found");
         }
 
-        List<ProductRequest> productRequests = products.stream()
-                .map(prod -> modelMapper.map(prod, ProductRequest.class))
-                .toList();
+        List<ProductRequest> productRequests = toProductRequests(products);
 
         ProductResponse productResponse = new ProductResponse();
         productResponse.setProductRequests(productRequests);
@@ -99,6 +110,7 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public ProductResponse searchByCategory(Long categoryId,
+                                            boolean includeDescendants,
                                             Integer pageNumber,
                                             Integer pageSize,
                                             String sortBy,
@@ -112,7 +124,10 @@ public class ProductServiceImpl implements ProductService {
 
         Pageable pageable = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
 
-        Page<Product> productPage = this.productRepository.findByCategoryOrderByPriceAsc(category, pageable);
+        // A category without a path predates nesting and cannot have descendants
+        Page<Product> productPage = includeDescendants && category.getPath() != null
+                ? this.productRepository.findByCategoryPathStartingWithOrderByPriceAsc(category.getPath(), pageable)
+                : this.productRepository.findByCategoryOrderByPriceAsc(category, pageable);
 
         List<Product> products = productPage.getContent();
 
@@ -120,9 +135,7 @@ public class ProductServiceImpl implements ProductService {
             throw new APIException("No products found with category: " + categoryId);
         }
 
-        List<ProductRequest> productRequests = products.stream()
-                .map(prod -> modelMapper.map(prod, ProductRequest.class))
-                .toList();
+        List<ProductRequest> productRequests = toProductRequests(products);
         ProductResponse productResponse = new ProductResponse();
         productResponse.setProductRequests(productRequests);
         productResponse.setPageNumber(productPage.getNumber());
@@ -156,9 +169,7 @@ public class ProductServiceImpl implements ProductService {
             throw new APIException("No products found with keyword: " + keyword);
         }
 
-        List<ProductRequest> productRequests = products.stream()
-                .map(prod -> modelMapper.map(prod, ProductRequest.class))
-                .toList();
+        List<ProductRequest> productRequests = toProductRequests(products);
         ProductResponse productResponse = new ProductResponse();
         productResponse.setProductRequests(productRequests);
         productResponse.setPageNumber(productPage.getNumber());
@@ -170,29 +181,39 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
+    @Transactional
     public ProductRequest updateProduct(ProductRequest productRequest, Long productId) {
         Product productToUpdate = this.productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
+        ProductFigures before = ProductFigures.of(productToUpdate);
+        String previousName = productToUpdate.getProductName();
 
         Product product = modelMapper.map(productRequest, Product.class);
-        //productToUpdate.setProductId(productId);
         productToUpdate.setProductName(product.getProductName());
         productToUpdate.setDescription(product.getDescription());
         productToUpdate.setQuantity(product.getQuantity());
         productToUpdate.setPrice(product.getPrice());
         productToUpdate.setDiscount(product.getDiscount());
-        productToUpdate.setSpecialPrice(product.getSpecialPrice());
-        productToUpdate.setCategory(product.getCategory());
-        productToUpdate = this.productRepository.save(product);
-        return modelMapper.map(productToUpdate, ProductRequest.class);
+        productToUpdate.setSpecialPrice(specialPrice(productToUpdate));
+        productToUpdate = this.productRepository.save(productToUpdate);
+        this.categoryStatsService.productUpdated(before, ProductFigures.of(productToUpdate));
+        this.domainEventOutbox.record(AggregateType.PRODUCT, productId, categoryId(productToUpdate),
+                DomainEventType.UPDATED, previousName, productToUpdate.getProductName());
+        return toProductRequest(productToUpdate);
     }
 
     @Override
+    @Transactional
     public ProductRequest deleteProduct(Long productId) {
         Product productToDelete = this.productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
         this.productRepository.delete(productToDelete);
-        return modelMapper.map(productToDelete, ProductRequest.class);
+        this.categoryStatsService.productRemoved(ProductFigures.of(productToDelete));
+        this.domainEventOutbox.record(AggregateType.PRODUCT, productId, categoryId(productToDelete),
+                DomainEventType.DELETED, productToDelete.getProductName(), null);
+        this.fileService.releaseImage(productToDelete.getImage());
+        productToDelete.getImages().forEach(image -> this.fileService.releaseImage(image.getImageKey()));
+        return toProductRequest(productToDelete);
     }
 
 /**
@@ -222,19 +243,106 @@ public class ProductServiceImpl implements ProductService {
  *
  * The image will be:
  * - Stored in the "images/" directory
- * - Given a unique filename using UUID
- * - Linked to the product in the database
+ * - Named after the SHA-256 of its content, so identical images are stored once
+ * - Linked to the product in the database, which counts as one reference to the stored file
+ *
+ * The thumbnail, listing and detail renditions are generated in the background after the upload.
+ *
+ * The file is stored before any transaction is opened, so a slow upload never holds a database connection.
+ * The reference to the previous image is then released in the same transaction as the update; the file itself
+ * is deleted later by the file service once no product references it any more.
  */
 @Override
 public ProductRequest updateProductImage(Long productId, MultipartFile image) throws IOException {
-        Product productToUpdate = this.productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
-
+        checkProductExists(productId);
         String fileName = this.fileService.uploadImage(path, image);
+        return attachImage(productId, fileName);
+    }
 
-        productToUpdate.setImage(fileName);
+    /**
+     * Same as {@link #updateProductImage(Long, MultipartFile)} for an image streamed in the request body: the body
+     * is validated and written to the image volume as it arrives, without being spooled by the servlet container.
+     *
+     * @param productId     The unique identifier of the product whose image needs to be updated
+     * @param image         The request body
+     * @param contentLength The Content-Length of the request, or -1 when unknown
+     * @return ProductRequest object containing the updated product information
+     */
+    @Override
+    public ProductRequest updateProductImage(Long productId, InputStream image, long contentLength) throws IOException {
+        checkProductExists(productId);
+        String fileName = this.fileService.storeImage(path, image, contentLength);
+        return attachImage(productId, fileName);
+    }
+
+    private void checkProductExists(Long productId) {
+        if (!this.productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product", "productId", productId);
+        }
+    }
+
+    private ProductRequest attachImage(Long productId, String fileName) {
+        ProductRequest productRequest = this.transactionTemplate.execute(status -> {
+            Product productToUpdate = this.productRepository.findById(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
+
+            String previousImage = productToUpdate.getImage();
+            if (!fileName.equals(previousImage)) {
+                this.fileService.retainImage(fileName);
+                this.fileService.releaseImage(previousImage);
+                this.domainEventOutbox.record(AggregateType.PRODUCT, productId, categoryId(productToUpdate),
+                        DomainEventType.IMAGE_CHANGED, previousImage, fileName);
+            }
+            productToUpdate.setImage(fileName);
+            return toProductRequest(this.productRepository.save(productToUpdate));
+        });
+        this.imageRenditionService.generateRenditions(fileName);
+        return productRequest;
+    }
+
+    /**
+     * Derives the special price like in addProduct, so that it can never disagree with the price and discount,
+     * unless the product is in a discount campaign, whose price then stays in effect until the campaign ends.
+     */
+    private Double specialPrice(Product product) {
+        if (product.getCampaignId() != null) {
+            DiscountCampaign campaign = this.discountCampaignRepository.findById(product.getCampaignId()).orElse(null);
+            if (campaign != null) {
+                return campaign.specialPrice(product.getPrice());
+            }
+        }
+        return product.getPrice() - ((product.getDiscount() * 0.01) * product.getPrice());
+    }
+
+    /**
+     * Reads the category id held by the lazy proxy, without loading the category.
+     */
+    private static Long categoryId(Product product) {
+        return product.getCategory() == null ? null : product.getCategory().getCategoryId();
+    }
+
+    /**
+     * Maps a page of products to their DTOs, then prices the whole page with the promotions in effect for the
+     * current user in a single pass.
+     */
+    private List<ProductRequest> toProductRequests(List<Product> products) {
+        List<ProductRequest> productRequests = products.stream()
+                .map(prod -> toProductRequest(prod))
+                .toList();
+        this.promotionEngine.apply(productRequests, products);
+        return productRequests;
+    }
 
-        Product updatedProduct = this.productRepository.save(productToUpdate);
-        return modelMapper.map(updatedProduct, ProductRequest.class);
+    /**
+     * Maps a product to its DTO and adds the URLs of its image renditions, so that clients can download the
+     * smallest file that fits (e.g. the listing rendition on category pages instead of the original upload).
+     */
+    private ProductRequest toProductRequest(Product product) {
+        ProductRequest productRequest = modelMapper.map(product, ProductRequest.class);
+        String image = product.getImage();
+        productRequest.setThumbnailUrl(imageRenditionService.renditionUrl(ImageRendition.THUMBNAIL, image));
+        productRequest.setListingUrl(imageRenditionService.renditionUrl(ImageRendition.LISTING, image));
+        productRequest.setDetailUrl(imageRenditionService.renditionUrl(ImageRendition.DETAIL, image));
+        return productRequest;
     }
 }
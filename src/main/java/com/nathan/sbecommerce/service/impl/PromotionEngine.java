@@ -0,0 +1,106 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.dto.request.ProductRequest;
+import com.nathan.sbecommerce.model.Product;
+import com.nathan.sbecommerce.repository.PromotionRuleRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Prices pages of products with the promotion rules in effect, from a {@link CompiledPromotions} kept in memory.
+ *
+ * Like {@link CategorySnapshotCache}, rule changes only bump a version after their transaction commits, and the
+ * next page priced compiles the rules again with a single query. The rules are also compiled again when one of
+ * them starts or ends, so a time-boxed promotion takes effect without any write.
+ */
+@Component
+@RequiredArgsConstructor
+public class PromotionEngine {
+
+    private final PromotionRuleRepository promotionRuleRepository;
+
+    private final AtomicReference<CompiledPromotions> compiled = new AtomicReference<>();
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Compiles the rules at startup, so that the first listing does not pay for it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void compileAtStartup() {
+        get(LocalDateTime.now());
+    }
+
+    /**
+     * Sets the final price and the promotions applied on a page of products, for the current user.
+     *
+     * @param page     the DTOs of the products
+     * @param products the products, at the same index, to read their category from
+     */
+    public void apply(List<ProductRequest> page, List<Product> products) {
+        long[] categoryIds = new long[products.size()];
+        for (int i = 0; i < categoryIds.length; i++) {
+            // Reads the id held by the lazy proxy, without loading the category
+            categoryIds[i] = products.get(i).getCategory() == null ? -1 : products.get(i).getCategory().getCategoryId();
+        }
+        get(LocalDateTime.now()).apply(page, categoryIds, CompiledPromotions.segmentMask(currentRoles()));
+    }
+
+    CompiledPromotions get(LocalDateTime now) {
+        CompiledPromotions current = compiled.get();
+        if (current != null && current.getVersion() == version.get() && current.isValidAt(now)) {
+            return current;
+        }
+        synchronized (this) {
+            current = compiled.get();
+            long expectedVersion = version.get();
+            if (current != null && current.getVersion() == expectedVersion && current.isValidAt(now)) {
+                return current;
+            }
+            CompiledPromotions rebuilt = CompiledPromotions.compile(expectedVersion,
+                    promotionRuleRepository.findNotExpired(now), now);
+            compiled.set(rebuilt);
+            return rebuilt;
+        }
+    }
+
+    /**
+     * Marks the compiled rules as outdated once the current transaction commits, or right away outside a
+     * transaction.
+     */
+    public void invalidateAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                }
+            });
+        } else {
+            version.incrementAndGet();
+        }
+    }
+
+    private static List<String> currentRoles() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return List.of();
+        }
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList());
+    }
+}
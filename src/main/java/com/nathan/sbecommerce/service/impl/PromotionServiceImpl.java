@@ -0,0 +1,90 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.dto.request.PromotionRuleRequest;
+import com.nathan.sbecommerce.exception.APIException;
+import com.nathan.sbecommerce.exception.ResourceNotFoundException;
+import com.nathan.sbecommerce.model.AppRole;
+import com.nathan.sbecommerce.model.DiscountType;
+import com.nathan.sbecommerce.model.PromotionRule;
+import com.nathan.sbecommerce.repository.CategoryRepository;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.repository.PromotionRuleRepository;
+import com.nathan.sbecommerce.service.PromotionService;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.modelmapper.ModelMapper;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class PromotionServiceImpl implements PromotionService {
+
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
+
+    private final PromotionRuleRepository promotionRuleRepository;
+
+    private final CategoryRepository categoryRepository;
+
+    private final ProductRepository productRepository;
+
+    private final PromotionEngine promotionEngine;
+
+    private final ModelMapper modelMapper;
+
+    @Override
+    @Transactional
+    public PromotionRuleRequest createRule(PromotionRuleRequest ruleRequest) {
+        if (ruleRequest.getCategoryId() != null && ruleRequest.getProductId() != null) {
+            throw new APIException("A promotion targets either a category or a product, not both");
+        }
+        if (ruleRequest.getDiscountType() == DiscountType.PERCENTAGE
+                && ruleRequest.getDiscountValue().compareTo(ONE_HUNDRED) > 0) {
+            throw new APIException("A percentage discount cannot exceed 100");
+        }
+        if (ruleRequest.getDiscountValue().scale() > 2) {
+            throw new APIException("A discount has at most 2 decimals");
+        }
+        if (ruleRequest.getSegment() != null
+                && Arrays.stream(AppRole.values()).noneMatch(role -> role.name().equals(ruleRequest.getSegment()))) {
+            throw new APIException("Unknown segment " + ruleRequest.getSegment() + ", expected one of "
+                    + Arrays.toString(AppRole.values()));
+        }
+        if (ruleRequest.getStartsAt() != null && ruleRequest.getEndsAt() != null
+                && !ruleRequest.getEndsAt().isAfter(ruleRequest.getStartsAt())) {
+            throw new APIException("A promotion must end after it starts");
+        }
+        if (ruleRequest.getCategoryId() != null && !categoryRepository.existsById(ruleRequest.getCategoryId())) {
+            throw new ResourceNotFoundException("Category", "categoryId", ruleRequest.getCategoryId());
+        }
+        if (ruleRequest.getProductId() != null && !productRepository.existsById(ruleRequest.getProductId())) {
+            throw new ResourceNotFoundException("Product", "productId", ruleRequest.getProductId());
+        }
+
+        PromotionRule rule = modelMapper.map(ruleRequest, PromotionRule.class);
+        rule.setRuleId(null);
+        PromotionRule savedRule = promotionRuleRepository.save(rule);
+        promotionEngine.invalidateAfterCommit();
+        return modelMapper.map(savedRule, PromotionRuleRequest.class);
+    }
+
+    @Override
+    public List<PromotionRuleRequest> getRules() {
+        return promotionRuleRepository.findAllByOrderByRuleIdDesc().stream()
+                .map(rule -> modelMapper.map(rule, PromotionRuleRequest.class))
+                .toList();
+    }
+
+    @Override
+    @Transactional
+    public PromotionRuleRequest deleteRule(Long ruleId) {
+        PromotionRule rule = promotionRuleRepository.findById(ruleId).orElseThrow(()
+                -> new ResourceNotFoundException("Promotion rule", "ruleId", ruleId));
+        promotionRuleRepository.delete(rule);
+        promotionEngine.invalidateAfterCommit();
+        return modelMapper.map(rule, PromotionRuleRequest.class);
+    }
+}
@@ -0,0 +1,228 @@
+package com.nathan.sbecommerce.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The products each signed in user viewed last, kept in memory and saved to a snapshot file between restarts.
+ *
+ * - Every user has a ring of {@code project.recently-viewed.capacity} product ids, most recent last. Viewing a
+ *   product already in the ring moves it to the end; once the ring is full, a new product overwrites the oldest.
+ * - The rings are slices of one shared {@code long[]}, so a user costs a slice of primitives rather than a list of
+ *   boxed ids. Users are kept in least recently used order, and past {@code project.recently-viewed.max-users},
+ *   the slice of the user idle for the longest time is reused.
+ * - Every {@code project.recently-viewed.snapshot-interval-ms}, and at shutdown, the rings are written to
+ *   {@code project.recently-viewed.snapshot-file} (to a temporary file, then moved over the previous snapshot), and
+ *   they are read back at startup. Views made after the last snapshot are lost by a crash.
+ */
+@Component
+public class RecentlyViewedProducts {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecentlyViewedProducts.class);
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final int capacity;
+
+    private final int maxUsers;
+
+    private final Path snapshotFile;
+
+    /** User id to slice index, in least recently used order */
+    private final LinkedHashMap<Long, Integer> slices = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The product ids of the slice i are in [i * capacity, (i + 1) * capacity) */
+    private long[] productIds = new long[0];
+
+    /** Per slice, the position of the next write and the number of products */
+    private int[] heads = new int[0];
+
+    private int[] sizes = new int[0];
+
+    private boolean changed;
+
+    public RecentlyViewedProducts(@Value("${project.recently-viewed.capacity:20}") int capacity,
+                                  @Value("${project.recently-viewed.max-users:100000}") int maxUsers,
+                                  @Value("${project.recently-viewed.snapshot-file:recently-viewed.snapshot}")
+                                  Path snapshotFile) {
+        this.capacity = capacity;
+        this.maxUsers = maxUsers;
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Records that a user viewed a product.
+     */
+    public synchronized void add(long userId, long productId) {
+        int slice = sliceOf(userId);
+        int base = slice * capacity;
+        int size = sizes[slice];
+        if (size > 0 && productIds[base + (heads[slice] + capacity - 1) % capacity] == productId) {
+            return;
+        }
+        int start = (heads[slice] + capacity - size) % capacity;
+        for (int i = 0; i < size; i++) {
+            if (productIds[base + (start + i) % capacity] == productId) {
+                // Closes the gap by moving the more recent products one step back
+                for (int j = i; j < size - 1; j++) {
+                    productIds[base + (start + j) % capacity] = productIds[base + (start + j + 1) % capacity];
+                }
+                heads[slice] = (heads[slice] + capacity - 1) % capacity;
+                sizes[slice] = --size;
+                break;
+            }
+        }
+        productIds[base + heads[slice]] = productId;
+        heads[slice] = (heads[slice] + 1) % capacity;
+        sizes[slice] = Math.min(size + 1, capacity);
+        changed = true;
+    }
+
+    /**
+     * @return the products viewed by a user, most recent first, empty when the user viewed none
+     */
+    public synchronized long[] get(long userId) {
+        Integer slice = slices.get(userId);
+        if (slice == null) {
+            return new long[0];
+        }
+        int base = slice * capacity;
+        long[] viewed = new long[sizes[slice]];
+        for (int i = 0; i < viewed.length; i++) {
+            viewed[i] = productIds[base + (heads[slice] + capacity - 1 - i) % capacity];
+        }
+        return viewed;
+    }
+
+    /**
+     * Returns the slice of a user, taking a free one or the one of the least recently used user if needed.
+     */
+    private int sliceOf(long userId) {
+        Integer slice = slices.get(userId);
+        if (slice != null) {
+            return slice;
+        }
+        int free;
+        if (slices.size() < maxUsers) {
+            free = slices.size();
+            if (free == sizes.length) {
+                int grown = (int) Math.min(maxUsers, Math.max(16L, sizes.length * 2L));
+                productIds = Arrays.copyOf(productIds, grown * capacity);
+                heads = Arrays.copyOf(heads, grown);
+                sizes = Arrays.copyOf(sizes, grown);
+            }
+        } else {
+            Map.Entry<Long, Integer> eldest = slices.entrySet().iterator().next();
+            slices.remove(eldest.getKey());
+            free = eldest.getValue();
+        }
+        heads[free] = 0;
+        sizes[free] = 0;
+        slices.put(userId, free);
+        return free;
+    }
+
+    @PostConstruct
+    void loadSnapshot() {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                logger.warn("Ignoring recently viewed snapshot {}: unknown version", snapshotFile);
+                return;
+            }
+            int users = in.readInt();
+            for (int u = 0; u < users; u++) {
+                long userId = in.readLong();
+                int size = in.readInt();
+                for (int i = 0; i < size; i++) {
+                    add(userId, in.readLong());
+                }
+            }
+            synchronized (this) {
+                changed = false;
+            }
+            logger.info("Loaded the recently viewed products of {} users", users);
+        } catch (IOException e) {
+            logger.warn("Could not read recently viewed snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the rings to the snapshot file when they changed since the last snapshot.
+     */
+    @Scheduled(fixedDelayString = "${project.recently-viewed.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        long[] userIds;
+        long[][] viewed;
+        synchronized (this) {
+            if (!changed) {
+                return;
+            }
+            changed = false;
+            // Least recently used first, so that reading the snapshot back restores the same order
+            userIds = new long[slices.size()];
+            viewed = new long[slices.size()][];
+            int u = 0;
+            // Not through get(), which would reorder the users while iterating
+            for (Map.Entry<Long, Integer> entry : slices.entrySet()) {
+                userIds[u] = entry.getKey();
+                viewed[u++] = oldestFirst(entry.getValue());
+            }
+        }
+        Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(userIds.length);
+                for (int u = 0; u < userIds.length; u++) {
+                    out.writeLong(userIds[u]);
+                    out.writeInt(viewed[u].length);
+                    for (long productId : viewed[u]) {
+                        out.writeLong(productId);
+                    }
+                }
+            }
+            Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write recently viewed snapshot {}: {}", snapshotFile, e.getMessage());
+            synchronized (this) {
+                changed = true;
+            }
+        }
+    }
+
+    @PreDestroy
+    void snapshotOnShutdown() {
+        snapshot();
+    }
+
+    private long[] oldestFirst(int slice) {
+        int base = slice * capacity;
+        int size = sizes[slice];
+        int start = (heads[slice] + capacity - size) % capacity;
+        long[] viewed = new long[size];
+        for (int i = 0; i < size; i++) {
+            viewed[i] = productIds[base + (start + i) % capacity];
+        }
+        return viewed;
+    }
+}
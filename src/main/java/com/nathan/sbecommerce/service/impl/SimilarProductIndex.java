@@ -0,0 +1,383 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.model.AggregateType;
+import com.nathan.sbecommerce.model.DomainEvent;
+import com.nathan.sbecommerce.model.DomainEventType;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.service.DomainEventListener;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the {@code project.similar.neighbors} most similar products of every product, by the text of their name
+ * and description, so that the similar products of a product are read from memory.
+ *
+ * - Every product has a {@link MinHasher} signature, indexed under its LSH band keys. The neighbors of a product
+ *   are picked among the products sharing at least one band key with it (at most
+ *   {@code project.similar.max-candidates} of them), by estimated similarity, instead of among all products.
+ * - The index is built by a background job at startup, reading the products in pages.
+ * - Product writes update it incrementally from the outbox events: the signature of the product is recomputed from
+ *   its current text, its neighbors are picked again, and it is offered to (or withdrawn from) the neighbors of
+ *   its candidates. Events received during the build are applied once it is done.
+ *
+ * The neighbor lists are immutable arrays in a concurrent map, so readers never wait for a write.
+ *
+ * The index costs a few KB of heap per product with the default settings (boxed map entries for the signature,
+ * the band keys, one bucket entry per band and the neighbors), so it holds at most
+ * {@code project.similar.max-products} products: the first ones by id, then products already indexed. Products
+ * left out have no similar products. {@code project.similar.enabled=false} turns the index off altogether, e.g.
+ * for load tests on a large catalog that do not read similar products.
+ */
+@Component
+public class SimilarProductIndex implements DomainEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimilarProductIndex.class);
+
+    private final ProductRepository productRepository;
+
+    private final MinHasher minHasher;
+
+    private final int neighborCount;
+
+    private final int maxCandidates;
+
+    private final double minSimilarity;
+
+    private final int pageSize;
+
+    private final boolean enabled;
+
+    private final int maxProducts;
+
+    /** True once a product was left out because the index was full, only accessed under the index lock */
+    private boolean truncated;
+
+    /** Signatures and band keys, only accessed under the index lock */
+    private final Map<Long, int[]> signatures = new HashMap<>();
+
+    private final Map<Long, long[]> bandKeys = new HashMap<>();
+
+    private final Map<Long, Set<Long>> buckets = new HashMap<>();
+
+    private final Map<Long, Neighbor[]> neighbors = new ConcurrentHashMap<>();
+
+    private final Map<Long, String> names = new ConcurrentHashMap<>();
+
+    private final Object refreshLock = new Object();
+
+    /** Products changed while the index was being built, null once it is built */
+    private Set<Long> changedDuringBuild = new HashSet<>();
+
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "similar-products");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SimilarProductIndex(ProductRepository productRepository,
+                               @Value("${project.similar.signature-size:128}") int signatureSize,
+                               @Value("${project.similar.bands:32}") int bands,
+                               @Value("${project.similar.shingle-length:4}") int shingleLength,
+                               @Value("${project.similar.neighbors:10}") int neighborCount,
+                               @Value("${project.similar.max-candidates:500}") int maxCandidates,
+                               @Value("${project.similar.min-similarity:0.2}") double minSimilarity,
+                               @Value("${project.similar.page-size:1000}") int pageSize,
+                               @Value("${project.similar.enabled:true}") boolean enabled,
+                               @Value("${project.similar.max-products:200000}") int maxProducts) {
+        this.productRepository = productRepository;
+        this.minHasher = new MinHasher(signatureSize, bands, shingleLength);
+        this.neighborCount = neighborCount;
+        this.maxCandidates = maxCandidates;
+        this.minSimilarity = minSimilarity;
+        this.pageSize = pageSize;
+        this.enabled = enabled;
+        this.maxProducts = maxProducts;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBuild() {
+        if (!enabled) {
+            logger.info("Similar products index disabled");
+            return;
+        }
+        builder.execute(() -> {
+            try {
+                build();
+            } catch (RuntimeException e) {
+                logger.warn("Could not build the similar products index: {}", e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    void stopBuild() {
+        builder.shutdownNow();
+    }
+
+    /**
+     * @return true once the index is built and holds every product, so that a product it does not hold does not
+     *         exist
+     */
+    public synchronized boolean isComplete() {
+        return enabled && changedDuringBuild == null && !truncated;
+    }
+
+    /**
+     * @return the products most similar to a product, most similar first, or null when the product is not indexed
+     */
+    public Neighbor[] neighbors(long productId) {
+        return neighbors.get(productId);
+    }
+
+    /**
+     * @return the name of an indexed product, null when it is not indexed
+     */
+    public String name(long productId) {
+        return names.get(productId);
+    }
+
+    @Override
+    public String name() {
+        return "similar-products";
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        if (!enabled) {
+            return;
+        }
+        Set<Long> changed = new LinkedHashSet<>();
+        for (DomainEvent event : events) {
+            if (event.aggregateType() == AggregateType.PRODUCT && event.eventType() != DomainEventType.IMAGE_CHANGED) {
+                changed.add(event.aggregateId());
+            }
+        }
+        synchronized (this) {
+            if (changedDuringBuild != null) {
+                changedDuringBuild.addAll(changed);
+                return;
+            }
+        }
+        refresh(changed);
+    }
+
+    private void build() {
+        long started = System.currentTimeMillis();
+        long after = 0;
+        int indexed = 0;
+        List<Object[]> page;
+        do {
+            page = productRepository.findTextsAfter(after, PageRequest.of(0, pageSize));
+            synchronized (this) {
+                for (Object[] row : page) {
+                    if (signatures.size() >= maxProducts) {
+                        truncated = true;
+                        break;
+                    }
+                    index((Long) row[0], (String) row[1], (String) row[2]);
+                    indexed++;
+                }
+            }
+            if (!page.isEmpty()) {
+                after = (Long) page.get(page.size() - 1)[0];
+            }
+        } while (page.size() == pageSize && !truncated);
+        if (truncated) {
+            logger.warn("Similar products index full, only the first {} products are indexed "
+                    + "(project.similar.max-products)", maxProducts);
+        }
+
+        // In chunks, so that events keep being queued meanwhile; the index does not change until the build is over
+        List<Long> productIds;
+        synchronized (this) {
+            productIds = new ArrayList<>(signatures.keySet());
+        }
+        for (int from = 0; from < productIds.size(); from += pageSize) {
+            synchronized (this) {
+                for (Long productId : productIds.subList(from, Math.min(productIds.size(), from + pageSize))) {
+                    neighbors.put(productId, pickNeighbors(productId));
+                }
+            }
+        }
+        Set<Long> changed;
+        synchronized (this) {
+            changed = changedDuringBuild;
+            changedDuringBuild = null;
+        }
+        logger.info("Indexed {} products for similar products in {} ms", indexed,
+                System.currentTimeMillis() - started);
+        refresh(changed);
+    }
+
+    /**
+     * Brings products up to date with their current text, or removes them when they no longer exist.
+     */
+    private void refresh(Set<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        // The builder and the event listener may both refresh, and a stale text must not be applied last
+        synchronized (refreshLock) {
+            refreshTexts(productIds);
+        }
+    }
+
+    private void refreshTexts(Set<Long> productIds) {
+        // Read outside of the lock, so that the lock is never held while waiting for the database
+        Map<Long, Object[]> texts = new HashMap<>();
+        for (Object[] row : productRepository.findTextsByProductIdIn(productIds)) {
+            texts.put((Long) row[0], row);
+        }
+        synchronized (this) {
+            for (Long productId : productIds) {
+                if (texts.containsKey(productId) && !signatures.containsKey(productId)
+                        && signatures.size() >= maxProducts) {
+                    truncated = true;
+                    continue;
+                }
+                Set<Long> previousCandidates = signatures.containsKey(productId) ? candidates(productId) : Set.of();
+                Object[] text = texts.get(productId);
+                if (text == null) {
+                    unindex(productId);
+                    neighbors.remove(productId);
+                    names.remove(productId);
+                } else {
+                    index(productId, (String) text[1], (String) text[2]);
+                    neighbors.put(productId, pickNeighbors(productId));
+                }
+                Set<Long> currentCandidates = text == null ? Set.of() : candidates(productId);
+                for (Long candidate : currentCandidates) {
+                    offer(candidate, productId);
+                }
+                for (Long candidate : previousCandidates) {
+                    if (!currentCandidates.contains(candidate) && contains(neighbors.get(candidate), productId)) {
+                        neighbors.put(candidate, pickNeighbors(candidate));
+                    }
+                }
+            }
+        }
+    }
+
+    private void index(Long productId, String productName, String description) {
+        unindex(productId);
+        int[] signature = minHasher.signature(productName + " " + (description == null ? "" : description));
+        long[] keys = minHasher.bandKeys(signature);
+        signatures.put(productId, signature);
+        bandKeys.put(productId, keys);
+        for (long key : keys) {
+            buckets.computeIfAbsent(key, k -> new HashSet<>()).add(productId);
+        }
+        names.put(productId, productName);
+    }
+
+    private void unindex(Long productId) {
+        long[] keys = bandKeys.remove(productId);
+        signatures.remove(productId);
+        if (keys == null) {
+            return;
+        }
+        for (long key : keys) {
+            Set<Long> bucket = buckets.get(key);
+            if (bucket != null && bucket.remove(productId) && bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    /**
+     * The products sharing a band key with a product, at most {@code maxCandidates} of them.
+     */
+    private Set<Long> candidates(Long productId) {
+        Set<Long> candidates = new HashSet<>();
+        for (long key : bandKeys.get(productId)) {
+            for (Long candidate : buckets.getOrDefault(key, Set.of())) {
+                if (!candidate.equals(productId)) {
+                    candidates.add(candidate);
+                    if (candidates.size() == maxCandidates) {
+                        return candidates;
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private Neighbor[] pickNeighbors(Long productId) {
+        int[] signature = signatures.get(productId);
+        List<Neighbor> picked = new ArrayList<>();
+        for (Long candidate : candidates(productId)) {
+            double similarity = MinHasher.similarity(signature, signatures.get(candidate));
+            if (similarity >= minSimilarity) {
+                picked.add(new Neighbor(candidate, similarity));
+            }
+        }
+        return picked.stream()
+                .sorted(Comparator.comparingDouble(Neighbor::similarity).reversed()
+                        .thenComparingLong(Neighbor::productId))
+                .limit(neighborCount)
+                .toArray(Neighbor[]::new);
+    }
+
+    /**
+     * Updates the neighbors of a product after {@code productId} changed, without looking at its other candidates
+     * unless {@code productId} drops out of its neighbors.
+     */
+    private void offer(Long owner, Long productId) {
+        Neighbor[] current = neighbors.get(owner);
+        if (current == null) {
+            return;
+        }
+        double similarity = MinHasher.similarity(signatures.get(owner), signatures.get(productId));
+        boolean wasNeighbor = contains(current, productId);
+        List<Neighbor> updated = new ArrayList<>(current.length + 1);
+        for (Neighbor neighbor : current) {
+            if (neighbor.productId() != productId) {
+                updated.add(neighbor);
+            }
+        }
+        if (similarity >= minSimilarity) {
+            updated.add(new Neighbor(productId, similarity));
+        }
+        updated.sort(Comparator.comparingDouble(Neighbor::similarity).reversed()
+                .thenComparingLong(Neighbor::productId));
+        if (wasNeighbor && (similarity < minSimilarity || updated.indexOf(new Neighbor(productId, similarity))
+                >= neighborCount)) {
+            // A better candidate may have been left out, as only neighborCount of them were kept
+            neighbors.put(owner, pickNeighbors(owner));
+            return;
+        }
+        neighbors.put(owner, updated.subList(0, Math.min(neighborCount, updated.size())).toArray(Neighbor[]::new));
+    }
+
+    private static boolean contains(Neighbor[] list, long productId) {
+        if (list != null) {
+            for (Neighbor neighbor : list) {
+                if (neighbor.productId() == productId) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public record Neighbor(long productId, double similarity) {
+    }
+}
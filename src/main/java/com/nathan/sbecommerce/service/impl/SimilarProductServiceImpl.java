@@ -0,0 +1,55 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.dto.response.SimilarProductResponse;
+import com.nathan.sbecommerce.dto.response.SimilarProductsResponse;
+import com.nathan.sbecommerce.exception.APIException;
+import com.nathan.sbecommerce.exception.ResourceNotFoundException;
+import com.nathan.sbecommerce.service.SimilarProductService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves the similar products from {@link SimilarProductIndex}, without touching the database. While the index
+ * is being built at startup, or when it is full or disabled, products it does not hold have no similar products
+ * instead of being reported missing.
+ */
+@Service
+@RequiredArgsConstructor
+public class SimilarProductServiceImpl implements SimilarProductService {
+
+    private final SimilarProductIndex similarProductIndex;
+
+    @Value("${project.similar.neighbors:10}")
+    private int maxResults;
+
+    @Override
+    public SimilarProductsResponse getSimilarProducts(Long productId, Integer limit) {
+        if (limit < 1 || limit > maxResults) {
+            throw new APIException("limit must be between 1 and " + maxResults);
+        }
+        SimilarProductIndex.Neighbor[] neighbors = similarProductIndex.neighbors(productId);
+        if (neighbors == null) {
+            if (similarProductIndex.isComplete()) {
+                throw new ResourceNotFoundException("Product", "productId", productId);
+            }
+            return new SimilarProductsResponse(productId, List.of());
+        }
+        List<SimilarProductResponse> content = new ArrayList<>(Math.min(limit, neighbors.length));
+        for (SimilarProductIndex.Neighbor neighbor : neighbors) {
+            String productName = similarProductIndex.name(neighbor.productId());
+            // Deleted since the list was computed
+            if (productName == null) {
+                continue;
+            }
+            content.add(new SimilarProductResponse(neighbor.productId(), productName, neighbor.similarity()));
+            if (content.size() == limit) {
+                break;
+            }
+        }
+        return new SimilarProductsResponse(productId, content);
+    }
+}
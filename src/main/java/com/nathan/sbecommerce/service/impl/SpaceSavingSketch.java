@@ -0,0 +1,149 @@
+package com.nathan.sbecommerce.service.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Space-Saving summary of a weighted stream of product ids, which finds the heaviest products of an unbounded
+ * stream while keeping at most {@code capacity} of them.
+ *
+ * A product that is not tracked while the summary is full replaces the product with the smallest count, and
+ * inherits that count as its error. An estimate is thus never below the true count, and exceeds it by at most the
+ * total weight divided by the capacity; any product heavier than that bound is always tracked.
+ *
+ * Not thread-safe.
+ */
+public final class SpaceSavingSketch {
+
+    private final int capacity;
+
+    /**
+     * The counters form a min-heap on their count, so the smallest one is always at index 0. Counts are weighted,
+     * which rules out the bucket list of Stream-Summary (an increment could skip many buckets); with the heap, both
+     * an increment and a replacement move one counter down by at most log(capacity) levels. The arrays grow up to
+     * the capacity, since most per-category summaries never fill up.
+     */
+    private long[] ids;
+
+    private long[] counts;
+
+    private long[] errors;
+
+    /** Product id to its index in the heap arrays */
+    private final Map<Long, Integer> positions;
+
+    private int size;
+
+    private long total;
+
+    public SpaceSavingSketch(int capacity) {
+        this.capacity = capacity;
+        int initialLength = Math.min(capacity, 16);
+        this.ids = new long[initialLength];
+        this.counts = new long[initialLength];
+        this.errors = new long[initialLength];
+        this.positions = new HashMap<>();
+    }
+
+    public void add(long productId, long weight) {
+        total += weight;
+        Integer position = positions.get(productId);
+        if (position != null) {
+            counts[position] += weight;
+            siftDown(position);
+            return;
+        }
+        if (size < capacity) {
+            if (size == ids.length) {
+                int length = Math.min(capacity, ids.length * 2);
+                ids = Arrays.copyOf(ids, length);
+                counts = Arrays.copyOf(counts, length);
+                errors = Arrays.copyOf(errors, length);
+            }
+            set(size, productId, weight, 0);
+            siftUp(size++);
+            return;
+        }
+        positions.remove(ids[0]);
+        long floor = counts[0];
+        set(0, productId, floor + weight, floor);
+        siftDown(0);
+    }
+
+    /**
+     * @return the estimated count of a product, 0 when it is not tracked
+     */
+    public long estimate(long productId) {
+        Integer position = positions.get(productId);
+        return position == null ? 0 : counts[position];
+    }
+
+    /**
+     * @return how much the estimate of a product may exceed its true count
+     */
+    public long error(long productId) {
+        Integer position = positions.get(productId);
+        return position == null ? 0 : errors[position];
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds the estimate of every tracked product to {@code sums}.
+     */
+    public void addTo(Map<Long, Long> sums) {
+        for (int i = 0; i < size; i++) {
+            sums.merge(ids[i], counts[i], Long::sum);
+        }
+    }
+
+    private void set(int index, long productId, long count, long error) {
+        ids[index] = productId;
+        counts[index] = count;
+        errors[index] = error;
+        positions.put(productId, index);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (counts[parent] <= counts[index]) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int smallest = 2 * index + 1;
+            if (smallest >= size) {
+                return;
+            }
+            if (smallest + 1 < size && counts[smallest + 1] < counts[smallest]) {
+                smallest++;
+            }
+            if (counts[index] <= counts[smallest]) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long id = ids[i];
+        long count = counts[i];
+        long error = errors[i];
+        set(i, ids[j], counts[j], errors[j]);
+        set(j, id, count, error);
+    }
+}
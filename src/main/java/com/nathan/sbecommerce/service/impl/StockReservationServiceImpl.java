@@ -0,0 +1,178 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.dto.request.StockReservationRequest;
+import com.nathan.sbecommerce.dto.response.StockReservationResponse;
+import com.nathan.sbecommerce.exception.APIException;
+import com.nathan.sbecommerce.exception.InsufficientStockException;
+import com.nathan.sbecommerce.exception.ResourceNotFoundException;
+import com.nathan.sbecommerce.model.ReservationStatus;
+import com.nathan.sbecommerce.model.StockReservation;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.repository.StockReservationRepository;
+import com.nathan.sbecommerce.service.CategoryStatsService;
+import com.nathan.sbecommerce.service.StockReservationService;
+import lombok.RequiredArgsConstructor;
+import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reserves product stock with conditional updates, so that concurrent reservations never oversell.
+ *
+ * - A reservation of an ordinary product takes its stock with a single conditional UPDATE of the product row
+ *   and inserts the reservation in the same short transaction.
+ * - Products reserved many times per second are served by {@link HotStockCounters} from leased stock held in
+ *   memory, so that their reservations do not queue on the product row lock.
+ * - Releasing a reservation is a conditional UPDATE of the reservation row from RESERVED, so a reservation is
+ *   given back at most once even when release, expiry and checkout race.
+ * - A reservation belongs to the user who made it; reading or releasing another user's reservation answers as if
+ *   it did not exist. Quantities are capped like cart lines and TTLs by project.stock.max-reservation-ttl-seconds,
+ *   so a single user cannot hold a product's stock for long.
+ *
+ * Released stock always goes back to the product row, from which hot counters take their next lease. A reservation
+ * taking the last unit of a product, or a release giving stock back to a sold out one, updates the in stock count
+ * of its category in the same transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationServiceImpl.class);
+
+    private static final int EXPIRY_BATCH = 500;
+
+    private final StockReservationRepository stockReservationRepository;
+
+    private final ProductRepository productRepository;
+
+    private final HotStockCounters hotStockCounters;
+
+    private final CategoryStatsService categoryStatsService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ModelMapper modelMapper;
+
+    @Value("${project.stock.reservation-ttl-seconds:900}")
+    private long defaultTtlSeconds;
+
+    @Value("${project.stock.max-reservation-ttl-seconds:3600}")
+    private long maxTtlSeconds;
+
+    @Value("${project.cart.max-quantity:1000}")
+    private int maxQuantity;
+
+    @Override
+    public StockReservationResponse reserve(Long userId, StockReservationRequest reservationRequest) {
+        long ttlSeconds = reservationRequest.getTtlSeconds() == null ? defaultTtlSeconds : reservationRequest.getTtlSeconds();
+        if (ttlSeconds > maxTtlSeconds) {
+            throw new APIException("A reservation cannot last more than " + maxTtlSeconds + " seconds");
+        }
+        if (reservationRequest.getQuantity() > maxQuantity) {
+            throw new APIException("A reservation cannot hold more than " + maxQuantity + " units");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        StockReservation reservation = new StockReservation(UUID.randomUUID().toString(), userId,
+                reservationRequest.getProductId(), reservationRequest.getQuantity(), ReservationStatus.RESERVED,
+                now.plusSeconds(ttlSeconds), now, now);
+
+        if (hotStockCounters.isHot(reservation.getProductId())) {
+            return modelMapper.map(hotStockCounters.reserve(reservation), StockReservationResponse.class);
+        }
+        StockReservation savedReservation = transactionTemplate.execute(status -> {
+            if (productRepository.takeStock(reservation.getProductId(), reservation.getQuantity()) == 0) {
+                if (!productRepository.existsById(reservation.getProductId())) {
+                    throw new ResourceNotFoundException("Product", "productId", reservation.getProductId());
+                }
+                throw new InsufficientStockException(reservation.getProductId(), reservation.getQuantity());
+            }
+            if (productRepository.findQuantity(reservation.getProductId()) == 0) {
+                categoryStatsService.productsSoldOut(
+                        Collections.singletonList(productRepository.findCategoryId(reservation.getProductId())));
+            }
+            return stockReservationRepository.save(reservation);
+        });
+        return modelMapper.map(savedReservation, StockReservationResponse.class);
+    }
+
+    @Override
+    public StockReservationResponse getReservation(Long userId, String reservationId) {
+        return modelMapper.map(findReservation(userId, reservationId), StockReservationResponse.class);
+    }
+
+    @Override
+    public StockReservationResponse release(Long userId, String reservationId) {
+        StockReservation reservation = findReservation(userId, reservationId);
+        if (!giveBack(reservation, ReservationStatus.RELEASED)) {
+            throw new APIException("Reservation " + reservationId + " is " + currentStatus(reservation)
+                    + " and cannot be released");
+        }
+        return getReservation(userId, reservationId);
+    }
+
+    /**
+     * Gives back the stock of the reservations past their TTL, a batch at a time, each reservation in its own
+     * short transaction.
+     *
+     * @return the number of reservations expired
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${project.stock.expiry-interval-ms:5000}")
+    public int releaseExpired() {
+        int expired = 0;
+        List<StockReservation> batch;
+        do {
+            batch = stockReservationRepository.findExpired(LocalDateTime.now(), PageRequest.of(0, EXPIRY_BATCH));
+            for (StockReservation reservation : batch) {
+                if (giveBack(reservation, ReservationStatus.EXPIRED)) {
+                    expired++;
+                }
+            }
+        } while (batch.size() == EXPIRY_BATCH);
+        if (expired > 0) {
+            logger.debug("Expired {} stock reservations", expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Moves a reservation from RESERVED to a final status and returns its stock to the product, atomically.
+     *
+     * @return false when the reservation was not RESERVED any more
+     */
+    private boolean giveBack(StockReservation reservation, ReservationStatus status) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(transaction -> {
+            if (stockReservationRepository.finish(reservation.getReservationId(), status, LocalDateTime.now()) == 0) {
+                return false;
+            }
+            productRepository.returnStock(reservation.getProductId(), reservation.getQuantity());
+            // The product row is locked by the update, so it had no stock before exactly when it now holds the units
+            Integer quantity = productRepository.findQuantity(reservation.getProductId());
+            if (quantity != null && quantity.equals(reservation.getQuantity())) {
+                categoryStatsService.productsRestocked(
+                        Collections.singletonList(productRepository.findCategoryId(reservation.getProductId())));
+            }
+            return true;
+        }));
+    }
+
+    private ReservationStatus currentStatus(StockReservation reservation) {
+        ReservationStatus status = findReservation(reservation.getUserId(), reservation.getReservationId()).getStatus();
+        return status == ReservationStatus.RESERVED ? ReservationStatus.EXPIRED : status;
+    }
+
+    private StockReservation findReservation(Long userId, String reservationId) {
+        return stockReservationRepository.findByReservationIdAndUserId(reservationId, userId).orElseThrow(()
+                -> new ResourceNotFoundException("Stock reservation", "reservationId", reservationId));
+    }
+}
@@ -0,0 +1,156 @@
+package com.nathan.sbecommerce.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ranks the products by activity over a sliding window, globally and per category, in bounded memory.
+ *
+ * The window is split in buckets of {@code project.trending.bucket-minutes}. Each bucket holds a
+ * {@link SpaceSavingSketch} for all products and one per category, fed with the activity flushed by
+ * {@link ProductActivityCounters}; the oldest bucket is dropped as a new one starts. After each flush that changed
+ * something, the buckets are merged into immutable rankings, which readers get without any lock or query.
+ *
+ * Rankings are approximate (a score may be overestimated by the sketch error) and start empty after a restart.
+ */
+@Component
+public class TrendingProducts {
+
+    private final long bucketMillis;
+
+    private final int globalCapacity;
+
+    private final int categoryCapacity;
+
+    private final int retained;
+
+    private final Bucket[] buckets;
+
+    private int current;
+
+    private long currentStart = System.currentTimeMillis();
+
+    private boolean changed;
+
+    private volatile Rankings rankings = new Rankings(List.of(), Map.of());
+
+    public TrendingProducts(@Value("${project.trending.window-minutes:60}") int windowMinutes,
+                            @Value("${project.trending.bucket-minutes:5}") int bucketMinutes,
+                            @Value("${project.trending.global-capacity:1024}") int globalCapacity,
+                            @Value("${project.trending.category-capacity:128}") int categoryCapacity,
+                            @Value("${project.trending.max-results:50}") int maxResults) {
+        this.bucketMillis = bucketMinutes * 60_000L;
+        this.globalCapacity = globalCapacity;
+        this.categoryCapacity = categoryCapacity;
+        // Some slack, as products deleted or moved since they were ranked are left out when reading
+        this.retained = maxResults * 2;
+        this.buckets = new Bucket[Math.max(1, windowMinutes / bucketMinutes)];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    /**
+     * Adds the score of a product to the current bucket. Called by the flush, followed by {@link #publish()}.
+     */
+    synchronized void add(long productId, Long categoryId, long score) {
+        rotate();
+        Bucket bucket = buckets[current];
+        bucket.global.add(productId, score);
+        if (categoryId != null) {
+            bucket.byCategory.computeIfAbsent(categoryId, id -> new SpaceSavingSketch(categoryCapacity))
+                    .add(productId, score);
+        }
+        changed = true;
+    }
+
+    /**
+     * Rebuilds the rankings when products were added or a bucket left the window since the last call.
+     */
+    synchronized void publish() {
+        rotate();
+        if (!changed) {
+            return;
+        }
+        Map<Long, List<RankedProduct>> byCategory = new HashMap<>();
+        Map<Long, List<SpaceSavingSketch>> categorySketches = new HashMap<>();
+        List<SpaceSavingSketch> globalSketches = new ArrayList<>(buckets.length);
+        for (Bucket bucket : buckets) {
+            globalSketches.add(bucket.global);
+            bucket.byCategory.forEach((categoryId, sketch) ->
+                    categorySketches.computeIfAbsent(categoryId, id -> new ArrayList<>()).add(sketch));
+        }
+        categorySketches.forEach((categoryId, sketches) -> byCategory.put(categoryId, rank(sketches)));
+        rankings = new Rankings(rank(globalSketches), byCategory);
+        changed = false;
+    }
+
+    /**
+     * @return the products with the highest scores over the window, highest first
+     */
+    List<RankedProduct> global() {
+        return rankings.global();
+    }
+
+    /**
+     * @return the products of a category with the highest scores over the window, highest first
+     */
+    List<RankedProduct> byCategory(Long categoryId) {
+        return rankings.byCategory().getOrDefault(categoryId, List.of());
+    }
+
+    long windowMinutes() {
+        return buckets.length * bucketMillis / 60_000;
+    }
+
+    /**
+     * Starts new buckets for the time elapsed since the current one started, dropping the oldest ones.
+     */
+    private void rotate() {
+        long now = System.currentTimeMillis();
+        int rotations = 0;
+        while (now - currentStart >= bucketMillis && rotations < buckets.length) {
+            current = (current + 1) % buckets.length;
+            buckets[current] = new Bucket();
+            currentStart += bucketMillis;
+            rotations++;
+            changed = true;
+        }
+        if (now - currentStart >= bucketMillis) {
+            // Idle for longer than the window, every bucket was reset
+            currentStart = now;
+        }
+    }
+
+    private List<RankedProduct> rank(List<SpaceSavingSketch> sketches) {
+        Map<Long, Long> scores = new HashMap<>();
+        for (SpaceSavingSketch sketch : sketches) {
+            sketch.addTo(scores);
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(retained)
+                .map(entry -> new RankedProduct(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    record RankedProduct(long productId, long score) {
+    }
+
+    private record Rankings(List<RankedProduct> global, Map<Long, List<RankedProduct>> byCategory) {
+    }
+
+    private final class Bucket {
+
+        private final SpaceSavingSketch global = new SpaceSavingSketch(globalCapacity);
+
+        private final Map<Long, SpaceSavingSketch> byCategory = new HashMap<>();
+    }
+}
@@ -0,0 +1,91 @@
+package com.nathan.sbecommerce.service.impl;
+
+import com.nathan.sbecommerce.exception.UploadRejectedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Caps the number of image uploads stored at the same time and the total bandwidth they use.
+ *
+ * - Concurrency: at most {@code project.image.upload.max-concurrent} uploads are stored at once. An upload waits up
+ *   to {@code project.image.upload.queue-timeout-ms} for a slot and is then refused with 503, before its body is read.
+ * - Bandwidth: a token bucket shared by all uploads refills at {@code project.image.upload.max-bytes-per-second}
+ *   (0 disables it) and holds at most one second of traffic. An upload reading faster than its share sleeps,
+ *   which in turn slows down the client through TCP flow control.
+ */
+@Component
+public class UploadLimiter {
+
+    private final Semaphore slots;
+
+    private final long queueTimeoutMs;
+
+    private final long bytesPerSecond;
+
+    private double tokens;
+
+    private long lastRefillNanos = System.nanoTime();
+
+    public UploadLimiter(@Value("${project.image.upload.max-concurrent:4}") int maxConcurrent,
+                         @Value("${project.image.upload.queue-timeout-ms:2000}") long queueTimeoutMs,
+                         @Value("${project.image.upload.max-bytes-per-second:0}") long bytesPerSecond) {
+        this.slots = new Semaphore(maxConcurrent, true);
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.bytesPerSecond = bytesPerSecond;
+        this.tokens = bytesPerSecond;
+    }
+
+    /**
+     * Waits for an upload slot, which must be given back with {@link #releaseSlot()}.
+     *
+     * @throws UploadRejectedException with 503 when no slot frees up in time
+     */
+    public void acquireSlot() throws InterruptedIOException {
+        try {
+            if (!slots.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new UploadRejectedException("Too many uploads in progress, retry later",
+                        HttpStatus.SERVICE_UNAVAILABLE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an upload slot");
+        }
+    }
+
+    public void releaseSlot() {
+        slots.release();
+    }
+
+    /**
+     * Accounts for bytes just read from an upload, sleeping as long as needed to stay under the bandwidth cap.
+     *
+     * @param bytes the number of bytes read
+     */
+    public void throttle(int bytes) throws InterruptedIOException {
+        if (bytesPerSecond <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(bytesPerSecond, tokens + (now - lastRefillNanos) * bytesPerSecond / 1e9);
+            lastRefillNanos = now;
+            // Take the tokens right away and sleep off the debt, so waiting uploads are served in arrival order
+            tokens -= bytes;
+            waitNanos = tokens < 0 ? (long) (-tokens * 1e9 / bytesPerSecond) : 0;
+        }
+        if (waitNanos > 0) {
+            LockSupport.parkNanos(waitNanos);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling an upload");
+            }
+        }
+    }
+}
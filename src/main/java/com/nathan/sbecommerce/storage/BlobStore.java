@@ -0,0 +1,62 @@
+package com.nathan.sbecommerce.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Storage backend for image files, addressed by relative keys such as "7b/43/7b43...e7c.jpg".
+ *
+ * Implementations:
+ * - LocalBlobStore: a directory on the local disk, the only backend able to serve files with sendfile
+ * - InMemoryBlobStore: a map in the heap, for tests
+ * - S3BlobStore: an S3-compatible object store (AWS S3, MinIO, ...), written with parallel multipart uploads
+ *
+ * The backend is chosen with {@code project.image.storage} and wrapped in a ConcurrencyLimitedBlobStore that caps
+ * the calls in flight ({@code project.image.storage.max-concurrency}), so a slow backend cannot tie up every
+ * request thread. Keys are always written whole and never modified afterwards.
+ */
+public interface BlobStore {
+
+    /**
+     * @return the size and modification time of the blob, or null when it does not exist
+     */
+    BlobInfo stat(String key) throws IOException;
+
+    default boolean exists(String key) throws IOException {
+        return stat(key) != null;
+    }
+
+    /**
+     * Stores the content of a local file under a key, replacing any previous blob. The blob becomes visible
+     * only once it is complete. The source file may be moved by the backend; the caller deletes it afterwards if
+     * it still exists.
+     */
+    void put(String key, Path source) throws IOException;
+
+    /**
+     * Opens a byte range of a blob for streaming.
+     *
+     * @param offset first byte to read
+     * @param length number of bytes to read, or -1 to read up to the end
+     * @return the content, or null when the blob does not exist
+     */
+    InputStream open(String key, long offset, long length) throws IOException;
+
+    default InputStream open(String key) throws IOException {
+        return open(key, 0, -1);
+    }
+
+    void delete(String key) throws IOException;
+
+    /**
+     * @return the file holding the blob when the backend is the local disk, so it can be sent with zero-copy I/O
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    record BlobInfo(long size, long lastModified) {
+    }
+}
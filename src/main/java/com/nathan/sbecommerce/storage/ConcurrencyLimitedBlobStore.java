@@ -0,0 +1,106 @@
+package com.nathan.sbecommerce.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the number of calls in flight on a backend. A stream returned by {@link #open(String, long, long)} holds
+ * its permit until it is closed, since the transfer is what loads the backend.
+ */
+public class ConcurrencyLimitedBlobStore implements BlobStore {
+
+    private final BlobStore delegate;
+
+    private final Semaphore permits;
+
+    public ConcurrencyLimitedBlobStore(BlobStore delegate, int maxConcurrency) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    public BlobStore getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public BlobInfo stat(String key) throws IOException {
+        acquire();
+        try {
+            return delegate.stat(key);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        acquire();
+        try {
+            delegate.put(key, source);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        acquire();
+        InputStream input;
+        try {
+            input = delegate.open(key, offset, length);
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        if (input == null) {
+            permits.release();
+            return null;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return new FilterInputStream(input) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (released.compareAndSet(false, true)) {
+                        permits.release();
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        acquire();
+        try {
+            delegate.delete(key);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Local paths are not limited: the files are read by the servlet container, not through this store.
+     */
+    @Override
+    public Optional<Path> localPath(String key) {
+        return delegate.localPath(key);
+    }
+
+    private void acquire() throws InterruptedIOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the blob store");
+        }
+    }
+}
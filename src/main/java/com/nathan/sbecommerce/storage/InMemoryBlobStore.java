@@ -0,0 +1,53 @@
+package com.nathan.sbecommerce.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps blobs in the heap. Meant for tests ({@code project.image.storage=memory}): nothing is written to disk and
+ * nothing survives a restart.
+ */
+public class InMemoryBlobStore implements BlobStore {
+
+    private final ConcurrentHashMap<String, Blob> blobs = new ConcurrentHashMap<>();
+
+    @Override
+    public BlobInfo stat(String key) {
+        Blob blob = blobs.get(key);
+        return blob == null ? null : new BlobInfo(blob.content().length, blob.lastModified());
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        blobs.put(key, new Blob(Files.readAllBytes(source), System.currentTimeMillis()));
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) {
+        Blob blob = blobs.get(key);
+        if (blob == null) {
+            return null;
+        }
+        byte[] content = blob.content();
+        int start = (int) Math.min(offset, content.length);
+        int count = length < 0 ? content.length - start : (int) Math.min(length, content.length - start);
+        return new ByteArrayInputStream(content, start, count);
+    }
+
+    @Override
+    public void delete(String key) {
+        blobs.remove(key);
+    }
+
+    public Set<String> keys() {
+        return Set.copyOf(blobs.keySet());
+    }
+
+    private record Blob(byte[] content, long lastModified) {
+    }
+}
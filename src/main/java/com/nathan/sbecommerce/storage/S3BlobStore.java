@@ -0,0 +1,274 @@
+package com.nathan.sbecommerce.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stores blobs in a bucket of an S3-compatible object store, using path-style URLs
+ * ({@code {endpoint}/{bucket}/{key}}) so that it works the same against AWS and against a local stand-in such as
+ * MinIO ({@code project.image.storage.s3.endpoint=http://localhost:9000}).
+ *
+ * - Files up to {@code part-size-bytes} are written with a single PUT; larger ones with a multipart upload whose
+ *   parts are sent in parallel on {@code upload-threads} threads, each part read straight from the file.
+ * - Reads are streamed from the response body, with a Range header for partial reads.
+ * - Payloads are sent unsigned (UNSIGNED-PAYLOAD) so that files are not read twice; use an https endpoint.
+ */
+public class S3BlobStore implements BlobStore {
+
+    /**
+     * The smallest part S3 accepts, except for the last one.
+     */
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpClient httpClient;
+
+    private final S3RequestSigner signer;
+
+    private final URI endpoint;
+
+    private final String bucket;
+
+    private final long partSize;
+
+    private final ExecutorService partExecutor;
+
+    public S3BlobStore(String endpoint, String region, String bucket, String accessKey, String secretKey,
+                       long partSize, int uploadThreads) {
+        this.endpoint = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        this.bucket = bucket;
+        this.partSize = Math.max(MIN_PART_SIZE, partSize);
+        this.signer = new S3RequestSigner(accessKey, secretKey, region);
+        this.partExecutor = Executors.newFixedThreadPool(uploadThreads, task -> {
+            Thread thread = new Thread(task, "s3-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @Override
+    public BlobInfo stat(String key) throws IOException {
+        HttpResponse<Void> response = send(request("HEAD", key, new TreeMap<>(), null)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody()), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        check(response.statusCode(), "HEAD", key, null);
+        long size = response.headers().firstValueAsLong("Content-Length").orElse(0);
+        long lastModified = response.headers().firstValue("Last-Modified")
+                .map(value -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli())
+                .orElse(0L);
+        return new BlobInfo(size, lastModified);
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        long size = Files.size(source);
+        if (size <= partSize) {
+            HttpResponse<String> response = send(request("PUT", key, new TreeMap<>(), null)
+                    .PUT(HttpRequest.BodyPublishers.ofFile(source)), HttpResponse.BodyHandlers.ofString());
+            check(response.statusCode(), "PUT", key, response.body());
+            return;
+        }
+        putMultipart(key, source, size);
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        String range = null;
+        if (offset > 0 || length >= 0) {
+            range = "bytes=" + offset + "-" + (length >= 0 ? String.valueOf(offset + length - 1) : "");
+        }
+        HttpResponse<InputStream> response = send(request("GET", key, new TreeMap<>(), range).GET(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == 404) {
+            response.body().close();
+            return null;
+        }
+        if (response.statusCode() / 100 != 2) {
+            String body;
+            try (InputStream error = response.body()) {
+                body = new String(error.readNBytes(1024), StandardCharsets.UTF_8);
+            }
+            check(response.statusCode(), "GET", key, body);
+        }
+        return response.body();
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpResponse<String> response = send(request("DELETE", key, new TreeMap<>(), null).DELETE(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 404) {
+            check(response.statusCode(), "DELETE", key, response.body());
+        }
+    }
+
+    /**
+     * Sends a large file as a multipart upload, all parts in parallel, and aborts the upload if any part fails so
+     * that no orphaned parts are left in the bucket.
+     */
+    private void putMultipart(String key, Path source, long size) throws IOException {
+        TreeMap<String, String> createQuery = new TreeMap<>();
+        createQuery.put("uploads", "");
+        HttpResponse<String> created = send(request("POST", key, createQuery, null)
+                .POST(HttpRequest.BodyPublishers.noBody()), HttpResponse.BodyHandlers.ofString());
+        check(created.statusCode(), "POST uploads", key, created.body());
+        Matcher matcher = UPLOAD_ID.matcher(created.body());
+        if (!matcher.find()) {
+            throw new IOException("S3 did not return an upload id for " + key);
+        }
+        String uploadId = matcher.group(1);
+
+        try {
+            int parts = (int) ((size + partSize - 1) / partSize);
+            List<CompletableFuture<String>> etags = new ArrayList<>(parts);
+            for (int part = 1; part <= parts; part++) {
+                long offset = (part - 1) * partSize;
+                long length = Math.min(partSize, size - offset);
+                int partNumber = part;
+                etags.add(CompletableFuture.supplyAsync(
+                        () -> uploadPart(key, uploadId, partNumber, source, offset, length), partExecutor));
+            }
+            CompletableFuture.allOf(etags.toArray(new CompletableFuture[0])).join();
+
+            StringBuilder complete = new StringBuilder("<CompleteMultipartUpload>");
+            for (int part = 1; part <= parts; part++) {
+                complete.append("<Part><PartNumber>").append(part).append("</PartNumber><ETag>")
+                        .append(etags.get(part - 1).join()).append("</ETag></Part>");
+            }
+            complete.append("</CompleteMultipartUpload>");
+
+            TreeMap<String, String> completeQuery = new TreeMap<>();
+            completeQuery.put("uploadId", uploadId);
+            HttpResponse<String> completed = send(request("POST", key, completeQuery, null)
+                            .POST(HttpRequest.BodyPublishers.ofString(complete.toString())),
+                    HttpResponse.BodyHandlers.ofString());
+            check(completed.statusCode(), "POST complete", key, completed.body());
+            // S3 may report a failed completion with a 200 and an error document
+            if (completed.body().contains("<Error>")) {
+                throw new IOException("S3 multipart upload of " + key + " failed: " + completed.body());
+            }
+        } catch (CompletionException | IOException e) {
+            abort(key, uploadId);
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    private String uploadPart(String key, String uploadId, int partNumber, Path source, long offset, long length) {
+        TreeMap<String, String> query = new TreeMap<>();
+        query.put("partNumber", String.valueOf(partNumber));
+        query.put("uploadId", uploadId);
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(() -> {
+                    try {
+                        FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+                        channel.position(offset);
+                        return new BoundedInputStream(Channels.newInputStream(channel), length);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }), length);
+        try {
+            HttpResponse<String> response = send(request("PUT", key, query, null).PUT(body),
+                    HttpResponse.BodyHandlers.ofString());
+            check(response.statusCode(), "PUT part " + partNumber, key, response.body());
+            return response.headers().firstValue("ETag")
+                    .orElseThrow(() -> new IOException("S3 returned no ETag for part " + partNumber + " of " + key));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void abort(String key, String uploadId) {
+        TreeMap<String, String> query = new TreeMap<>();
+        query.put("uploadId", uploadId);
+        try {
+            send(request("DELETE", key, query, null).DELETE(), HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            // The bucket lifecycle rule for incomplete uploads cleans up what is left
+        }
+    }
+
+    /**
+     * Builds a signed request for a key. The body is not signed (UNSIGNED-PAYLOAD).
+     */
+    private HttpRequest.Builder request(String method, String key, SortedMap<String, String> query, String range) {
+        String canonicalUri = endpoint.getRawPath() + "/" + S3RequestSigner.uriEncode(bucket, false)
+                + "/" + S3RequestSigner.uriEncode(key, true);
+        String canonicalQuery = S3RequestSigner.canonicalQuery(query);
+        URI uri = URI.create(endpoint.getScheme() + "://" + endpoint.getRawAuthority() + canonicalUri
+                + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery));
+
+        TreeMap<String, String> headers = new TreeMap<>();
+        headers.put("host", endpoint.getPort() == -1 ? endpoint.getHost() : endpoint.getHost() + ":" + endpoint.getPort());
+        headers.put("x-amz-content-sha256", S3RequestSigner.UNSIGNED_PAYLOAD);
+        headers.put("x-amz-date", S3RequestSigner.amzDate(ZonedDateTime.now()));
+        if (range != null) {
+            headers.put("range", range);
+        }
+        String authorization = signer.authorization(method, canonicalUri, canonicalQuery, headers,
+                S3RequestSigner.UNSIGNED_PAYLOAD);
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(TIMEOUT)
+                .header("Authorization", authorization);
+        headers.forEach((name, value) -> {
+            if (!name.equals("host")) {
+                builder.header(name, value);
+            }
+        });
+        return builder;
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest.Builder request, HttpResponse.BodyHandler<T> bodyHandler)
+            throws IOException {
+        try {
+            return httpClient.send(request.build(), bodyHandler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while calling S3");
+        }
+    }
+
+    private static void check(int status, String operation, String key, String body) throws IOException {
+        if (status / 100 != 2) {
+            throw new IOException("S3 " + operation + " " + key + " failed with status " + status
+                    + (body == null || body.isEmpty() ? "" : ": " + body));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.monitoring.SqlStatementListener;
+import com.nathan.sbecommerce.monitoring.SqlStatementStats;
+import com.nathan.sbecommerce.service.impl.CartWorkingSet;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * Changes carts through the working set and checks when they are written, evicted, reloaded and expired. The
+ * scheduled flush and eviction are pushed out of the way, the tests run them by hand.
+ */
+@SpringBootTest(properties = {
+        "project.cart.flush-interval-ms=3600000",
+        "project.cart.eviction-interval-ms=3600000",
+        "project.cart.idle-eviction-ms=50"
+})
+class CartWorkingSetTests {
+
+    private static final AtomicLong USER_IDS = new AtomicLong(9_000_000);
+
+    @Autowired
+    private CartWorkingSet cartWorkingSet;
+
+    @MockitoSpyBean
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void manyChangesToACartEndInASingleWrite() {
+        long userId = USER_IDS.incrementAndGet();
+        for (int i = 0; i < 50; i++) {
+            long productId = 100 + i % 5;
+            cartWorkingSet.update(userId, cart -> {
+                cart.set(productId, cart.quantityOf(productId) + 1);
+                return null;
+            });
+        }
+
+        SqlStatementStats stats = counted(() -> {
+            cartWorkingSet.flush();
+            return null;
+        });
+
+        // Delete lines, delete header, insert header, insert lines: one batch each
+        assertEquals(4, stats.getStatementCount());
+        assertEquals(List.of(10, 10, 10, 10, 10), storedQuantities(userId));
+        assertEquals(0, counted(() -> {
+            cartWorkingSet.flush();
+            return null;
+        }).getStatementCount());
+    }
+
+    @Test
+    void linesSurviveAFailedFlushAndAreWrittenByTheNextOne() {
+        long userId = USER_IDS.incrementAndGet();
+        set(userId, 7, 2);
+        set(userId, 8, 3);
+        doThrow(new DataAccessResourceFailureException("database unavailable"))
+                .doCallRealMethod()
+                .when(jdbcTemplate).batchUpdate(eq("delete from cart_items where user_id = ?"), anyList());
+
+        cartWorkingSet.flush();
+        assertEquals(List.of(), storedQuantities(userId));
+        assertEquals(2, size(userId));
+
+        cartWorkingSet.flush();
+        assertEquals(List.of(2, 3), storedQuantities(userId));
+    }
+
+    @Test
+    void idleCartsLeaveMemoryOnceWrittenAndAreReloaded() throws InterruptedException {
+        long userId = USER_IDS.incrementAndGet();
+        set(userId, 11, 4);
+        Thread.sleep(100);
+
+        cartWorkingSet.evictAndExpire();
+        assertEquals(0, read(userId, 11).getStatementCount(), "a cart not written yet stays in memory");
+
+        cartWorkingSet.flush();
+        Thread.sleep(100);
+        cartWorkingSet.evictAndExpire();
+
+        SqlStatementStats reload = read(userId, 11);
+        assertTrue(reload.getStatementCount() > 0, "an evicted cart is loaded again");
+        assertEquals(4, quantityOf(userId, 11));
+        assertEquals(0, read(userId, 11).getStatementCount());
+    }
+
+    @Test
+    void anExpiredCartLeavesMemoryWithItsRows() {
+        long userId = USER_IDS.incrementAndGet();
+        store(userId, LocalDateTime.now().minusDays(10), 21, 1);
+        assertEquals(1, quantityOf(userId, 21));
+
+        Object ttlDays = ReflectionTestUtils.getField(cartWorkingSet, "ttlDays");
+        ReflectionTestUtils.setField(cartWorkingSet, "ttlDays", 5L);
+        try {
+            cartWorkingSet.evictAndExpire();
+        } finally {
+            ReflectionTestUtils.setField(cartWorkingSet, "ttlDays", ttlDays);
+        }
+
+        assertEquals(List.of(), storedQuantities(userId));
+        assertEquals(0, size(userId));
+    }
+
+    @Test
+    void aCartPastItsExpiryIsLoadedEmpty() {
+        long userId = USER_IDS.incrementAndGet();
+        store(userId, LocalDateTime.now().minusDays(40), 31, 2);
+
+        assertEquals(0, size(userId));
+    }
+
+    private void set(long userId, long productId, int quantity) {
+        cartWorkingSet.update(userId, cart -> {
+            cart.set(productId, quantity);
+            return null;
+        });
+    }
+
+    private int size(long userId) {
+        return cartWorkingSet.read(userId, CartWorkingSet.CartState::size);
+    }
+
+    private int quantityOf(long userId, long productId) {
+        return cartWorkingSet.read(userId, cart -> cart.quantityOf(productId));
+    }
+
+    /**
+     * Reads the quantity of a product and returns the statements the read needed.
+     */
+    private SqlStatementStats read(long userId, long productId) {
+        return counted(() -> quantityOf(userId, productId));
+    }
+
+    private static SqlStatementStats counted(Supplier<?> action) {
+        SqlStatementStats stats = SqlStatementListener.begin();
+        try {
+            action.get();
+        } finally {
+            SqlStatementListener.end();
+        }
+        return stats;
+    }
+
+    /**
+     * Writes a cart straight to the tables, as a previous run of the application would have.
+     */
+    private void store(long userId, LocalDateTime updatedAt, long productId, int quantity) {
+        jdbcTemplate.update("insert into carts (user_id, updated_at) values (?, ?)", userId,
+                Timestamp.valueOf(updatedAt));
+        jdbcTemplate.update("insert into cart_items (user_id, product_id, quantity, position) values (?, ?, ?, 0)",
+                userId, productId, quantity);
+    }
+
+    private List<Integer> storedQuantities(long userId) {
+        return jdbcTemplate.queryForList("select quantity from cart_items where user_id = ? order by position",
+                Integer.class, userId);
+    }
+}
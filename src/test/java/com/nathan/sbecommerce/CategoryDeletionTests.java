@@ -0,0 +1,141 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.dto.response.CategoryDeletionResponse;
+import com.nathan.sbecommerce.exception.ResourceNotFoundException;
+import com.nathan.sbecommerce.model.CategoryDeletionJob;
+import com.nathan.sbecommerce.model.JobStatus;
+import com.nathan.sbecommerce.model.Product;
+import com.nathan.sbecommerce.model.ProductImage;
+import com.nathan.sbecommerce.repository.CategoryDeletionJobRepository;
+import com.nathan.sbecommerce.repository.CategoryRepository;
+import com.nathan.sbecommerce.repository.CategoryStatsRepository;
+import com.nathan.sbecommerce.repository.ProductImageRepository;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.service.CategoryService;
+import com.nathan.sbecommerce.service.impl.CategoryDeletionWorker;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Deletes a category holding several chunks of products through the background worker, and checks that the job
+ * counts every product, that the products, their gallery rows, the category and its aggregates are gone, and that
+ * the aggregates of another category are untouched. Also sends concurrent requests to delete the same category and
+ * checks that they share a single job.
+ */
+@SpringBootTest
+class CategoryDeletionTests {
+
+    private static final int PRODUCTS = 25;
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CategoryDeletionWorker categoryDeletionWorker;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CategoryDeletionJobRepository categoryDeletionJobRepository;
+
+    @Autowired
+    private CategoryStatsRepository categoryStatsRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    @Autowired
+    private TestCatalog testCatalog;
+
+    @Test
+    void deletesEveryChunkThenTheCategory() throws InterruptedException {
+        Long categoryId = testCatalog.category("Deleted category");
+        Long keptId = testCatalog.category("Kept category");
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            productIds.add(testCatalog.product(categoryId, 1, 10.0 + i, 0.0));
+        }
+        Product withGallery = productRepository.findById(productIds.get(0)).orElseThrow();
+        productImageRepository.saveAll(List.of(new ProductImage(withGallery, "first.png", 1),
+                new ProductImage(withGallery, "second.png", 2)));
+        testCatalog.product(keptId, 1, 5.0, 0.0);
+        assertEquals(PRODUCTS, categoryStatsRepository.findById(categoryId).orElseThrow().getProductCount());
+
+        Object chunkSize = ReflectionTestUtils.getField(categoryDeletionWorker, "chunkSize");
+        ReflectionTestUtils.setField(categoryDeletionWorker, "chunkSize", 10);
+        CategoryDeletionResponse job;
+        try {
+            job = categoryService.deleteCategory(categoryId);
+            for (int i = 0; i < 200 && job.getStatus() != JobStatus.COMPLETED && job.getStatus() != JobStatus.FAILED; i++) {
+                Thread.sleep(50);
+                job = categoryService.getCategoryDeletion(job.getJobId());
+            }
+        } finally {
+            ReflectionTestUtils.setField(categoryDeletionWorker, "chunkSize", chunkSize);
+        }
+
+        assertEquals(JobStatus.COMPLETED, job.getStatus(), job.getError());
+        assertEquals(PRODUCTS, job.getDeletedProducts());
+        assertTrue(productRepository.findAllById(productIds).isEmpty());
+        assertTrue(productImageRepository.findImageKeysByProductIdIn(productIds).isEmpty());
+        assertFalse(categoryRepository.existsById(categoryId));
+        assertTrue(categoryStatsRepository.findById(categoryId).isEmpty());
+        assertEquals(1, categoryStatsRepository.findById(keptId).orElseThrow().getProductCount());
+    }
+
+    @Test
+    void concurrentRequestsShareASingleJob() throws Exception {
+        Long categoryId = testCatalog.category("Concurrently deleted category");
+        for (int i = 0; i < PRODUCTS; i++) {
+            testCatalog.product(categoryId, 1, 10.0, 0.0);
+        }
+
+        Set<Long> jobIds = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(executor.submit(() -> {
+                start.await();
+                try {
+                    jobIds.add(categoryService.deleteCategory(categoryId).getJobId());
+                } catch (ResourceNotFoundException e) {
+                    // The job already finished and the category is gone
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        executor.shutdown();
+
+        List<CategoryDeletionJob> jobs = categoryDeletionJobRepository.findAll().stream()
+                .filter(job -> job.getCategoryId().equals(categoryId))
+                .toList();
+        assertEquals(1, jobs.size());
+        assertEquals(Set.of(jobs.get(0).getJobId()), jobIds);
+    }
+}
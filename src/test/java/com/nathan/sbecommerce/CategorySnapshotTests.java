@@ -0,0 +1,100 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.dto.request.CategoryRequest;
+import com.nathan.sbecommerce.dto.response.CategoryResponse;
+import com.nathan.sbecommerce.monitoring.SqlStatementListener;
+import com.nathan.sbecommerce.monitoring.SqlStatementStats;
+import com.nathan.sbecommerce.service.CategoryService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lists categories through the service and checks that pages come out of the in-memory snapshot in the requested
+ * order, without a query once the snapshot is built, and that a new category shows up only once committed.
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CategorySnapshotTests {
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeAll
+    void seedCategories() {
+        for (String name : List.of("Snapshot cameras", "Snapshot audio", "Snapshot books", "Snapshot desks")) {
+            categoryService.createCategory(new CategoryRequest(null, name, null, null));
+        }
+    }
+
+    @Test
+    void pagesFollowTheRequestedOrder() {
+        List<CategoryRequest> ascending = all("categoryName", "asc");
+        List<String> names = ascending.stream().map(CategoryRequest::getCategoryName).toList();
+        assertEquals(names.stream().sorted().toList(), names);
+        List<String> seeded = names.stream().filter(name -> name.startsWith("Snapshot ")).toList();
+        assertEquals(List.of("Snapshot audio", "Snapshot books", "Snapshot cameras", "Snapshot desks"), seeded);
+
+        List<CategoryRequest> descending = all("categoryName", "desc");
+        assertEquals(ascending.reversed(), descending);
+
+        List<CategoryRequest> byId = all("categoryId", "asc");
+        assertEquals(byId.stream().sorted(Comparator.comparing(CategoryRequest::getCategoryId)).toList(), byId);
+
+        CategoryResponse secondPage = categoryService.getCategories(1, 2, "categoryName", "asc");
+        assertEquals(ascending.subList(2, Math.min(4, ascending.size())), secondPage.getContent());
+        assertEquals(ascending.size(), secondPage.getTotalElements());
+        assertEquals((ascending.size() + 1) / 2, secondPage.getTotalPages());
+        assertEquals(ascending.size() <= 4, secondPage.getLastPage());
+    }
+
+    @Test
+    void aWarmSnapshotIsListedWithoutAnyStatement() {
+        categoryService.getCategories(0, 10, "categoryName", "asc");
+
+        SqlStatementStats stats = SqlStatementListener.begin();
+        try {
+            categoryService.getCategories(0, 10, "categoryName", "asc");
+            categoryService.getCategories(1, 2, "createdAt", "desc");
+        } finally {
+            SqlStatementListener.end();
+        }
+
+        assertEquals(0, stats.getStatementCount());
+    }
+
+    @Test
+    void aNewCategoryIsListedOnlyOnceCommitted() {
+        String name = "Committed snapshot category";
+        all("categoryName", "asc");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            categoryService.createCategory(new CategoryRequest(null, name, null, null));
+            assertFalse(names().contains(name));
+        });
+
+        assertTrue(names().contains(name));
+    }
+
+    private List<String> names() {
+        return all("categoryName", "asc").stream().map(CategoryRequest::getCategoryName).toList();
+    }
+
+    private List<CategoryRequest> all(String sortBy, String sortOrder) {
+        return categoryService.getCategories(0, Integer.MAX_VALUE, sortBy, sortOrder).getContent();
+    }
+}
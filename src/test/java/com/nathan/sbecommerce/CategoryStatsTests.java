@@ -0,0 +1,114 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.dto.request.CategoryRequest;
+import com.nathan.sbecommerce.dto.request.ProductRequest;
+import com.nathan.sbecommerce.model.CategoryStats;
+import com.nathan.sbecommerce.repository.CategoryStatsRepository;
+import com.nathan.sbecommerce.service.CategoryService;
+import com.nathan.sbecommerce.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Writes products through the service and checks the category aggregates, in particular when the product written
+ * holds the minimum or maximum price and the row has to be recomputed.
+ */
+@SpringBootTest
+class CategoryStatsTests {
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryStatsRepository categoryStatsRepository;
+
+    @Test
+    void updatingTheProductsHoldingTheBoundsNarrowsTheRanges() {
+        Long categoryId = createCategory("Stats update bounds");
+        Long cheapest = addProduct("Stats cheapest", categoryId, 10.0, 5);
+        addProduct("Stats middle", categoryId, 20.0, 5);
+        Long dearest = addProduct("Stats dearest", categoryId, 30.0, 5);
+
+        updateProduct(dearest, "Stats dearest", 25.0, 5);
+        assertStats(categoryId, 3, 3, 10.0, 25.0);
+
+        updateProduct(cheapest, "Stats cheapest", 15.0, 5);
+        assertStats(categoryId, 3, 3, 15.0, 25.0);
+
+        updateProduct(cheapest, "Stats cheapest", 40.0, 0);
+        assertStats(categoryId, 3, 2, 20.0, 40.0);
+    }
+
+    @Test
+    void updatingAProductInsideTheBoundsAdjustsTheRowInPlace() {
+        Long categoryId = createCategory("Stats update inside");
+        addProduct("Stats low", categoryId, 10.0, 5);
+        Long middle = addProduct("Stats mid", categoryId, 20.0, 5);
+        addProduct("Stats high", categoryId, 30.0, 5);
+
+        updateProduct(middle, "Stats mid", 50.0, 0);
+
+        assertStats(categoryId, 3, 2, 10.0, 50.0);
+    }
+
+    @Test
+    void deletingTheProductsHoldingTheBoundsNarrowsTheRanges() {
+        Long categoryId = createCategory("Stats delete bounds");
+        Long cheapest = addProduct("Stats delete cheapest", categoryId, 10.0, 5);
+        Long middle = addProduct("Stats delete middle", categoryId, 20.0, 0);
+        Long dearest = addProduct("Stats delete dearest", categoryId, 30.0, 5);
+
+        productService.deleteProduct(cheapest);
+        assertStats(categoryId, 2, 1, 20.0, 30.0);
+
+        productService.deleteProduct(dearest);
+        assertStats(categoryId, 1, 0, 20.0, 20.0);
+
+        productService.deleteProduct(middle);
+        CategoryStats stats = categoryStatsRepository.findById(categoryId).orElseThrow();
+        assertEquals(0, stats.getProductCount());
+        assertEquals(0, stats.getInStockCount());
+        assertNull(stats.getMinPrice());
+        assertNull(stats.getMaxPrice());
+    }
+
+    private void assertStats(Long categoryId, long products, long inStock, double minPrice, double maxPrice) {
+        CategoryStats stats = categoryStatsRepository.findById(categoryId).orElseThrow();
+        assertEquals(products, stats.getProductCount());
+        assertEquals(inStock, stats.getInStockCount());
+        assertEquals(minPrice, stats.getMinPrice());
+        assertEquals(maxPrice, stats.getMaxPrice());
+        // Every product has a 10% discount
+        assertEquals(minPrice * 0.9, stats.getMinSpecialPrice(), 1e-9);
+        assertEquals(maxPrice * 0.9, stats.getMaxSpecialPrice(), 1e-9);
+    }
+
+    private Long createCategory(String name) {
+        return categoryService.createCategory(new CategoryRequest(null, name, null, null)).getCategoryId();
+    }
+
+    private Long addProduct(String name, Long categoryId, double price, int quantity) {
+        return productService.addProduct(product(name, price, quantity), categoryId).getProductId();
+    }
+
+    private void updateProduct(Long productId, String name, double price, int quantity) {
+        productService.updateProduct(product(name, price, quantity), productId);
+    }
+
+    private static ProductRequest product(String name, double price, int quantity) {
+        ProductRequest product = new ProductRequest();
+        product.setProductName(name);
+        product.setDescription("A product used to test the category aggregates");
+        product.setQuantity(quantity);
+        product.setPrice(price);
+        product.setDiscount(10.0);
+        return product;
+    }
+}
@@ -0,0 +1,126 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.dto.request.CategoryRequest;
+import com.nathan.sbecommerce.dto.request.ProductRequest;
+import com.nathan.sbecommerce.exception.APIException;
+import com.nathan.sbecommerce.model.Category;
+import com.nathan.sbecommerce.repository.CategoryRepository;
+import com.nathan.sbecommerce.service.CategoryService;
+import com.nathan.sbecommerce.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Builds category trees through the service and checks the materialized paths after a move, the rejected moves,
+ * the depth limit, and listing the products of a whole subtree.
+ */
+@SpringBootTest
+class CategoryTreeTests {
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Test
+    void movingACategoryRewritesThePathsAndDepthsOfItsSubtree() {
+        Long home = create("Tree home", null);
+        Long kitchen = create("Tree kitchen", home);
+        Long knives = create("Tree knives", kitchen);
+        Long chefKnives = create("Tree chef knives", knives);
+        Long outdoor = create("Tree outdoor", null);
+
+        categoryService.moveCategory(knives, outdoor);
+
+        assertEquals("/" + outdoor + "/" + knives + "/", category(knives).getPath());
+        assertEquals(1, category(knives).getDepth());
+        assertEquals("/" + outdoor + "/" + knives + "/" + chefKnives + "/", category(chefKnives).getPath());
+        assertEquals(2, category(chefKnives).getDepth());
+        assertEquals(outdoor, category(knives).getParent().getCategoryId());
+        assertEquals("/" + home + "/" + kitchen + "/", category(kitchen).getPath());
+
+        categoryService.moveCategory(knives, null);
+
+        assertEquals("/" + knives + "/", category(knives).getPath());
+        assertEquals(0, category(knives).getDepth());
+        assertEquals("/" + knives + "/" + chefKnives + "/", category(chefKnives).getPath());
+        assertEquals(1, category(chefKnives).getDepth());
+    }
+
+    @Test
+    void aCategoryCannotBeMovedUnderItself() {
+        Long garden = create("Tree garden", null);
+        Long tools = create("Tree garden tools", garden);
+
+        assertThrows(APIException.class, () -> categoryService.moveCategory(garden, garden));
+        assertThrows(APIException.class, () -> categoryService.moveCategory(garden, tools));
+        assertEquals("/" + garden + "/" + tools + "/", category(tools).getPath());
+    }
+
+    @Test
+    void categoriesCannotBeNestedDeeperThanTheLimit() {
+        Long parent = null;
+        for (int depth = 0; depth <= Category.MAX_DEPTH; depth++) {
+            parent = create("Tree level " + depth, parent);
+        }
+        assertEquals(Category.MAX_DEPTH, category(parent).getDepth());
+        Long deepest = parent;
+
+        assertThrows(APIException.class, () -> create("Tree level too deep", deepest));
+
+        Long branch = create("Tree branch", null);
+        create("Tree branch leaf", branch);
+        assertThrows(APIException.class, () -> categoryService.moveCategory(branch, deepest));
+        assertEquals(0, category(branch).getDepth());
+    }
+
+    @Test
+    void includingDescendantsListsTheProductsOfSubCategories() {
+        Long sports = create("Tree sports", null);
+        Long running = create("Tree running", sports);
+        Long trail = create("Tree trail running", running);
+        addProduct("Tree ball", sports);
+        addProduct("Tree shoes", running);
+        addProduct("Tree trail shoes", trail);
+
+        assertEquals(Set.of("Tree ball"), productNames(sports, false));
+        assertEquals(Set.of("Tree ball", "Tree shoes", "Tree trail shoes"), productNames(sports, true));
+        assertEquals(Set.of("Tree shoes", "Tree trail shoes"), productNames(running, true));
+    }
+
+    private Long create(String name, Long parentId) {
+        return categoryService.createCategory(new CategoryRequest(null, name, parentId, null)).getCategoryId();
+    }
+
+    private Category category(Long categoryId) {
+        return categoryRepository.findById(categoryId).orElseThrow();
+    }
+
+    private void addProduct(String name, Long categoryId) {
+        ProductRequest product = new ProductRequest();
+        product.setProductName(name);
+        product.setDescription("A product used to test category trees");
+        product.setQuantity(10);
+        product.setPrice(50.0);
+        product.setDiscount(0.0);
+        productService.addProduct(product, categoryId);
+    }
+
+    private Set<String> productNames(Long categoryId, boolean includeDescendants) {
+        List<ProductRequest> products = productService.searchByCategory(categoryId, includeDescendants, 0, 50,
+                "productId", "asc").getProductRequests();
+        return products.stream().map(ProductRequest::getProductName).collect(Collectors.toSet());
+    }
+}
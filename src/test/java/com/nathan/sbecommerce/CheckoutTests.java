@@ -0,0 +1,184 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.dto.request.CheckoutItemRequest;
+import com.nathan.sbecommerce.dto.request.CheckoutRequest;
+import com.nathan.sbecommerce.dto.request.StockReservationRequest;
+import com.nathan.sbecommerce.dto.response.OrderResponse;
+import com.nathan.sbecommerce.dto.response.StockReservationResponse;
+import com.nathan.sbecommerce.exception.APIException;
+import com.nathan.sbecommerce.exception.InsufficientStockException;
+import com.nathan.sbecommerce.exception.ResourceNotFoundException;
+import com.nathan.sbecommerce.model.Address;
+import com.nathan.sbecommerce.model.ReservationStatus;
+import com.nathan.sbecommerce.model.Users;
+import com.nathan.sbecommerce.repository.AddressRepository;
+import com.nathan.sbecommerce.repository.CategoryStatsRepository;
+import com.nathan.sbecommerce.repository.OrderRepository;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.repository.StockReservationRepository;
+import com.nathan.sbecommerce.repository.UserRepository;
+import com.nathan.sbecommerce.service.OrderService;
+import com.nathan.sbecommerce.service.StockReservationService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Places orders through the checkout service and checks that stock is taken exactly once per idempotency key,
+ * that a failed checkout leaves no trace, and that reserved stock is ordered without being taken twice.
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CheckoutTests {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private CategoryStatsRepository categoryStatsRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestCatalog testCatalog;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    private Long userId;
+
+    private Long addressId;
+
+    @BeforeAll
+    void seedUser() {
+        Users user = userRepository.save(new Users("checkout-user", "checkout-user@example.com", "password"));
+        userId = user.getUserId();
+        Address address = new Address("Cameroon", "Building 1", "Douala", "123456", "Littoral", "Main street");
+        address.setUsers(List.of(user));
+        addressId = addressRepository.save(address).getAddressId();
+    }
+
+    @Test
+    void retryReturnsTheSameOrderWithoutTakingStockAgain() {
+        Long productId = testCatalog.product(10);
+        CheckoutRequest request = new CheckoutRequest(addressId, List.of(new CheckoutItemRequest(productId, 3)));
+
+        OrderResponse first = orderService.checkout(userId, "retry-key", request);
+        OrderResponse retry = orderService.checkout(userId, "retry-key", request);
+
+        assertEquals(first.getOrderId(), retry.getOrderId());
+        assertEquals(first.getTotalAmount(), retry.getTotalAmount());
+        assertEquals(7, productRepository.findQuantity(productId));
+    }
+
+    @Test
+    void rejectsAKeyReusedForAnotherCheckout() {
+        Long productId = testCatalog.product(10);
+        orderService.checkout(userId, "reused-key",
+                new CheckoutRequest(addressId, List.of(new CheckoutItemRequest(productId, 3))));
+
+        assertThrows(APIException.class, () -> orderService.checkout(userId, "reused-key",
+                new CheckoutRequest(addressId, List.of(new CheckoutItemRequest(productId, 4)))));
+        assertEquals(7, productRepository.findQuantity(productId));
+    }
+
+    @Test
+    void aLineShortOfStockRollsBackTheWholeOrder() {
+        Long available = testCatalog.product(5);
+        Long scarce = testCatalog.product(1);
+
+        assertThrows(InsufficientStockException.class, () -> orderService.checkout(userId, "short-key",
+                new CheckoutRequest(addressId, List.of(new CheckoutItemRequest(available, 2),
+                        new CheckoutItemRequest(scarce, 2)))));
+
+        assertEquals(5, productRepository.findQuantity(available));
+        assertEquals(1, productRepository.findQuantity(scarce));
+        assertTrue(orderRepository.findByUserIdAndIdempotencyKey(userId, "short-key").isEmpty());
+    }
+
+    @Test
+    void rejectsQuantitiesThatAreNotPositiveOrOverflow() {
+        Long productId = testCatalog.product(10);
+
+        assertThrows(APIException.class, () -> orderService.checkout(userId, "overflow-key",
+                new CheckoutRequest(addressId, List.of(new CheckoutItemRequest(productId, Integer.MAX_VALUE),
+                        new CheckoutItemRequest(productId, 2)))));
+        assertThrows(APIException.class, () -> orderService.checkout(userId, "zero-key",
+                new CheckoutRequest(addressId, List.of(new CheckoutItemRequest(productId, 0)))));
+        assertThrows(APIException.class, () -> orderService.checkout(userId, "negative-key",
+                new CheckoutRequest(addressId, List.of(new CheckoutItemRequest(productId, -5)))));
+        assertEquals(10, productRepository.findQuantity(productId));
+    }
+
+    @Test
+    void ordersReservedStockByConfirmingTheReservation() {
+        Long productId = testCatalog.product(10);
+        StockReservationResponse reservation = stockReservationService.reserve(userId,
+                new StockReservationRequest(productId, 2, null));
+        assertEquals(8, productRepository.findQuantity(productId));
+
+        OrderResponse order = orderService.checkout(userId, "reserved-key", new CheckoutRequest(addressId, List.of(
+                new CheckoutItemRequest(productId, 2, reservation.getReservationId()),
+                new CheckoutItemRequest(productId, 1))));
+
+        assertEquals(3, order.getTotalQuantity());
+        assertEquals(7, productRepository.findQuantity(productId));
+        assertEquals(ReservationStatus.CONFIRMED,
+                stockReservationRepository.findById(reservation.getReservationId()).orElseThrow().getStatus());
+        // A confirmed reservation cannot be ordered again
+        assertThrows(APIException.class, () -> orderService.checkout(userId, "reserved-again-key",
+                new CheckoutRequest(addressId, List.of(
+                        new CheckoutItemRequest(productId, 2, reservation.getReservationId())))));
+    }
+
+    @Test
+    void rejectsAReservationMadeByAnotherUser() {
+        Long productId = testCatalog.product(10);
+        Long otherUserId = userRepository.save(new Users("checkout-other", "checkout-other@example.com", "password"))
+                .getUserId();
+        StockReservationResponse reservation = stockReservationService.reserve(otherUserId,
+                new StockReservationRequest(productId, 2, null));
+
+        assertThrows(ResourceNotFoundException.class, () -> orderService.checkout(userId, "foreign-key",
+                new CheckoutRequest(addressId, List.of(
+                        new CheckoutItemRequest(productId, 2, reservation.getReservationId())))));
+        assertEquals(ReservationStatus.RESERVED,
+                stockReservationRepository.findById(reservation.getReservationId()).orElseThrow().getStatus());
+        assertEquals(8, productRepository.findQuantity(productId));
+    }
+
+    @Test
+    void sellingOutUpdatesTheCategoryAggregates() {
+        Long categoryId = testCatalog.category("Checkout category");
+        Long productId = testCatalog.product(categoryId, 2, 10.0, 0.0);
+        long inStock = categoryStatsRepository.findById(categoryId).orElseThrow().getInStockCount();
+
+        orderService.checkout(userId, "sold-out-key",
+                new CheckoutRequest(addressId, List.of(new CheckoutItemRequest(productId, 2))));
+
+        assertEquals(0, productRepository.findQuantity(productId));
+        assertEquals(inStock - 1,
+                categoryStatsRepository.findById(categoryId).orElseThrow().getInStockCount());
+    }
+}
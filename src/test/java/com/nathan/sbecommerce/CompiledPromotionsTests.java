@@ -0,0 +1,84 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.model.DiscountType;
+import com.nathan.sbecommerce.model.PromotionRule;
+import com.nathan.sbecommerce.service.impl.CompiledPromotions;
+import com.nathan.sbecommerce.service.impl.CompiledPromotions.PricedProduct;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks how promotion rules combine, and that prices are computed exactly in cents.
+ */
+class CompiledPromotionsTests {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Test
+    void stacksRulesByPriorityAndKeepsBestExclusiveRule() {
+        CompiledPromotions promotions = CompiledPromotions.compile(1, List.of(
+                rule(1, null, null, DiscountType.PERCENTAGE, "10", true, 1, null),
+                rule(2, null, 7L, DiscountType.AMOUNT, "5", true, 2, null),
+                rule(3, 42L, null, DiscountType.PERCENTAGE, "15", false, 0, null)), NOW);
+
+        // 100.00 - 5.00 = 95.00, then - 10% = 85.50; the exclusive 15% gives 85.00 and wins
+        assertEquals(new PricedProduct(8500, List.of(3L)), promotions.price(10000, 42, 7, 0));
+        // Without the product rule, both stackable rules apply in priority order
+        assertEquals(new PricedProduct(8550, List.of(2L, 1L)), promotions.price(10000, 41, 7, 0));
+        assertEquals(new PricedProduct(9000, List.of(1L)), promotions.price(10000, 41, 8, 0));
+    }
+
+    @Test
+    void roundsEachDiscountHalfUpInCents() {
+        CompiledPromotions promotions = CompiledPromotions.compile(1, List.of(
+                rule(1, null, null, DiscountType.PERCENTAGE, "33.33", true, 0, null)), NOW);
+
+        // 0.10 + 0.20 as doubles is 0.30000000000000004, in cents it is 30
+        long cents = CompiledPromotions.toCents(0.1 + 0.2);
+        assertEquals(30, cents);
+        // 30 * 33.33% = 9.999 cents, rounded to 10
+        assertEquals(20, promotions.price(cents, 1, 1, 0).cents());
+        assertEquals(550, CompiledPromotions.toCents(5.495));
+    }
+
+    @Test
+    void appliesSegmentAndPeriodLimits() {
+        CompiledPromotions promotions = CompiledPromotions.compile(1, List.of(
+                rule(1, null, null, DiscountType.AMOUNT, "1", true, 0, "ROLE_SELLER"),
+                withPeriod(rule(2, null, null, DiscountType.AMOUNT, "2", true, 0, null), NOW.plusHours(1), null),
+                withPeriod(rule(3, null, null, DiscountType.AMOUNT, "3", true, 0, null), null, NOW)), NOW);
+
+        assertEquals(1000, promotions.price(1000, 1, 1, CompiledPromotions.segmentMask(Set.of("ROLE_USER"))).cents());
+        assertEquals(900, promotions.price(1000, 1, 1, CompiledPromotions.segmentMask(Set.of("ROLE_SELLER"))).cents());
+        assertTrue(promotions.isValidAt(NOW.plusMinutes(59)));
+        assertFalse(promotions.isValidAt(NOW.plusHours(1)));
+    }
+
+    private static PromotionRule rule(long ruleId, Long productId, Long categoryId, DiscountType type, String value,
+                                      boolean stackable, int priority, String segment) {
+        PromotionRule rule = new PromotionRule();
+        rule.setRuleId(ruleId);
+        rule.setProductId(productId);
+        rule.setCategoryId(categoryId);
+        rule.setDiscountType(type);
+        rule.setDiscountValue(new BigDecimal(value));
+        rule.setStackable(stackable);
+        rule.setPriority(priority);
+        rule.setSegment(segment);
+        return rule;
+    }
+
+    private static PromotionRule withPeriod(PromotionRule rule, LocalDateTime startsAt, LocalDateTime endsAt) {
+        rule.setStartsAt(startsAt);
+        rule.setEndsAt(endsAt);
+        return rule;
+    }
+}
@@ -0,0 +1,100 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.dto.request.DiscountCampaignRequest;
+import com.nathan.sbecommerce.dto.response.DiscountCampaignResponse;
+import com.nathan.sbecommerce.model.CampaignStatus;
+import com.nathan.sbecommerce.model.CategoryStats;
+import com.nathan.sbecommerce.model.DiscountType;
+import com.nathan.sbecommerce.repository.CategoryStatsRepository;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.service.DiscountCampaignService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Runs a discount campaign on one category through the background worker, and checks the special prices and the
+ * category aggregates before it, while it is active and once it has ended, including the products it must skip.
+ */
+@SpringBootTest
+class DiscountCampaignTests {
+
+    private static final double DELTA = 1e-9;
+
+    @Autowired
+    private DiscountCampaignService discountCampaignService;
+
+    @Autowired
+    private CategoryStatsRepository categoryStatsRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestCatalog testCatalog;
+
+    @Test
+    void repricesTheCategoryThenRestoresItsPrices() throws InterruptedException {
+        Long categoryId = testCatalog.category("Campaign category");
+        Long otherCategoryId = testCatalog.category("Campaign free category");
+        Long full = testCatalog.product(categoryId, 10, 100.0, 0.0);
+        Long discounted = testCatalog.product(categoryId, 10, 50.0, 10.0);
+        Long tooExpensive = testCatalog.product(categoryId, 10, 200.0, 0.0);
+        Long otherCategory = testCatalog.product(otherCategoryId, 10, 100.0, 0.0);
+
+        assertEquals(45.0, specialPrice(discounted), DELTA);
+        assertSpecialPriceRange(categoryId, 45.0, 200.0);
+
+        DiscountCampaignResponse campaign = discountCampaignService.createCampaign(new DiscountCampaignRequest(
+                "Twenty off", DiscountType.PERCENTAGE, 20.0, categoryId, false, null, 150.0, null, null));
+        campaign = awaitStatus(campaign.getCampaignId(), Set.of(CampaignStatus.ACTIVE));
+
+        assertEquals(CampaignStatus.ACTIVE, campaign.getStatus(), campaign.getError());
+        assertEquals(2, campaign.getAffectedProducts());
+        assertEquals(80.0, specialPrice(full), DELTA);
+        // The campaign replaces the product's own discount
+        assertEquals(40.0, specialPrice(discounted), DELTA);
+        assertEquals(200.0, specialPrice(tooExpensive), DELTA);
+        assertEquals(100.0, specialPrice(otherCategory), DELTA);
+        assertEquals(campaign.getCampaignId(), productRepository.findById(full).orElseThrow().getCampaignId());
+        assertNull(productRepository.findById(tooExpensive).orElseThrow().getCampaignId());
+        assertSpecialPriceRange(categoryId, 40.0, 200.0);
+        assertSpecialPriceRange(otherCategoryId, 100.0, 100.0);
+
+        discountCampaignService.endCampaign(campaign.getCampaignId());
+        campaign = awaitStatus(campaign.getCampaignId(), Set.of(CampaignStatus.ENDED));
+
+        assertEquals(CampaignStatus.ENDED, campaign.getStatus(), campaign.getError());
+        assertEquals(100.0, specialPrice(full), DELTA);
+        assertEquals(45.0, specialPrice(discounted), DELTA);
+        assertEquals(200.0, specialPrice(tooExpensive), DELTA);
+        assertNull(productRepository.findById(full).orElseThrow().getCampaignId());
+        assertSpecialPriceRange(categoryId, 45.0, 200.0);
+    }
+
+    private DiscountCampaignResponse awaitStatus(Long campaignId, Set<CampaignStatus> expected)
+            throws InterruptedException {
+        DiscountCampaignResponse campaign = discountCampaignService.getCampaign(campaignId);
+        for (int i = 0; i < 200 && !expected.contains(campaign.getStatus())
+                && campaign.getStatus() != CampaignStatus.FAILED; i++) {
+            Thread.sleep(50);
+            campaign = discountCampaignService.getCampaign(campaignId);
+        }
+        return campaign;
+    }
+
+    private void assertSpecialPriceRange(Long categoryId, double min, double max) {
+        CategoryStats stats = categoryStatsRepository.findById(categoryId).orElseThrow();
+        assertEquals(min, stats.getMinSpecialPrice(), DELTA);
+        assertEquals(max, stats.getMaxSpecialPrice(), DELTA);
+    }
+
+    private double specialPrice(Long productId) {
+        return productRepository.findById(productId).orElseThrow().getSpecialPrice();
+    }
+}
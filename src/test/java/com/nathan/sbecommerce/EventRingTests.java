@@ -0,0 +1,75 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.service.impl.EventRing;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that every consumer of the ring sees every item once and in order, even when the ring is much smaller
+ * than what is published and a consumer fails, and that an item a consumer always fails on is dead lettered
+ * without losing the rest of its batch.
+ */
+class EventRingTests {
+
+    @Test
+    void deliversEveryItemInOrderToEachConsumer() throws Exception {
+        EventRing<Long> ring = new EventRing<>(64, 16, 3, (consumer, item, failure) -> {
+            throw new AssertionError("Dead lettered " + item);
+        });
+        List<Long> fast = Collections.synchronizedList(new ArrayList<>());
+        List<Long> flaky = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean failed = new AtomicBoolean();
+        ring.addConsumer("fast", fast::addAll);
+        ring.addConsumer("flaky", batch -> {
+            if (batch.contains(500L) && failed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Fails once");
+            }
+            flaky.addAll(batch);
+        });
+
+        List<Long> expected = LongStream.range(0, 10_000).boxed().toList();
+        for (int from = 0; from < expected.size(); from += 100) {
+            ring.publish(expected.subList(from, from + 100));
+        }
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (ring.consumedSequence() < expected.size() - 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        ring.stop();
+
+        assertEquals(expected, fast);
+        assertEquals(expected, flaky);
+    }
+
+    @Test
+    void deadLettersOnlyTheItemTheConsumerAlwaysFailsOn() throws Exception {
+        List<String> deadLetters = Collections.synchronizedList(new ArrayList<>());
+        EventRing<Long> ring = new EventRing<>(64, 16, 2,
+                (consumer, item, failure) -> deadLetters.add(consumer + ":" + item));
+        List<Long> processed = Collections.synchronizedList(new ArrayList<>());
+        ring.addConsumer("poisoned", batch -> {
+            if (batch.contains(7L)) {
+                throw new IllegalStateException("Always fails on 7");
+            }
+            processed.addAll(batch);
+        });
+
+        List<Long> items = LongStream.range(0, 16).boxed().toList();
+        ring.publish(items);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (ring.consumedSequence() < items.size() - 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        ring.stop();
+
+        assertEquals(items.stream().filter(item -> item != 7L).toList(), processed);
+        assertEquals(List.of("poisoned:7"), deadLetters);
+    }
+}
@@ -0,0 +1,104 @@
+package com.nathan.sbecommerce;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathan.sbecommerce.idempotency.IdempotencyFilter;
+import com.nathan.sbecommerce.idempotency.IdempotencyStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockPart;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that a key reused for another body is refused even when the body is too large to be read up front or
+ * is a multipart upload, and that the same body is replayed without running the handler again.
+ */
+class IdempotencyFilterTests {
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private final IdempotencyFilter filter = new IdempotencyFilter(
+            new IdempotencyStore(null, 100, 1 << 20, 60, false), new ObjectMapper());
+
+    /** Reads the whole body, or all parts, like a handler would */
+    private final FilterChain handler = (request, response) -> {
+        executions.incrementAndGet();
+        if (request.getContentType().startsWith(MediaType.MULTIPART_FORM_DATA_VALUE)) {
+            for (var part : ((HttpServletRequest) request).getParts()) {
+                part.getInputStream().readAllBytes();
+            }
+        } else {
+            request.getInputStream().readAllBytes();
+        }
+        ((HttpServletResponse) response).setStatus(201);
+        response.getWriter().write("created " + executions.get());
+    };
+
+    IdempotencyFilterTests() {
+        ReflectionTestUtils.setField(filter, "maxBodyBytes", 16);
+        ReflectionTestUtils.setField(filter, "waitTimeoutMs", 0L);
+    }
+
+    @Test
+    void fingerprintsAStreamedBodyAsTheHandlerReadsIt() throws Exception {
+        MockHttpServletResponse first = send(streamed("k1", body('a')));
+        assertEquals(201, first.getStatus());
+
+        MockHttpServletResponse retry = send(streamed("k1", body('a')));
+        assertEquals(201, retry.getStatus());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+
+        // Same length, different content
+        assertEquals(422, send(streamed("k1", body('b'))).getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void fingerprintsTheContentOfMultipartUploads() throws Exception {
+        assertEquals(201, send(multipart("k2", body('a'))).getStatus());
+        assertEquals("true", send(multipart("k2", body('a'))).getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(422, send(multipart("k2", body('b'))).getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, handler);
+        return response;
+    }
+
+    private static MockHttpServletRequest streamed(String key, byte[] body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/api/admin/products/1/image");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        request.setContentType(MediaType.IMAGE_PNG_VALUE);
+        request.setContent(body);
+        return request;
+    }
+
+    private static MockHttpServletRequest multipart(String key, byte[] content) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/admin/products/1/images");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        request.setContentType(MediaType.MULTIPART_FORM_DATA_VALUE + "; boundary=" + key);
+        MockPart part = new MockPart("images", "photo.png", content);
+        part.getHeaders().setContentType(MediaType.IMAGE_PNG);
+        request.addPart(part);
+        return request;
+    }
+
+    /** Larger than the bodies read up front */
+    private static byte[] body(char fill) {
+        byte[] body = new byte[64];
+        Arrays.fill(body, (byte) fill);
+        return body;
+    }
+}
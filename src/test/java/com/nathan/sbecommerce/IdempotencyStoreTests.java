@@ -0,0 +1,78 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.idempotency.IdempotencyStore;
+import com.nathan.sbecommerce.idempotency.IdempotencyStore.Claim;
+import com.nathan.sbecommerce.idempotency.IdempotencyStore.Outcome;
+import com.nathan.sbecommerce.idempotency.IdempotencyStore.StoredResponse;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks that a key runs its request once, and that duplicates are replayed, refused or made to wait.
+ */
+class IdempotencyStoreTests {
+
+    private final IdempotencyStore store = new IdempotencyStore(null, 100, 1024, 60, false);
+
+    @Test
+    void replaysTheStoredResponseAndRefusesAnotherRequest() throws InterruptedException {
+        Claim first = store.claim("alice:k1", "a", 0);
+        assertEquals(Outcome.EXECUTE, first.outcome());
+        store.complete(first, response("created"));
+
+        Claim retry = store.claim("alice:k1", "a", 0);
+        assertEquals(Outcome.REPLAY, retry.outcome());
+        assertArrayEquals("created".getBytes(StandardCharsets.UTF_8), retry.response().body());
+        assertEquals(Outcome.MISMATCH, store.claim("alice:k1", "b", 0).outcome());
+        // Keys are scoped, the same key of another user is a new request
+        assertEquals(Outcome.EXECUTE, store.claim("bob:k1", "a", 0).outcome());
+    }
+
+    @Test
+    void duplicatesWaitForTheRequestInFlight() throws Exception {
+        Claim first = store.claim("alice:k2", "a", 0);
+        assertEquals(Outcome.IN_PROGRESS, store.claim("alice:k2", "a", 0).outcome());
+
+        CompletableFuture<Claim> duplicate = CompletableFuture.supplyAsync(() -> claim("alice:k2", 5000));
+        Thread.sleep(50);
+        assertFalse(duplicate.isDone());
+        store.complete(first, response("created"));
+        assertEquals(Outcome.REPLAY, duplicate.get(5, TimeUnit.SECONDS).outcome());
+
+        // A released key is claimed by the next waiter, which runs the request itself
+        Claim failed = store.claim("alice:k3", "a", 0);
+        CompletableFuture<Claim> retry = CompletableFuture.supplyAsync(() -> claim("alice:k3", 5000));
+        Thread.sleep(50);
+        store.release(failed);
+        assertEquals(Outcome.EXECUTE, retry.get(5, TimeUnit.SECONDS).outcome());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedResponsesBeyondTheBytesBound() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            store.complete(store.claim("alice:big" + i, "a", 0), new StoredResponse(200, null, new byte[400]));
+        }
+        // 1024 bytes hold two responses of 400 bytes, the oldest ones were evicted
+        assertEquals(Outcome.EXECUTE, store.claim("alice:big0", "a", 0).outcome());
+        assertEquals(Outcome.REPLAY, store.claim("alice:big3", "a", 0).outcome());
+    }
+
+    private Claim claim(String key, long waitMillis) {
+        try {
+            return store.claim(key, "a", waitMillis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static StoredResponse response(String body) {
+        return new StoredResponse(201, "application/json", body.getBytes(StandardCharsets.UTF_8));
+    }
+}
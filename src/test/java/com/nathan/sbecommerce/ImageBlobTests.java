@@ -0,0 +1,94 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.exception.APIException;
+import com.nathan.sbecommerce.model.ImageBlob;
+import com.nathan.sbecommerce.repository.ImageBlobRepository;
+import com.nathan.sbecommerce.service.impl.FileServiceImpl;
+import com.nathan.sbecommerce.storage.BlobStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stores images through the file service and checks their reference counting and background collection.
+ */
+@SpringBootTest
+class ImageBlobTests {
+
+    @Autowired
+    private FileServiceImpl fileService;
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Value("${project.image}")
+    private String path;
+
+    @Test
+    void identicalUploadsShareOneBlobUntilBothReferencesAreReleased() throws Exception {
+        byte[] image = TestImages.png(30);
+        String first = store(image);
+        String second = store(image);
+        assertEquals(first, second);
+
+        fileService.retainImage(first);
+        fileService.retainImage(second);
+        assertEquals(2, imageBlobRepository.findById(first).orElseThrow().getReferenceCount());
+        assertTrue(blobStore.exists(FileServiceImpl.objectKey(first)));
+
+        fileService.releaseImage(first);
+        fileService.releaseImage(second);
+        pastGracePeriod(first);
+        fileService.collectOrphanedImages();
+
+        assertFalse(blobStore.exists(FileServiceImpl.objectKey(first)));
+        assertFalse(imageBlobRepository.existsById(first));
+    }
+
+    @Test
+    void keepsAnImageRetainedAgainBeforeTheCollection() throws Exception {
+        String imageKey = store(TestImages.png(31));
+        pastGracePeriod(imageKey);
+        fileService.retainImage(imageKey);
+
+        fileService.collectOrphanedImages();
+
+        assertTrue(blobStore.exists(FileServiceImpl.objectKey(imageKey)));
+        assertEquals(1, imageBlobRepository.findById(imageKey).orElseThrow().getReferenceCount());
+    }
+
+    @Test
+    void aBlobMarkedForDeletionCannotBeRetained() throws Exception {
+        String imageKey = store(TestImages.png(34));
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(1, imageBlobRepository.markForDeletion(imageKey, now.plusMinutes(1), now));
+
+        assertThrows(APIException.class, () -> fileService.retainImage(imageKey));
+        assertEquals(-1, imageBlobRepository.findById(imageKey).orElseThrow().getReferenceCount());
+    }
+
+    private String store(byte[] image) throws Exception {
+        return fileService.storeImage(path, new ByteArrayInputStream(image), image.length);
+    }
+
+    /**
+     * Moves the last change of a blob back past the grace period of the collection.
+     */
+    private void pastGracePeriod(String imageKey) {
+        ImageBlob blob = imageBlobRepository.findById(imageKey).orElseThrow();
+        blob.setUpdatedAt(LocalDateTime.now().minusDays(1));
+        imageBlobRepository.save(blob);
+    }
+}
@@ -0,0 +1,115 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.service.FileService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Requests a stored image through the image endpoints and checks the conditional, range and caching headers.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ImageServingTests {
+
+    private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FileService fileService;
+
+    @Value("${project.image}")
+    private String path;
+
+    private byte[] image;
+
+    private String imageKey;
+
+    private String etag;
+
+    @BeforeAll
+    void storeImage() throws Exception {
+        image = TestImages.png(32);
+        imageKey = fileService.storeImage(path, new ByteArrayInputStream(image), image.length);
+        etag = "\"" + imageKey.substring(0, 64) + "\"";
+    }
+
+    @Test
+    void answersNotModifiedForAMatchingEtag() throws Exception {
+        mockMvc.perform(get("/images/{imageKey}", imageKey))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, CACHE_IMMUTABLE))
+                .andExpect(content().bytes(image));
+
+        mockMvc.perform(get("/images/{imageKey}", imageKey).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void servesASingleRange() throws Exception {
+        mockMvc.perform(get("/images/{imageKey}", imageKey).header(HttpHeaders.RANGE, "bytes=10-19"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/" + image.length))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10))
+                .andExpect(content().bytes(Arrays.copyOfRange(image, 10, 20)));
+    }
+
+    @Test
+    void servesASuffixRange() throws Exception {
+        int size = image.length;
+        mockMvc.perform(get("/images/{imageKey}", imageKey).header(HttpHeaders.RANGE, "bytes=-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + (size - 5) + "-" + (size - 1) + "/" + size))
+                .andExpect(content().bytes(Arrays.copyOfRange(image, size - 5, size)));
+    }
+
+    @Test
+    void refusesARangePastTheEnd() throws Exception {
+        mockMvc.perform(get("/images/{imageKey}", imageKey).header(HttpHeaders.RANGE, "bytes=" + image.length + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + image.length));
+    }
+
+    @Test
+    void servesTheWholeImageWhenIfRangeDoesNotMatch() throws Exception {
+        mockMvc.perform(get("/images/{imageKey}", imageKey)
+                        .header(HttpHeaders.RANGE, "bytes=0-9")
+                        .header(HttpHeaders.IF_RANGE, "\"another-version\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                .andExpect(content().bytes(image));
+    }
+
+    @Test
+    void servesTheOriginalBrieflyWhileARenditionIsPending() throws Exception {
+        byte[] pending = TestImages.png(33);
+        String pendingKey = fileService.storeImage(path, new ByteArrayInputStream(pending), pending.length);
+
+        mockMvc.perform(get("/images/thumbnail/{imageKey}", pendingKey))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=60"))
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(content().bytes(pending));
+    }
+}
@@ -0,0 +1,104 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.exception.UploadRejectedException;
+import com.nathan.sbecommerce.service.FileService;
+import com.nathan.sbecommerce.service.impl.UploadLimiter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stores uploads that break the limits and checks that each is refused with the right status, without leaving a
+ * temporary file behind.
+ */
+@SpringBootTest(properties = {
+        "project.image.max-upload-bytes=4096",
+        "project.image.upload.max-concurrent=1",
+        "project.image.upload.queue-timeout-ms=100"
+})
+class ImageUploadLimitsTests {
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private UploadLimiter uploadLimiter;
+
+    @TempDir
+    private Path path;
+
+    @Test
+    void refusesContentThatIsNotAnImage() throws IOException {
+        byte[] text = "<html><script>alert(1)</script></html>".getBytes();
+
+        UploadRejectedException rejected = assertThrows(UploadRejectedException.class, () -> store(text, text.length));
+
+        assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, rejected.getStatus());
+        assertEquals(0, temporaryFiles());
+    }
+
+    @Test
+    void refusesAnUploadAnnouncedAsTooLargeBeforeReadingIt() throws IOException {
+        byte[] image = TestImages.png(35);
+
+        UploadRejectedException rejected = assertThrows(UploadRejectedException.class,
+                () -> store(image, image.length));
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, rejected.getStatus());
+        assertEquals(0, temporaryFiles());
+    }
+
+    @Test
+    void refusesAnUploadGrowingPastTheLimitAndDeletesWhatWasWritten() throws IOException {
+        byte[] image = TestImages.png(36);
+
+        UploadRejectedException rejected = assertThrows(UploadRejectedException.class, () -> store(image, -1));
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, rejected.getStatus());
+        assertTrue(Files.isDirectory(path.resolve("tmp")));
+        assertEquals(0, temporaryFiles());
+    }
+
+    @Test
+    void refusesAnUploadWhenNoSlotFreesUpInTime() throws IOException {
+        byte[] image = TestImages.png(37);
+        uploadLimiter.acquireSlot();
+        try {
+            UploadRejectedException rejected = assertThrows(UploadRejectedException.class,
+                    () -> store(image, image.length / 4));
+
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatus());
+        } finally {
+            uploadLimiter.releaseSlot();
+        }
+    }
+
+    private String store(byte[] content, long contentLength) throws IOException {
+        return fileService.storeImage(path.toString(), new ByteArrayInputStream(content), contentLength);
+    }
+
+    /**
+     * Counts the files left in the temporary directory of the uploads, which is only created once a file is written.
+     */
+    private long temporaryFiles() throws IOException {
+        Path tempDirectory = path.resolve("tmp");
+        if (!Files.exists(tempDirectory)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.list(tempDirectory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.service.impl.MinHasher;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that signatures estimate the similarity of texts, and that similar texts share a band key.
+ */
+class MinHasherTests {
+
+    private final MinHasher minHasher = new MinHasher(128, 32, 4);
+
+    @Test
+    void estimatesTheJaccardSimilarityOfShingles() {
+        String a = "Acme wireless phone 1A, the wireless phone by Acme, a reliable choice for everyday use.";
+        String b = "Acme wireless phone 2B, the wireless phone by Acme, a reliable choice for everyday use.";
+        String c = "Initech premium tablet with a large screen and a long lasting battery.";
+
+        assertEquals(1.0, MinHasher.similarity(minHasher.signature(a), minHasher.signature(a.toUpperCase())));
+        double estimated = MinHasher.similarity(minHasher.signature(a), minHasher.signature(b));
+        assertEquals(jaccard(a, b), estimated, 0.15);
+        assertTrue(MinHasher.similarity(minHasher.signature(a), minHasher.signature(c)) < 0.15);
+    }
+
+    @Test
+    void similarTextsShareABandKey() {
+        long[] a = minHasher.bandKeys(minHasher.signature("Stark compact camera 3C, the compact camera by Stark"));
+        long[] b = minHasher.bandKeys(minHasher.signature("Stark compact camera 4D, the compact camera by Stark"));
+        boolean shared = false;
+        for (int band = 0; band < a.length; band++) {
+            shared |= a[band] == b[band];
+        }
+        assertTrue(shared);
+    }
+
+    private static double jaccard(String a, String b) {
+        Set<String> shinglesOfA = shingles(a);
+        Set<String> union = new HashSet<>(shinglesOfA);
+        Set<String> shinglesOfB = shingles(b);
+        union.addAll(shinglesOfB);
+        shinglesOfA.retainAll(shinglesOfB);
+        return (double) shinglesOfA.size() / union.size();
+    }
+
+    private static Set<String> shingles(String text) {
+        String normalized = text.toLowerCase().replaceAll("[^\\p{L}\\p{N}]+", " ").strip();
+        Set<String> shingles = new HashSet<>();
+        for (int i = 0; i + 4 <= normalized.length(); i++) {
+            shingles.add(normalized.substring(i, i + 4));
+        }
+        return shingles;
+    }
+}
@@ -0,0 +1,74 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.service.impl.PriceDistribution;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks the accuracy of the quantiles, and that removing and merging prices keep the sketch and histogram exact.
+ */
+class PriceDistributionTests {
+
+    private static final double[] BOUNDS = {10, 100, 1000};
+
+    @Test
+    void estimatesQuantilesWithinTheRelativeAccuracy() {
+        Random random = new Random(42);
+        double[] prices = new double[10000];
+        PriceDistribution distribution = new PriceDistribution(0.01, BOUNDS);
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = Math.exp(random.nextGaussian() * 1.5 + 4);
+            distribution.add(prices[i]);
+        }
+        Arrays.sort(prices);
+
+        for (double q : new double[]{0.1, 0.5, 0.9}) {
+            double exact = prices[(int) Math.floor(q * (prices.length - 1))];
+            assertEquals(exact, distribution.quantile(q), exact * 0.01);
+        }
+        assertEquals(10000, distribution.count());
+    }
+
+    @Test
+    void removesPricesAndMergesDistributions() {
+        PriceDistribution first = new PriceDistribution(0.01, BOUNDS);
+        PriceDistribution second = new PriceDistribution(0.01, BOUNDS);
+        first.add(5.0);
+        first.add(50.0);
+        first.add(null);
+        second.add(500.0);
+        second.add(5000.0);
+
+        first.remove(50.0);
+        first.remove(60.0);
+        assertEquals(1, first.count());
+        assertArrayEquals(new long[]{1, 0, 0, 0}, first.histogram());
+
+        first.merge(second);
+        assertEquals(3, first.count());
+        assertEquals(500.0, first.quantile(0.5), 5.0);
+        assertArrayEquals(new long[]{1, 0, 1, 1}, first.histogram());
+
+        first.remove(5.0);
+        first.remove(500.0);
+        first.remove(5000.0);
+        assertNull(first.quantile(0.5));
+    }
+
+    @Test
+    void countsAPriceEqualToABoundInTheNextBucket() {
+        PriceDistribution distribution = new PriceDistribution(0.01, BOUNDS);
+        distribution.add(0.0);
+        distribution.add(10.0);
+        distribution.add(1000.0);
+
+        assertArrayEquals(new long[]{1, 1, 0, 1}, distribution.histogram());
+        assertEquals(0.0, distribution.quantile(0));
+    }
+}
@@ -0,0 +1,58 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.service.impl.RecentlyViewedProducts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Checks the order kept by the recently viewed rings, the eviction of idle users, and the snapshot round trip.
+ */
+class RecentlyViewedProductsTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsTheLastDistinctProductsMostRecentFirst() {
+        RecentlyViewedProducts recentlyViewed = new RecentlyViewedProducts(3, 10, directory.resolve("snapshot"));
+        for (long productId : new long[]{1, 2, 3, 2, 4, 4, 5}) {
+            recentlyViewed.add(7, productId);
+        }
+        assertArrayEquals(new long[]{5, 4, 2}, recentlyViewed.get(7));
+        assertArrayEquals(new long[0], recentlyViewed.get(8));
+    }
+
+    @Test
+    void reusesTheSliceOfTheLeastRecentlyUsedUser() {
+        RecentlyViewedProducts recentlyViewed = new RecentlyViewedProducts(3, 2, directory.resolve("snapshot"));
+        recentlyViewed.add(1, 10);
+        recentlyViewed.add(2, 20);
+        recentlyViewed.add(1, 11);
+        recentlyViewed.add(3, 30);
+
+        assertArrayEquals(new long[]{11, 10}, recentlyViewed.get(1));
+        assertArrayEquals(new long[0], recentlyViewed.get(2));
+        assertArrayEquals(new long[]{30}, recentlyViewed.get(3));
+    }
+
+    @Test
+    void restoresTheRingsFromTheSnapshot() {
+        Path snapshot = directory.resolve("snapshot");
+        RecentlyViewedProducts recentlyViewed = new RecentlyViewedProducts(4, 10, snapshot);
+        for (long productId = 1; productId <= 6; productId++) {
+            recentlyViewed.add(1, productId);
+        }
+        recentlyViewed.add(2, 42);
+        recentlyViewed.snapshot();
+
+        RecentlyViewedProducts restored = new RecentlyViewedProducts(4, 10, snapshot);
+        ReflectionTestUtils.invokeMethod(restored, "loadSnapshot");
+        assertArrayEquals(new long[]{6, 5, 4, 3}, restored.get(1));
+        assertArrayEquals(new long[]{42}, restored.get(2));
+    }
+}
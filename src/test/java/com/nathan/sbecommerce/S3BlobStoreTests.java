@@ -0,0 +1,217 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.storage.BlobStore;
+import com.nathan.sbecommerce.storage.S3BlobStore;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the S3 blob store against a local HTTP stand-in of the bucket, which implements the few S3 operations the
+ * store uses: HEAD, GET with a range, PUT, DELETE and the three requests of a multipart upload.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class S3BlobStoreTests {
+
+    private static final String BUCKET = "product-images";
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger uploadIds = new AtomicInteger();
+
+    private HttpServer server;
+
+    private BlobStore blobStore;
+
+    @TempDir
+    private Path directory;
+
+    @BeforeAll
+    void startBucket() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/" + BUCKET + "/", this::handle);
+        server.start();
+        blobStore = new S3BlobStore("http://localhost:" + server.getAddress().getPort(), "us-east-1", BUCKET,
+                "access", "secret", S3BlobStore.MIN_PART_SIZE, 4);
+    }
+
+    @AfterAll
+    void stopBucket() {
+        server.stop(0);
+    }
+
+    @Test
+    void putsReadsAndDeletesASmallBlob() throws IOException {
+        byte[] content = randomBytes(1000);
+        String key = "7b/43/small.png";
+
+        assertNull(blobStore.stat(key));
+        blobStore.put(key, write(content));
+
+        assertEquals(content.length, blobStore.stat(key).size());
+        assertTrue(blobStore.stat(key).lastModified() > 0);
+        try (InputStream input = blobStore.open(key)) {
+            assertArrayEquals(content, input.readAllBytes());
+        }
+        try (InputStream input = blobStore.open(key, 100, 50)) {
+            assertArrayEquals(Arrays.copyOfRange(content, 100, 150), input.readAllBytes());
+        }
+        try (InputStream input = blobStore.open(key, 900, -1)) {
+            assertArrayEquals(Arrays.copyOfRange(content, 900, 1000), input.readAllBytes());
+        }
+
+        blobStore.delete(key);
+        assertFalse(blobStore.exists(key));
+        assertNull(blobStore.open(key));
+        blobStore.delete(key);
+    }
+
+    @Test
+    void putsALargeBlobAsAMultipartUpload() throws IOException {
+        byte[] content = randomBytes((int) (2 * S3BlobStore.MIN_PART_SIZE + 1234));
+        String key = "renditions/detail/aa/bb/large image.png";
+        requests.clear();
+
+        blobStore.put(key, write(content));
+
+        assertEquals(1, requests.stream().filter(request -> request.startsWith("POST uploads")).count());
+        assertEquals(3, requests.stream().filter(request -> request.startsWith("PUT part")).count());
+        assertEquals(1, requests.stream().filter(request -> request.startsWith("POST complete")).count());
+        assertTrue(uploads.isEmpty());
+        try (InputStream input = blobStore.open(key)) {
+            assertArrayEquals(content, input.readAllBytes());
+        }
+        blobStore.delete(key);
+        assertFalse(blobStore.exists(key));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (exchange.getRequestHeaders().getFirst("Authorization") == null) {
+                respond(exchange, 403, new byte[0]);
+                return;
+            }
+            String key = URLDecoder.decode(exchange.getRequestURI().getRawPath()
+                    .substring(BUCKET.length() + 2), StandardCharsets.UTF_8);
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            byte[] body;
+            try (InputStream input = exchange.getRequestBody()) {
+                body = input.readAllBytes();
+            }
+            String method = exchange.getRequestMethod();
+            if (method.equals("POST") && query.containsKey("uploads")) {
+                requests.add("POST uploads " + key);
+                String uploadId = "upload-" + uploadIds.incrementAndGet();
+                uploads.put(uploadId, new TreeMap<>());
+                respond(exchange, 200, ("<InitiateMultipartUploadResult><UploadId>" + uploadId
+                        + "</UploadId></InitiateMultipartUploadResult>").getBytes(StandardCharsets.UTF_8));
+            } else if (method.equals("PUT") && query.containsKey("partNumber")) {
+                requests.add("PUT part " + query.get("partNumber") + " " + key);
+                uploads.get(query.get("uploadId")).put(Integer.parseInt(query.get("partNumber")), body);
+                exchange.getResponseHeaders().set("ETag", "\"part-" + query.get("partNumber") + "\"");
+                respond(exchange, 200, new byte[0]);
+            } else if (method.equals("POST") && query.containsKey("uploadId")) {
+                requests.add("POST complete " + key);
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                for (byte[] part : uploads.remove(query.get("uploadId")).values()) {
+                    content.write(part);
+                }
+                objects.put(key, content.toByteArray());
+                respond(exchange, 200, "<CompleteMultipartUploadResult/>".getBytes(StandardCharsets.UTF_8));
+            } else if (method.equals("DELETE") && query.containsKey("uploadId")) {
+                uploads.remove(query.get("uploadId"));
+                respond(exchange, 204, new byte[0]);
+            } else if (method.equals("PUT")) {
+                objects.put(key, body);
+                respond(exchange, 200, new byte[0]);
+            } else if (method.equals("DELETE")) {
+                respond(exchange, objects.remove(key) == null ? 404 : 204, new byte[0]);
+            } else if (objects.get(key) == null) {
+                respond(exchange, 404, new byte[0]);
+            } else if (method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(objects.get(key).length));
+                exchange.getResponseHeaders().set("Last-Modified",
+                        DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.now().atOffset(ZoneOffset.UTC)));
+                exchange.sendResponseHeaders(200, -1);
+            } else {
+                byte[] content = objects.get(key);
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                if (range == null) {
+                    respond(exchange, 200, content);
+                } else {
+                    String[] bounds = range.substring("bytes=".length()).split("-", -1);
+                    int from = Integer.parseInt(bounds[0]);
+                    int to = bounds[1].isEmpty() ? content.length - 1 : Integer.parseInt(bounds[1]);
+                    respond(exchange, 206, Arrays.copyOfRange(content, from, to + 1));
+                }
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                int equals = parameter.indexOf('=');
+                query.put(equals < 0 ? parameter : parameter.substring(0, equals),
+                        equals < 0 ? "" : URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private Path write(byte[] content) throws IOException {
+        Path file = Files.createTempFile(directory, "blob-", ".png");
+        Files.write(file, content);
+        return file;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+}
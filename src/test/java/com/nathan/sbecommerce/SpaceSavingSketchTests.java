@@ -0,0 +1,63 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.service.impl.SpaceSavingSketch;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the guarantees of the Space-Saving summary on a skewed stream much larger than its capacity.
+ */
+class SpaceSavingSketchTests {
+
+    @Test
+    void replacesTheSmallestCounterAfterIncrements() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(3);
+        sketch.add(1, 1);
+        sketch.add(2, 2);
+        sketch.add(3, 3);
+        // Product 1 overtakes the others, so product 2 is now the smallest
+        sketch.add(1, 5);
+        sketch.add(4, 1);
+
+        assertEquals(3, sketch.size());
+        assertEquals(0, sketch.estimate(2));
+        assertEquals(3, sketch.estimate(4));
+        assertEquals(2, sketch.error(4));
+        assertEquals(6, sketch.estimate(1));
+        assertEquals(3, sketch.estimate(3));
+    }
+
+    @Test
+    void tracksHeavyProductsWithinTheErrorBound() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(100);
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // Roughly Zipfian over 10,000 products
+            long productId = (long) Math.floor(Math.pow(10_000, random.nextDouble()));
+            long weight = 1 + random.nextInt(3);
+            sketch.add(productId, weight);
+            exact.merge(productId, weight, Long::sum);
+        }
+
+        assertEquals(100, sketch.size());
+        long bound = sketch.total() / 100;
+        for (Map.Entry<Long, Long> entry : exact.entrySet()) {
+            long estimate = sketch.estimate(entry.getKey());
+            if (entry.getValue() > bound) {
+                assertTrue(estimate > 0, "product " + entry.getKey() + " should be tracked");
+            }
+            if (estimate > 0) {
+                assertTrue(estimate >= entry.getValue());
+                assertTrue(estimate - sketch.error(entry.getKey()) <= entry.getValue());
+                assertTrue(estimate - entry.getValue() <= bound);
+            }
+        }
+    }
+}
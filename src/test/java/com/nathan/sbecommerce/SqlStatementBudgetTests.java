@@ -0,0 +1,159 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.model.AppRole;
+import com.nathan.sbecommerce.model.Category;
+import com.nathan.sbecommerce.model.Product;
+import com.nathan.sbecommerce.model.Roles;
+import com.nathan.sbecommerce.model.Users;
+import com.nathan.sbecommerce.monitoring.SqlStatementCountFilter;
+import com.nathan.sbecommerce.repository.CategoryRepository;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.repository.RoleRepository;
+import com.nathan.sbecommerce.repository.UserRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Fails the build when an endpoint executes more SQL statements than its budget.
+ *
+ * The catalog is seeded with several categories so that a per-row association load (N+1) on the listing
+ * endpoints shows up as extra statements. When a change legitimately needs more statements, raise the
+ * budget here in the same commit so the increase is reviewed.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SqlStatementBudgetTests {
+
+    private static final int CATEGORIES = 5;
+    private static final int PRODUCTS_PER_CATEGORY = 12;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long categoryId;
+
+    @BeforeAll
+    void seedCatalog() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> seedUser());
+        seedProducts();
+    }
+
+    private void seedUser() {
+        Roles userRole = roleRepository.findByAppRole(AppRole.ROLE_USER)
+                .orElseGet(() -> roleRepository.save(new Roles(AppRole.ROLE_USER)));
+        if (!userRepository.existsByUsername("budget-user")) {
+            Users user = new Users("budget-user", "budget-user@example.com", passwordEncoder.encode("budget-password"));
+            user.setRoles(Set.of(userRole));
+            userRepository.save(user);
+        }
+    }
+
+    private void seedProducts() {
+        List<Product> products = new ArrayList<>();
+        for (int c = 0; c < CATEGORIES; c++) {
+            Category category = new Category();
+            category.setCategoryName("Budget category " + c);
+            category = categoryRepository.save(category);
+            categoryId = category.getCategoryId();
+            for (int p = 0; p < PRODUCTS_PER_CATEGORY; p++) {
+                Product product = new Product();
+                product.setProductName("Budget product " + c + "-" + p);
+                product.setDescription("A product used to measure SQL statements per request");
+                product.setQuantity(10);
+                product.setPrice(100.0);
+                product.setDiscount(10.0);
+                product.setSpecialPrice(90.0);
+                product.setImage("default.png");
+                product.setCategory(category);
+                products.add(product);
+            }
+        }
+        productRepository.saveAll(products);
+    }
+
+    @Test
+    void listProductsStaysWithinBudget() throws Exception {
+        assertWithinBudget(get("/api/public/products"), 2);
+    }
+
+    @Test
+    void productsByCategoryStaysWithinBudget() throws Exception {
+        assertWithinBudget(get("/api/public/categories/{categoryId}/products", categoryId), 3);
+    }
+
+    @Test
+    void keywordSearchStaysWithinBudget() throws Exception {
+        // The keyword search answers 302 Found with the products in the body
+        assertWithinBudget(get("/api/public/products/keyword/{keyword}", "Budget"), HttpStatus.FOUND, 2);
+    }
+
+    @Test
+    void listCategoriesStaysWithinBudget() throws Exception {
+        // One query at most, to rebuild the category snapshot after the seeding
+        assertWithinBudget(get("/api/public/category"), 1);
+    }
+
+    @Test
+    void signinStaysWithinBudget() throws Exception {
+        assertWithinBudget(post("/api/auth/signin")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"budget-user\",\"password\":\"budget-password\"}"), 2);
+    }
+
+    private void assertWithinBudget(RequestBuilder request, int budget) throws Exception {
+        assertWithinBudget(request, HttpStatus.OK, budget);
+    }
+
+    /**
+     * Checks the status first, so that an error response executing fewer statements never passes for a success.
+     */
+    private void assertWithinBudget(RequestBuilder request, HttpStatus expectedStatus, int budget) throws Exception {
+        MvcResult result = mockMvc.perform(request).andExpect(status().is(expectedStatus.value())).andReturn();
+        String header = result.getResponse().getHeader(SqlStatementCountFilter.STATEMENT_COUNT_HEADER);
+        assertNotNull(header, "Missing " + SqlStatementCountFilter.STATEMENT_COUNT_HEADER + " header");
+        int statements = Integer.parseInt(header);
+        assertTrue(statements <= budget, String.format("%s executed %d SQL statements, budget is %d",
+                result.getRequest().getRequestURI(), statements, budget));
+    }
+}
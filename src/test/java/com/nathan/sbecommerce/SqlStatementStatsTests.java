@@ -0,0 +1,80 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.monitoring.SqlStatementListener;
+import com.nathan.sbecommerce.monitoring.SqlStatementStats;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Feeds statements to the DataSource listener and checks that statements differing only by their literals are
+ * tallied under one shape, and that a shape is only reported as a likely N+1 from the threshold on.
+ */
+class SqlStatementStatsTests {
+
+    private final SqlStatementListener listener = new SqlStatementListener();
+
+    @AfterEach
+    void stopCounting() {
+        SqlStatementListener.end();
+    }
+
+    @Test
+    void tallyStatementsByShape() {
+        SqlStatementStats stats = SqlStatementListener.begin();
+        execute("select p1_0.product_name from products p1_0 where p1_0.product_id = 1",
+                "select p1_0.product_name from products p1_0 where p1_0.product_id=2",
+                "select  p1_0.product_name\n from products p1_0 where p1_0.product_id = 3.5",
+                "select * from users where user_name = 'O''Brien'",
+                "select * from users where user_name = 'nathan'",
+                "select * from products where category_id in (1, 2, 3)",
+                "select * from products where category_id in (4,5)");
+
+        assertEquals(7, stats.getStatementCount());
+        Map<String, Integer> shapes = stats.repeatedShapes(2);
+        assertEquals(Map.of(
+                "select p1_0.product_name from products p1_0 where p1_0.product_id = ?", 2,
+                "select * from users where user_name = ?", 2,
+                "select * from products where category_id in (?)", 2), shapes);
+        assertTrue(stats.repeatedShapes(1).containsKey(
+                "select p1_0.product_name from products p1_0 where p1_0.product_id=?"));
+    }
+
+    @Test
+    void reportsRepeatedShapesFromTheThreshold() {
+        SqlStatementStats stats = SqlStatementListener.begin();
+        for (int i = 0; i < 5; i++) {
+            execute("select * from addresses where address_id = " + i);
+        }
+        for (int i = 0; i < 4; i++) {
+            execute("select * from roles where role_id = " + i);
+        }
+
+        assertEquals(Map.of("select * from addresses where address_id = ?", 5), stats.repeatedShapes(5));
+        assertEquals(List.of("select * from addresses where address_id = ?", "select * from roles where role_id = ?"),
+                List.copyOf(stats.repeatedShapes(4).keySet()));
+        assertTrue(stats.repeatedShapes(6).isEmpty());
+    }
+
+    @Test
+    void ignoresStatementsOutsideOfCounting() {
+        SqlStatementStats stats = SqlStatementListener.begin();
+        execute("select 1");
+        SqlStatementListener.end();
+        execute("select 2");
+
+        assertEquals(1, stats.getStatementCount());
+    }
+
+    private void execute(String... statements) {
+        for (String sql : statements) {
+            listener.afterQuery(null, List.of(new QueryInfo(sql)));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.dto.request.StockReservationRequest;
+import com.nathan.sbecommerce.dto.response.StockReservationResponse;
+import com.nathan.sbecommerce.exception.APIException;
+import com.nathan.sbecommerce.exception.InsufficientStockException;
+import com.nathan.sbecommerce.exception.ResourceNotFoundException;
+import com.nathan.sbecommerce.model.ReservationStatus;
+import com.nathan.sbecommerce.model.Users;
+import com.nathan.sbecommerce.repository.CategoryStatsRepository;
+import com.nathan.sbecommerce.repository.ProductRepository;
+import com.nathan.sbecommerce.repository.StockReservationRepository;
+import com.nathan.sbecommerce.repository.UserRepository;
+import com.nathan.sbecommerce.service.StockReservationService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Reserves a single product from many threads until it is sold out, through both the conditional update and
+ * the in-memory counters the product switches to once it is hot, and checks that exactly its stock was reserved.
+ * Also checks that a reservation is only visible to the user who made it, and that the in stock count of the
+ * category follows the product row.
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StockReservationTests {
+
+    private static final int STOCK = 3000;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryStatsRepository categoryStatsRepository;
+
+    @Autowired
+    private TestCatalog testCatalog;
+
+    private Long userId;
+
+    private Long otherUserId;
+
+    @BeforeAll
+    void seedUsers() {
+        userId = userRepository.save(new Users("reserving-user", "reserving-user@example.com", "password")).getUserId();
+        otherUserId = userRepository.save(new Users("other-user", "other-user@example.com", "password")).getUserId();
+    }
+
+    @Test
+    void neverOversellsAHotProduct() throws Exception {
+        Long categoryId = testCatalog.category("Hot reservation category");
+        Long productId = testCatalog.product(categoryId, STOCK, 10.0, 0.0);
+        AtomicInteger reserved = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(executor.submit(() -> {
+                while (true) {
+                    try {
+                        stockReservationService.reserve(userId, new StockReservationRequest(productId, 1, null));
+                        reserved.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        return;
+                    }
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        executor.shutdown();
+
+        assertEquals(STOCK, reserved.get());
+        assertEquals(0, productRepository.findQuantity(productId));
+        assertEquals(STOCK, stockReservationRepository.findAll().stream()
+                .filter(reservation -> reservation.getProductId().equals(productId))
+                .count());
+        assertEquals(0, inStockCount(categoryId));
+    }
+
+    @Test
+    void soldOutAndReleasedReservationsUpdateTheCategoryAggregates() {
+        Long categoryId = testCatalog.category("Reservation category");
+        Long productId = testCatalog.product(categoryId, 2, 10.0, 0.0);
+        assertEquals(1, inStockCount(categoryId));
+
+        StockReservationResponse reservation = stockReservationService.reserve(userId,
+                new StockReservationRequest(productId, 2, null));
+        assertEquals(0, inStockCount(categoryId));
+
+        stockReservationService.release(userId, reservation.getReservationId());
+        assertEquals(1, inStockCount(categoryId));
+    }
+
+    @Test
+    void releasingGivesStockBackOnce() {
+        Long productId = testCatalog.product(5);
+        StockReservationResponse reservation = stockReservationService.reserve(userId,
+                new StockReservationRequest(productId, 3, null));
+        assertEquals(2, productRepository.findQuantity(productId));
+        assertThrows(InsufficientStockException.class,
+                () -> stockReservationService.reserve(userId, new StockReservationRequest(productId, 3, null)));
+
+        assertEquals(ReservationStatus.RELEASED,
+                stockReservationService.release(userId, reservation.getReservationId()).getStatus());
+        assertThrows(APIException.class, () -> stockReservationService.release(userId, reservation.getReservationId()));
+        assertEquals(5, productRepository.findQuantity(productId));
+    }
+
+    @Test
+    void anotherUserCannotSeeOrReleaseAReservation() {
+        Long productId = testCatalog.product(5);
+        StockReservationResponse reservation = stockReservationService.reserve(userId,
+                new StockReservationRequest(productId, 2, null));
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> stockReservationService.getReservation(otherUserId, reservation.getReservationId()));
+        assertThrows(ResourceNotFoundException.class,
+                () -> stockReservationService.release(otherUserId, reservation.getReservationId()));
+        assertEquals(ReservationStatus.RESERVED,
+                stockReservationService.getReservation(userId, reservation.getReservationId()).getStatus());
+        assertEquals(3, productRepository.findQuantity(productId));
+    }
+
+    @Test
+    void capsTheQuantityAndTheTtl() {
+        Long productId = testCatalog.product(5000);
+
+        assertThrows(APIException.class,
+                () -> stockReservationService.reserve(userId, new StockReservationRequest(productId, 1001, null)));
+        assertThrows(APIException.class,
+                () -> stockReservationService.reserve(userId, new StockReservationRequest(productId, 1, 86400L)));
+        assertEquals(5000, productRepository.findQuantity(productId));
+    }
+
+    private long inStockCount(Long categoryId) {
+        return categoryStatsRepository.findById(categoryId).orElseThrow().getInStockCount();
+    }
+}
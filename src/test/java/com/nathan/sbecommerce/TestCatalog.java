@@ -0,0 +1,70 @@
+package com.nathan.sbecommerce;
+
+import com.nathan.sbecommerce.dto.request.CategoryRequest;
+import com.nathan.sbecommerce.dto.request.ProductRequest;
+import com.nathan.sbecommerce.model.Category;
+import com.nathan.sbecommerce.repository.CategoryRepository;
+import com.nathan.sbecommerce.service.CategoryService;
+import com.nathan.sbecommerce.service.ProductService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the categories and products the tests need through the services, so that they get their aggregates,
+ * outbox events and derived prices exactly as the application would give them.
+ *
+ * Lives in the test sources next to the application class, so every test context picks it up.
+ */
+@Component
+@RequiredArgsConstructor
+class TestCatalog {
+
+    private static final String DEFAULT_CATEGORY = "Test catalog products";
+
+    private static final AtomicInteger PRODUCT_NUMBERS = new AtomicInteger();
+
+    private final CategoryService categoryService;
+
+    private final ProductService productService;
+
+    private final CategoryRepository categoryRepository;
+
+    /**
+     * @return the id of a new top-level category
+     */
+    Long category(String name) {
+        return categoryService.createCategory(new CategoryRequest(null, name, null, null)).getCategoryId();
+    }
+
+    /**
+     * Adds a product priced 10 without discount to a category shared by the tests that do not care about it.
+     *
+     * @return the id of the product
+     */
+    Long product(int quantity) {
+        return product(defaultCategory(), quantity, 10.0, 0.0);
+    }
+
+    /**
+     * Adds a product under a unique name; its special price is derived from the discount by the service.
+     *
+     * @param discount the discount in percent
+     * @return the id of the product
+     */
+    Long product(Long categoryId, int quantity, double price, double discount) {
+        ProductRequest product = new ProductRequest();
+        product.setProductName("Test product " + PRODUCT_NUMBERS.incrementAndGet());
+        product.setDescription("A product created by the test catalog");
+        product.setQuantity(quantity);
+        product.setPrice(price);
+        product.setDiscount(discount);
+        return productService.addProduct(product, categoryId).getProductId();
+    }
+
+    private synchronized Long defaultCategory() {
+        Category category = categoryRepository.findByCategoryName(DEFAULT_CATEGORY);
+        return category != null ? category.getCategoryId() : category(DEFAULT_CATEGORY);
+    }
+}
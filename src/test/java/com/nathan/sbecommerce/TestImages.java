@@ -0,0 +1,38 @@
+package com.nathan.sbecommerce;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+/**
+ * Real images for the tests of the upload and serving paths. Pixels are random, so that every seed gives different
+ * content and therefore a different content-addressed key.
+ */
+final class TestImages {
+
+    private TestImages() {
+    }
+
+    /**
+     * @return a 64x64 PNG, the same for the same seed
+     */
+    static byte[] png(long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+}